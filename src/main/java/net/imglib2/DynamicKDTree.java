@@ -0,0 +1,457 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.imglib2.neighborsearch.NearestNeighborSearchOnDynamicKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnDynamicKDTree;
+
+/**
+ * A spatial index that supports inserting and removing points.
+ * <p>
+ * Points are kept in a small unsorted insert buffer and a sequence of static
+ * {@link FlatKDTree}s ("levels") of increasing size, where level {@code j}
+ * holds roughly {@code BUFFER_SIZE * 2^j} points. When the buffer is full it
+ * is merged, together with all levels below the first empty one, into a new
+ * tree at that empty level (logarithmic method). This gives amortized
+ * {@code O(log^2 N)} insertion and keeps queries at {@code O(log^2 N)}.
+ * </p>
+ * <p>
+ * Removed points are marked as deleted and skipped by searches. They are
+ * purged when the levels they are in are merged, and all levels are rebuilt
+ * once deleted points outnumber the live ones.
+ * </p>
+ * <p>
+ * Every inserted point is identified by an {@code int} id, which stays valid
+ * until the point is removed. Ids of removed points are reused later.
+ * </p>
+ * <p>
+ * The index is not thread-safe. Searches on a {@link DynamicKDTree} are
+ * invalidated by subsequent modifications.
+ * </p>
+ *
+ * @see NearestNeighborSearchOnDynamicKDTree
+ * @see RadiusNeighborSearchOnDynamicKDTree
+ */
+public class DynamicKDTree< T > implements EuclideanSpace
+{
+	/**
+	 * Capacity of the unsorted insert buffer.
+	 */
+	public static final int BUFFER_SIZE = 64;
+
+	public static final class Level
+	{
+		private final FlatKDTree< Object > tree;
+
+		/**
+		 * point ids, indexed by tree node index.
+		 */
+		private final int[] ids;
+
+		private Level( final FlatKDTree< Object > tree, final int[] ids )
+		{
+			this.tree = tree;
+			this.ids = ids;
+		}
+
+		public FlatKDTree< Object > getTree()
+		{
+			return tree;
+		}
+
+		/**
+		 * Get the id of the point at node {@code i} of the tree.
+		 */
+		public int getId( final int i )
+		{
+			return ids[ i ];
+		}
+	}
+
+	protected final int n;
+
+	/**
+	 * coordinates of point {@code id} are at {@code [id * n, (id + 1) * n)}.
+	 */
+	private double[] positions;
+
+	private final ArrayList< T > values;
+
+	private boolean[] alive;
+
+	/**
+	 * ids of removed points that are not referenced by any level.
+	 */
+	private int[] freeIds;
+
+	private int numFreeIds;
+
+	private final int[] buffer;
+
+	private int bufferSize;
+
+	private final ArrayList< Level > levels;
+
+	private int size;
+
+	/**
+	 * number of removed points that are still stored in levels.
+	 */
+	private int numDeleted;
+
+	public DynamicKDTree( final int n )
+	{
+		this.n = n;
+		this.positions = new double[ n * BUFFER_SIZE ];
+		this.values = new ArrayList<>();
+		this.alive = new boolean[ BUFFER_SIZE ];
+		this.freeIds = new int[ 16 ];
+		this.numFreeIds = 0;
+		this.buffer = new int[ BUFFER_SIZE ];
+		this.bufferSize = 0;
+		this.levels = new ArrayList<>();
+		this.size = 0;
+		this.numDeleted = 0;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	/**
+	 * Number of points in the index.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Insert a point.
+	 *
+	 * @return the id of the new point.
+	 */
+	public int insert( final T value, final RealLocalizable position )
+	{
+		assert position.numDimensions() == n;
+		final int id = newId();
+		for ( int d = 0; d < n; ++d )
+			positions[ id * n + d ] = position.getDoublePosition( d );
+		values.set( id, value );
+		alive[ id ] = true;
+		++size;
+
+		if ( bufferSize == BUFFER_SIZE )
+			mergeBuffer();
+		buffer[ bufferSize++ ] = id;
+		return id;
+	}
+
+	/**
+	 * Remove the point with the given id.
+	 *
+	 * @return {@code true} if the point was removed, {@code false} if there is
+	 *         no point with that id.
+	 */
+	public boolean remove( final int id )
+	{
+		if ( !contains( id ) )
+			return false;
+		alive[ id ] = false;
+		values.set( id, null );
+		--size;
+
+		for ( int i = 0; i < bufferSize; ++i )
+		{
+			if ( buffer[ i ] == id )
+			{
+				buffer[ i ] = buffer[ --bufferSize ];
+				freeId( id );
+				return true;
+			}
+		}
+
+		++numDeleted;
+		if ( numDeleted > size )
+			rebuild();
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} if the index contains a point with the given id.
+	 */
+	public boolean contains( final int id )
+	{
+		return id >= 0 && id < values.size() && alive[ id ];
+	}
+
+	/**
+	 * Remove all points.
+	 */
+	public void clear()
+	{
+		values.clear();
+		Arrays.fill( alive, false );
+		numFreeIds = 0;
+		bufferSize = 0;
+		levels.clear();
+		size = 0;
+		numDeleted = 0;
+	}
+
+	/**
+	 * Merge all levels and the insert buffer into a single tree, purging
+	 * removed points.
+	 */
+	public void rebuild()
+	{
+		final int[] ids = collect( levels.size() );
+		levels.clear();
+		if ( ids.length > 0 )
+		{
+			for ( long capacity = BUFFER_SIZE; capacity < ids.length; capacity <<= 1 )
+				levels.add( null );
+			levels.add( build( ids ) );
+		}
+	}
+
+	public T getValue( final int id )
+	{
+		return values.get( id );
+	}
+
+	public double getDoublePosition( final int id, final int d )
+	{
+		return positions[ id * n + d ];
+	}
+
+	public double squDistance( final int id, final double[] p )
+	{
+		final int o = id * n;
+		double sum = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double diff = positions[ o + d ] - p[ d ];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns {@code true} if the point is not removed. This is cheaper than
+	 * {@link #contains(int)} and meant for searches, which only see valid ids.
+	 */
+	public boolean isAlive( final int id )
+	{
+		return alive[ id ];
+	}
+
+	/**
+	 * Get a {@link RealLocalizable} {@link Sampler} for the point with the
+	 * given id.
+	 */
+	public Entry getEntry( final int id )
+	{
+		return new Entry( id );
+	}
+
+	/**
+	 * Number of points in the insert buffer.
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * Get the id of the {@code i}-th point in the insert buffer.
+	 */
+	public int getBufferId( final int i )
+	{
+		return buffer[ i ];
+	}
+
+	/**
+	 * Get the levels. Empty levels are {@code null}.
+	 */
+	public List< Level > getLevels()
+	{
+		return Collections.unmodifiableList( levels );
+	}
+
+	private int newId()
+	{
+		if ( numFreeIds > 0 )
+			return freeIds[ --numFreeIds ];
+		final int id = values.size();
+		values.add( null );
+		if ( id == alive.length )
+		{
+			alive = Arrays.copyOf( alive, 2 * id );
+			positions = Arrays.copyOf( positions, 2 * id * n );
+		}
+		return id;
+	}
+
+	private void freeId( final int id )
+	{
+		if ( numFreeIds == freeIds.length )
+			freeIds = Arrays.copyOf( freeIds, 2 * numFreeIds );
+		freeIds[ numFreeIds++ ] = id;
+	}
+
+	/**
+	 * Merge the buffer and levels {@code 0..j-1} into the first empty level
+	 * {@code j}.
+	 */
+	private void mergeBuffer()
+	{
+		int j = 0;
+		while ( j < levels.size() && levels.get( j ) != null )
+			++j;
+		final int[] ids = collect( j );
+		for ( int i = 0; i < j; ++i )
+			levels.set( i, null );
+		final Level level = ids.length > 0 ? build( ids ) : null;
+		if ( j == levels.size() )
+			levels.add( level );
+		else
+			levels.set( j, level );
+	}
+
+	/**
+	 * Collect the live points in the buffer and levels {@code 0..j-1}, freeing
+	 * the ids of removed points, and clear the buffer.
+	 */
+	private int[] collect( final int j )
+	{
+		int count = bufferSize;
+		for ( int i = 0; i < j; ++i )
+		{
+			final Level level = levels.get( i );
+			if ( level != null )
+				count += level.ids.length;
+		}
+		final int[] ids = new int[ count ];
+		int k = 0;
+		for ( int i = 0; i < bufferSize; ++i )
+			ids[ k++ ] = buffer[ i ];
+		bufferSize = 0;
+		for ( int i = 0; i < j; ++i )
+		{
+			final Level level = levels.get( i );
+			if ( level == null )
+				continue;
+			for ( final int id : level.ids )
+			{
+				if ( alive[ id ] )
+					ids[ k++ ] = id;
+				else
+				{
+					freeId( id );
+					--numDeleted;
+				}
+			}
+		}
+		return k == count ? ids : Arrays.copyOf( ids, k );
+	}
+
+	private Level build( final int[] ids )
+	{
+		final double[][] coordinates = new double[ n ][ ids.length ];
+		for ( int i = 0; i < ids.length; ++i )
+			for ( int d = 0; d < n; ++d )
+				coordinates[ d ][ i ] = positions[ ids[ i ] * n + d ];
+		final FlatKDTree< Object > tree = new FlatKDTree<>( Collections.nCopies( ids.length, null ), coordinates );
+		final int[] nodeIds = new int[ ids.length ];
+		for ( int i = 0; i < ids.length; ++i )
+			nodeIds[ i ] = ids[ tree.getValueIndex( i ) ];
+		return new Level( tree, nodeIds );
+	}
+
+	public final class Entry implements RealLocalizable, Sampler< T >
+	{
+		private final int id;
+
+		Entry( final int id )
+		{
+			this.id = id;
+		}
+
+		/**
+		 * Get the id of this point.
+		 */
+		public int id()
+		{
+			return id;
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public double getDoublePosition( final int d )
+		{
+			return positions[ id * n + d ];
+		}
+
+		@Override
+		public T get()
+		{
+			return values.get( id );
+		}
+
+		@Override
+		public Entry copy()
+		{
+			return this;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "point " + id + " | " + get();
+		}
+	}
+}
@@ -0,0 +1,543 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.neighborsearch.KNearestNeighborSearchOnFlatKDTree;
+import net.imglib2.neighborsearch.NearestNeighborSearchOnFlatKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnFlatKDTree;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+
+/**
+ * A compact KDTree to access values at RealLocalizable positions.
+ * <p>
+ * Unlike {@link KDTree}, which creates a {@link KDTreeNode} object with its
+ * own {@code double[]} position for each point, all coordinates are stored
+ * in a single flat {@code double[]}, and the tree structure is implicit: The
+ * points are ordered such that the node of a range {@code [lo, hi)} of
+ * points is at index {@link #mid(int, int) mid(lo, hi)}. Its left subtree is
+ * the range {@code [lo, mid)}, and its right subtree is
+ * {@code [mid + 1, hi)}. Nodes at depth {@code k} split dimension
+ * {@code k % n}. Besides the coordinates, the tree only stores the index of
+ * each point in the original list of values.
+ * </p>
+ * <p>
+ * The tree is built by partitioning the coordinate array in place, in
+ * parallel using the {@link TaskExecutor} of {@link Parallelization}.
+ * </p>
+ * <p>
+ * The number of points times the number of dimensions must not exceed the
+ * maximum size of a Java array.
+ * </p>
+ *
+ * @param <T>
+ *            type of values stored in the tree.
+ *
+ * @see NearestNeighborSearchOnFlatKDTree
+ * @see KNearestNeighborSearchOnFlatKDTree
+ * @see RadiusNeighborSearchOnFlatKDTree
+ */
+public class FlatKDTree< T > implements EuclideanSpace, IterableRealInterval< T >
+{
+	/**
+	 * Ranges with more than this number of points are split in parallel.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+	/**
+	 * the number of dimensions.
+	 */
+	final protected int n;
+
+	/**
+	 * the number of nodes in the tree.
+	 */
+	final protected int size;
+
+	/**
+	 * coordinates of the nodes, {@code positions[ i * n + d ]} is coordinate
+	 * {@code d} of node {@code i}.
+	 */
+	final protected double[] positions;
+
+	/**
+	 * index of the value of each node in {@link #values}.
+	 */
+	final protected int[] indices;
+
+	final protected List< T > values;
+
+	/**
+	 * minimum of each dimension.
+	 */
+	final protected double[] min;
+
+	/**
+	 * maximum of each dimension.
+	 */
+	final protected double[] max;
+
+	/**
+	 * Construct a FlatKDTree from the elements in the given list.
+	 * <p>
+	 * Note that the constructor can be called with the same list for both
+	 * {@code values == positions} if {@code T extends RealLocalizable}. The
+	 * values are copied to an internal list, so later modifications of
+	 * {@code values} do not affect the tree.
+	 * </p>
+	 *
+	 * @param values
+	 *            a list of values
+	 * @param positions
+	 *            a list of positions corresponding to the values
+	 */
+	public < L extends RealLocalizable > FlatKDTree( final List< T > values, final List< L > positions )
+	{
+		this( values, positions.get( 0 ).numDimensions(), positions.size() );
+		int i = 0;
+		for ( final L position : positions )
+		{
+			assert position.numDimensions() == n;
+			for ( int d = 0; d < n; ++d )
+				this.positions[ i++ ] = position.getDoublePosition( d );
+		}
+		build();
+	}
+
+	/**
+	 * Construct a FlatKDTree from coordinate arrays. This avoids creating a
+	 * {@link RealLocalizable} for every point.
+	 *
+	 * @param values
+	 *            a list of values
+	 * @param positions
+	 *            {@code positions[ d ][ i ]} is coordinate {@code d} of the
+	 *            position of value {@code i}.
+	 */
+	public FlatKDTree( final List< T > values, final double[][] positions )
+	{
+		this( values, positions.length, positions[ 0 ].length );
+		for ( int d = 0; d < n; ++d )
+		{
+			final double[] coordinates = positions[ d ];
+			assert coordinates.length == size;
+			for ( int i = 0; i < size; ++i )
+				this.positions[ i * n + d ] = coordinates[ i ];
+		}
+		build();
+	}
+
+	private FlatKDTree( final List< T > values, final int n, final int size )
+	{
+		if ( ( long ) n * size > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "FlatKDTree, too many points: " + size + " points with " + n + " dimensions don't fit into an array." );
+		assert values.size() == size;
+		this.n = n;
+		this.size = size;
+		this.values = new ArrayList<>( values );
+		this.positions = new double[ n * size ];
+		this.indices = new int[ size ];
+		this.min = new double[ n ];
+		this.max = new double[ n ];
+	}
+
+	private void build()
+	{
+		Arrays.fill( min, Double.MAX_VALUE );
+		Arrays.fill( max, -Double.MAX_VALUE );
+		for ( int i = 0; i < size; ++i )
+		{
+			indices[ i ] = i;
+			for ( int d = 0; d < n; ++d )
+			{
+				final double x = positions[ i * n + d ];
+				if ( x < min[ d ] )
+					min[ d ] = x;
+				if ( x > max[ d ] )
+					max[ d ] = x;
+			}
+		}
+		build( 0, size, 0 );
+	}
+
+	/**
+	 * Construct the subtree of the points in range {@code [lo, hi)}: Partition
+	 * the range such that the median with respect to dimension {@code d} is
+	 * at {@link #mid(int, int)}, smaller coordinates left of it and larger
+	 * coordinates right of it. Then process the left and right part
+	 * recursively.
+	 */
+	private void build( final int lo, final int hi, final int d )
+	{
+		if ( hi - lo < 2 )
+			return;
+		final int k = mid( lo, hi );
+		select( lo, hi - 1, k, d );
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+		final TaskExecutor taskExecutor = hi - lo > PARALLEL_THRESHOLD ? Parallelization.getTaskExecutor() : null;
+		if ( taskExecutor != null && taskExecutor.getParallelism() > 1 )
+		{
+			taskExecutor.forEach( Arrays.asList( new int[] { lo, k }, new int[] { k + 1, hi } ),
+					range -> build( range[ 0 ], range[ 1 ], dChild ) );
+		}
+		else
+		{
+			build( lo, k, dChild );
+			build( k + 1, hi, dChild );
+		}
+	}
+
+	/**
+	 * Reorder the points between indices {@code l} and {@code r} (inclusive),
+	 * such that the point at index {@code k} has the k-th smallest coordinate
+	 * in dimension {@code d}. Points with smaller or equal coordinate are
+	 * moved left of {@code k}, points with larger or equal coordinates right
+	 * of {@code k}.
+	 */
+	private void select( int l, int r, final int k, final int d )
+	{
+		while ( l < r )
+		{
+			final double x = positions[ k * n + d ];
+			int i = l;
+			int j = r;
+			do
+			{
+				while ( positions[ i * n + d ] < x )
+					++i;
+				while ( x < positions[ j * n + d ] )
+					--j;
+				if ( i <= j )
+				{
+					swap( i, j );
+					++i;
+					--j;
+				}
+			}
+			while ( i <= j );
+			if ( j < k )
+				l = i;
+			if ( k < i )
+				r = j;
+		}
+	}
+
+	private void swap( final int i, final int j )
+	{
+		if ( i == j )
+			return;
+		final int oi = i * n;
+		final int oj = j * n;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double tmp = positions[ oi + d ];
+			positions[ oi + d ] = positions[ oj + d ];
+			positions[ oj + d ] = tmp;
+		}
+		final int tmp = indices[ i ];
+		indices[ i ] = indices[ j ];
+		indices[ j ] = tmp;
+	}
+
+	/**
+	 * Get the index of the node of the subtree that consists of the nodes
+	 * {@code [lo, hi)}.
+	 */
+	public static int mid( final int lo, final int hi )
+	{
+		return ( lo + hi ) >>> 1;
+	}
+
+	/**
+	 * Get coordinate {@code d} of node {@code i}.
+	 */
+	public double getDoublePosition( final int i, final int d )
+	{
+		return positions[ i * n + d ];
+	}
+
+	/**
+	 * Get the squared Euclidean distance between node {@code i} and
+	 * {@code p}.
+	 */
+	public double squDistance( final int i, final double[] p )
+	{
+		final int o = i * n;
+		double sum = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			final double diff = positions[ o + d ] - p[ d ];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the index in the list of values, of the value of node {@code i}.
+	 */
+	public int getValueIndex( final int i )
+	{
+		return indices[ i ];
+	}
+
+	/**
+	 * Get the value of node {@code i}.
+	 */
+	public T getValue( final int i )
+	{
+		return values.get( indices[ i ] );
+	}
+
+	/**
+	 * Get a {@link RealLocalizable} and {@link Sampler} view of node
+	 * {@code i}.
+	 */
+	public Node getNode( final int i )
+	{
+		return new Node( i );
+	}
+
+	/**
+	 * Get the flat array of node coordinates. Coordinate {@code d} of node
+	 * {@code i} is at {@code i * numDimensions() + d}. The array must not be
+	 * modified.
+	 */
+	public double[] getPositions()
+	{
+		return positions;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public double realMin( final int d )
+	{
+		return min[ d ];
+	}
+
+	@Override
+	public double realMax( final int d )
+	{
+		return max[ d ];
+	}
+
+	@Override
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the number of nodes in the tree.
+	 */
+	public int intSize()
+	{
+		return size;
+	}
+
+	@Override
+	public Object iterationOrder()
+	{
+		return this; // iteration order is only compatible with ourselves
+	}
+
+	@Override
+	public T firstElement()
+	{
+		return getValue( 0 );
+	}
+
+	@Override
+	public FlatKDTreeCursor iterator()
+	{
+		return new FlatKDTreeCursor();
+	}
+
+	@Override
+	public FlatKDTreeCursor cursor()
+	{
+		return new FlatKDTreeCursor();
+	}
+
+	@Override
+	public FlatKDTreeCursor localizingCursor()
+	{
+		return new FlatKDTreeCursor();
+	}
+
+	/**
+	 * A node of the {@link FlatKDTree}, as {@link RealLocalizable} and
+	 * {@link Sampler}.
+	 */
+	public final class Node implements RealLocalizable, Sampler< T >
+	{
+		private final int i;
+
+		Node( final int i )
+		{
+			this.i = i;
+		}
+
+		/**
+		 * Get the index of this node in the tree.
+		 */
+		public int index()
+		{
+			return i;
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public double getDoublePosition( final int d )
+		{
+			return positions[ i * n + d ];
+		}
+
+		@Override
+		public T get()
+		{
+			return getValue( i );
+		}
+
+		@Override
+		public Node copy()
+		{
+			return this;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "node " + i + " | " + get();
+		}
+	}
+
+	/**
+	 * Iterates the nodes in the order in which they are stored.
+	 */
+	public final class FlatKDTreeCursor implements RealCursor< T >
+	{
+		private int i;
+
+		FlatKDTreeCursor()
+		{
+			reset();
+		}
+
+		private FlatKDTreeCursor( final FlatKDTreeCursor c )
+		{
+			this.i = c.i;
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		@Override
+		public double getDoublePosition( final int d )
+		{
+			return positions[ i * n + d ];
+		}
+
+		@Override
+		public T get()
+		{
+			return getValue( i );
+		}
+
+		@Override
+		public FlatKDTreeCursor copy()
+		{
+			return new FlatKDTreeCursor( this );
+		}
+
+		@Override
+		public FlatKDTreeCursor copyCursor()
+		{
+			return copy();
+		}
+
+		@Override
+		public void jumpFwd( final long steps )
+		{
+			i += steps;
+		}
+
+		@Override
+		public void fwd()
+		{
+			++i;
+		}
+
+		@Override
+		public void reset()
+		{
+			i = -1;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return i < size - 1;
+		}
+
+		@Override
+		public T next()
+		{
+			fwd();
+			return get();
+		}
+
+		@Override
+		public void remove()
+		{
+			// NB: no action.
+		}
+	}
+}
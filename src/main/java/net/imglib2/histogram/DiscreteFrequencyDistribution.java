@@ -47,6 +47,7 @@ import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.util.Intervals;
 
 /**
  * This class represents an n-dimensional set of counters. Histogram
@@ -168,6 +169,36 @@ public class DiscreteFrequencyDistribution implements Img< LongType >
 		totalValues--;
 	}
 
+	/**
+	 * Adds the frequency counts of another distribution with the same
+	 * dimensions to this one. This can be used to combine distributions that
+	 * were counted separately, e.g., on different threads or machines.
+	 */
+	public void add( final DiscreteFrequencyDistribution other )
+	{
+		if ( !Intervals.equals( this, other ) )
+			throw new IllegalArgumentException( "distributions have different dimensions" );
+		if ( counts.iterationOrder().equals( other.counts.iterationOrder() ) )
+		{
+			final Cursor< LongType > cursor = counts.cursor();
+			final Cursor< LongType > otherCursor = other.counts.cursor();
+			while ( cursor.hasNext() )
+				cursor.next().add( otherCursor.next() );
+		}
+		else
+		{
+			final Cursor< LongType > cursor = counts.localizingCursor();
+			final RandomAccess< LongType > otherAccess = other.counts.randomAccess();
+			while ( cursor.hasNext() )
+			{
+				cursor.fwd();
+				otherAccess.setPosition( cursor );
+				cursor.get().add( otherAccess.get() );
+			}
+		}
+		totalValues += other.totalValues;
+	}
+
 	/**
 	 * Returns the total number of values counted by this distribution.
 	 */
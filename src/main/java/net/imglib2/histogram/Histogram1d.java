@@ -35,14 +35,20 @@
 package net.imglib2.histogram;
 
 import java.util.Iterator;
+import java.util.List;
 
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealPositionable;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
+import net.imglib2.img.rle.RleImg;
+import net.imglib2.img.rle.RleRunCursor;
+import net.imglib2.loops.LoopBuilder;
 import net.imglib2.type.numeric.integer.LongType;
 
 /**
@@ -449,6 +455,95 @@ public class Histogram1d< T > implements Img< LongType >
 		subtract( data );
 	}
 
+	/**
+	 * Counts the data contained in the given data source in parallel, using
+	 * the {@link net.imglib2.parallel.TaskExecutor TaskExecutor} provided by
+	 * {@link net.imglib2.parallel.Parallelization Parallelization}. The data
+	 * is split into chunks which are counted into separate histograms, and
+	 * these are added to this histogram.
+	 * <p>
+	 * If {@code data} is a {@link RandomAccessibleInterval}, chunks are aligned
+	 * to its cells (see {@link LoopBuilder#cellAligned()}), otherwise it is
+	 * split into ranges of its iteration order.
+	 * </p>
+	 *
+	 * @param data
+	 *            The total data to count
+	 */
+	public void countDataParallel( final IterableInterval< T > data )
+	{
+		reset();
+		addDataParallel( data );
+		if ( data.size() > 0 )
+			firstValue = data.firstElement();
+	}
+
+	/**
+	 * Counts additional data contained in the given data source in parallel.
+	 * See {@link #countDataParallel(IterableInterval)}.
+	 *
+	 * @param data
+	 *            The new data to count
+	 */
+	public void addDataParallel( final IterableInterval< T > data )
+	{
+		if ( addRuns( data, 1 ) )
+			return;
+
+		final PrimitiveCounting counting = primitiveCounting( data );
+		if ( counting != null )
+		{
+			final Integer1dBinMapper< ? > integerMapper = ( Integer1dBinMapper< ? > ) mapper;
+			final int numBins = ( int ) getBinCount();
+			final List< long[] > counts = ParallelCounting.count( counting.size(),
+					() -> new long[ numBins + 1 ],
+					( c, from, to ) -> counting.count( from, to, integerMapper, c ) );
+			for ( final long[] c : counts )
+				addCounts( c );
+		}
+		else if ( data instanceof RandomAccessibleInterval )
+		{
+			@SuppressWarnings( "unchecked" )
+			final RandomAccessibleInterval< T > rai = ( RandomAccessibleInterval< T > ) data;
+			add( LoopBuilder.setImages( rai ).multiThreaded().cellAligned().collect(
+					() -> new Histogram1d<>( this ),
+					histogram -> histogram::increment,
+					Histogram1d::add ) );
+		}
+		else
+		{
+			final List< Histogram1d< T > > histograms = ParallelCounting.count( data.size(),
+					() -> new Histogram1d<>( this ),
+					( histogram, from, to ) -> {
+						final Cursor< T > cursor = data.cursor();
+						if ( from > 0 )
+							cursor.jumpFwd( from );
+						for ( long i = from; i < to; ++i )
+							histogram.increment( cursor.next() );
+					} );
+			for ( final Histogram1d< T > histogram : histograms )
+				add( histogram );
+		}
+	}
+
+	/**
+	 * Adds the counts of another histogram with the same bin mapping to this
+	 * histogram. This can be used to combine histograms that were counted
+	 * separately, e.g., on different threads or machines.
+	 *
+	 * @param other
+	 *            The histogram to add
+	 */
+	public void add( final Histogram1d< T > other )
+	{
+		if ( !sameBinning( mapper, other.mapper ) )
+			throw new IllegalArgumentException( "histograms have different bin mappings" );
+		distrib.add( other.distrib );
+		ignoredCount += other.ignoredCount;
+		if ( firstValue == null )
+			firstValue = other.firstValue;
+	}
+
 	/**
 	 * Directly increment a bin by position.
 	 * 
@@ -723,6 +818,19 @@ public class Histogram1d< T > implements Img< LongType >
 
 	// -- helpers --
 
+	/**
+	 * Whether two bin mappers map values to the same bins. The min, max, bin
+	 * count and tails of {@link Real1dBinMapper}s and
+	 * {@link Integer1dBinMapper}s are compared. Other mappers are only
+	 * compared by bin count and tails.
+	 */
+	static boolean sameBinning( final BinMapper1d< ? > a, final BinMapper1d< ? > b )
+	{
+		if ( a instanceof Real1dBinMapper || a instanceof Integer1dBinMapper )
+			return a.equals( b );
+		return a.getBinCount() == b.getBinCount() && a.hasTails() == b.hasTails();
+	}
+
 	private void reset()
 	{
 		distrib.resetCounters();
@@ -734,6 +842,12 @@ public class Histogram1d< T > implements Img< LongType >
 	{
 		reset();
 
+		if ( addRuns( data, 1 ) || addPrimitive( data ) )
+		{
+			firstValue = data.iterator().next();
+			return;
+		}
+
 		// record the first element
 		final Iterator<T> iter = data.iterator();
 		if ( iter.hasNext() )
@@ -751,14 +865,91 @@ public class Histogram1d< T > implements Img< LongType >
 
 	private void add( final Iterable< T > data )
 	{
+		if ( addRuns( data, 1 ) || addPrimitive( data ) )
+			return;
 		for ( final T value : data )
 		{
 			increment( value );
 		}
 	}
 
+	/**
+	 * Returns a {@link PrimitiveCounting} for {@code data} if the bin mapper
+	 * is an {@link Integer1dBinMapper} and the storage of {@code data} is
+	 * supported, or {@code null} otherwise.
+	 */
+	private PrimitiveCounting primitiveCounting( final Iterable< T > data )
+	{
+		if ( !( mapper instanceof Integer1dBinMapper ) || getBinCount() >= Integer.MAX_VALUE )
+			return null;
+		return PrimitiveCounting.create( data );
+	}
+
+	/**
+	 * Counts {@code data} using a {@link PrimitiveCounting}, if possible.
+	 *
+	 * @return whether {@code data} was counted
+	 */
+	private boolean addPrimitive( final Iterable< T > data )
+	{
+		final PrimitiveCounting counting = primitiveCounting( data );
+		if ( counting == null )
+			return false;
+		final long[] counts = new long[ ( int ) getBinCount() + 1 ];
+		counting.count( 0, counting.size(), ( Integer1dBinMapper< ? > ) mapper, counts );
+		addCounts( counts );
+		return true;
+	}
+
+	/**
+	 * Counts {@code data} run by run, if it is an {@link RleImg}. Every run is
+	 * mapped to its bin once and counted {@code sign} times its length.
+	 *
+	 * @return whether {@code data} was counted
+	 */
+	@SuppressWarnings( "unchecked" )
+	private boolean addRuns( final Iterable< T > data, final long sign )
+	{
+		if ( !( data instanceof RleImg ) )
+			return false;
+		final RleRunCursor< ? > runs = ( ( RleImg< ?, ? > ) data ).runCursor();
+		while ( runs.hasNext() )
+		{
+			runs.fwd();
+			final long count = sign * runs.getRunLength();
+			final long bin = mapper.map( ( T ) runs.get() );
+			if ( bin == Long.MIN_VALUE || bin == Long.MAX_VALUE )
+				ignoredCount += count;
+			else
+			{
+				pos[ 0 ] = bin;
+				distrib.setFrequency( pos, distrib.frequency( pos ) + count );
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds bin counts, followed by the count of ignored values.
+	 */
+	private void addCounts( final long[] counts )
+	{
+		final int numBins = counts.length - 1;
+		for ( int i = 0; i < numBins; ++i )
+		{
+			if ( counts[ i ] != 0 )
+			{
+				pos[ 0 ] = i;
+				distrib.setFrequency( pos, distrib.frequency( pos ) + counts[ i ] );
+			}
+		}
+		ignoredCount += counts[ numBins ];
+	}
+
 	private void subtract( final Iterable< T > data )
 	{
+		if ( addRuns( data, -1 ) )
+			return;
 		for ( final T value : data )
 		{
 			decrement( value );
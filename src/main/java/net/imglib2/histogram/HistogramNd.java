@@ -40,6 +40,7 @@ import java.util.List;
 
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RealPositionable;
@@ -112,7 +113,7 @@ public class HistogramNd< T > implements Img< LongType >
 	public HistogramNd( final HistogramNd< T > other )
 	{
 		final List< BinMapper1d< T >> mappersCopy = new ArrayList< BinMapper1d< T >>();
-		for ( final BinMapper1d< T > m : mappers )
+		for ( final BinMapper1d< T > m : other.mappers )
 		{
 			mappersCopy.add( m.copy() );
 		}
@@ -780,6 +781,76 @@ public class HistogramNd< T > implements Img< LongType >
 		add( data );
 	}
 
+	/**
+	 * Counts additional data contained in multiple data sources in parallel,
+	 * using the {@link net.imglib2.parallel.TaskExecutor TaskExecutor}
+	 * provided by {@link net.imglib2.parallel.Parallelization Parallelization}.
+	 * The data sources must have the same size and iteration order. They are
+	 * split into chunks which are counted into separate histograms, and these
+	 * are added to this histogram.
+	 *
+	 * @param data
+	 *            The new data to count
+	 */
+	public void addDataParallel( final List< ? extends IterableInterval< T >> data )
+	{
+		final long size = data.isEmpty() ? 0 : data.get( 0 ).size();
+		final List< HistogramNd< T > > histograms = ParallelCounting.count( size,
+				() -> new HistogramNd<>( this ),
+				( histogram, from, to ) -> {
+					final List< Cursor< T > > cursors = new ArrayList<>( data.size() );
+					final List< T > values = new ArrayList<>( data.size() );
+					for ( final IterableInterval< T > d : data )
+					{
+						final Cursor< T > cursor = d.cursor();
+						if ( from > 0 )
+							cursor.jumpFwd( from );
+						cursors.add( cursor );
+						values.add( null );
+					}
+					for ( long i = from; i < to; ++i )
+					{
+						for ( int j = 0; j < cursors.size(); ++j )
+							values.set( j, cursors.get( j ).next() );
+						histogram.count( values, histogram.incrementer );
+					}
+				} );
+		for ( final HistogramNd< T > histogram : histograms )
+			add( histogram );
+	}
+
+	/**
+	 * Counts the data contained in multiple data sources in parallel. See
+	 * {@link #addDataParallel(List)}.
+	 *
+	 * @param data
+	 *            The total data to count
+	 */
+	public void countDataParallel( final List< ? extends IterableInterval< T >> data )
+	{
+		reset();
+		addDataParallel( data );
+	}
+
+	/**
+	 * Adds the counts of another histogram with the same bin mappings to this
+	 * histogram. This can be used to combine histograms that were counted
+	 * separately, e.g., on different threads or machines.
+	 *
+	 * @param other
+	 *            The histogram to add
+	 */
+	public void add( final HistogramNd< T > other )
+	{
+		if ( mappers.size() != other.mappers.size() )
+			throw new IllegalArgumentException( "histograms have different dimensionality" );
+		for ( int i = 0; i < mappers.size(); i++ )
+			if ( !Histogram1d.sameBinning( mappers.get( i ), other.mappers.get( i ) ) )
+				throw new IllegalArgumentException( "histograms have different bin mappings in dimension " + i );
+		distrib.add( other.distrib );
+		ignoredCount += other.ignoredCount;
+	}
+
 	/**
 	 * Uncounts some original data contained in a given iterable collection. One
 	 * can use this to update an existing histogram with a subset of values.
@@ -100,7 +100,15 @@ public class Integer1dBinMapper< T extends IntegerType< T >> implements
 	@Override
 	public long map( final T value )
 	{
-		final long val = value.getIntegerLong();
+		return map( value.getIntegerLong() );
+	}
+
+	/**
+	 * Maps a primitive integer value to a bin position. See
+	 * {@link #map(IntegerType)}.
+	 */
+	public long map( final long val )
+	{
 		long pos;
 		if ( val >= minVal && val <= maxVal )
 		{
@@ -201,6 +209,29 @@ public class Integer1dBinMapper< T extends IntegerType< T >> implements
 		return new Integer1dBinMapper< T >( minVal, bins, tailBins );
 	}
 
+	/**
+	 * Two {@link Integer1dBinMapper}s are equal if they have the same minimum,
+	 * bin count and tail setting, i.e., if they map all values to the same
+	 * bins.
+	 */
+	@Override
+	public boolean equals( final Object obj )
+	{
+		if ( !( obj instanceof Integer1dBinMapper ) )
+			return false;
+		final Integer1dBinMapper< ? > other = ( Integer1dBinMapper< ? > ) obj;
+		return bins == other.bins && tailBins == other.tailBins && minVal == other.minVal;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int result = Long.hashCode( bins );
+		result = 31 * result + Boolean.hashCode( tailBins );
+		result = 31 * result + Long.hashCode( minVal );
+		return result;
+	}
+
 	/**
 	 * This is a convenience method for creating a {@link HistogramNd} from
 	 * inputs that describe a set of integer 1-d based bin mappers. The inputs
@@ -0,0 +1,83 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+
+/**
+ * Counts data in parallel, by splitting the iteration range into contiguous
+ * chunks that are counted into separate histograms. The chunks are processed
+ * using the {@link TaskExecutor} provided by {@link Parallelization}.
+ */
+final class ParallelCounting
+{
+	/**
+	 * Data smaller than this is counted in a single chunk.
+	 */
+	static final long MIN_CHUNK_SIZE = 1 << 16;
+
+	interface ChunkCounter< H >
+	{
+		/**
+		 * Count elements {@code from} (inclusive) to {@code to} (exclusive)
+		 * into {@code histogram}.
+		 */
+		void count( H histogram, long from, long to );
+	}
+
+	/**
+	 * Count {@code size} elements, and return one histogram per chunk.
+	 */
+	static < H > List< H > count( final long size, final Supplier< H > supplier, final ChunkCounter< H > counter )
+	{
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final int numChunks = ( int ) Math.max( 1, Math.min( taskExecutor.suggestNumberOfTasks(), size / MIN_CHUNK_SIZE ) );
+		final List< long[] > ranges = new ArrayList<>( numChunks );
+		for ( int i = 0; i < numChunks; ++i )
+			ranges.add( new long[] { size * i / numChunks, size * ( i + 1 ) / numChunks } );
+		return taskExecutor.forEachApply( ranges, range -> {
+			final H histogram = supplier.get();
+			counter.count( histogram, range[ 0 ], range[ 1 ] );
+			return histogram;
+		} );
+	}
+
+	private ParallelCounting()
+	{}
+}
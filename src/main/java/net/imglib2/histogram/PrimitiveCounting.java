@@ -0,0 +1,286 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.IterableInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+/**
+ * Counts integer images directly from their primitive storage arrays, for
+ * {@link Integer1dBinMapper}s. This bypasses the per-sample
+ * {@link BinMapper1d#map(Object)} and {@code long[]} position handling of
+ * {@link Histogram1d}.
+ * <p>
+ * Supported are {@link ArrayImg}s, {@link PlanarImg}s and
+ * {@link AbstractCellImg}s with array accesses, of the standard signed and
+ * unsigned 8, 16, 32 and 64 bit integer types. The elements of all storage
+ * arrays are considered as one contiguous range {@code [0, size())}, which can
+ * be counted in parts.
+ * </p>
+ * <p>
+ * Counts go into a {@code long[]} of length {@code binCount + 1}, where the
+ * last entry counts ignored values.
+ * </p>
+ */
+final class PrimitiveCounting
+{
+	private enum Kind
+	{
+		UINT8, INT8, UINT16, INT16, UINT32, INT32, INT64
+	}
+
+	private final Kind kind;
+
+	private final Object[] arrays;
+
+	/**
+	 * {@code offsets[ i ]} is the index of the first element of
+	 * {@code arrays[ i ]}, {@code offsets[ arrays.length ]} is the total size.
+	 */
+	private final long[] offsets;
+
+	private PrimitiveCounting( final Kind kind, final Object[] arrays, final long[] offsets )
+	{
+		this.kind = kind;
+		this.arrays = arrays;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Returns a {@link PrimitiveCounting} for {@code data}, or {@code null} if
+	 * the storage of {@code data} is not supported.
+	 */
+	static PrimitiveCounting create( final Iterable< ? > data )
+	{
+		if ( !( data instanceof IterableInterval ) )
+			return null;
+		final IterableInterval< ? > img = ( IterableInterval< ? > ) data;
+		if ( img.size() == 0 )
+			return null;
+		final Kind kind = kind( img.firstElement() );
+		if ( kind == null )
+			return null;
+
+		final List< Object > accesses = new ArrayList<>();
+		final List< Long > sizes = new ArrayList<>();
+		if ( data instanceof ArrayImg )
+		{
+			accesses.add( ( ( ArrayImg< ?, ? > ) data ).update( null ) );
+			sizes.add( img.size() );
+		}
+		else if ( data instanceof PlanarImg )
+		{
+			final PlanarImg< ?, ? > planar = ( PlanarImg< ?, ? > ) data;
+			final int numSlices = planar.numSlices();
+			for ( int i = 0; i < numSlices; ++i )
+			{
+				accesses.add( planar.getPlane( i ) );
+				sizes.add( img.size() / numSlices );
+			}
+		}
+		else if ( data instanceof AbstractCellImg )
+		{
+			for ( final Object o : ( ( AbstractCellImg< ?, ?, ?, ? > ) data ).getCells() )
+			{
+				final Cell< ? > cell = ( Cell< ? > ) o;
+				accesses.add( cell.getData() );
+				sizes.add( cell.size() );
+			}
+		}
+		else
+			return null;
+
+		final Object[] arrays = new Object[ accesses.size() ];
+		final long[] offsets = new long[ accesses.size() + 1 ];
+		for ( int i = 0; i < arrays.length; ++i )
+		{
+			final Object access = accesses.get( i );
+			if ( !( access instanceof ArrayDataAccess ) )
+				return null;
+			arrays[ i ] = ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray();
+			// e.g., BufferAccess stores its data in a java.nio.Buffer
+			if ( !arrays[ i ].getClass().isArray() )
+				return null;
+			offsets[ i + 1 ] = offsets[ i ] + sizes.get( i );
+		}
+		return new PrimitiveCounting( kind, arrays, offsets );
+	}
+
+	private static Kind kind( final Object type )
+	{
+		final Class< ? > c = type.getClass();
+		if ( c == UnsignedByteType.class )
+			return Kind.UINT8;
+		if ( c == ByteType.class )
+			return Kind.INT8;
+		if ( c == UnsignedShortType.class )
+			return Kind.UINT16;
+		if ( c == ShortType.class )
+			return Kind.INT16;
+		if ( c == UnsignedIntType.class )
+			return Kind.UINT32;
+		if ( c == IntType.class )
+			return Kind.INT32;
+		if ( c == LongType.class )
+			return Kind.INT64;
+		return null;
+	}
+
+	/**
+	 * Total number of elements.
+	 */
+	long size()
+	{
+		return offsets[ arrays.length ];
+	}
+
+	/**
+	 * Count elements {@code from} (inclusive) to {@code to} (exclusive) into
+	 * {@code counts}.
+	 */
+	void count( final long from, final long to, final Integer1dBinMapper< ? > mapper, final long[] counts )
+	{
+		for ( int i = 0; i < arrays.length; ++i )
+		{
+			final long lo = Math.max( from, offsets[ i ] );
+			final long hi = Math.min( to, offsets[ i + 1 ] );
+			if ( lo < hi )
+				count( arrays[ i ], ( int ) ( lo - offsets[ i ] ), ( int ) ( hi - offsets[ i ] ), mapper, counts );
+		}
+	}
+
+	private void count( final Object array, final int from, final int to, final Integer1dBinMapper< ? > mapper, final long[] counts )
+	{
+		switch ( kind )
+		{
+		case UINT8:
+		case INT8:
+		{
+			final byte[] a = ( byte[] ) array;
+			final long[] raw = new long[ 1 << 8 ];
+			for ( int i = from; i < to; ++i )
+				raw[ a[ i ] & 0xff ]++;
+			fold( raw, kind == Kind.INT8, mapper, counts );
+			break;
+		}
+		case UINT16:
+		case INT16:
+		{
+			final short[] a = ( short[] ) array;
+			if ( to - from < ( 1 << 16 ) )
+			{
+				if ( kind == Kind.INT16 )
+					for ( int i = from; i < to; ++i )
+						increment( mapper.map( a[ i ] ), counts );
+				else
+					for ( int i = from; i < to; ++i )
+						increment( mapper.map( a[ i ] & 0xffff ), counts );
+			}
+			else
+			{
+				final long[] raw = new long[ 1 << 16 ];
+				for ( int i = from; i < to; ++i )
+					raw[ a[ i ] & 0xffff ]++;
+				fold( raw, kind == Kind.INT16, mapper, counts );
+			}
+			break;
+		}
+		case UINT32:
+		{
+			final int[] a = ( int[] ) array;
+			for ( int i = from; i < to; ++i )
+				increment( mapper.map( a[ i ] & 0xffffffffL ), counts );
+			break;
+		}
+		case INT32:
+		{
+			final int[] a = ( int[] ) array;
+			for ( int i = from; i < to; ++i )
+				increment( mapper.map( a[ i ] ), counts );
+			break;
+		}
+		case INT64:
+		{
+			final long[] a = ( long[] ) array;
+			for ( int i = from; i < to; ++i )
+				increment( mapper.map( a[ i ] ), counts );
+			break;
+		}
+		}
+	}
+
+	/**
+	 * Add the counts of a table of raw values to {@code counts}.
+	 * {@code raw[ i ]} counts value {@code i}, or, for signed types, the
+	 * value with the same bit pattern.
+	 */
+	private static void fold( final long[] raw, final boolean signed, final Integer1dBinMapper< ? > mapper, final long[] counts )
+	{
+		final int half = raw.length >> 1;
+		for ( int i = 0; i < raw.length; ++i )
+		{
+			final long n = raw[ i ];
+			if ( n != 0 )
+			{
+				final long value = ( signed && i >= half ) ? i - raw.length : i;
+				final long bin = mapper.map( value );
+				counts[ isIgnored( bin ) ? counts.length - 1 : ( int ) bin ] += n;
+			}
+		}
+	}
+
+	private static void increment( final long bin, final long[] counts )
+	{
+		counts[ isIgnored( bin ) ? counts.length - 1 : ( int ) bin ]++;
+	}
+
+	private static boolean isIgnored( final long bin )
+	{
+		return bin == Long.MIN_VALUE || bin == Long.MAX_VALUE;
+	}
+}
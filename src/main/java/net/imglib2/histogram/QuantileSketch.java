@@ -0,0 +1,447 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A streaming, mergeable sketch for approximate quantiles of real values
+ * (KLL sketch, Karnin, Lang, Liberty, "Optimal Quantile Approximation in
+ * Streams", FOCS 2016).
+ * <p>
+ * The sketch retains a bounded number of values, in a hierarchy of
+ * compactors. A compactor that is full is sorted, and every other value is
+ * promoted to the next compactor, where it represents twice as many input
+ * values. The number of retained values grows only logarithmically with the
+ * number of input values, roughly {@code 3k} plus the number of levels.
+ * </p>
+ * <p>
+ * With parameter {@code k}, the normalized rank error of a quantile query is
+ * about {@code 1.7 / k} with high probability, e.g., 1% for the default
+ * {@code k = 200}. The minimum and maximum are exact. {@code NaN} values are
+ * ignored.
+ * </p>
+ * <p>
+ * Sketches of disjoint data sets can be combined with
+ * {@link #add(QuantileSketch)}, which allows parallel and distributed
+ * computation. A sketch is not thread-safe.
+ * </p>
+ */
+public class QuantileSketch
+{
+	public static final int DEFAULT_K = 200;
+
+	private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+	private static final int MIN_CAPACITY = 2;
+
+	private final int k;
+
+	private final Random random;
+
+	/**
+	 * values of compactor {@code h}, each representing {@code 2^h} input
+	 * values.
+	 */
+	private double[][] levels;
+
+	private int[] sizes;
+
+	private int numLevels;
+
+	private int numRetained;
+
+	private int maxRetained;
+
+	private long count;
+
+	private double min;
+
+	private double max;
+
+	/**
+	 * retained values sorted, with cumulative weights, or {@code null} if
+	 * not computed yet.
+	 */
+	private double[] sortedValues;
+
+	private long[] cumulativeWeights;
+
+	public QuantileSketch()
+	{
+		this( DEFAULT_K );
+	}
+
+	/**
+	 * @param k
+	 *            accuracy parameter, the normalized rank error is about
+	 *            {@code 1.7 / k}.
+	 */
+	public QuantileSketch( final int k )
+	{
+		this( k, new Random() );
+	}
+
+	/**
+	 * @param k
+	 *            accuracy parameter, the normalized rank error is about
+	 *            {@code 1.7 / k}.
+	 * @param seed
+	 *            seed for the random choices during compaction, for
+	 *            reproducible results.
+	 */
+	public QuantileSketch( final int k, final long seed )
+	{
+		this( k, new Random( seed ) );
+	}
+
+	private QuantileSketch( final int k, final Random random )
+	{
+		if ( k < MIN_CAPACITY )
+			throw new IllegalArgumentException( "k must be at least " + MIN_CAPACITY );
+		this.k = k;
+		this.random = random;
+		this.levels = new double[ 0 ][];
+		this.sizes = new int[ 0 ];
+		this.numLevels = 0;
+		this.numRetained = 0;
+		this.count = 0;
+		this.min = Double.NaN;
+		this.max = Double.NaN;
+		grow();
+	}
+
+	/**
+	 * Creates a sketch of {@code data}, which is consumed in parallel chunks.
+	 * See {@link #addParallel(IterableInterval)}.
+	 */
+	public static QuantileSketch of( final IterableInterval< ? extends RealType< ? > > data, final int k )
+	{
+		final QuantileSketch sketch = new QuantileSketch( k );
+		sketch.addParallel( data );
+		return sketch;
+	}
+
+	public int getK()
+	{
+		return k;
+	}
+
+	/**
+	 * Number of values added to the sketch.
+	 */
+	public long count()
+	{
+		return count;
+	}
+
+	/**
+	 * Number of values retained by the sketch.
+	 */
+	public int getNumRetained()
+	{
+		return numRetained;
+	}
+
+	/**
+	 * Smallest value added to the sketch, or {@code NaN} if empty.
+	 */
+	public double getMin()
+	{
+		return min;
+	}
+
+	/**
+	 * Largest value added to the sketch, or {@code NaN} if empty.
+	 */
+	public double getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Adds a value. {@code NaN} is ignored.
+	 */
+	public void add( final double value )
+	{
+		if ( Double.isNaN( value ) )
+			return;
+		if ( count == 0 || value < min )
+			min = value;
+		if ( count == 0 || value > max )
+			max = value;
+		++count;
+		append( 0, value );
+		if ( numRetained >= maxRetained )
+			compress();
+		sortedValues = null;
+	}
+
+	/**
+	 * Adds all values of {@code data}.
+	 */
+	public void addAll( final Iterable< ? extends RealType< ? > > data )
+	{
+		for ( final RealType< ? > value : data )
+			add( value.getRealDouble() );
+	}
+
+	/**
+	 * Adds all values of {@code data} in parallel, using the
+	 * {@link net.imglib2.parallel.TaskExecutor TaskExecutor} provided by
+	 * {@link net.imglib2.parallel.Parallelization Parallelization}. The data
+	 * is split into chunks which are summarized into separate sketches, and
+	 * these are added to this sketch.
+	 * <p>
+	 * If {@code data} is a {@link RandomAccessibleInterval}, chunks are aligned
+	 * to its cells (see {@link LoopBuilder#cellAligned()}), otherwise it is
+	 * split into ranges of its iteration order.
+	 * </p>
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	public void addParallel( final IterableInterval< ? extends RealType< ? > > data )
+	{
+		if ( data instanceof RandomAccessibleInterval )
+		{
+			final RandomAccessibleInterval< RealType< ? > > rai = ( RandomAccessibleInterval ) data;
+			add( LoopBuilder.setImages( rai ).multiThreaded().cellAligned().collect(
+					() -> new QuantileSketch( k, random.nextLong() ),
+					sketch -> value -> sketch.add( value.getRealDouble() ),
+					QuantileSketch::add ) );
+		}
+		else
+		{
+			final List< QuantileSketch > sketches = ParallelCounting.count( data.size(),
+					() -> new QuantileSketch( k, random.nextLong() ),
+					( sketch, from, to ) -> {
+						final Cursor< ? extends RealType< ? > > cursor = data.cursor();
+						if ( from > 0 )
+							cursor.jumpFwd( from );
+						for ( long i = from; i < to; ++i )
+							sketch.add( cursor.next().getRealDouble() );
+					} );
+			for ( final QuantileSketch sketch : sketches )
+				add( sketch );
+		}
+	}
+
+	/**
+	 * Adds the values summarized by another sketch to this sketch. The other
+	 * sketch is not modified.
+	 */
+	public void add( final QuantileSketch other )
+	{
+		if ( other.count == 0 )
+			return;
+		if ( count == 0 || other.min < min )
+			min = other.min;
+		if ( count == 0 || other.max > max )
+			max = other.max;
+		count += other.count;
+		while ( numLevels < other.numLevels )
+			grow();
+		for ( int h = 0; h < other.numLevels; ++h )
+			for ( int i = 0; i < other.sizes[ h ]; ++i )
+				append( h, other.levels[ h ][ i ] );
+		while ( numRetained >= maxRetained )
+			compress();
+		sortedValues = null;
+	}
+
+	/**
+	 * Returns an approximation of the {@code q}-quantile, i.e., a value of
+	 * which approximately {@code q * count()} added values are less or equal.
+	 * Returns {@code NaN} if the sketch is empty.
+	 *
+	 * @param q
+	 *            quantile in {@code [0, 1]}
+	 */
+	public double quantile( final double q )
+	{
+		if ( q < 0 || q > 1 )
+			throw new IllegalArgumentException( "quantile must be in [0, 1]" );
+		if ( count == 0 )
+			return Double.NaN;
+		if ( q == 0 )
+			return min;
+		if ( q == 1 )
+			return max;
+		sort();
+		final double target = q * count;
+		int lo = 0;
+		int hi = sortedValues.length - 1;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( cumulativeWeights[ mid ] < target )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return sortedValues[ lo ];
+	}
+
+	/**
+	 * Returns approximations of several quantiles. See
+	 * {@link #quantile(double)}.
+	 */
+	public double[] quantiles( final double... qs )
+	{
+		final double[] values = new double[ qs.length ];
+		for ( int i = 0; i < qs.length; ++i )
+			values[ i ] = quantile( qs[ i ] );
+		return values;
+	}
+
+	/**
+	 * Returns an approximation of the fraction of added values that are less
+	 * or equal to {@code value}.
+	 */
+	public double rank( final double value )
+	{
+		if ( count == 0 )
+			return Double.NaN;
+		sort();
+		int lo = 0;
+		int hi = sortedValues.length;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( sortedValues[ mid ] <= value )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo == 0 ? 0 : ( double ) cumulativeWeights[ lo - 1 ] / count;
+	}
+
+	public QuantileSketch copy()
+	{
+		final QuantileSketch copy = new QuantileSketch( k, random.nextLong() );
+		copy.add( this );
+		return copy;
+	}
+
+	private int capacity( final int h )
+	{
+		return Math.max( MIN_CAPACITY, ( int ) Math.ceil( k * Math.pow( CAPACITY_DECAY, numLevels - h - 1 ) ) );
+	}
+
+	private void grow()
+	{
+		levels = Arrays.copyOf( levels, numLevels + 1 );
+		sizes = Arrays.copyOf( sizes, numLevels + 1 );
+		levels[ numLevels ] = new double[ MIN_CAPACITY ];
+		++numLevels;
+		maxRetained = 0;
+		for ( int h = 0; h < numLevels; ++h )
+			maxRetained += capacity( h );
+	}
+
+	private void append( final int h, final double value )
+	{
+		if ( sizes[ h ] == levels[ h ].length )
+			levels[ h ] = Arrays.copyOf( levels[ h ], 2 * sizes[ h ] );
+		levels[ h ][ sizes[ h ]++ ] = value;
+		++numRetained;
+	}
+
+	/**
+	 * Compacts the lowest full compactor: sort it, and promote either the
+	 * values at even or at odd positions to the next level. If the number of
+	 * values is odd, the largest one is kept.
+	 */
+	private void compress()
+	{
+		for ( int h = 0; h < numLevels; ++h )
+		{
+			if ( sizes[ h ] >= capacity( h ) )
+			{
+				if ( h + 1 == numLevels )
+					grow();
+				final double[] values = levels[ h ];
+				final int size = sizes[ h ];
+				final int pairs = size / 2;
+				Arrays.sort( values, 0, size );
+				final int offset = random.nextBoolean() ? 1 : 0;
+				for ( int i = 0; i < pairs; ++i )
+					append( h + 1, values[ 2 * i + offset ] );
+				if ( size % 2 == 1 )
+				{
+					values[ 0 ] = values[ size - 1 ];
+					sizes[ h ] = 1;
+				}
+				else
+					sizes[ h ] = 0;
+				numRetained -= 2 * pairs;
+				if ( numRetained < maxRetained )
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Sorts the retained values and computes their cumulative weights, by
+	 * sorting each level and merging the levels.
+	 */
+	private void sort()
+	{
+		if ( sortedValues != null )
+			return;
+		final int[] next = new int[ numLevels ];
+		for ( int h = 0; h < numLevels; ++h )
+			Arrays.sort( levels[ h ], 0, sizes[ h ] );
+		sortedValues = new double[ numRetained ];
+		cumulativeWeights = new long[ numRetained ];
+		long cumulative = 0;
+		for ( int i = 0; i < numRetained; ++i )
+		{
+			int best = -1;
+			for ( int h = 0; h < numLevels; ++h )
+				if ( next[ h ] < sizes[ h ] && ( best < 0 || levels[ h ][ next[ h ] ] < levels[ best ][ next[ best ] ] ) )
+					best = h;
+			sortedValues[ i ] = levels[ best ][ next[ best ]++ ];
+			cumulative += 1L << best;
+			cumulativeWeights[ i ] = cumulative;
+		}
+	}
+}
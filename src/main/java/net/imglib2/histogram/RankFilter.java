@@ -0,0 +1,360 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.outofbounds.OutOfBoundsFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Rank filters (median, minimum, maximum, percentiles) in rectangular
+ * neighborhoods, for images of integer values.
+ * <p>
+ * Each line of the target (along dimension 0) is processed by sliding the
+ * neighborhood along the line, while maintaining a histogram of the values in
+ * the neighborhood (Huang, Yang, Tang, "A fast two-dimensional median
+ * filtering algorithm", 1979). Moving by one pixel removes the trailing slab
+ * of the neighborhood from the histogram and adds the leading slab, instead
+ * of selecting the rank from the whole neighborhood again. To find the rank
+ * quickly, the histogram keeps coarse counts of blocks of bins in addition to
+ * the counts of individual bins (as in Perreault, H&eacute;bert, "Median Filtering in
+ * Constant Time", 2007).
+ * </p>
+ * <p>
+ * The histogram covers the range of values that occurs in the neighborhoods,
+ * which is determined before filtering, and must not exceed
+ * {@link #MAX_BINS} values. Lines are filtered in parallel using the
+ * {@link TaskExecutor} provided by {@link Parallelization}.
+ * </p>
+ */
+public class RankFilter
+{
+	/**
+	 * Maximum number of distinct values ({@code max - min + 1}) in the
+	 * filtered neighborhoods.
+	 */
+	public static final int MAX_BINS = 1 << 24;
+
+	/**
+	 * Filter {@code source} into {@code target} with the median of the
+	 * {@code (2 * radius[d] + 1)} sized neighborhood of each pixel. The
+	 * {@code source} is extended using {@code outOfBounds}.
+	 */
+	public static < T extends IntegerType< T >, U extends RealType< U > > void median(
+			final RandomAccessibleInterval< T > source,
+			final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > outOfBounds,
+			final RandomAccessibleInterval< U > target,
+			final long... radius )
+	{
+		rank( source, outOfBounds, target, 0.5, radius );
+	}
+
+	/**
+	 * Filter {@code source} into {@code target} with the {@code quantile} of
+	 * the {@code (2 * radius[d] + 1)} sized neighborhood of each pixel. The
+	 * {@code source} is extended using {@code outOfBounds}.
+	 */
+	public static < T extends IntegerType< T >, U extends RealType< U > > void rank(
+			final RandomAccessibleInterval< T > source,
+			final OutOfBoundsFactory< T, ? super RandomAccessibleInterval< T > > outOfBounds,
+			final RandomAccessibleInterval< U > target,
+			final double quantile,
+			final long... radius )
+	{
+		rank( Views.extend( source, outOfBounds ), target, quantile, radius );
+	}
+
+	/**
+	 * Filter {@code source} into {@code target} with the {@code quantile} of
+	 * the {@code (2 * radius[d] + 1)} sized neighborhood of each pixel.
+	 * <p>
+	 * {@code quantile} is in {@code [0,1]}, where 0 is the minimum, 0.5 the
+	 * median, and 1 the maximum. For a neighborhood of {@code n} pixels, the
+	 * value of rank {@code round(quantile * (n - 1))} (counting from 0) is
+	 * written.
+	 * </p>
+	 *
+	 * @param source
+	 *            must be defined in the neighborhoods of all target pixels
+	 * @param target
+	 *            receives the filtered values
+	 * @param quantile
+	 *            quantile of the neighborhood values
+	 * @param radius
+	 *            radius of the neighborhood in each dimension
+	 */
+	public static < T extends IntegerType< T >, U extends RealType< U > > void rank(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< U > target,
+			final double quantile,
+			final long... radius )
+	{
+		final int n = target.numDimensions();
+		if ( source.numDimensions() != n || radius.length != n )
+			throw new IllegalArgumentException( "source, target and radius must have the same number of dimensions" );
+		if ( !( quantile >= 0 && quantile <= 1 ) )
+			throw new IllegalArgumentException( "quantile must be in [0,1]" );
+
+		long size = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			if ( radius[ d ] < 0 )
+				throw new IllegalArgumentException( "radius must not be negative" );
+			size *= 2 * radius[ d ] + 1;
+		}
+		if ( size > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "neighborhood too large" );
+		final int windowSize = ( int ) size;
+		final int rank = ( int ) Math.round( quantile * ( size - 1 ) );
+
+		if ( Intervals.isEmpty( target ) )
+			return;
+
+		// range of values in all neighborhoods
+		final Interval expanded = Intervals.expand( target, radius );
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for ( final T t : Views.flatIterable( Views.interval( source, expanded ) ) )
+		{
+			final long v = t.getIntegerLong();
+			min = Math.min( min, v );
+			max = Math.max( max, v );
+		}
+		if ( max - min >= MAX_BINS || max - min < 0 )
+			throw new IllegalArgumentException( "range of values [" + min + ", " + max + "] exceeds " + MAX_BINS + " bins" );
+		final long offset = min;
+		final int numBins = ( int ) ( max - min + 1 );
+
+		// lines along dimension 0 are indexed by their position in the
+		// remaining dimensions
+		final long numLines = Intervals.numElements( target ) / target.dimension( 0 );
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final int numTasks = ( int ) Math.min( numLines, taskExecutor.suggestNumberOfTasks() );
+		final List< long[] > chunks = new ArrayList<>( numTasks );
+		for ( int i = 0; i < numTasks; ++i )
+			chunks.add( new long[] { numLines * i / numTasks, numLines * ( i + 1 ) / numTasks } );
+		taskExecutor.forEach( chunks, chunk -> {
+			final LineFilter< T, U > filter = new LineFilter<>( source, target, radius, offset, numBins, windowSize, rank );
+			filter.filterLines( chunk[ 0 ], chunk[ 1 ] );
+		} );
+	}
+
+	/**
+	 * Filters a range of lines, using one histogram.
+	 */
+	private static class LineFilter< T extends IntegerType< T >, U extends RealType< U > >
+	{
+		private final int n;
+
+		private final RandomAccess< T > in;
+
+		private final RandomAccess< U > out;
+
+		private final Interval target;
+
+		private final long[] radius;
+
+		private final long[] position;
+
+		private final long offset;
+
+		private final int rank;
+
+		private final int size;
+
+		private final SlidingHistogram histogram;
+
+		LineFilter( final RandomAccessible< T > source, final RandomAccessibleInterval< U > target, final long[] radius, final long offset, final int numBins, final int size, final int rank )
+		{
+			n = target.numDimensions();
+			in = source.randomAccess( Intervals.expand( target, radius ) );
+			out = target.randomAccess();
+			this.target = target;
+			this.radius = radius;
+			position = new long[ n ];
+			this.offset = offset;
+			this.size = size;
+			this.rank = rank;
+			histogram = new SlidingHistogram( numBins );
+		}
+
+		void filterLines( final long fromLine, final long toLine )
+		{
+			// position of the first line
+			long index = fromLine;
+			for ( int d = 1; d < n; ++d )
+			{
+				final long dim = target.dimension( d );
+				position[ d ] = target.min( d ) + index % dim;
+				index /= dim;
+			}
+
+			for ( long line = fromLine; line < toLine; ++line )
+			{
+				filterLine();
+				for ( int d = 1; d < n; ++d )
+				{
+					if ( position[ d ] < target.max( d ) )
+					{
+						++position[ d ];
+						break;
+					}
+					position[ d ] = target.min( d );
+				}
+			}
+		}
+
+		private void filterLine()
+		{
+			final long min = target.min( 0 );
+			final long max = target.max( 0 );
+			final long r = radius[ 0 ];
+
+			for ( long x = min - r; x <= min + r; ++x )
+				slab( x, 1 );
+
+			position[ 0 ] = min;
+			out.setPosition( position );
+			for ( long x = min; x <= max; ++x )
+			{
+				out.get().setReal( offset + histogram.get( rank ) );
+				if ( x < max )
+				{
+					slab( x - r, -1 );
+					slab( x + r + 1, 1 );
+					out.fwd( 0 );
+				}
+			}
+
+			// empty the histogram for the next line, by whichever is cheaper
+			if ( histogram.numBins() <= size )
+				histogram.clear();
+			else
+				for ( long x = max - r; x <= max + r; ++x )
+					slab( x, -1 );
+		}
+
+		/**
+		 * Add ({@code delta = 1}) or remove ({@code delta = -1}) the values of
+		 * the slab of the neighborhood at {@code x} in dimension 0.
+		 */
+		private void slab( final long x, final int delta )
+		{
+			in.setPosition( x, 0 );
+			for ( int d = 1; d < n; ++d )
+				in.setPosition( position[ d ] - radius[ d ], d );
+			while ( true )
+			{
+				histogram.add( ( int ) ( in.get().getIntegerLong() - offset ), delta );
+				int d = 1;
+				for ( ; d < n; ++d )
+				{
+					if ( in.getLongPosition( d ) < position[ d ] + radius[ d ] )
+					{
+						in.fwd( d );
+						break;
+					}
+					in.setPosition( position[ d ] - radius[ d ], d );
+				}
+				if ( d == n )
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Histogram with counts of individual bins and of blocks of bins.
+	 */
+	private static class SlidingHistogram
+	{
+		private final int blockBits;
+
+		private final int[] bins;
+
+		private final int[] blocks;
+
+		SlidingHistogram( final int numBins )
+		{
+			blockBits = ( 33 - Integer.numberOfLeadingZeros( numBins - 1 ) ) / 2;
+			bins = new int[ numBins ];
+			blocks = new int[ ( ( numBins - 1 ) >> blockBits ) + 1 ];
+		}
+
+		int numBins()
+		{
+			return bins.length;
+		}
+
+		void clear()
+		{
+			Arrays.fill( bins, 0 );
+			Arrays.fill( blocks, 0 );
+		}
+
+		void add( final int bin, final int delta )
+		{
+			bins[ bin ] += delta;
+			blocks[ bin >> blockBits ] += delta;
+		}
+
+		/**
+		 * Bin of the value of given {@code rank}.
+		 */
+		int get( int rank )
+		{
+			int block = 0;
+			while ( rank >= blocks[ block ] )
+				rank -= blocks[ block++ ];
+			int bin = block << blockBits;
+			while ( rank >= bins[ bin ] )
+				rank -= bins[ bin++ ];
+			return bin;
+		}
+	}
+
+	private RankFilter()
+	{}
+}
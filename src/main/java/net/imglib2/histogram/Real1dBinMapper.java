@@ -199,6 +199,31 @@ public class Real1dBinMapper< T extends RealType< T >> implements BinMapper1d< T
 		return new Real1dBinMapper< T >( minVal, maxVal, bins, tailBins );
 	}
 
+	/**
+	 * Two {@link Real1dBinMapper}s are equal if they have the same range, bin
+	 * count and tail setting, i.e., if they map all values to the same bins.
+	 */
+	@Override
+	public boolean equals( final Object obj )
+	{
+		if ( !( obj instanceof Real1dBinMapper ) )
+			return false;
+		final Real1dBinMapper< ? > other = ( Real1dBinMapper< ? > ) obj;
+		return bins == other.bins && tailBins == other.tailBins &&
+				Double.compare( minVal, other.minVal ) == 0 &&
+				Double.compare( maxVal, other.maxVal ) == 0;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int result = Long.hashCode( bins );
+		result = 31 * result + Boolean.hashCode( tailBins );
+		result = 31 * result + Double.hashCode( minVal );
+		result = 31 * result + Double.hashCode( maxVal );
+		return result;
+	}
+
 	/**
 	 * This is a convenience method for creating a {@link HistogramNd} from
 	 * inputs that describe a set of real 1-d based bin mappers. The inputs
@@ -34,11 +34,14 @@
 
 package net.imglib2.img.array;
 
+import java.util.Set;
+
 import net.imglib2.Dimensions;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.AbstractImg;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.AccessFlags;
 import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.type.NativeType;
@@ -57,9 +60,23 @@ import net.imglib2.util.Util;
  */
 public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
 {
+	private final Set< AccessFlags > accessFlags;
+
 	public ArrayImgFactory( final T type )
+	{
+		this( type, AccessFlags.setOf() );
+	}
+
+	/**
+	 * Create a factory for {@link ArrayImg}s whose data is stored in accesses
+	 * with the given {@link AccessFlags}. For example,
+	 * {@code AccessFlags.setOf( DIRECT )} creates images that store their
+	 * data outside the Java heap.
+	 */
+	public ArrayImgFactory( final T type, final Set< AccessFlags > accessFlags )
 	{
 		super( type );
+		this.accessFlags = accessFlags;
 	}
 
 	@Override
@@ -90,7 +107,7 @@ public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFacto
 		Dimensions.verify( dimensions );
 		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
 		final int numEntities = numEntitiesRangeCheck( dimensions, entitiesPerPixel );
-		final A data = ArrayDataAccessFactory.get( typeFactory ).createArray( numEntities );
+		final A data = ArrayDataAccessFactory.get( typeFactory, accessFlags ).createArray( numEntities );
 		final ArrayImg< T, A > img = new ArrayImg<>( data, dimensions, entitiesPerPixel );
 		img.setLinkedType( typeFactory.createLinkedType( img ) );
 		return img;
@@ -111,7 +128,7 @@ public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFacto
 	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
 	{
 		if ( type instanceof NativeType )
-			return new ArrayImgFactory( (NativeType) type );
+			return new ArrayImgFactory( (NativeType) type, accessFlags );
 		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
 	}
 
@@ -131,6 +148,7 @@ public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFacto
 	public ArrayImgFactory()
 	{
 		super();
+		accessFlags = AccessFlags.setOf();
 	}
 
 	@Deprecated
@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.array;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.basictypeaccess.nio.MappedBufferAccessFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for {@link ArrayImg}s whose data is a memory-mapped region of a raw
+ * file. The pixels are expected in flat iteration order, starting at a given
+ * byte offset in the file. Creating an image maps the file without reading it,
+ * so existing data is available immediately and paged in by the operating
+ * system as it is accessed.
+ * <p>
+ * With {@link MapMode#READ_WRITE}, the file is created or extended as
+ * required and modifications are written back to the file. With
+ * {@link MapMode#PRIVATE}, modifications are not visible in the file.
+ * </p>
+ * <p>
+ * A single mapping is limited to {@code Integer.MAX_VALUE} bytes. Use
+ * {@link net.imglib2.img.cell.MappedCellImgFactory} for larger files.
+ * </p>
+ * <p>
+ * {@link ArrayImg#copy()} of a mapped image creates a regular
+ * {@link ArrayImg} on the Java heap.
+ * </p>
+ */
+public class MappedArrayImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	private final Path file;
+
+	private final MapMode mode;
+
+	private final long offset;
+
+	private final ByteOrder order;
+
+	/**
+	 * Create a factory that maps {@code file} from the beginning, in native
+	 * byte order.
+	 */
+	public MappedArrayImgFactory( final T type, final Path file, final MapMode mode )
+	{
+		this( type, file, mode, 0, ByteOrder.nativeOrder() );
+	}
+
+	/**
+	 * Create a factory that maps {@code file} starting at byte {@code offset},
+	 * assuming data in the given byte {@code order}.
+	 */
+	public MappedArrayImgFactory( final T type, final Path file, final MapMode mode, final long offset, final ByteOrder order )
+	{
+		super( type );
+		this.file = file;
+		this.mode = mode;
+		this.offset = offset;
+		this.order = order;
+	}
+
+	@Override
+	public ArrayImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final ArrayImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public ArrayImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public ArrayImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends BufferAccess< A > > ArrayImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		Dimensions.verify( dimensions );
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+		final A data;
+		try (final FileChannel channel = MappedBufferAccessFactory.open( file, mode ))
+		{
+			data = MappedBufferAccessFactory.map( channel, mode, offset, numEntities, typeFactory.getPrimitiveType(), order );
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+		final ArrayImg< T, A > img = new ArrayImg<>( data, dimensions, entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( type instanceof NativeType )
+			return new MappedArrayImgFactory( ( NativeType ) type, file, mode, offset, order );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public ArrayImg< T, ? > create( final long[] dim, final T type )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final ArrayImg< T, ? > img = create( dim, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
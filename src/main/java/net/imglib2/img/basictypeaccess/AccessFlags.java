@@ -39,24 +39,28 @@ import java.util.Set;
 
 import net.imglib2.Dirty;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
 import net.imglib2.img.basictypeaccess.volatiles.VolatileAccess;
 
 /**
  * Flags that specify variants of {@link ArrayDataAccess} underlying primitive
  * types. {@link #DIRTY} means that an access implements {@link Dirty}.
  * {@link #VOLATILE} means that an access implements {@link VolatileAccess}.
+ * {@link #DIRECT} means that an access is a {@link BufferAccess} that stores
+ * its data outside the Java heap.
  *
  * @author Tobias Pietzsch
  */
 public enum AccessFlags
 {
-	DIRTY, VOLATILE;
+	DIRTY, VOLATILE, DIRECT;
 
 	public static Set< AccessFlags > ofAccess( final Object access )
 	{
 		final boolean dirtyAccesses = ( access instanceof Dirty );
 		final boolean volatileAccesses = ( access instanceof VolatileAccess );
-		return fromBooleansDirtyVolatile( dirtyAccesses, volatileAccesses );
+		final boolean directAccesses = ( access instanceof BufferAccess ) && ( ( BufferAccess< ? > ) access ).isDirect();
+		return fromBooleansDirtyVolatileDirect( dirtyAccesses, volatileAccesses, directAccesses );
 	}
 
 	public static Set< AccessFlags > setOf()
@@ -66,39 +70,58 @@ public enum AccessFlags
 
 	public static Set< AccessFlags > setOf( final AccessFlags f1 )
 	{
-		return f1 == DIRTY ? flags_DIRTY : flags_VOLATILE;
+		return flagSets[ bit( f1 ) ];
 	}
 
 	public static Set< AccessFlags > setOf( final AccessFlags f1, final AccessFlags f2 )
 	{
-		return f1 == DIRTY
-				? ( f2 == DIRTY ? flags_DIRTY : flags_DIRTY_VOLATILE )
-				: ( f2 == DIRTY ? flags_DIRTY_VOLATILE : flags_VOLATILE);
+		return flagSets[ bit( f1 ) | bit( f2 ) ];
 	}
 
 	public static Set< AccessFlags > setOf( final AccessFlags... flags )
 	{
-		boolean dirtyAccesses = false;
-		boolean volatileAccesses = false;
-		for ( AccessFlags flag : flags )
-		{
-			if ( flag == DIRTY )
-				dirtyAccesses = true;
-			else if ( flag == VOLATILE )
-				volatileAccesses = true;
-		}
-		return fromBooleansDirtyVolatile( dirtyAccesses, volatileAccesses );
+		int bits = 0;
+		for ( final AccessFlags flag : flags )
+			bits |= bit( flag );
+		return flagSets[ bits ];
 	}
 
 	public static Set< AccessFlags > fromBooleansDirtyVolatile( final boolean dirtyAccesses, final boolean volatileAccesses )
 	{
-		return dirtyAccesses
-				? ( volatileAccesses ? flags_DIRTY_VOLATILE : flags_DIRTY )
-				: ( volatileAccesses ? flags_VOLATILE : flags_NONE );
+		return fromBooleansDirtyVolatileDirect( dirtyAccesses, volatileAccesses, false );
+	}
+
+	public static Set< AccessFlags > fromBooleansDirtyVolatileDirect( final boolean dirtyAccesses, final boolean volatileAccesses, final boolean directAccesses )
+	{
+		return flagSets[ ( dirtyAccesses ? bit( DIRTY ) : 0 ) | ( volatileAccesses ? bit( VOLATILE ) : 0 ) | ( directAccesses ? bit( DIRECT ) : 0 ) ];
+	}
+
+	private static int bit( final AccessFlags flag )
+	{
+		return 1 << flag.ordinal();
 	}
 
-	private final static Set< AccessFlags > flags_DIRTY_VOLATILE = Collections.unmodifiableSet( EnumSet.of( DIRTY, VOLATILE ) );
-	private final static Set< AccessFlags > flags_DIRTY = Collections.unmodifiableSet( EnumSet.of( DIRTY ) );
-	private final static Set< AccessFlags > flags_VOLATILE = Collections.unmodifiableSet( EnumSet.of( VOLATILE ) );
 	private final static Set< AccessFlags > flags_NONE = Collections.unmodifiableSet( EnumSet.noneOf( AccessFlags.class ) );
+
+	/**
+	 * All subsets of {@link AccessFlags}, indexed by bitmask of ordinals.
+	 */
+	private final static Set< AccessFlags >[] flagSets = createFlagSets();
+
+	@SuppressWarnings( "unchecked" )
+	private static Set< AccessFlags >[] createFlagSets()
+	{
+		final AccessFlags[] values = values();
+		@SuppressWarnings( "rawtypes" )
+		final Set< AccessFlags >[] sets = new Set[ 1 << values.length ];
+		for ( int bits = 0; bits < sets.length; ++bits )
+		{
+			final EnumSet< AccessFlags > set = EnumSet.noneOf( AccessFlags.class );
+			for ( final AccessFlags flag : values )
+				if ( ( bits & bit( flag ) ) != 0 )
+					set.add( flag );
+			sets[ bits ] = bits == 0 ? flags_NONE : Collections.unmodifiableSet( set );
+		}
+		return sets;
+	}
 }
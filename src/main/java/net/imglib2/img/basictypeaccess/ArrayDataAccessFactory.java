@@ -33,6 +33,7 @@
  */
 package net.imglib2.img.basictypeaccess;
 
+import static net.imglib2.img.basictypeaccess.AccessFlags.DIRECT;
 import static net.imglib2.img.basictypeaccess.AccessFlags.DIRTY;
 import static net.imglib2.img.basictypeaccess.AccessFlags.VOLATILE;
 
@@ -55,6 +56,14 @@ import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.basictypeaccess.nio.BooleanBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ByteBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.CharBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.FloatBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.IntBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.LongBufferAccess;
+import net.imglib2.img.basictypeaccess.nio.ShortBufferAccess;
 import net.imglib2.img.basictypeaccess.volatiles.array.DirtyVolatileBooleanArray;
 import net.imglib2.img.basictypeaccess.volatiles.array.DirtyVolatileByteArray;
 import net.imglib2.img.basictypeaccess.volatiles.array.DirtyVolatileCharArray;
@@ -78,7 +87,12 @@ import net.imglib2.type.NativeTypeFactory;
 /**
  * Given a {@link PrimitiveType} and {@link AccessFlags} creates a specific
  * {@link ArrayDataAccess}. For example, {@code BYTE} with flags {@code DIRTY}
- * and {@code VOLATILE} specifies {@link DirtyVolatileByteArray}.
+ * and {@code VOLATILE} specifies {@link DirtyVolatileByteArray}, {@code FLOAT}
+ * with flag {@code DIRECT} specifies {@link FloatBufferAccess}.
+ * <p>
+ * {@code DIRECT} cannot currently be combined with {@code DIRTY} or
+ * {@code VOLATILE}.
+ * </p>
  *
  * @author Tobias Pietzsch
  */
@@ -117,6 +131,12 @@ public class ArrayDataAccessFactory
 	{
 		final boolean dirty = flags.contains( DIRTY );
 		final boolean volatil = flags.contains( VOLATILE );
+		if ( flags.contains( DIRECT ) )
+		{
+			if ( dirty || volatil )
+				throw new IllegalArgumentException( "DIRECT accesses can not be combined with DIRTY or VOLATILE" );
+			return getDirect( primitiveType );
+		}
 		switch ( primitiveType )
 		{
 		case BOOLEAN:
@@ -187,4 +207,30 @@ public class ArrayDataAccessFactory
 			throw new IllegalArgumentException();
 		}
 	}
+
+	@SuppressWarnings( "unchecked" )
+	private static < A extends ArrayDataAccess< A > > A getDirect( final PrimitiveType primitiveType )
+	{
+		switch ( primitiveType )
+		{
+		case BOOLEAN:
+			return ( A ) new BooleanBufferAccess( 0 );
+		case BYTE:
+			return ( A ) new ByteBufferAccess( 0 );
+		case CHAR:
+			return ( A ) new CharBufferAccess( 0 );
+		case DOUBLE:
+			return ( A ) new DoubleBufferAccess( 0 );
+		case FLOAT:
+			return ( A ) new FloatBufferAccess( 0 );
+		case INT:
+			return ( A ) new IntBufferAccess( 0 );
+		case LONG:
+			return ( A ) new LongBufferAccess( 0 );
+		case SHORT:
+			return ( A ) new ShortBufferAccess( 0 );
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
 }
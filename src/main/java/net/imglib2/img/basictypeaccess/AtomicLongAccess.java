@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess;
+
+/**
+ * A {@link LongAccess} that supports atomic updates of its values.
+ * <p>
+ * Packed bit types ({@code BitType}, {@code Unsigned2BitType}, ...) store
+ * several pixels in one long. Writing a pixel is a read-modify-write of that
+ * long, which must not race with writes of the neighboring pixels. For plain
+ * {@link LongAccess}es this is ensured by synchronizing on the access, which
+ * serializes all concurrent writes to an image. For an
+ * {@link AtomicLongAccess}, the packed bit types instead update the long with
+ * {@link #updateValue(int, long, long)}, which is lock-free.
+ * </p>
+ */
+public interface AtomicLongAccess extends LongAccess
+{
+	/**
+	 * Atomically set the value at {@code index} to {@code newValue} if it is
+	 * {@code expectedValue}.
+	 *
+	 * @return {@code true} if successful, {@code false} if the value was not
+	 *         {@code expectedValue}.
+	 */
+	public boolean compareAndSetValue( final int index, final long expectedValue, final long newValue );
+
+	/**
+	 * Atomically replace the value {@code v} at {@code index} by
+	 * {@code (v & bitsToRetain) | bitsToSet}.
+	 */
+	public default void updateValue( final int index, final long bitsToRetain, final long bitsToSet )
+	{
+		long v;
+		do
+		{
+			v = getValue( index );
+		}
+		while ( !compareAndSetValue( index, v, ( v & bitsToRetain ) | bitsToSet ) );
+	}
+}
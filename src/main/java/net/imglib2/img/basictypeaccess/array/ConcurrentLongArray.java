@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess.array;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.imglib2.img.basictypeaccess.AtomicLongAccess;
+
+/**
+ * An {@link AtomicLongAccess} backed by an {@link AtomicLongArray}.
+ * <p>
+ * Use this as storage for packed bit types that are written from several
+ * threads, e.g.,
+ * {@code ArrayImgs.bits( new ConcurrentLongArray( ( int ) ( ( n + 63 ) / 64 ) ), dimensions )}
+ * for a mask of {@code n} pixels. {@link #getCurrentStorageArray()} returns
+ * the {@link AtomicLongArray}, not a {@code long[]}.
+ * </p>
+ */
+public class ConcurrentLongArray implements AtomicLongAccess, ArrayDataAccess< ConcurrentLongArray >
+{
+	private static final long serialVersionUID = 1L;
+
+	protected final AtomicLongArray data;
+
+	public ConcurrentLongArray( final int numEntities )
+	{
+		this.data = new AtomicLongArray( numEntities );
+	}
+
+	public ConcurrentLongArray( final long[] data )
+	{
+		this.data = new AtomicLongArray( data );
+	}
+
+	@Override
+	public long getValue( final int index )
+	{
+		return data.get( index );
+	}
+
+	@Override
+	public void setValue( final int index, final long value )
+	{
+		data.set( index, value );
+	}
+
+	@Override
+	public boolean compareAndSetValue( final int index, final long expectedValue, final long newValue )
+	{
+		return data.compareAndSet( index, expectedValue, newValue );
+	}
+
+	@Override
+	public ConcurrentLongArray createArray( final int numEntities )
+	{
+		return new ConcurrentLongArray( numEntities );
+	}
+
+	@Override
+	public AtomicLongArray getCurrentStorageArray()
+	{
+		return data;
+	}
+
+	@Override
+	public int getArrayLength()
+	{
+		return data.length();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Base class for {@link BufferAccess} implementations. Holds the underlying
+ * {@link ByteBuffer} and a typed view {@code B} on it that is used for element
+ * access.
+ * <p>
+ * Buffers are not {@link java.io.Serializable}, so the content is written as a
+ * plain byte sequence and restored into a new direct buffer on
+ * deserialization.
+ * </p>
+ *
+ * @param <A>
+ *            the concrete access type
+ * @param <B>
+ *            the typed {@link Buffer} view
+ */
+public abstract class AbstractBufferAccess< A extends AbstractBufferAccess< A, B >, B extends Buffer > implements BufferAccess< A >
+{
+	private static final long serialVersionUID = 1L;
+
+	protected transient ByteBuffer bytes;
+
+	protected transient B buffer;
+
+	/**
+	 * Wrap {@code bytes}, starting at its current position. The byte order of
+	 * {@code bytes} is respected.
+	 */
+	protected AbstractBufferAccess( final ByteBuffer bytes )
+	{
+		this.bytes = bytes;
+		this.buffer = view( bytes );
+	}
+
+	/**
+	 * Create the typed view on {@code bytes} that is used for element access.
+	 */
+	protected abstract B view( ByteBuffer bytes );
+
+	/**
+	 * Allocate a direct {@link ByteBuffer} with native byte order that holds
+	 * {@code numEntities} entities of {@code bytesPerEntity} bytes each.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the buffer would be larger than {@code Integer.MAX_VALUE}
+	 *             bytes.
+	 */
+	protected static ByteBuffer allocate( final int numEntities, final int bytesPerEntity )
+	{
+		final long numBytes = ( long ) numEntities * bytesPerEntity;
+		if ( numBytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Number of bytes in buffer too large: " + numBytes + " > " + Integer.MAX_VALUE );
+		return ByteBuffer.allocateDirect( ( int ) numBytes ).order( ByteOrder.nativeOrder() );
+	}
+
+	@Override
+	public ByteBuffer getByteBuffer()
+	{
+		return bytes;
+	}
+
+	@Override
+	public B getCurrentStorageArray()
+	{
+		return buffer;
+	}
+
+	@Override
+	public int getArrayLength()
+	{
+		return buffer.limit();
+	}
+
+	private void writeObject( final ObjectOutputStream out ) throws IOException
+	{
+		out.defaultWriteObject();
+		final ByteBuffer src = bytes.duplicate();
+		out.writeBoolean( bytes.order() == ByteOrder.BIG_ENDIAN );
+		out.writeInt( src.remaining() );
+		final byte[] chunk = new byte[ Math.min( src.remaining(), 1 << 16 ) ];
+		while ( src.hasRemaining() )
+		{
+			final int n = Math.min( src.remaining(), chunk.length );
+			src.get( chunk, 0, n );
+			out.write( chunk, 0, n );
+		}
+	}
+
+	private void readObject( final ObjectInputStream in ) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		final ByteOrder order = in.readBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+		final int numBytes = in.readInt();
+		final ByteBuffer dst = ByteBuffer.allocateDirect( numBytes ).order( order );
+		final byte[] chunk = new byte[ Math.min( numBytes, 1 << 16 ) ];
+		while ( dst.hasRemaining() )
+		{
+			final int n = Math.min( dst.remaining(), chunk.length );
+			in.readFully( chunk, 0, n );
+			dst.put( chunk, 0, n );
+		}
+		dst.flip();
+		bytes = dst;
+		buffer = view( dst );
+	}
+}
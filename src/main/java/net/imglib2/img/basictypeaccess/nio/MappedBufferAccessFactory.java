@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.type.PrimitiveType;
+
+/**
+ * Creates {@link BufferAccess}es that are backed by memory-mapped regions of a
+ * file.
+ * <p>
+ * The mapping stays valid after the {@link FileChannel} used to create it is
+ * closed. Pages are loaded and written back by the operating system on demand.
+ * </p>
+ */
+public class MappedBufferAccessFactory
+{
+	/**
+	 * Open a {@link FileChannel} on {@code file} suitable for mapping with
+	 * {@code mode}. For {@link MapMode#READ_WRITE} the file is created if it
+	 * does not exist. {@link MapMode#PRIVATE} requires a writable channel as
+	 * well, but modifications are never written to the file, so it must
+	 * exist.
+	 */
+	public static FileChannel open( final Path file, final MapMode mode ) throws IOException
+	{
+		final OpenOption[] options;
+		if ( mode == MapMode.READ_WRITE )
+			options = new OpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE };
+		else if ( mode == MapMode.PRIVATE )
+			options = new OpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+		else
+			options = new OpenOption[] { StandardOpenOption.READ };
+		return FileChannel.open( file, options );
+	}
+
+	/**
+	 * Map a region of {@code channel} into a {@link BufferAccess} for
+	 * {@code primitiveType}.
+	 *
+	 * @param channel
+	 *            the file to map
+	 * @param mode
+	 *            {@link MapMode#READ_WRITE} extends the file if required,
+	 *            {@link MapMode#READ_ONLY} and {@link MapMode#PRIVATE} require
+	 *            that the file is large enough.
+	 * @param position
+	 *            offset in bytes of the region in the file
+	 * @param numEntities
+	 *            number of primitive entities in the region
+	 * @param primitiveType
+	 *            the primitive type of the entities
+	 * @param order
+	 *            the byte order of the data in the file
+	 *
+	 * @throws IOException
+	 *             if the file can not be mapped or is too small.
+	 * @throws IllegalArgumentException
+	 *             if the region is larger than {@code Integer.MAX_VALUE} bytes.
+	 */
+	public static < A extends BufferAccess< A > > A map(
+			final FileChannel channel,
+			final MapMode mode,
+			final long position,
+			final int numEntities,
+			final PrimitiveType primitiveType,
+			final ByteOrder order ) throws IOException
+	{
+		final long numBytes = numBytes( numEntities, primitiveType );
+		if ( numBytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Mapped region too large: " + numBytes + " > " + Integer.MAX_VALUE + " bytes" );
+		if ( mode != MapMode.READ_WRITE && position + numBytes > channel.size() )
+			throw new IOException( "File too small: mapping " + numBytes + " bytes at position " + position + " exceeds file size " + channel.size() );
+		final MappedByteBuffer bytes = channel.map( mode, position, numBytes );
+		bytes.order( order );
+		final A prototype = ArrayDataAccessFactory.get( primitiveType, AccessFlags.setOf( AccessFlags.DIRECT ) );
+		return prototype.newInstance( bytes );
+	}
+
+	/**
+	 * Get the number of bytes occupied by {@code numEntities} entities of
+	 * {@code primitiveType}.
+	 */
+	public static long numBytes( final long numEntities, final PrimitiveType primitiveType )
+	{
+		return numEntities * primitiveType.getByteCount();
+	}
+}
@@ -34,10 +34,13 @@
 
 package net.imglib2.img.cell;
 
+import java.util.Set;
+
 import net.imglib2.Dimensions;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.AccessFlags;
 import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.img.list.ListImg;
@@ -60,15 +63,27 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 {
 	private final int[] defaultCellDimensions;
 
+	private final Set< AccessFlags > accessFlags;
+
 	public CellImgFactory( final T type )
 	{
 		this( type, 10 );
 	}
 
 	public CellImgFactory( final T type, final int... cellDimensions )
+	{
+		this( type, AccessFlags.setOf(), cellDimensions );
+	}
+
+	/**
+	 * Create a factory for {@link CellImg}s whose cells are stored in accesses
+	 * with the given {@link AccessFlags}.
+	 */
+	public CellImgFactory( final T type, final Set< AccessFlags > accessFlags, final int... cellDimensions )
 	{
 		super( type );
 		defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+		this.accessFlags = accessFlags;
 	}
 
 	/**
@@ -143,7 +158,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 			cellCursor.fwd();
 			cellCursor.localize( cellGridPosition );
 			grid.getCellDimensions( cellGridPosition, cellMin, cellDims );
-			final A data = ArrayDataAccessFactory.get( typeFactory ).createArray( ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) ) );
+			final A data = ArrayDataAccessFactory.get( typeFactory, accessFlags ).createArray( ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) ) );
 			cellCursor.set( new Cell<>( cellDims, cellMin, data ) );
 		}
 
@@ -157,7 +172,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
 	{
 		if ( NativeType.class.isInstance( type ) )
-			return new CellImgFactory( ( NativeType ) type, defaultCellDimensions );
+			return new CellImgFactory( ( NativeType ) type, accessFlags, defaultCellDimensions );
 		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
 	}
 
@@ -182,6 +197,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 	public CellImgFactory( final int... cellDimensions )
 	{
 		defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+		accessFlags = AccessFlags.setOf();
 	}
 
 	@Deprecated
@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.basictypeaccess.nio.MappedBufferAccessFactory;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.img.list.ListLocalizingCursor;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for {@link CellImg}s whose cells are memory-mapped regions of a raw
+ * file. Each cell maps its own region, so the file may be much larger than
+ * {@code Integer.MAX_VALUE} bytes.
+ * <p>
+ * Cells are expected to be stored one after another, in flat iteration order
+ * of the {@link CellGrid}, starting at a given byte offset in the file. The
+ * data within a cell is in flat iteration order. If the cell dimensions span
+ * the full image in all but the last dimension, this layout is identical to a
+ * plain raw file in flat iteration order.
+ * </p>
+ * <p>
+ * With {@link MapMode#READ_WRITE}, the file is created or extended as required
+ * and modifications are written back to the file. With {@link MapMode#PRIVATE},
+ * modifications are not visible in the file.
+ * </p>
+ * <p>
+ * {@link CellImg#copy()} of a mapped image creates a regular {@link CellImg}
+ * on the Java heap.
+ * </p>
+ */
+public class MappedCellImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	private final Path file;
+
+	private final MapMode mode;
+
+	private final long offset;
+
+	private final ByteOrder order;
+
+	private final int[] defaultCellDimensions;
+
+	/**
+	 * Create a factory that maps {@code file} from the beginning, in native
+	 * byte order.
+	 */
+	public MappedCellImgFactory( final T type, final Path file, final MapMode mode, final int... cellDimensions )
+	{
+		this( type, file, mode, 0, ByteOrder.nativeOrder(), cellDimensions );
+	}
+
+	/**
+	 * Create a factory that maps {@code file} starting at byte {@code offset},
+	 * assuming data in the given byte {@code order}.
+	 */
+	public MappedCellImgFactory( final T type, final Path file, final MapMode mode, final long offset, final ByteOrder order, final int... cellDimensions )
+	{
+		super( type );
+		this.file = file;
+		this.mode = mode;
+		this.offset = offset;
+		this.order = order;
+		defaultCellDimensions = Dimensions.verify( cellDimensions ).clone();
+	}
+
+	@Override
+	public CellImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final CellImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public CellImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public CellImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends BufferAccess< A > > CellImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		Dimensions.verify( dimensions );
+
+		final int n = dimensions.length;
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final int[] cellDimensions = CellImgFactory.getCellDimensions( defaultCellDimensions, n, entitiesPerPixel );
+		final PrimitiveType primitiveType = typeFactory.getPrimitiveType();
+
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+		final long[] gridDimensions = new long[ grid.numDimensions() ];
+		grid.gridDimensions( gridDimensions );
+
+		final Cell< A > cellType = new Cell<>( new int[] { 1 }, new long[] { 1 }, null );
+		final ListImg< Cell< A > > cells = new ListImg<>( gridDimensions, cellType );
+
+		final long[] cellGridPosition = new long[ n ];
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		final ListLocalizingCursor< Cell< A > > cellCursor = cells.localizingCursor();
+		try (final FileChannel channel = MappedBufferAccessFactory.open( file, mode ))
+		{
+			long position = offset;
+			while ( cellCursor.hasNext() )
+			{
+				cellCursor.fwd();
+				cellCursor.localize( cellGridPosition );
+				grid.getCellDimensions( cellGridPosition, cellMin, cellDims );
+				final int numEntities = ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) );
+				final A data = MappedBufferAccessFactory.map( channel, mode, position, numEntities, primitiveType, order );
+				position += MappedBufferAccessFactory.numBytes( numEntities, primitiveType );
+				cellCursor.set( new Cell<>( cellDims, cellMin, data ) );
+			}
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+
+		final CellImg< T, A > img = new CellImg<>( new CellImgFactory<>( type, defaultCellDimensions ), grid, cells, entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new MappedCellImgFactory( ( NativeType ) type, file, mode, offset, order, defaultCellDimensions );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public CellImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final CellImg< T, ? > img = create( dimensions, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
@@ -0,0 +1,543 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.img.cell.LazyCellImg.Get;
+
+/**
+ * A size-bounded cache of {@link Cell}s for {@link LazyCellImg}. Wraps a
+ * loader {@link Get} that produces cells on a cache miss, and is itself a
+ * {@link Get} that can be passed to the {@link LazyCellImg} constructor.
+ * <p>
+ * Cells are held strongly in least-recently-used order until their total
+ * weight (by default the size of their data in bytes) exceeds the bound. Then
+ * the least recently used cells are evicted. Evicted cells can optionally be
+ * kept in a second level of {@link SoftReference soft} or
+ * {@link WeakReference weak} references, from which they are recovered if
+ * the garbage collector has not cleared them yet.
+ * </p>
+ * <p>
+ * The cache is thread-safe. Concurrent requests for the same missing cell
+ * trigger only one load; the other threads wait for its result.
+ * </p>
+ *
+ * @param <A>
+ *            access type of the cells
+ */
+public class BoundedCellCache< A > implements Get< Cell< A > >
+{
+	/**
+	 * How evicted cells are retained.
+	 */
+	public enum Fallback
+	{
+		/** Keep evicted cells softly reachable. */
+		SOFT,
+		/** Keep evicted cells weakly reachable. */
+		WEAK,
+		/** Drop evicted cells. */
+		NONE
+	}
+
+	private final Get< Cell< A > > loader;
+
+	private final long maxWeight;
+
+	private final ToLongFunction< ? super Cell< A > > weigher;
+
+	private final Fallback fallback;
+
+	private final LinkedHashMap< Long, Entry< A > > strong = new LinkedHashMap<>( 16, 0.75f, true );
+
+	private long weight = 0;
+
+	private final ConcurrentHashMap< Long, Reference< Cell< A > > > weak = new ConcurrentHashMap<>();
+
+	/**
+	 * Cells that were removed from the strongly held level, until
+	 * {@link #evicted(long, Cell)} returns for them.
+	 */
+	private final ConcurrentHashMap< Long, Cell< A > > evicting = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue< Cell< A > > queue = new ReferenceQueue<>();
+
+	private final ConcurrentHashMap< Long, FutureTask< Cell< A > > > loading = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Create a cache that holds at most {@code maxBytes} bytes of cell data
+	 * strongly, and keeps evicted cells softly reachable.
+	 *
+	 * @param loader
+	 *            loads cells that are not in the cache
+	 * @param maxBytes
+	 *            bound on the total {@link #sizeInBytes(Cell) size} of
+	 *            strongly held cells
+	 */
+	public BoundedCellCache( final Get< Cell< A > > loader, final long maxBytes )
+	{
+		this( loader, maxBytes, BoundedCellCache::sizeInBytes, Fallback.SOFT );
+	}
+
+	/**
+	 * Create a cache that holds cells strongly up to a total weight of
+	 * {@code maxWeight}.
+	 *
+	 * @param loader
+	 *            loads cells that are not in the cache
+	 * @param maxWeight
+	 *            bound on the total weight of strongly held cells
+	 * @param weigher
+	 *            computes the weight of a cell
+	 * @param fallback
+	 *            how evicted cells are retained
+	 */
+	public BoundedCellCache(
+			final Get< Cell< A > > loader,
+			final long maxWeight,
+			final ToLongFunction< ? super Cell< A > > weigher,
+			final Fallback fallback )
+	{
+		this.loader = loader;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public Cell< A > get( final long index )
+	{
+		final Cell< A > cached = getIfPresent( index );
+		if ( cached != null )
+		{
+			hits.incrementAndGet();
+			return cached;
+		}
+
+		final FutureTask< Cell< A > > task = new FutureTask<>( () -> loader.get( index ) );
+		final FutureTask< Cell< A > > existing = loading.putIfAbsent( index, task );
+		if ( existing != null )
+		{
+			hits.incrementAndGet();
+			return await( existing );
+		}
+
+		try
+		{
+			// another thread might have finished loading in the meantime
+			final Cell< A > loaded = getIfPresent( index );
+			if ( loaded != null )
+			{
+				hits.incrementAndGet();
+				task.cancel( false );
+				return loaded;
+			}
+
+			misses.incrementAndGet();
+			task.run();
+			final Cell< A > cell = await( task );
+			insert( index, cell );
+			return cell;
+		}
+		finally
+		{
+			loading.remove( index, task );
+		}
+	}
+
+	/**
+	 * Get the cell with the given {@code index} if it is in the cache, without
+	 * loading it. Returns {@code null} if the cell is not cached.
+	 */
+	public Cell< A > getIfPresent( final long index )
+	{
+		cleanUp();
+		List< Eviction< A > > removed = null;
+		try
+		{
+			synchronized ( strong )
+			{
+				final Entry< A > entry = strong.get( index );
+				if ( entry != null )
+					return entry.cell;
+
+				// recover an evicted cell while holding the lock, so that a
+				// concurrent get() cannot miss it and load a second copy
+				Cell< A > cell = evicting.get( index );
+				if ( cell == null )
+				{
+					final Reference< Cell< A > > ref = weak.remove( index );
+					if ( ref != null )
+						cell = ref.get();
+				}
+				if ( cell != null )
+					removed = put( index, cell );
+				return cell;
+			}
+		}
+		finally
+		{
+			evict( removed );
+		}
+	}
+
+	/**
+	 * Remove all cells from the cache.
+	 */
+	public void invalidateAll()
+	{
+		final List< Eviction< A > > removed = new ArrayList<>();
+		synchronized ( strong )
+		{
+			strong.forEach( ( index, entry ) -> {
+				evicting.put( index, entry.cell );
+				removed.add( new Eviction<>( index, entry.cell ) );
+			} );
+			strong.clear();
+			weight = 0;
+		}
+		weak.clear();
+		cleanUp();
+		evict( removed );
+	}
+
+	/**
+	 * Perform {@code action} for each strongly held cell. Note, that this is
+	 * called while holding the cache lock, so {@code action} should return
+	 * quickly.
+	 */
+	public void forEach( final BiConsumer< Long, Cell< A > > action )
+	{
+		synchronized ( strong )
+		{
+			strong.forEach( ( index, entry ) -> action.accept( index, entry.cell ) );
+		}
+	}
+
+	/**
+	 * Get the number of requests that were answered from the cache.
+	 */
+	public long getHitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of requests that required loading a cell.
+	 */
+	public long getMissCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Get the number of cells that were evicted from the strongly held level
+	 * because the weight bound was exceeded.
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.get();
+	}
+
+	/**
+	 * Get the total weight of the strongly held cells.
+	 */
+	public long getWeight()
+	{
+		synchronized ( strong )
+		{
+			return weight;
+		}
+	}
+
+	/**
+	 * Get the bound on the total weight of strongly held cells.
+	 */
+	public long getMaxWeight()
+	{
+		return maxWeight;
+	}
+
+	/**
+	 * Called when {@code cell} is evicted from the strongly held level, or
+	 * removed by {@link #invalidateAll()}. Does nothing by default. This is
+	 * called without holding the cache lock, so implementations may take
+	 * time, e.g. to write the cell. Until this returns, {@link #get(long)}
+	 * recovers the cell instead of loading it.
+	 */
+	protected void evicted( final long index, final Cell< A > cell )
+	{}
+
+	private void insert( final long index, final Cell< A > cell )
+	{
+		final List< Eviction< A > > removed;
+		synchronized ( strong )
+		{
+			removed = put( index, cell );
+		}
+		evict( removed );
+	}
+
+	/**
+	 * Put {@code cell} into the strongly held level, and return the cells
+	 * that are evicted, or {@code null} if there are none. Must be called
+	 * while holding the cache lock.
+	 */
+	private List< Eviction< A > > put( final long index, final Cell< A > cell )
+	{
+		List< Eviction< A > > removed = null;
+		final long w = weigher.applyAsLong( cell );
+		final Entry< A > previous = strong.put( index, new Entry<>( cell, w ) );
+		if ( previous != null )
+			weight -= previous.weight;
+		weight += w;
+
+		final Iterator< Map.Entry< Long, Entry< A > > > it = strong.entrySet().iterator();
+		while ( weight > maxWeight && strong.size() > 1 )
+		{
+			final Map.Entry< Long, Entry< A > > eldest = it.next();
+			final long key = eldest.getKey();
+			final Entry< A > entry = eldest.getValue();
+			it.remove();
+			weight -= entry.weight;
+			evictions.incrementAndGet();
+			evicting.put( key, entry.cell );
+			if ( removed == null )
+				removed = new ArrayList<>();
+			removed.add( new Eviction<>( key, entry.cell ) );
+			if ( fallback != Fallback.NONE )
+				weak.put( key, reference( key, entry.cell, fallback, queue ) );
+		}
+		return removed;
+	}
+
+	/**
+	 * Call {@link #evicted(long, Cell)} for {@code removed}, which may be
+	 * {@code null}, without holding the cache lock.
+	 */
+	private void evict( final List< Eviction< A > > removed )
+	{
+		if ( removed == null )
+			return;
+		RuntimeException failure = null;
+		for ( final Eviction< A > eviction : removed )
+		{
+			try
+			{
+				evicted( eviction.index, eviction.cell );
+			}
+			catch ( final RuntimeException e )
+			{
+				if ( failure == null )
+					failure = e;
+			}
+			finally
+			{
+				evicting.remove( eviction.index, eviction.cell );
+			}
+		}
+		if ( failure != null )
+			throw failure;
+	}
+
+	private void cleanUp()
+	{
+		Reference< ? extends Cell< A > > ref;
+		while ( ( ref = queue.poll() ) != null )
+		{
+			weak.remove( ( ( IndexedReference ) ref ).index(), ref );
+		}
+	}
+
+	private static < T > T await( final FutureTask< T > task )
+	{
+		boolean interrupted = false;
+		try
+		{
+			while ( true )
+			{
+				try
+				{
+					return task.get();
+				}
+				catch ( final InterruptedException e )
+				{
+					interrupted = true;
+				}
+				catch ( final ExecutionException e )
+				{
+					final Throwable cause = e.getCause();
+					if ( cause instanceof RuntimeException )
+						throw ( RuntimeException ) cause;
+					if ( cause instanceof Error )
+						throw ( Error ) cause;
+					throw new RuntimeException( cause );
+				}
+			}
+		}
+		finally
+		{
+			if ( interrupted )
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Estimate the size in bytes of the data of {@code cell}. This is exact
+	 * for cells holding {@link ArrayDataAccess} backed by primitive arrays or
+	 * {@link BufferAccess}. For other cells, the number of pixels is returned.
+	 */
+	public static long sizeInBytes( final Cell< ? > cell )
+	{
+		final Object data = cell.getData();
+		if ( data instanceof BufferAccess )
+			return ( ( BufferAccess< ? > ) data ).getByteBuffer().capacity();
+		if ( data instanceof ArrayDataAccess )
+		{
+			final Object storage = ( ( ArrayDataAccess< ? > ) data ).getCurrentStorageArray();
+			if ( storage != null && storage.getClass().isArray() )
+				return ( long ) Array.getLength( storage ) * bytesPerElement( storage.getClass().getComponentType() );
+		}
+		return cell.size();
+	}
+
+	private static int bytesPerElement( final Class< ? > componentType )
+	{
+		if ( componentType == long.class || componentType == double.class )
+			return 8;
+		if ( componentType == int.class || componentType == float.class )
+			return 4;
+		if ( componentType == short.class || componentType == char.class )
+			return 2;
+		return 1;
+	}
+
+	private static final class Entry< A >
+	{
+		final Cell< A > cell;
+
+		final long weight;
+
+		Entry( final Cell< A > cell, final long weight )
+		{
+			this.cell = cell;
+			this.weight = weight;
+		}
+	}
+
+	private static final class Eviction< A >
+	{
+		final long index;
+
+		final Cell< A > cell;
+
+		Eviction( final long index, final Cell< A > cell )
+		{
+			this.index = index;
+			this.cell = cell;
+		}
+	}
+
+	private interface IndexedReference
+	{
+		long index();
+	}
+
+	private static < A > Reference< Cell< A > > reference( final long index, final Cell< A > cell, final Fallback fallback, final ReferenceQueue< Cell< A > > queue )
+	{
+		return fallback == Fallback.SOFT
+				? new SoftCellReference<>( index, cell, queue )
+				: new WeakCellReference<>( index, cell, queue );
+	}
+
+	private static final class SoftCellReference< A > extends SoftReference< Cell< A > > implements IndexedReference
+	{
+		private final long index;
+
+		SoftCellReference( final long index, final Cell< A > cell, final ReferenceQueue< Cell< A > > queue )
+		{
+			super( cell, queue );
+			this.index = index;
+		}
+
+		@Override
+		public long index()
+		{
+			return index;
+		}
+	}
+
+	private static final class WeakCellReference< A > extends WeakReference< Cell< A > > implements IndexedReference
+	{
+		private final long index;
+
+		WeakCellReference( final long index, final Cell< A > cell, final ReferenceQueue< Cell< A > > queue )
+		{
+			super( cell, queue );
+			this.index = index;
+		}
+
+		@Override
+		public long index()
+		{
+			return index;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Conversion between the primitive storage arrays of cells and bytes in
+ * native byte order, shared by the cell caches that move cell data out of
+ * memory.
+ */
+final class CellArrays
+{
+	private CellArrays()
+	{}
+
+	/**
+	 * Get the number of bytes per element of the primitive {@code array}.
+	 * {@code boolean}s are stored as one byte each.
+	 */
+	static int bytesPerElement( final Object array )
+	{
+		final Class< ? > c = array.getClass().getComponentType();
+		if ( c == long.class || c == double.class )
+			return 8;
+		if ( c == int.class || c == float.class )
+			return 4;
+		if ( c == short.class || c == char.class )
+			return 2;
+		if ( c == byte.class || c == boolean.class )
+			return 1;
+		throw new IllegalArgumentException( "unsupported storage array " + array.getClass() );
+	}
+
+	static int numBytes( final Object array )
+	{
+		return bytesPerElement( array ) * Array.getLength( array );
+	}
+
+	/**
+	 * Copy {@code array} to {@code buffer}, starting at the buffer position.
+	 * The buffer must be in native byte order and have room for
+	 * {@link #numBytes(Object)} bytes.
+	 */
+	static void put( final Object array, final ByteBuffer buffer )
+	{
+		if ( array instanceof byte[] )
+			buffer.put( ( byte[] ) array );
+		else if ( array instanceof boolean[] )
+		{
+			for ( final boolean b : ( boolean[] ) array )
+				buffer.put( b ? ( byte ) 1 : ( byte ) 0 );
+		}
+		else if ( array instanceof char[] )
+			buffer.asCharBuffer().put( ( char[] ) array );
+		else if ( array instanceof short[] )
+			buffer.asShortBuffer().put( ( short[] ) array );
+		else if ( array instanceof int[] )
+			buffer.asIntBuffer().put( ( int[] ) array );
+		else if ( array instanceof float[] )
+			buffer.asFloatBuffer().put( ( float[] ) array );
+		else if ( array instanceof long[] )
+			buffer.asLongBuffer().put( ( long[] ) array );
+		else if ( array instanceof double[] )
+			buffer.asDoubleBuffer().put( ( double[] ) array );
+		else
+			throw new IllegalArgumentException( "unsupported storage array " + array.getClass() );
+	}
+
+	/**
+	 * Fill {@code array} from the remaining bytes of {@code buffer}. If fewer
+	 * bytes remain than the array holds, the rest of the array is left
+	 * unchanged. The buffer must be in native byte order.
+	 */
+	static void get( final ByteBuffer buffer, final Object array )
+	{
+		if ( array instanceof byte[] )
+			buffer.get( ( byte[] ) array, 0, buffer.remaining() );
+		else if ( array instanceof boolean[] )
+		{
+			final boolean[] a = ( boolean[] ) array;
+			for ( int i = 0; buffer.hasRemaining(); ++i )
+				a[ i ] = buffer.get() != 0;
+		}
+		else if ( array instanceof char[] )
+			buffer.asCharBuffer().get( ( char[] ) array, 0, buffer.remaining() / 2 );
+		else if ( array instanceof short[] )
+			buffer.asShortBuffer().get( ( short[] ) array, 0, buffer.remaining() / 2 );
+		else if ( array instanceof int[] )
+			buffer.asIntBuffer().get( ( int[] ) array, 0, buffer.remaining() / 4 );
+		else if ( array instanceof float[] )
+			buffer.asFloatBuffer().get( ( float[] ) array, 0, buffer.remaining() / 4 );
+		else if ( array instanceof long[] )
+			buffer.asLongBuffer().get( ( long[] ) array, 0, buffer.remaining() / 8 );
+		else if ( array instanceof double[] )
+			buffer.asDoubleBuffer().get( ( double[] ) array, 0, buffer.remaining() / 8 );
+		else
+			throw new IllegalArgumentException( "unsupported storage array " + array.getClass() );
+	}
+
+	/**
+	 * Get the contents of {@code array} as bytes in native byte order.
+	 */
+	static byte[] toBytes( final Object array )
+	{
+		if ( array instanceof byte[] )
+			return ( ( byte[] ) array ).clone();
+		final byte[] bytes = new byte[ numBytes( array ) ];
+		put( array, ByteBuffer.wrap( bytes ).order( ByteOrder.nativeOrder() ) );
+		return bytes;
+	}
+
+	/**
+	 * Fill {@code array} from {@code bytes} in native byte order.
+	 */
+	static void fromBytes( final byte[] bytes, final Object array )
+	{
+		get( ByteBuffer.wrap( bytes ).order( ByteOrder.nativeOrder() ), array );
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.Dirty;
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@link BoundedCellCache} that keeps all cells in memory, but only the
+ * recently used ones uncompressed. This allows {@link LazyCellImg}s of
+ * compressible data, such as labels, masks or images with a large
+ * background, to hold several times more data than a
+ * {@link net.imglib2.img.cell.CellImg} in the same amount of memory.
+ * <p>
+ * Cells hold {@link Dirty} array accesses, for example
+ * {@link net.imglib2.img.basictypeaccess.array.DirtyShortArray}. The cache
+ * holds at most {@code maxBytes} of uncompressed cells. When it is full, the
+ * least recently used cells are evicted, and the modified ones among them are
+ * compressed with a {@link CellCodec}. Evicted cells are decompressed again
+ * when they are accessed. Cells that were never modified, or contain only
+ * zeros, are not stored at all.
+ * </p>
+ * <p>
+ * Cursors and RandomAccesses keep using the cell they are in after it was
+ * evicted. As long as such an evicted cell is reachable, it is returned again
+ * instead of being decompressed, and it is compressed again when it is
+ * modified and then evicted again, flushed, or garbage collected.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * CellCodec codec = new ShuffleCellCodec( new Lz4CellCodec() );
+ * CompressedCellCache< DirtyShortArray > cache = new CompressedCellCache<>( grid, new UnsignedShortType(), codec, 1 << 28 );
+ * LazyCellImg< UnsignedShortType, DirtyShortArray > img = new LazyCellImg<>( grid, new UnsignedShortType(), cache );
+ * }
+ * </pre>
+ *
+ * @param <A>
+ *            access type of the cells
+ */
+public class CompressedCellCache< A extends ArrayDataAccess< A > & Dirty > extends BoundedCellCache< A >
+{
+	private final CompressedCells< A > cells;
+
+	/**
+	 * Create a cache for cells of the given {@code type}.
+	 * {@link AccessFlags#DIRTY Dirty} array accesses are created for
+	 * {@code type}.
+	 *
+	 * @param grid
+	 *            the cell grid of the image
+	 * @param type
+	 *            the pixel type
+	 * @param codec
+	 *            compresses evicted cells
+	 * @param maxBytes
+	 *            bound on the total {@link #sizeInBytes(Cell) size} of
+	 *            uncompressed cells
+	 */
+	public < T extends NativeType< T > > CompressedCellCache( final CellGrid grid, final T type, final CellCodec codec, final long maxBytes )
+	{
+		this( grid, type.getEntitiesPerPixel(), ArrayDataAccessFactory.get( type, AccessFlags.setOf( AccessFlags.DIRTY ) ), codec, maxBytes );
+	}
+
+	/**
+	 * Create a cache for cells.
+	 *
+	 * @param grid
+	 *            the cell grid of the image
+	 * @param entitiesPerPixel
+	 *            number of access entities per pixel
+	 * @param creator
+	 *            used to {@link ArrayDataAccess#createArray(int) create} the
+	 *            accesses of cells
+	 * @param codec
+	 *            compresses evicted cells
+	 * @param maxBytes
+	 *            bound on the total {@link #sizeInBytes(Cell) size} of
+	 *            uncompressed cells
+	 */
+	public CompressedCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A creator, final CellCodec codec, final long maxBytes )
+	{
+		this( new CompressedCells<>( grid, entitiesPerPixel, creator, codec ), maxBytes );
+	}
+
+	private CompressedCellCache( final CompressedCells< A > cells, final long maxBytes )
+	{
+		super( cells::load, maxBytes, BoundedCellCache::sizeInBytes, Fallback.NONE );
+		this.cells = cells;
+	}
+
+	/**
+	 * Compress all modified cells that are held uncompressed, including
+	 * evicted cells that are still reachable. The cells stay in the cache,
+	 * but can be evicted without compressing them again.
+	 */
+	public void flush()
+	{
+		// compress without holding the cache lock
+		final Map< Long, Cell< A > > cached = new HashMap<>();
+		forEach( cached::put );
+		cached.forEach( cells::store );
+		cells.evicted.forEach( cells::store );
+	}
+
+	/**
+	 * Get the number of cells that are stored compressed.
+	 */
+	public int getNumCompressedCells()
+	{
+		return cells.compressed.size();
+	}
+
+	/**
+	 * Get the total size in bytes of the compressed cells.
+	 */
+	public long getCompressedBytes()
+	{
+		return cells.compressedBytes.get();
+	}
+
+	/**
+	 * Get the number of times a modified cell was compressed.
+	 */
+	public long getCompressionCount()
+	{
+		return cells.compressions.get();
+	}
+
+	public CellCodec getCodec()
+	{
+		return cells.codec;
+	}
+
+	@Override
+	protected void evicted( final long index, final Cell< A > cell )
+	{
+		cells.store( index, cell );
+		cells.evicted.add( index, cell );
+	}
+
+	private static final class CompressedCells< A extends ArrayDataAccess< A > & Dirty >
+	{
+		private final CellGrid grid;
+
+		private final Fraction entitiesPerPixel;
+
+		private final A creator;
+
+		private final CellCodec codec;
+
+		private final ConcurrentHashMap< Long, byte[] > compressed = new ConcurrentHashMap<>();
+
+		private final AtomicLong compressedBytes = new AtomicLong();
+
+		private final AtomicLong compressions = new AtomicLong();
+
+		private final EvictedCells< A > evicted = new EvictedCells<>( this::storeIfModified );
+
+		private final Object[] locks = new Object[ 64 ];
+
+		CompressedCells( final CellGrid grid, final Fraction entitiesPerPixel, final A creator, final CellCodec codec )
+		{
+			this.grid = grid;
+			this.entitiesPerPixel = entitiesPerPixel;
+			this.creator = creator;
+			this.codec = codec;
+			Arrays.setAll( locks, i -> new Object() );
+		}
+
+		Cell< A > load( final long index )
+		{
+			final Cell< A > cell = evicted.take( index );
+			if ( cell != null )
+				return cell;
+
+			final int n = grid.numDimensions();
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final int numEntities = ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) );
+			final A data = creator.createArray( numEntities );
+			final byte[] bytes = compressed.get( index );
+			if ( bytes != null )
+			{
+				final Object array = data.getCurrentStorageArray();
+				final byte[] raw = new byte[ CellArrays.numBytes( array ) ];
+				codec.decompress( bytes, raw, CellArrays.bytesPerElement( array ) );
+				CellArrays.fromBytes( raw, array );
+			}
+			data.setDirty( false );
+			return new Cell<>( cellDims, cellMin, data );
+		}
+
+		void store( final long index, final Cell< A > cell )
+		{
+			final A data = cell.getData();
+			if ( !data.isDirty() )
+				return;
+
+			synchronized ( lock( index ) )
+			{
+				// clear the flag before compressing, so that concurrent
+				// modifications mark the cell dirty again
+				data.setDirty( false );
+				final Object array = data.getCurrentStorageArray();
+				compress( index, CellArrays.toBytes( array ), CellArrays.bytesPerElement( array ) );
+			}
+		}
+
+		/**
+		 * Compress the storage {@code array} of an evicted cell that was
+		 * garbage collected, if it differs from the stored data.
+		 */
+		void storeIfModified( final long index, final Object array )
+		{
+			final byte[] raw = CellArrays.toBytes( array );
+			final int bytesPerElement = CellArrays.bytesPerElement( array );
+			synchronized ( lock( index ) )
+			{
+				final byte[] bytes = compressed.get( index );
+				final boolean modified;
+				if ( bytes == null )
+					modified = !isZero( raw );
+				else
+				{
+					final byte[] stored = new byte[ raw.length ];
+					codec.decompress( bytes, stored, bytesPerElement );
+					modified = !Arrays.equals( raw, stored );
+				}
+				if ( modified )
+					compress( index, raw, bytesPerElement );
+			}
+		}
+
+		/**
+		 * Stores of the same cell must not interleave, or older data could
+		 * replace newer data. Different cells are compressed concurrently.
+		 */
+		private Object lock( final long index )
+		{
+			return locks[ ( int ) ( index % locks.length ) ];
+		}
+
+		private void compress( final long index, final byte[] raw, final int bytesPerElement )
+		{
+			final byte[] previous;
+			if ( isZero( raw ) )
+			{
+				// empty cells are created on load
+				previous = compressed.remove( index );
+			}
+			else
+			{
+				final byte[] bytes = codec.compress( raw, bytesPerElement );
+				compressedBytes.addAndGet( bytes.length );
+				previous = compressed.put( index, bytes );
+				compressions.incrementAndGet();
+			}
+			if ( previous != null )
+				compressedBytes.addAndGet( -previous.length );
+		}
+
+		private static boolean isZero( final byte[] raw )
+		{
+			for ( final byte b : raw )
+				if ( b != 0 )
+					return false;
+			return true;
+		}
+	}
+}
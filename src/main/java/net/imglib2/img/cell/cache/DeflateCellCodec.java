@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link CellCodec} that compresses with the zlib format of
+ * {@link Deflater}. It achieves higher compression ratios than
+ * {@link Lz4CellCodec}, but compresses several times slower, so it suits
+ * cells that are evicted rarely. Combine it with {@link ShuffleCellCodec} for
+ * multi-byte pixel types.
+ */
+public class DeflateCellCodec implements CellCodec
+{
+	private final int level;
+
+	/**
+	 * Create a codec with the {@link Deflater#DEFAULT_COMPRESSION default}
+	 * compression level.
+	 */
+	public DeflateCellCodec()
+	{
+		this( Deflater.DEFAULT_COMPRESSION );
+	}
+
+	/**
+	 * Create a codec with the given compression {@code level}, from
+	 * {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}.
+	 */
+	public DeflateCellCodec( final int level )
+	{
+		if ( level != Deflater.DEFAULT_COMPRESSION && ( level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION ) )
+			throw new IllegalArgumentException( "invalid compression level " + level );
+		this.level = level;
+	}
+
+	public int getLevel()
+	{
+		return level;
+	}
+
+	@Override
+	public byte[] compress( final byte[] data, final int bytesPerElement )
+	{
+		final Deflater deflater = new Deflater( level );
+		try
+		{
+			deflater.setInput( data );
+			deflater.finish();
+			byte[] out = new byte[ Math.max( 64, data.length / 4 ) ];
+			int o = 0;
+			while ( !deflater.finished() )
+			{
+				if ( o == out.length )
+					out = Arrays.copyOf( out, 2 * out.length );
+				o += deflater.deflate( out, o, out.length - o );
+			}
+			return Arrays.copyOf( out, o );
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	@Override
+	public void decompress( final byte[] compressed, final byte[] data, final int bytesPerElement )
+	{
+		final Inflater inflater = new Inflater();
+		try
+		{
+			inflater.setInput( compressed );
+			int d = 0;
+			while ( d < data.length )
+			{
+				final int r = inflater.inflate( data, d, data.length - d );
+				if ( r == 0 && ( inflater.finished() || inflater.needsInput() || inflater.needsDictionary() ) )
+					throw new IllegalArgumentException( "truncated deflate stream" );
+				d += r;
+			}
+			// reach the end of the stream, which must not contain more data
+			if ( !inflater.finished() && ( inflater.inflate( new byte[ 1 ] ) != 0 || !inflater.finished() ) )
+				throw new IllegalArgumentException( "deflate stream is longer than the cell" );
+		}
+		catch ( final DataFormatException e )
+		{
+			throw new IllegalArgumentException( "corrupt deflate stream", e );
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+}
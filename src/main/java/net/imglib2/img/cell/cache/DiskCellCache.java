@@ -0,0 +1,431 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.Dirty;
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.parallel.VirtualThreadTaskExecutor;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@link BoundedCellCache} that stores cells in a directory of block files,
+ * one file per cell. This allows {@link LazyCellImg}s that are larger than
+ * the available memory to be read, modified and written.
+ * <p>
+ * Cells hold {@link Dirty} array accesses, for example
+ * {@link net.imglib2.img.basictypeaccess.array.DirtyFloatArray}. Cells that
+ * have no block file yet are created empty. When the cache is full, clean
+ * cells are simply dropped. Dirty cells are handed to a background writer
+ * thread, which writes them back in batches. Until a cell is written, it can
+ * be recovered from the queue of pending writes without reading the file.
+ * </p>
+ * <p>
+ * Block files contain the raw data of a cell in native byte order, see
+ * {@link #getFile(long)}. Call {@link #flush()} to write all modified cells
+ * to disk, e.g. before closing the application or reading the files with
+ * another tool.
+ * </p>
+ * <p>
+ * Block files are read in a {@link VirtualThreadTaskExecutor#blocking()}
+ * section, so that other tasks of a {@link VirtualThreadTaskExecutor} use the
+ * CPU in the meantime.
+ * </p>
+ * <p>
+ * Cursors and RandomAccesses keep using the cell they are in after it was
+ * evicted. As long as such an evicted cell is reachable, it is returned again
+ * instead of being read from its block file, and it is written again when it
+ * is modified and then evicted again, flushed, or garbage collected.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * DiskCellCache< DirtyFloatArray > cache = new DiskCellCache<>( grid, new FloatType(), directory, 1 << 30 );
+ * LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+ * ...
+ * cache.flush();
+ * }
+ * </pre>
+ *
+ * @param <A>
+ *            access type of the cells
+ */
+public class DiskCellCache< A extends ArrayDataAccess< A > & Dirty > extends BoundedCellCache< A >
+{
+	private static final AtomicInteger writerNumber = new AtomicInteger( 1 );
+
+	private final BlockFiles< A > files;
+
+	private final Thread writer;
+
+	/**
+	 * Create a cache for cells of the given {@code type} in
+	 * {@code directory}. {@link AccessFlags#DIRTY Dirty} array accesses are
+	 * created for {@code type}.
+	 *
+	 * @param grid
+	 *            the cell grid of the image
+	 * @param type
+	 *            the pixel type
+	 * @param directory
+	 *            directory of block files. It is created if it does not
+	 *            exist.
+	 * @param maxBytes
+	 *            bound on the total {@link #sizeInBytes(Cell) size} of cells
+	 *            held in memory
+	 */
+	public < T extends NativeType< T > > DiskCellCache( final CellGrid grid, final T type, final Path directory, final long maxBytes )
+	{
+		this( grid, type.getEntitiesPerPixel(), ArrayDataAccessFactory.get( type, AccessFlags.setOf( AccessFlags.DIRTY ) ), directory, maxBytes );
+	}
+
+	/**
+	 * Create a cache for cells in {@code directory}.
+	 *
+	 * @param grid
+	 *            the cell grid of the image
+	 * @param entitiesPerPixel
+	 *            number of access entities per pixel
+	 * @param creator
+	 *            used to {@link ArrayDataAccess#createArray(int) create} the
+	 *            accesses of cells
+	 * @param directory
+	 *            directory of block files. It is created if it does not
+	 *            exist.
+	 * @param maxBytes
+	 *            bound on the total {@link #sizeInBytes(Cell) size} of cells
+	 *            held in memory
+	 */
+	public DiskCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A creator, final Path directory, final long maxBytes )
+	{
+		this( new BlockFiles<>( grid, entitiesPerPixel, creator, directory ), maxBytes );
+	}
+
+	private DiskCellCache( final BlockFiles< A > files, final long maxBytes )
+	{
+		super( files::load, maxBytes, BoundedCellCache::sizeInBytes, Fallback.NONE );
+		this.files = files;
+		writer = new Thread( files::writeLoop, "disk-cell-cache-writer-" + writerNumber.getAndIncrement() );
+		writer.setDaemon( true );
+		writer.start();
+	}
+
+	/**
+	 * Write all modified cells, both held in memory and pending, to their
+	 * block files. Blocks until the data is written.
+	 *
+	 * @throws UncheckedIOException
+	 *             if writing a block file failed
+	 */
+	public void flush()
+	{
+		forEach( files::enqueue );
+		files.evicted.forEach( files::enqueue );
+		files.writePending();
+		files.rethrow();
+	}
+
+	/**
+	 * {@link #flush() Flush} modified cells and remove all cells from memory.
+	 */
+	@Override
+	public void invalidateAll()
+	{
+		super.invalidateAll();
+		flush();
+	}
+
+	/**
+	 * Flush modified cells and stop the background writer.
+	 */
+	public void close()
+	{
+		flush();
+		writer.interrupt();
+	}
+
+	/**
+	 * Get the number of cells that were written to disk.
+	 */
+	public long getWriteCount()
+	{
+		return files.writes.get();
+	}
+
+	/**
+	 * Get the number of evicted cells waiting to be written.
+	 */
+	public int getPendingWriteCount()
+	{
+		return files.pending.size();
+	}
+
+	/**
+	 * Get the block file of the cell with the given {@code index}.
+	 */
+	public Path getFile( final long index )
+	{
+		return files.file( index );
+	}
+
+	@Override
+	protected void evicted( final long index, final Cell< A > cell )
+	{
+		files.enqueue( index, cell );
+		files.evicted.add( index, cell );
+	}
+
+	private static final class BlockFiles< A extends ArrayDataAccess< A > & Dirty >
+	{
+		private final CellGrid grid;
+
+		private final Fraction entitiesPerPixel;
+
+		private final A creator;
+
+		private final Path directory;
+
+		private final ConcurrentHashMap< Long, Cell< A > > pending = new ConcurrentHashMap<>();
+
+		private final EvictedCells< A > evicted = new EvictedCells<>( this::enqueueIfModified );
+
+		private final LinkedBlockingQueue< Long > signal = new LinkedBlockingQueue<>();
+
+		private final AtomicLong writes = new AtomicLong();
+
+		private volatile IOException failure;
+
+		BlockFiles( final CellGrid grid, final Fraction entitiesPerPixel, final A creator, final Path directory )
+		{
+			this.grid = grid;
+			this.entitiesPerPixel = entitiesPerPixel;
+			this.creator = creator;
+			this.directory = directory;
+			try
+			{
+				Files.createDirectories( directory );
+			}
+			catch ( final IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+		}
+
+		Path file( final long index )
+		{
+			return directory.resolve( index + ".raw" );
+		}
+
+		Cell< A > load( final long index )
+		{
+			Cell< A > cell = evicted.take( index );
+			if ( cell != null )
+				return cell;
+			cell = pending.get( index );
+			if ( cell != null )
+				return cell;
+
+			final int n = grid.numDimensions();
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final int numEntities = ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) );
+			final A data = creator.createArray( numEntities );
+			try
+			{
+				read( file( index ), data.getCurrentStorageArray() );
+			}
+			catch ( final NoSuchFileException e )
+			{
+				// not written yet, start with an empty cell
+			}
+			catch ( final IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+			data.setDirty( false );
+			return new Cell<>( cellDims, cellMin, data );
+		}
+
+		void enqueue( final long index, final Cell< A > cell )
+		{
+			if ( cell.getData().isDirty() )
+			{
+				pending.put( index, cell );
+				signal.offer( index );
+			}
+		}
+
+		/**
+		 * Enqueue a copy of the storage {@code array} of an evicted cell
+		 * that was garbage collected, if it differs from its block file.
+		 */
+		void enqueueIfModified( final long index, final Object array )
+		{
+			final A data = creator.createArray( Array.getLength( array ) );
+			final Object stored = data.getCurrentStorageArray();
+			try
+			{
+				read( file( index ), stored );
+			}
+			catch ( final NoSuchFileException e )
+			{
+				// not written yet, compare with an empty cell
+			}
+			catch ( final IOException e )
+			{
+				// write it again to be safe
+			}
+			if ( Objects.deepEquals( array, stored ) )
+				return;
+
+			final int n = grid.numDimensions();
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			System.arraycopy( array, 0, stored, 0, Array.getLength( array ) );
+			data.setDirty();
+			enqueue( index, new Cell<>( cellDims, cellMin, data ) );
+		}
+
+		void writeLoop()
+		{
+			while ( !Thread.currentThread().isInterrupted() )
+			{
+				try
+				{
+					signal.take();
+				}
+				catch ( final InterruptedException e )
+				{
+					return;
+				}
+				// everything that is pending now is written in one batch
+				signal.clear();
+				writePending();
+			}
+		}
+
+		synchronized void writePending()
+		{
+			for ( final Map.Entry< Long, Cell< A > > entry : pending.entrySet() )
+			{
+				final long index = entry.getKey();
+				final Cell< A > cell = entry.getValue();
+				final A data = cell.getData();
+				try
+				{
+					// clear the flag before writing, so that concurrent
+					// modifications mark the cell dirty again
+					data.setDirty( false );
+					write( file( index ), data.getCurrentStorageArray() );
+					writes.incrementAndGet();
+					// a cell that was modified while it was written, and
+					// possibly enqueued again, stays pending
+					pending.computeIfPresent( index, ( i, c ) -> c == cell && !c.getData().isDirty() ? null : c );
+				}
+				catch ( final IOException e )
+				{
+					data.setDirty();
+					failure = e;
+				}
+			}
+		}
+
+		void rethrow()
+		{
+			final IOException e = failure;
+			if ( e != null )
+			{
+				failure = null;
+				throw new UncheckedIOException( e );
+			}
+		}
+
+		@SuppressWarnings( "try" )
+		private static void read( final Path file, final Object array ) throws IOException
+		{
+			try (final VirtualThreadTaskExecutor.Blocking blocking = VirtualThreadTaskExecutor.blocking();
+					final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+			{
+				final ByteBuffer buffer = ByteBuffer.allocate( CellArrays.numBytes( array ) ).order( ByteOrder.nativeOrder() );
+				while ( buffer.hasRemaining() && channel.read( buffer ) >= 0 )
+				{}
+				buffer.flip();
+				CellArrays.get( buffer, array );
+			}
+		}
+
+		private static void write( final Path file, final Object array ) throws IOException
+		{
+			final ByteBuffer buffer = ByteBuffer.allocate( CellArrays.numBytes( array ) ).order( ByteOrder.nativeOrder() );
+			CellArrays.put( array, buffer );
+			buffer.clear();
+
+			// write to a temporary file first, so that a block file is never
+			// left half written
+			final Path tmp = file.resolveSibling( file.getFileName() + ".tmp" );
+			try (final FileChannel channel = FileChannel.open( tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ))
+			{
+				while ( buffer.hasRemaining() )
+					channel.write( buffer );
+			}
+			Files.move( tmp, file, StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+}
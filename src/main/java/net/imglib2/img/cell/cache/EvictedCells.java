@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.Cell;
+
+/**
+ * Keeps track of the data of cells that were evicted from a cache that
+ * stores them elsewhere, as long as the data is still reachable.
+ * <p>
+ * Cursors and RandomAccesses on a {@link net.imglib2.img.cell.LazyCellImg}
+ * hold on to the data of their current cell, and may write to it after the
+ * cell was evicted. To not lose such writes, the cache returns the same data
+ * from {@link #take(long)} as long as it is reachable, instead of loading a
+ * stale copy. Once the data is garbage collected, its storage array is handed
+ * to a callback, which must store it if it differs from the stored data. The
+ * {@link net.imglib2.Dirty} flag of the data can not tell, because it is
+ * collected along with the data.
+ * </p>
+ */
+final class EvictedCells< A extends ArrayDataAccess< A > >
+{
+	private static final class Ref< A extends ArrayDataAccess< A > > extends WeakReference< A >
+	{
+		final long index;
+
+		final long[] min;
+
+		final int[] dimensions;
+
+		/**
+		 * The storage array of the data, which outlives the access.
+		 */
+		final Object array;
+
+		Ref( final long index, final Cell< A > cell, final ReferenceQueue< A > queue )
+		{
+			super( cell.getData(), queue );
+			this.index = index;
+			final int n = cell.numDimensions();
+			min = new long[ n ];
+			dimensions = new int[ n ];
+			for ( int d = 0; d < n; ++d )
+				min[ d ] = cell.min( d );
+			cell.dimensions( dimensions );
+			array = cell.getData().getCurrentStorageArray();
+		}
+	}
+
+	private final ConcurrentHashMap< Long, Ref< A > > refs = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue< A > queue = new ReferenceQueue<>();
+
+	private final BiConsumer< Long, Object > collected;
+
+	/**
+	 * @param collected
+	 *            called with the index and storage array of cells whose data
+	 *            is no longer reachable, to store the array if it was
+	 *            modified after eviction
+	 */
+	EvictedCells( final BiConsumer< Long, Object > collected )
+	{
+		this.collected = collected;
+	}
+
+	/**
+	 * Track {@code cell}, which was just evicted and stored.
+	 */
+	void add( final long index, final Cell< A > cell )
+	{
+		cleanUp();
+		refs.put( index, new Ref<>( index, cell, queue ) );
+	}
+
+	/**
+	 * Stop tracking the cell with the given {@code index}, and return it if
+	 * its data is still reachable. Otherwise returns {@code null}, after
+	 * handing the storage array to the callback.
+	 */
+	Cell< A > take( final long index )
+	{
+		cleanUp();
+		final Ref< A > ref = refs.remove( index );
+		if ( ref == null )
+			return null;
+		final A data = ref.get();
+		if ( data != null )
+			return new Cell<>( ref.dimensions, ref.min, data );
+		collected( ref );
+		return null;
+	}
+
+	/**
+	 * Perform {@code action} for each tracked cell whose data is still
+	 * reachable, and hand the storage arrays of the others to the callback.
+	 */
+	void forEach( final BiConsumer< Long, Cell< A > > action )
+	{
+		cleanUp();
+		for ( final Ref< A > ref : refs.values() )
+		{
+			final A data = ref.get();
+			if ( data != null )
+				action.accept( ref.index, new Cell<>( ref.dimensions, ref.min, data ) );
+			else if ( refs.remove( ref.index, ref ) )
+				collected( ref );
+		}
+	}
+
+	/**
+	 * Get the number of tracked cells.
+	 */
+	int size()
+	{
+		return refs.size();
+	}
+
+	private void cleanUp()
+	{
+		Reference< ? extends A > r;
+		while ( ( r = queue.poll() ) != null )
+		{
+			final Ref< ? > ref = ( Ref< ? > ) r;
+			if ( refs.remove( ref.index, ref ) )
+				collected( ref );
+		}
+	}
+
+	private void collected( final Ref< ? > ref )
+	{
+		collected.accept( ref.index, ref.array );
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.util.Arrays;
+
+/**
+ * A fast {@link CellCodec} that writes the LZ4 block format: sequences of
+ * literal bytes followed by a back reference of at least four bytes into the
+ * preceding 64 KiB. Matches are found greedily through a hash table of
+ * four-byte prefixes, and incompressible data is skipped with growing steps.
+ * This trades compression ratio for speed, and is well suited to labels,
+ * masks and images with large uniform regions. Combine it with
+ * {@link ShuffleCellCodec} for multi-byte pixel types.
+ * <p>
+ * The output is a single LZ4 block without frame header, so it can be
+ * decoded by other LZ4 implementations given the uncompressed size.
+ * </p>
+ */
+public class Lz4CellCodec implements CellCodec
+{
+	private static final int MIN_MATCH = 4;
+
+	/** The last five bytes are always literals. */
+	private static final int LAST_LITERALS = 5;
+
+	/** The last match must start at least twelve bytes before the end. */
+	private static final int MF_LIMIT = 12;
+
+	private static final int MAX_OFFSET = 0xffff;
+
+	private static final int HASH_LOG = 14;
+
+	/** Number of failed match attempts after which the step size grows. */
+	private static final int SKIP_STRENGTH = 6;
+
+	@Override
+	public byte[] compress( final byte[] data, final int bytesPerElement )
+	{
+		final int n = data.length;
+		final byte[] out = new byte[ n + n / 255 + 16 ];
+		int o = 0;
+		int anchor = 0;
+
+		if ( n > MF_LIMIT )
+		{
+			final int[] table = new int[ 1 << HASH_LOG ];
+			final int mfLimit = n - MF_LIMIT;
+			final int matchLimit = n - LAST_LITERALS;
+			int i = 0;
+			while ( i <= mfLimit )
+			{
+				final int sequence = readInt( data, i );
+				final int h = hash( sequence );
+				// table entries are positions + 1, so that 0 means empty
+				int ref = table[ h ] - 1;
+				table[ h ] = i + 1;
+				if ( ref < 0 || i - ref > MAX_OFFSET || readInt( data, ref ) != sequence )
+				{
+					i += 1 + ( ( i - anchor ) >>> SKIP_STRENGTH );
+					continue;
+				}
+
+				// extend the match backwards into pending literals
+				while ( i > anchor && ref > 0 && data[ i - 1 ] == data[ ref - 1 ] )
+				{
+					--i;
+					--ref;
+				}
+				int length = MIN_MATCH;
+				while ( i + length < matchLimit && data[ ref + length ] == data[ i + length ] )
+					++length;
+
+				final int numLiterals = i - anchor;
+				final int token = o++;
+				if ( numLiterals >= 15 )
+				{
+					out[ token ] = ( byte ) 0xf0;
+					o = writeLength( out, o, numLiterals - 15 );
+				}
+				else
+					out[ token ] = ( byte ) ( numLiterals << 4 );
+				System.arraycopy( data, anchor, out, o, numLiterals );
+				o += numLiterals;
+
+				final int offset = i - ref;
+				out[ o++ ] = ( byte ) offset;
+				out[ o++ ] = ( byte ) ( offset >>> 8 );
+				final int matchLength = length - MIN_MATCH;
+				if ( matchLength >= 15 )
+				{
+					out[ token ] |= 0x0f;
+					o = writeLength( out, o, matchLength - 15 );
+				}
+				else
+					out[ token ] |= matchLength;
+
+				i += length;
+				anchor = i;
+				if ( i <= mfLimit )
+					table[ hash( readInt( data, i - 2 ) ) ] = i - 1;
+			}
+		}
+
+		// the last sequence consists of literals only
+		final int numLiterals = n - anchor;
+		if ( numLiterals >= 15 )
+		{
+			out[ o++ ] = ( byte ) 0xf0;
+			o = writeLength( out, o, numLiterals - 15 );
+		}
+		else
+			out[ o++ ] = ( byte ) ( numLiterals << 4 );
+		System.arraycopy( data, anchor, out, o, numLiterals );
+		o += numLiterals;
+
+		return Arrays.copyOf( out, o );
+	}
+
+	@Override
+	public void decompress( final byte[] compressed, final byte[] data, final int bytesPerElement )
+	{
+		final int n = data.length;
+		int c = 0;
+		int d = 0;
+		while ( true )
+		{
+			if ( c >= compressed.length )
+				throw corrupt();
+			final int token = compressed[ c++ ] & 0xff;
+
+			int numLiterals = token >>> 4;
+			if ( numLiterals == 15 )
+			{
+				int b;
+				do
+				{
+					if ( c >= compressed.length )
+						throw corrupt();
+					b = compressed[ c++ ] & 0xff;
+					numLiterals += b;
+				}
+				while ( b == 255 && numLiterals > 0 );
+			}
+			if ( numLiterals < 0 || numLiterals > n - d || numLiterals > compressed.length - c )
+				throw corrupt();
+			System.arraycopy( compressed, c, data, d, numLiterals );
+			c += numLiterals;
+			d += numLiterals;
+
+			if ( c == compressed.length )
+				break;
+
+			if ( c + 2 > compressed.length )
+				throw corrupt();
+			final int offset = ( compressed[ c ] & 0xff ) | ( ( compressed[ c + 1 ] & 0xff ) << 8 );
+			c += 2;
+			if ( offset == 0 || offset > d )
+				throw corrupt();
+
+			int length = token & 0x0f;
+			if ( length == 15 )
+			{
+				int b;
+				do
+				{
+					if ( c >= compressed.length )
+						throw corrupt();
+					b = compressed[ c++ ] & 0xff;
+					length += b;
+				}
+				while ( b == 255 && length > 0 );
+			}
+			length += MIN_MATCH;
+			if ( length < MIN_MATCH || length > n - d )
+				throw corrupt();
+
+			final int ref = d - offset;
+			if ( offset >= length )
+				System.arraycopy( data, ref, data, d, length );
+			else
+			{
+				// overlapping match, repeats the last offset bytes
+				for ( int k = 0; k < length; ++k )
+					data[ d + k ] = data[ ref + k ];
+			}
+			d += length;
+		}
+		if ( d != n )
+			throw corrupt();
+	}
+
+	private static int readInt( final byte[] data, final int i )
+	{
+		return ( data[ i ] & 0xff )
+				| ( data[ i + 1 ] & 0xff ) << 8
+				| ( data[ i + 2 ] & 0xff ) << 16
+				| ( data[ i + 3 ] & 0xff ) << 24;
+	}
+
+	private static int hash( final int sequence )
+	{
+		return ( sequence * -1640531535 ) >>> ( 32 - HASH_LOG );
+	}
+
+	private static int writeLength( final byte[] out, int o, int length )
+	{
+		while ( length >= 255 )
+		{
+			out[ o++ ] = ( byte ) 255;
+			length -= 255;
+		}
+		out[ o++ ] = ( byte ) length;
+		return o;
+	}
+
+	private static IllegalArgumentException corrupt()
+	{
+		return new IllegalArgumentException( "corrupt LZ4 block" );
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+/**
+ * A {@link CellCodec} that reorders the bytes of multi-byte elements before
+ * compressing them with another codec: first the first byte of every element,
+ * then the second byte of every element, and so on. Neighbouring pixels
+ * usually differ in their low bytes only, so shuffling creates long runs of
+ * equal high bytes, which improves the compression of e.g. 16 bit microscopy
+ * images considerably. Single-byte data is passed through unchanged.
+ */
+public class ShuffleCellCodec implements CellCodec
+{
+	private final CellCodec codec;
+
+	/**
+	 * Create a codec that compresses shuffled data with {@code codec}.
+	 */
+	public ShuffleCellCodec( final CellCodec codec )
+	{
+		this.codec = codec;
+	}
+
+	@Override
+	public byte[] compress( final byte[] data, final int bytesPerElement )
+	{
+		if ( bytesPerElement <= 1 )
+			return codec.compress( data, bytesPerElement );
+
+		final byte[] shuffled = new byte[ data.length ];
+		shuffle( data, shuffled, bytesPerElement );
+		return codec.compress( shuffled, 1 );
+	}
+
+	@Override
+	public void decompress( final byte[] compressed, final byte[] data, final int bytesPerElement )
+	{
+		if ( bytesPerElement <= 1 )
+		{
+			codec.decompress( compressed, data, bytesPerElement );
+			return;
+		}
+
+		final byte[] shuffled = new byte[ data.length ];
+		codec.decompress( compressed, shuffled, 1 );
+		unshuffle( shuffled, data, bytesPerElement );
+	}
+
+	static void shuffle( final byte[] data, final byte[] shuffled, final int bytesPerElement )
+	{
+		final int n = data.length / bytesPerElement;
+		for ( int j = 0; j < bytesPerElement; ++j )
+			for ( int i = 0, k = j, s = j * n; i < n; ++i, k += bytesPerElement )
+				shuffled[ s + i ] = data[ k ];
+		// bytes that do not form a complete element are not moved
+		final int tail = n * bytesPerElement;
+		System.arraycopy( data, tail, shuffled, tail, data.length - tail );
+	}
+
+	static void unshuffle( final byte[] shuffled, final byte[] data, final int bytesPerElement )
+	{
+		final int n = data.length / bytesPerElement;
+		for ( int j = 0; j < bytesPerElement; ++j )
+			for ( int i = 0, k = j, s = j * n; i < n; ++i, k += bytesPerElement )
+				data[ k ] = shuffled[ s + i ];
+		final int tail = n * bytesPerElement;
+		System.arraycopy( shuffled, tail, data, tail, data.length - tail );
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.Volatile;
+import net.imglib2.display.projector.volatiles.Volatile2DRandomAccessibleProjector;
+import net.imglib2.img.basictypeaccess.volatiles.VolatileArrayDataAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.img.cell.LazyCellImg.Get;
+import net.imglib2.util.Fraction;
+
+/**
+ * Loads {@link Cell}s of a {@link LazyCellImg} with {@link Volatile} pixels
+ * asynchronously. Requests for cells that are not loaded yet return
+ * immediately with an invalid placeholder cell, and the actual loading is
+ * queued and carried out by a set of worker threads. This way, interactive
+ * rendering, e.g. with {@link Volatile2DRandomAccessibleProjector}, never
+ * blocks on I/O. The rendered image is incomplete while its
+ * {@link Volatile2DRandomAccessibleProjector#isValid()} is {@code false}, and
+ * should be repainted when more cells have been {@link #loaded(long, Cell)
+ * loaded}.
+ * <p>
+ * Loaded cells are kept in a {@link BoundedCellCache}. Queued requests are
+ * ordered by the distance of the cell to the {@link #setFocus(double...)
+ * focus} point, so that the cells nearest to it are loaded first. Requests
+ * with the same distance are served most recent first.
+ * </p>
+ * <p>
+ * Placeholder cells share one invalid access per cell size. They must not be
+ * written to.
+ * </p>
+ *
+ * @param <A>
+ *            access type of the cells
+ */
+public class VolatileCellLoader< A extends VolatileArrayDataAccess< A > > implements Get< Cell< A > >
+{
+	private static final AtomicInteger loaderNumber = new AtomicInteger( 1 );
+
+	private final CellGrid grid;
+
+	private final Fraction entitiesPerPixel;
+
+	private final BoundedCellCache< A > cache;
+
+	private final A creator;
+
+	private final ConcurrentHashMap< Integer, A > placeholders = new ConcurrentHashMap<>();
+
+	private final PriorityBlockingQueue< Request > queue = new PriorityBlockingQueue<>();
+
+	private final ConcurrentHashMap< Long, Request > enqueued = new ConcurrentHashMap<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final List< Thread > workers;
+
+	private volatile double[] focus = null;
+
+	/**
+	 * Create a loader that holds at most {@code maxBytes} bytes of loaded cell
+	 * data in a {@link BoundedCellCache}.
+	 *
+	 * @param grid
+	 *            the cell grid of the image
+	 * @param entitiesPerPixel
+	 *            number of access entities per pixel
+	 * @param loader
+	 *            loads valid cells. This is called from the worker threads.
+	 * @param maxBytes
+	 *            bound on the size of loaded cells that are held strongly
+	 * @param creator
+	 *            used to {@link VolatileArrayDataAccess#createArray(int, boolean)
+	 *            create} invalid placeholder accesses
+	 * @param numThreads
+	 *            number of worker threads
+	 */
+	public VolatileCellLoader(
+			final CellGrid grid,
+			final Fraction entitiesPerPixel,
+			final Get< Cell< A > > loader,
+			final long maxBytes,
+			final A creator,
+			final int numThreads )
+	{
+		this( grid, entitiesPerPixel, new BoundedCellCache<>( loader, maxBytes ), creator, numThreads );
+	}
+
+	/**
+	 * Create a loader that keeps loaded cells in the given {@code cache}.
+	 * Cells are loaded by calling {@link BoundedCellCache#get(long)} from the
+	 * worker threads.
+	 *
+	 * @param grid
+	 *            the cell grid of the image
+	 * @param entitiesPerPixel
+	 *            number of access entities per pixel
+	 * @param cache
+	 *            cache of valid cells
+	 * @param creator
+	 *            used to {@link VolatileArrayDataAccess#createArray(int, boolean)
+	 *            create} invalid placeholder accesses
+	 * @param numThreads
+	 *            number of worker threads
+	 */
+	public VolatileCellLoader(
+			final CellGrid grid,
+			final Fraction entitiesPerPixel,
+			final BoundedCellCache< A > cache,
+			final A creator,
+			final int numThreads )
+	{
+		this.grid = grid;
+		this.entitiesPerPixel = entitiesPerPixel;
+		this.cache = cache;
+		this.creator = creator;
+
+		final int n = loaderNumber.getAndIncrement();
+		workers = new ArrayList<>();
+		for ( int i = 0; i < Math.max( 1, numThreads ); ++i )
+		{
+			final Thread worker = new Thread( this::work, "volatile-cell-loader-" + n + "-" + ( i + 1 ) );
+			worker.setDaemon( true );
+			workers.add( worker );
+			worker.start();
+		}
+	}
+
+	/**
+	 * Get the cell with the given {@code index}. If it is not loaded yet, it is
+	 * queued for loading and an invalid placeholder cell is returned.
+	 */
+	@Override
+	public Cell< A > get( final long index )
+	{
+		final Cell< A > cell = cache.getIfPresent( index );
+		if ( cell != null )
+			return cell;
+
+		enqueue( index );
+		return placeholder( index );
+	}
+
+	/**
+	 * Set the position (in image coordinates) around which cells should be
+	 * loaded first, or {@code null} to load cells in the order they were
+	 * requested, most recent first. This affects only subsequent requests. To
+	 * reprioritize pending requests, {@link #clearQueue() clear} the queue, and
+	 * request the cells again.
+	 */
+	public void setFocus( final double... position )
+	{
+		focus = position == null ? null : position.clone();
+	}
+
+	/**
+	 * Remove all pending requests. Cells that are currently being loaded are
+	 * not affected. This is typically called before rendering a new frame, so
+	 * that cells that are no longer visible are not loaded.
+	 */
+	public void clearQueue()
+	{
+		Request request;
+		while ( ( request = queue.poll() ) != null )
+			enqueued.remove( request.index, request );
+	}
+
+	/**
+	 * Get the number of pending requests.
+	 */
+	public int getQueueSize()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Get the cache that holds the loaded cells.
+	 */
+	public BoundedCellCache< A > getCache()
+	{
+		return cache;
+	}
+
+	/**
+	 * Stop the worker threads. Pending requests are discarded. After shutdown,
+	 * {@link #get(long)} still returns loaded cells and placeholders, but no
+	 * new cells are loaded.
+	 */
+	public void shutdown()
+	{
+		for ( final Thread worker : workers )
+			worker.interrupt();
+		clearQueue();
+	}
+
+	/**
+	 * Called from a worker thread when {@code cell} has been loaded. Does
+	 * nothing by default. Override this to trigger repainting.
+	 */
+	protected void loaded( final long index, final Cell< A > cell )
+	{}
+
+	/**
+	 * Called from a worker thread when loading the cell with the given
+	 * {@code index} failed. Does nothing by default. The cell is requested
+	 * again the next time it is accessed.
+	 */
+	protected void failed( final long index, final RuntimeException e )
+	{}
+
+	private void enqueue( final long index )
+	{
+		if ( enqueued.containsKey( index ) )
+			return;
+		final Request request = new Request( index, priority( index ), sequence.getAndIncrement() );
+		if ( enqueued.putIfAbsent( index, request ) == null )
+			queue.offer( request );
+	}
+
+	private double priority( final long index )
+	{
+		final double[] f = focus;
+		if ( f == null )
+			return 0;
+
+		final int n = grid.numDimensions();
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		double sqDist = 0;
+		for ( int d = 0; d < Math.min( n, f.length ); ++d )
+		{
+			final double diff = cellMin[ d ] + 0.5 * cellDims[ d ] - f[ d ];
+			sqDist += diff * diff;
+		}
+		return sqDist;
+	}
+
+	private Cell< A > placeholder( final long index )
+	{
+		final int n = grid.numDimensions();
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		long numPixels = 1;
+		for ( int d = 0; d < n; ++d )
+			numPixels *= cellDims[ d ];
+		final int numEntities = ( int ) entitiesPerPixel.mulCeil( numPixels );
+		final A data = placeholders.computeIfAbsent( numEntities, k -> creator.createArray( k, false ) );
+		return new Cell<>( cellDims, cellMin, data );
+	}
+
+	private void work()
+	{
+		while ( !Thread.currentThread().isInterrupted() )
+		{
+			final Request request;
+			try
+			{
+				request = queue.take();
+			}
+			catch ( final InterruptedException e )
+			{
+				return;
+			}
+
+			try
+			{
+				final Cell< A > cell = cache.get( request.index );
+				loaded( request.index, cell );
+			}
+			catch ( final RuntimeException e )
+			{
+				failed( request.index, e );
+			}
+			finally
+			{
+				enqueued.remove( request.index, request );
+			}
+		}
+	}
+
+	private static final class Request implements Comparable< Request >
+	{
+		final long index;
+
+		final double priority;
+
+		final long sequence;
+
+		Request( final long index, final double priority, final long sequence )
+		{
+			this.index = index;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo( final Request o )
+		{
+			final int c = Double.compare( priority, o.priority );
+			return c != 0 ? c : Long.compare( o.sequence, sequence );
+		}
+	}
+}
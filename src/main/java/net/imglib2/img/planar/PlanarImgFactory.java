@@ -34,10 +34,13 @@
 
 package net.imglib2.img.planar;
 
+import java.util.Set;
+
 import net.imglib2.Dimensions;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.AccessFlags;
 import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.type.NativeType;
@@ -58,9 +61,21 @@ import net.imglib2.util.Util;
  */
 public class PlanarImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
 {
+	private final Set< AccessFlags > accessFlags;
+
 	public PlanarImgFactory( final T type )
+	{
+		this( type, AccessFlags.setOf() );
+	}
+
+	/**
+	 * Create a factory for {@link PlanarImg}s whose planes are stored in
+	 * accesses with the given {@link AccessFlags}.
+	 */
+	public PlanarImgFactory( final T type, final Set< AccessFlags > accessFlags )
 	{
 		super( type );
+		this.accessFlags = accessFlags;
 	}
 
 	@Override
@@ -90,7 +105,7 @@ public class PlanarImgFactory< T extends NativeType< T > > extends NativeImgFact
 	{
 		Dimensions.verify( dimensions );
 		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
-		final PlanarImg< T, A > img = new PlanarImg<>( ArrayDataAccessFactory.get( typeFactory ), dimensions, entitiesPerPixel );
+		final PlanarImg< T, A > img = new PlanarImg<>( ArrayDataAccessFactory.get( typeFactory, accessFlags ), dimensions, entitiesPerPixel );
 		img.setLinkedType( typeFactory.createLinkedType( img ) );
 		return img;
 	}
@@ -100,7 +115,7 @@ public class PlanarImgFactory< T extends NativeType< T > > extends NativeImgFact
 	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
 	{
 		if ( NativeType.class.isInstance( type ) )
-			return new PlanarImgFactory( ( NativeType ) type );
+			return new PlanarImgFactory( ( NativeType ) type, accessFlags );
 		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
 	}
 
@@ -119,6 +134,7 @@ public class PlanarImgFactory< T extends NativeType< T > > extends NativeImgFact
 	public PlanarImgFactory()
 	{
 		super();
+		accessFlags = AccessFlags.setOf();
 	}
 
 	@Deprecated
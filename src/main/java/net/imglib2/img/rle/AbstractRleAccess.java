@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.rle;
+
+/**
+ * Base class of the {@link RleAccess}es of the primitive types. Remembers the
+ * run of the last pixel read, so that pixels of the same run are read without
+ * searching for the run again.
+ */
+public abstract class AbstractRleAccess< A extends RleAccess< A > > implements RleAccess< A >
+{
+	protected final RleLines lines;
+
+	protected final long[] position;
+
+	private int line = -1;
+
+	private int runStart;
+
+	private int runEnd;
+
+	private long runValue;
+
+	private int modCount;
+
+	protected AbstractRleAccess( final RleLines lines, final long[] position )
+	{
+		this.lines = lines;
+		this.position = position;
+	}
+
+	@Override
+	public RleLines getCurrentStorageLines()
+	{
+		return lines;
+	}
+
+	@Override
+	public A createInstance( final long[] pos )
+	{
+		return createInstance( lines, pos );
+	}
+
+	protected long read()
+	{
+		final int l = lines.lineIndex( position );
+		final long x = position[ 0 ];
+		if ( l != line || x < runStart || x >= runEnd || modCount != lines.modCounts[ l ] )
+		{
+			final int run = lines.findRun( l, ( int ) x );
+			line = l;
+			runStart = lines.runStart( l, run );
+			runEnd = lines.runEnd( l, run );
+			runValue = lines.runValue( l, run );
+			modCount = lines.modCounts[ l ];
+		}
+		return runValue;
+	}
+
+	protected void write( final long value )
+	{
+		lines.set( lines.lineIndex( position ), ( int ) position[ 0 ], value );
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.rle;
+
+import net.imglib2.FlatIterationOrder;
+import net.imglib2.img.AbstractNativeImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+
+/**
+ * An image that stores every line along dimension 0 as runs of equal values
+ * (see {@link RleLines}). This takes much less memory than an
+ * {@link net.imglib2.img.array.ArrayImg} or
+ * {@link net.imglib2.img.sparse.NtreeImg} for label images, such as the
+ * results of a segmentation, where lines consist of few long runs.
+ * <p>
+ * Pixels are read through a cached run, so iterating a line costs a binary
+ * search per run rather than per pixel. Writing a pixel splits and merges
+ * runs, and is slower than for an array image. {@link #runCursor()} iterates
+ * the runs instead of the pixels, which allows to process images run by run,
+ * see e.g. {@link net.imglib2.histogram.Histogram1d#countData(Iterable)}.
+ * </p>
+ *
+ * @param <T>
+ *            pixel type
+ * @param <A>
+ *            access type
+ */
+public final class RleImg< T extends NativeType< T >, A extends RleAccess< A > > extends AbstractNativeImg< T, A >
+{
+	final A data;
+
+	public RleImg( final A data, final long[] dim, final Fraction entitiesPerPixel )
+	{
+		super( dim, entitiesPerPixel );
+
+		this.data = data;
+	}
+
+	public static interface PositionProvider
+	{
+		long[] getPosition();
+	}
+
+	// updater is the RandomAccess / Cursor etc
+	// each call creates a new RleAccess wrapper
+	@Override
+	public A update( final Object updater )
+	{
+		return data.createInstance( ( ( PositionProvider ) updater ).getPosition() );
+	}
+
+	/**
+	 * Get the runs holding the pixel values.
+	 */
+	public RleLines getLines()
+	{
+		return data.getCurrentStorageLines();
+	}
+
+	/**
+	 * Get the total number of runs.
+	 */
+	public long numRuns()
+	{
+		return getLines().numRuns();
+	}
+
+	@Override
+	public RleRandomAccess< T > randomAccess()
+	{
+		return new RleRandomAccess<>( this );
+	}
+
+	@Override
+	public RleCursor< T > cursor()
+	{
+		return new RleCursor<>( this );
+	}
+
+	@Override
+	public RleCursor< T > localizingCursor()
+	{
+		return cursor();
+	}
+
+	/**
+	 * Get a cursor over the runs of this image, in flat iteration order.
+	 */
+	public RleRunCursor< T > runCursor()
+	{
+		return new RleRunCursor<>( this );
+	}
+
+	@Override
+	public RleImgFactory< T > factory()
+	{
+		return new RleImgFactory<>( linkedType );
+	}
+
+	/**
+	 * Create a copy of this image, by copying its runs.
+	 */
+	@Override
+	public RleImg< T, A > copy()
+	{
+		@SuppressWarnings( "unchecked" )
+		final RleImg< T, A > copy = ( RleImg< T, A > ) factory().create( dimension, getLines().copy() );
+		return copy;
+	}
+
+	@Override
+	public FlatIterationOrder iterationOrder()
+	{
+		return new FlatIterationOrder( this );
+	}
+}
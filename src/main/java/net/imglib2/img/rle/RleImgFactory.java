@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.rle;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Creates {@link RleImg}s. Supported are types with one primitive value per
+ * pixel, in particular the integer types used for labels.
+ */
+public class RleImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	public RleImgFactory( final T type )
+	{
+		super( type );
+	}
+
+	@Override
+	public RleImg< T, ? > create( final long... dimensions )
+	{
+		Dimensions.verify( dimensions );
+		return create( dimensions, new RleLines( dimensions ) );
+	}
+
+	@Override
+	public RleImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public RleImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	RleImg< T, ? > create( final long[] dimensions, final RleLines lines )
+	{
+		return create( dimensions, lines, type(), type().getNativeTypeFactory() );
+	}
+
+	private < A > RleImg< T, ? > create( final long[] dimensions, final RleLines lines, final T type, final NativeTypeFactory< T, A > typeFactory )
+	{
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		if ( entitiesPerPixel.getNumerator() != 1 || entitiesPerPixel.getDenominator() != 1 )
+			throw new IllegalArgumentException( "RleImg supports only types with one entity per pixel" );
+
+		final RleImg< T, ? extends A > img = new RleImg<>(
+				createRleAccess( typeFactory, lines ).createInstance( new long[ dimensions.length ] ),
+				// calling createInstance(pos) is necessary here, because
+				// otherwise javac will not infer the RleAccess type
+				dimensions,
+				entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static < A extends RleAccess< A > > A createRleAccess(
+			final NativeTypeFactory< ?, ? super A > typeFactory,
+			final RleLines lines )
+	{
+		final long[] pos = new long[ lines.dimensions().length ];
+		switch ( typeFactory.getPrimitiveType() )
+		{
+		case BYTE:
+			return ( A ) new ByteRleAccess( lines, pos );
+		case CHAR:
+			return ( A ) new CharRleAccess( lines, pos );
+		case DOUBLE:
+			return ( A ) new DoubleRleAccess( lines, pos );
+		case FLOAT:
+			return ( A ) new FloatRleAccess( lines, pos );
+		case INT:
+			return ( A ) new IntRleAccess( lines, pos );
+		case LONG:
+			return ( A ) new LongRleAccess( lines, pos );
+		case SHORT:
+			return ( A ) new ShortRleAccess( lines, pos );
+		default:
+			throw new IllegalArgumentException( "RleImg does not support " + typeFactory.getPrimitiveType() );
+		}
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new RleImgFactory( ( NativeType ) type );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public RleImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		return create( dimensions );
+	}
+}
@@ -0,0 +1,370 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.rle;
+
+import java.util.Arrays;
+
+/**
+ * Run-length encoded pixel values of an image. Every line along dimension 0
+ * is stored as a sequence of runs of equal values. Run {@code r} of a line
+ * covers {@code x} from {@link #runStart(int, int)} (inclusive) to
+ * {@link #runEnd(int, int)} (exclusive), and consecutive runs have different
+ * values. Values are stored as {@code long}, floating point values as their
+ * raw bits.
+ * <p>
+ * Lines are numbered in flat iteration order of the remaining dimensions, see
+ * {@link #lineIndex(long[])}. Lines that contain only zeros take no memory.
+ * Different lines can be written concurrently, but a line must not be
+ * written while other threads access it.
+ * </p>
+ */
+public final class RleLines
+{
+	private final long[] dimensions;
+
+	private final int width;
+
+	private final int numLines;
+
+	/**
+	 * The exclusive ends of the runs of each line, or {@code null} for lines
+	 * that are a single run of zeros.
+	 */
+	private final int[][] ends;
+
+	private final long[][] values;
+
+	private final int[] numRuns;
+
+	/**
+	 * Incremented whenever the runs of a line change, so that accesses can
+	 * tell whether the run they cached is still valid. Counting per line
+	 * keeps the counts exact when different lines are written concurrently.
+	 */
+	final int[] modCounts;
+
+	/**
+	 * Create lines for an image of the given {@code dimensions} that contains
+	 * only zeros.
+	 */
+	public RleLines( final long[] dimensions )
+	{
+		if ( dimensions[ 0 ] > Integer.MAX_VALUE - 1 )
+			throw new IllegalArgumentException( "lines of more than " + ( Integer.MAX_VALUE - 1 ) + " pixels are not supported" );
+		long n = 1;
+		for ( int d = 1; d < dimensions.length; ++d )
+			n *= dimensions[ d ];
+		if ( n > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "more than " + ( Integer.MAX_VALUE - 8 ) + " lines are not supported" );
+
+		this.dimensions = dimensions.clone();
+		this.width = ( int ) dimensions[ 0 ];
+		this.numLines = ( int ) n;
+		this.ends = new int[ numLines ][];
+		this.values = new long[ numLines ][];
+		this.numRuns = new int[ numLines ];
+		this.modCounts = new int[ numLines ];
+	}
+
+	private RleLines( final RleLines lines )
+	{
+		this.dimensions = lines.dimensions;
+		this.width = lines.width;
+		this.numLines = lines.numLines;
+		this.ends = new int[ numLines ][];
+		this.values = new long[ numLines ][];
+		this.numRuns = lines.numRuns.clone();
+		this.modCounts = new int[ numLines ];
+		for ( int line = 0; line < numLines; ++line )
+		{
+			if ( lines.ends[ line ] != null )
+			{
+				ends[ line ] = Arrays.copyOf( lines.ends[ line ], numRuns[ line ] );
+				values[ line ] = Arrays.copyOf( lines.values[ line ], numRuns[ line ] );
+			}
+		}
+	}
+
+	/**
+	 * Create a deep copy of these lines, without spare capacity.
+	 */
+	public RleLines copy()
+	{
+		return new RleLines( this );
+	}
+
+	public long[] dimensions()
+	{
+		return dimensions.clone();
+	}
+
+	/**
+	 * Get the number of pixels per line.
+	 */
+	public int width()
+	{
+		return width;
+	}
+
+	public int numLines()
+	{
+		return numLines;
+	}
+
+	/**
+	 * Get the index of the line containing {@code position}.
+	 */
+	public int lineIndex( final long[] position )
+	{
+		long line = 0;
+		for ( int d = dimensions.length - 1; d > 0; --d )
+			line = line * dimensions[ d ] + position[ d ];
+		return ( int ) line;
+	}
+
+	/**
+	 * Get the position of the first pixel of {@code line}.
+	 */
+	public void linePosition( final int line, final long[] position )
+	{
+		long i = line;
+		position[ 0 ] = 0;
+		for ( int d = 1; d < dimensions.length; ++d )
+		{
+			position[ d ] = i % dimensions[ d ];
+			i /= dimensions[ d ];
+		}
+	}
+
+	public int numRuns( final int line )
+	{
+		return ends[ line ] == null ? 1 : numRuns[ line ];
+	}
+
+	/**
+	 * Get the total number of runs of all lines.
+	 */
+	public long numRuns()
+	{
+		long n = 0;
+		for ( int line = 0; line < numLines; ++line )
+			n += numRuns( line );
+		return n;
+	}
+
+	public int runStart( final int line, final int run )
+	{
+		return run == 0 ? 0 : ends[ line ][ run - 1 ];
+	}
+
+	public int runEnd( final int line, final int run )
+	{
+		return ends[ line ] == null ? width : ends[ line ][ run ];
+	}
+
+	public long runValue( final int line, final int run )
+	{
+		return ends[ line ] == null ? 0 : values[ line ][ run ];
+	}
+
+	/**
+	 * Get the index of the run of {@code line} that contains {@code x}, by
+	 * binary search.
+	 */
+	public int findRun( final int line, final int x )
+	{
+		final int[] e = ends[ line ];
+		if ( e == null )
+			return 0;
+		int lo = 0;
+		int hi = numRuns[ line ] - 1;
+		while ( lo < hi )
+		{
+			final int mid = ( lo + hi ) >>> 1;
+			if ( e[ mid ] <= x )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	public long get( final int line, final int x )
+	{
+		return runValue( line, findRun( line, x ) );
+	}
+
+	/**
+	 * Set the pixel {@code x} of {@code line} to {@code value}, splitting and
+	 * merging runs as necessary.
+	 */
+	public void set( final int line, final int x, final long value )
+	{
+		if ( ends[ line ] == null )
+		{
+			if ( value == 0 )
+				return;
+			ends[ line ] = new int[] { width, 0, 0, 0 };
+			values[ line ] = new long[ 4 ];
+			numRuns[ line ] = 1;
+		}
+
+		final int r = findRun( line, x );
+		final int[] e = ends[ line ];
+		final long[] v = values[ line ];
+		if ( v[ r ] == value )
+			return;
+
+		++modCounts[ line ];
+		final int start = r == 0 ? 0 : e[ r - 1 ];
+		final int end = e[ r ];
+		final boolean mergeLeft = x == start && r > 0 && v[ r - 1 ] == value;
+		final boolean mergeRight = x == end - 1 && r + 1 < numRuns[ line ] && v[ r + 1 ] == value;
+		if ( end - start == 1 )
+		{
+			if ( mergeLeft && mergeRight )
+			{
+				e[ r - 1 ] = e[ r + 1 ];
+				remove( line, r, 2 );
+			}
+			else if ( mergeLeft )
+			{
+				e[ r - 1 ] = end;
+				remove( line, r, 1 );
+			}
+			else if ( mergeRight )
+				remove( line, r, 1 );
+			else
+				v[ r ] = value;
+		}
+		else if ( x == start )
+		{
+			if ( mergeLeft )
+				++e[ r - 1 ];
+			else
+				insert( line, r, x + 1, value );
+		}
+		else if ( x == end - 1 )
+		{
+			--e[ r ];
+			if ( !mergeRight )
+				insert( line, r + 1, end, value );
+		}
+		else
+		{
+			insert( line, r, x, v[ r ] );
+			insert( line, r + 1, x + 1, value );
+		}
+
+		if ( numRuns[ line ] == 1 && values[ line ][ 0 ] == 0 )
+		{
+			ends[ line ] = null;
+			values[ line ] = null;
+		}
+	}
+
+	/**
+	 * Replace all runs of {@code line}. Consecutive runs of equal value are
+	 * merged.
+	 *
+	 * @param runEnds
+	 *            exclusive ends of the runs, increasing, the last one must be
+	 *            {@link #width()}
+	 * @param runValues
+	 *            values of the runs
+	 * @param n
+	 *            number of runs
+	 */
+	public void setLine( final int line, final int[] runEnds, final long[] runValues, final int n )
+	{
+		if ( n < 1 || runEnds[ n - 1 ] != width )
+			throw new IllegalArgumentException( "runs must end at " + width );
+		final int[] e = new int[ n ];
+		final long[] v = new long[ n ];
+		int m = 0;
+		for ( int r = 0; r < n; ++r )
+		{
+			if ( runEnds[ r ] <= ( r == 0 ? 0 : runEnds[ r - 1 ] ) )
+				throw new IllegalArgumentException( "run ends must be increasing" );
+			if ( m > 0 && v[ m - 1 ] == runValues[ r ] )
+				e[ m - 1 ] = runEnds[ r ];
+			else
+			{
+				e[ m ] = runEnds[ r ];
+				v[ m ] = runValues[ r ];
+				++m;
+			}
+		}
+		++modCounts[ line ];
+		if ( m == 1 && v[ 0 ] == 0 )
+		{
+			ends[ line ] = null;
+			values[ line ] = null;
+		}
+		else
+		{
+			ends[ line ] = e;
+			values[ line ] = v;
+			numRuns[ line ] = m;
+		}
+	}
+
+	private void insert( final int line, final int r, final int end, final long value )
+	{
+		final int n = numRuns[ line ];
+		if ( n == ends[ line ].length )
+		{
+			final int capacity = n + ( n >> 1 ) + 1;
+			ends[ line ] = Arrays.copyOf( ends[ line ], capacity );
+			values[ line ] = Arrays.copyOf( values[ line ], capacity );
+		}
+		final int[] e = ends[ line ];
+		final long[] v = values[ line ];
+		System.arraycopy( e, r, e, r + 1, n - r );
+		System.arraycopy( v, r, v, r + 1, n - r );
+		e[ r ] = end;
+		v[ r ] = value;
+		numRuns[ line ] = n + 1;
+	}
+
+	private void remove( final int line, final int r, final int count )
+	{
+		final int n = numRuns[ line ];
+		final int[] e = ends[ line ];
+		final long[] v = values[ line ];
+		System.arraycopy( e, r + count, e, r, n - r - count );
+		System.arraycopy( v, r + count, v, r, n - r - count );
+		numRuns[ line ] = n - count;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.rle;
+
+import net.imglib2.AbstractLocalizingCursor;
+import net.imglib2.img.rle.RleImg.PositionProvider;
+import net.imglib2.type.NativeType;
+
+/**
+ * Cursor over the runs of an {@link RleImg}, in flat iteration order of the
+ * pixels. The cursor is positioned at the first pixel of the current run,
+ * and {@link #get()} is the value of the run. Use {@link #getRunLength()} to
+ * get the number of pixels in the run.
+ * <p>
+ * The image must not be modified while its runs are iterated.
+ * </p>
+ */
+public final class RleRunCursor< T extends NativeType< T > > extends AbstractLocalizingCursor< T > implements PositionProvider
+{
+	private final RleImg< T, ? > img;
+
+	private final RleLines lines;
+
+	private final T type;
+
+	private int line;
+
+	private int run;
+
+	public RleRunCursor( final RleImg< T, ? > img )
+	{
+		super( img.numDimensions() );
+
+		this.img = img;
+		this.lines = img.getLines();
+		this.type = img.createLinkedType();
+		reset();
+		type.updateContainer( this );
+	}
+
+	private RleRunCursor( final RleRunCursor< T > cursor )
+	{
+		super( cursor.numDimensions() );
+
+		this.img = cursor.img;
+		this.lines = cursor.lines;
+		this.type = img.createLinkedType();
+		this.line = cursor.line;
+		this.run = cursor.run;
+		cursor.localize( position );
+		type.updateContainer( this );
+	}
+
+	/**
+	 * Get the number of pixels in the current run.
+	 */
+	public int getRunLength()
+	{
+		return lines.runEnd( line, run ) - lines.runStart( line, run );
+	}
+
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	@Override
+	public void fwd()
+	{
+		if ( ++run >= lines.numRuns( line ) )
+		{
+			run = 0;
+			lines.linePosition( ++line, position );
+		}
+		else
+			position[ 0 ] = lines.runStart( line, run );
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return line < lines.numLines() - 1 || run < lines.numRuns( line ) - 1;
+	}
+
+	@Override
+	public void reset()
+	{
+		line = 0;
+		run = -1;
+		lines.linePosition( 0, position );
+		position[ 0 ] = -1;
+	}
+
+	@Override
+	public RleRunCursor< T > copy()
+	{
+		return new RleRunCursor<>( this );
+	}
+
+	@Override
+	public RleRunCursor< T > copyCursor()
+	{
+		return copy();
+	}
+
+	@Override
+	public long[] getPosition()
+	{
+		return position;
+	}
+}
@@ -43,16 +43,29 @@ public final class BooleanNtree implements NtreeAccess< Boolean, BooleanNtree >
 {
 	private final long[] position;
 
-	private final Ntree< Boolean > data;
+	private final NtreeStorage< Boolean > data;
 
 	public BooleanNtree( final long[] dimensions, final long[] position, final boolean value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
+
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public BooleanNtree( final long[] dimensions, final long[] position, final boolean value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
 	}
 
 	/* Copy constructor */
-	private BooleanNtree( final Ntree< Boolean > data, final long[] position )
+	private BooleanNtree( final NtreeStorage< Boolean > data, final long[] position )
 	{
 		this.data = data;
 		this.position = position;
@@ -61,19 +74,25 @@ public final class BooleanNtree implements NtreeAccess< Boolean, BooleanNtree >
 	public boolean getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	public void setValue( final int index, final boolean value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Boolean > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
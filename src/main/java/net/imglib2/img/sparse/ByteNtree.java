@@ -45,16 +45,29 @@ public final class ByteNtree implements ByteAccess, NtreeAccess< Byte, ByteNtree
 {
 	private final long[] position;
 
-	private final Ntree< Byte > data;
+	private final NtreeStorage< Byte > data;
 
 	public ByteNtree( final long[] dimensions, final long[] position, final byte value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
+
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public ByteNtree( final long[] dimensions, final long[] position, final byte value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
 	}
 
 	/* Copy constructor */
-	private ByteNtree( final Ntree< Byte > data, final long[] position )
+	private ByteNtree( final NtreeStorage< Byte > data, final long[] position )
 	{
 		this.data = data;
 		this.position = position;
@@ -64,20 +77,26 @@ public final class ByteNtree implements ByteAccess, NtreeAccess< Byte, ByteNtree
 	public byte getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	@Override
 	public void setValue( final int index, final byte value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Byte > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
@@ -45,16 +45,29 @@ public final class CharNtree implements CharAccess, NtreeAccess< Character, Char
 {
 	private final long[] position;
 
-	private final Ntree< Character > data;
+	private final NtreeStorage< Character > data;
 
 	public CharNtree( final long[] dimensions, final long[] position, final char value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
+
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public CharNtree( final long[] dimensions, final long[] position, final char value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
 	}
 
 	/* Copy constructor */
-	private CharNtree( final Ntree< Character > data, final long[] position )
+	private CharNtree( final NtreeStorage< Character > data, final long[] position )
 	{
 		this.data = data;
 		this.position = position;
@@ -64,20 +77,26 @@ public final class CharNtree implements CharAccess, NtreeAccess< Character, Char
 	public char getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	@Override
 	public void setValue( final int index, final char value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Character > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.sparse;
+
+import java.util.Arrays;
+
+import net.imglib2.img.basictypeaccess.CharAccess;
+import net.imglib2.img.sparse.Ntree.NtreeNode;
+
+/**
+ * CharAccess based on an N-tree with nodes stored in primitive arrays (see
+ * {@link NtreeNodePool}). It represents the same values as a {@link CharNtree},
+ * with a fraction of the memory.
+ */
+public final class CharPooledNtree implements CharAccess, NtreeAccess< Character, CharPooledNtree >
+{
+	private final long[] position;
+
+	private final Pool data;
+
+	/**
+	 * Standard constructor called by factory
+	 *
+	 * @param dimensions
+	 *            The dimensions of the tree
+	 * @param value
+	 *            Uniform value of created nodes of the tree
+	 */
+	public CharPooledNtree( final long[] dimensions, final long[] position, final char value )
+	{
+		this.data = new Pool( dimensions, value );
+		this.position = position;
+	}
+
+	/* Copy constructor */
+	private CharPooledNtree( final Pool data, final long[] position )
+	{
+		this.data = data;
+		this.position = position;
+	}
+
+	@Override
+	public char getValue( final int index )
+	{
+		// ignore index, get tree position from RandomAccess/Cursor
+		return data.get( position );
+	}
+
+	@Override
+	public void setValue( final int index, final char value )
+	{
+		// ignore index, get tree position from RandomAccess/Cursor
+		data.set( position, value );
+	}
+
+	/**
+	 * Get a copy of the values as an {@link Ntree}.
+	 */
+	@Override
+	public Ntree< Character > getCurrentStorageNtree()
+	{
+		return data.toNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return NtreeImgFactory.Storage.POOLED;
+	}
+
+	@Override
+	public CharPooledNtree createInstance( final long[] pos )
+	{
+		return new CharPooledNtree( data, pos );
+	}
+
+	/**
+	 * Number of allocated nodes.
+	 */
+	int numNodes()
+	{
+		return data.numNodes();
+	}
+
+	private static final class Pool extends NtreeNodePool
+	{
+		private char[] values;
+
+		Pool( final long[] dimensions, final char value )
+		{
+			super( dimensions );
+			values = new char[] { value };
+		}
+
+		synchronized char get( final long[] position )
+		{
+			return values[ getNode( position ) ];
+		}
+
+		synchronized void set( final long[] position, final char value )
+		{
+			int node = 0;
+			for ( int l = numTreeLevels - 2; l >= 0; --l )
+			{
+				if ( firstChild[ node ] < 0 )
+				{
+					if ( values[ node ] == value )
+						return;
+					split( node );
+				}
+				node = firstChild[ node ] + childIndex( position, l );
+			}
+			if ( values[ node ] == value )
+				return;
+			values[ node ] = value;
+			mergeUpwards( node );
+			compactIfSparse();
+		}
+
+		synchronized Ntree< Character > toNtree()
+		{
+			final Ntree< Character > ntree = new Ntree<>( dimensions, values[ 0 ] );
+			copyRecursively( 0, ntree.getRootNode() );
+			return ntree;
+		}
+
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		private void copyRecursively( final int node, final NtreeNode< Character > copy )
+		{
+			final int first = firstChild[ node ];
+			if ( first >= 0 )
+			{
+				final NtreeNode< Character >[] children = new NtreeNode[ numChildren ];
+				for ( int i = 0; i < numChildren; ++i )
+				{
+					children[ i ] = new NtreeNode<>( copy, values[ first + i ] );
+					copyRecursively( first + i, children[ i ] );
+				}
+				copy.setChildren( children );
+			}
+		}
+
+		@Override
+		void copyValue( final int from, final int to )
+		{
+			values[ to ] = values[ from ];
+		}
+
+		@Override
+		boolean equalValues( final int a, final int b )
+		{
+			return values[ a ] == values[ b ];
+		}
+
+		@Override
+		void resizeValues( final int numNodes )
+		{
+			values = Arrays.copyOf( values, numNodes );
+		}
+
+		@Override
+		void permuteValues( final int[] oldIndices, final int numNodes )
+		{
+			final char[] permuted = new char[ numNodes ];
+			for ( int i = 0; i < numNodes; ++i )
+				permuted[ i ] = values[ oldIndices[ i ] ];
+			values = permuted;
+		}
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.sparse;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.imglib2.img.sparse.Ntree.NtreeNode;
+
+/**
+ * N-dimensional equivalent of a quad/oct-tree, that can be read and written
+ * by several threads without locking.
+ * <p>
+ * Nodes are immutable. Setting a value creates copies of the nodes on the path
+ * from the root to the modified leaf (splitting and merging nodes as
+ * necessary), and then atomically replaces the root. If another thread
+ * replaced the root in the meantime, the update is retried on the new tree.
+ * Reads just follow the current root, and are never blocked. Every value
+ * written is visible to subsequent reads by all threads.
+ * </p>
+ * <p>
+ * This is best suited for read-mostly data, or data that is written by
+ * several threads mostly at different times: Concurrent writes do not block
+ * each other, but compete for replacing the root. Leaves of uniform value are
+ * shared between versions of the tree, and between siblings.
+ * </p>
+ */
+public final class ConcurrentNtree< T extends Comparable< T > > implements NtreeStorage< T >
+{
+	/**
+	 * An immutable node. Leaves have no children, and a value. Inner nodes
+	 * have {@code 2^n} children, and no value.
+	 */
+	public static final class Node< T >
+	{
+		private final T value;
+
+		private final Node< T >[] children;
+
+		Node( final T value, final Node< T >[] children )
+		{
+			this.value = value;
+			this.children = children;
+		}
+
+		public boolean hasChildren()
+		{
+			return children != null;
+		}
+
+		/**
+		 * Get the value of a leaf, or {@code null} for an inner node.
+		 */
+		public T getValue()
+		{
+			return value;
+		}
+
+		public Node< T > getChild( final int i )
+		{
+			return children[ i ];
+		}
+	}
+
+	/**
+	 * number of dimensions.
+	 */
+	final int n;
+
+	/**
+	 * maximum depth of the tree.
+	 */
+	final int numTreeLevels;
+
+	/**
+	 * how many children (if any) each node has.
+	 */
+	final int numChildren;
+
+	/**
+	 * dimensions of tree
+	 */
+	final long[] dimensions;
+
+	/**
+	 * Root of the current version of the tree.
+	 */
+	private final AtomicReference< Node< T > > root;
+
+	/**
+	 * Create a ntree structure capable of representing an array of the given
+	 * dimensions. Initially, the tree contains only a root node and represents
+	 * an array of uniform values.
+	 *
+	 * @param dimensions
+	 *            of the array
+	 * @param value
+	 *            uniform value of all pixels in the array
+	 */
+	public ConcurrentNtree( final long[] dimensions, final T value )
+	{
+		this.n = dimensions.length;
+		this.dimensions = dimensions.clone();
+
+		// set the maximum number of levels in the ntree.
+		// This is how many times to split the maximum dimension
+		// in half to arrive at a single pixel
+		long maxdim = 0;
+		for ( int d = 0; d < n; ++d )
+			maxdim = Math.max( maxdim, dimensions[ d ] );
+		this.numTreeLevels = ( int ) Math.ceil( Math.log( maxdim ) / Math.log( 2 ) ) + 1;
+
+		this.numChildren = 1 << n;
+
+		this.root = new AtomicReference<>( new Node<>( value, null ) );
+	}
+
+	/**
+	 * Create a {@link ConcurrentNtree} with the values of {@code ntree}.
+	 */
+	public ConcurrentNtree( final Ntree< T > ntree )
+	{
+		dimensions = ntree.dimensions;
+		n = ntree.n;
+		numTreeLevels = ntree.numTreeLevels;
+		numChildren = ntree.numChildren;
+		root = new AtomicReference<>( copyRecursively( ntree.getRootNode() ) );
+	}
+
+	/**
+	 * Copy constructor. As nodes are immutable, the copy shares all nodes with
+	 * {@code ntree}, until either is modified.
+	 */
+	public ConcurrentNtree( final ConcurrentNtree< T > ntree )
+	{
+		dimensions = ntree.dimensions;
+		n = ntree.n;
+		numTreeLevels = ntree.numTreeLevels;
+		numChildren = ntree.numChildren;
+		root = new AtomicReference<>( ntree.getRootNode() );
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private Node< T > copyRecursively( final NtreeNode< T > node )
+	{
+		if ( node.getChildren() == null )
+			return new Node<>( node.getValue(), null );
+		final Node< T >[] children = new Node[ numChildren ];
+		for ( int i = 0; i < numChildren; ++i )
+			children[ i ] = copyRecursively( node.getChildren()[ i ] );
+		return new Node<>( null, children );
+	}
+
+	/**
+	 * Get the value at position.
+	 *
+	 * @param position
+	 *            a position inside the image.
+	 */
+	@Override
+	public T getValue( final long[] position )
+	{
+		Node< T > current = root.get();
+		for ( int l = numTreeLevels - 2; l >= 0 && current.hasChildren(); --l )
+			current = current.children[ childIndex( position, l ) ];
+		return current.value;
+	}
+
+	/**
+	 * Set the value at position. If necessary, new nodes will be created. If
+	 * possible, nodes will be merged.
+	 *
+	 * @param position
+	 *            a position inside the image.
+	 * @param value
+	 *            value to store at position.
+	 */
+	@Override
+	public void setValue( final long[] position, final T value )
+	{
+		while ( true )
+		{
+			final Node< T > current = root.get();
+			final Node< T > updated = setValue( current, numTreeLevels - 2, position, value );
+			if ( updated == current || root.compareAndSet( current, updated ) )
+				return;
+		}
+	}
+
+	/**
+	 * Returns the root node of the current version of the tree. The returned
+	 * tree is not affected by subsequent modifications.
+	 *
+	 * @return root node
+	 */
+	public Node< T > getRootNode()
+	{
+		return root.get();
+	}
+
+	/**
+	 * Get a copy of the current values as an {@link Ntree}.
+	 */
+	@Override
+	public Ntree< T > asNtree()
+	{
+		final Node< T > r = root.get();
+		final Ntree< T > ntree = new Ntree<>( dimensions, r.value );
+		copyRecursively( r, ntree.getRootNode() );
+		return ntree;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private void copyRecursively( final Node< T > node, final NtreeNode< T > copy )
+	{
+		if ( node.hasChildren() )
+		{
+			final NtreeNode< T >[] children = new NtreeNode[ numChildren ];
+			for ( int i = 0; i < numChildren; ++i )
+			{
+				final Node< T > child = node.children[ i ];
+				children[ i ] = new NtreeNode<>( copy, child.value );
+				copyRecursively( child, children[ i ] );
+			}
+			copy.setChildren( children );
+		}
+	}
+
+	/**
+	 * Returns {@code node} with the value at position set, or {@code node}
+	 * itself if the value is already set.
+	 *
+	 * @param l
+	 *            level of the children of {@code node}, where {@code -1}
+	 *            means that {@code node} is a single pixel.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private Node< T > setValue( final Node< T > node, final int l, final long[] position, final T value )
+	{
+		final Node< T >[] children;
+		if ( node.hasChildren() )
+			children = node.children;
+		else
+		{
+			if ( node.value.compareTo( value ) == 0 )
+				return node;
+			if ( l < 0 )
+				return new Node<>( value, null );
+
+			// split. the leaf can be shared by all children
+			children = new Node[ numChildren ];
+			Arrays.fill( children, node );
+		}
+
+		final int i = childIndex( position, l );
+		final Node< T > child = children[ i ];
+		final Node< T > updated = setValue( child, l - 1, position, value );
+		if ( updated == child )
+			return node;
+
+		// merge, if all children are leaves of the same value
+		if ( !updated.hasChildren() )
+		{
+			boolean uniform = true;
+			for ( int j = 0; j < numChildren && uniform; ++j )
+				uniform = j == i || ( !children[ j ].hasChildren() && children[ j ].value.compareTo( updated.value ) == 0 );
+			if ( uniform )
+				return updated;
+		}
+
+		final Node< T >[] copy = node.hasChildren() ? children.clone() : children;
+		copy[ i ] = updated;
+		return new Node<>( null, copy );
+	}
+
+	private int childIndex( final long[] position, final int l )
+	{
+		final long bitmask = 1L << l;
+		int childindex = 0;
+		for ( int d = 0; d < n; ++d )
+			if ( ( position[ d ] & bitmask ) != 0 )
+				childindex |= 1 << d;
+		return childindex;
+	}
+}
@@ -45,16 +45,29 @@ public final class DoubleNtree implements DoubleAccess, NtreeAccess< Double, Dou
 {
 	private final long[] position;
 
-	private final Ntree< Double > data;
+	private final NtreeStorage< Double > data;
 
 	public DoubleNtree( final long[] dimensions, final long[] position, final double value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
+
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public DoubleNtree( final long[] dimensions, final long[] position, final double value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
 	}
 
 	/* Copy constructor */
-	private DoubleNtree( final Ntree< Double > data, final long[] pos )
+	private DoubleNtree( final NtreeStorage< Double > data, final long[] pos )
 	{
 		this.data = data;
 		this.position = pos;
@@ -64,20 +77,26 @@ public final class DoubleNtree implements DoubleAccess, NtreeAccess< Double, Dou
 	public double getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	@Override
 	public void setValue( final int index, final double value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Double > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
@@ -45,16 +45,29 @@ public final class FloatNtree implements FloatAccess, NtreeAccess< Float, FloatN
 {
 	private final long[] position;
 
-	private final Ntree< Float > data;
+	private final NtreeStorage< Float > data;
 
 	public FloatNtree( final long[] dimensions, final long[] position, final float value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
+
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public FloatNtree( final long[] dimensions, final long[] position, final float value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
 	}
 
 	/* Copy constructor */
-	private FloatNtree( final Ntree< Float > data, final long[] position )
+	private FloatNtree( final NtreeStorage< Float > data, final long[] position )
 	{
 		this.data = data;
 		this.position = position;
@@ -65,20 +78,26 @@ public final class FloatNtree implements FloatAccess, NtreeAccess< Float, FloatN
 	public float getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	@Override
 	public void setValue( final int index, final float value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Float > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
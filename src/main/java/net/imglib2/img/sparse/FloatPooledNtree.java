@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.sparse;
+
+import java.util.Arrays;
+
+import net.imglib2.img.basictypeaccess.FloatAccess;
+import net.imglib2.img.sparse.Ntree.NtreeNode;
+
+/**
+ * FloatAccess based on an N-tree with nodes stored in primitive arrays (see
+ * {@link NtreeNodePool}). It represents the same values as a {@link FloatNtree},
+ * with a fraction of the memory.
+ */
+public final class FloatPooledNtree implements FloatAccess, NtreeAccess< Float, FloatPooledNtree >
+{
+	private final long[] position;
+
+	private final Pool data;
+
+	/**
+	 * Standard constructor called by factory
+	 *
+	 * @param dimensions
+	 *            The dimensions of the tree
+	 * @param value
+	 *            Uniform value of created nodes of the tree
+	 */
+	public FloatPooledNtree( final long[] dimensions, final long[] position, final float value )
+	{
+		this.data = new Pool( dimensions, value );
+		this.position = position;
+	}
+
+	/* Copy constructor */
+	private FloatPooledNtree( final Pool data, final long[] position )
+	{
+		this.data = data;
+		this.position = position;
+	}
+
+	@Override
+	public float getValue( final int index )
+	{
+		// ignore index, get tree position from RandomAccess/Cursor
+		return data.get( position );
+	}
+
+	@Override
+	public void setValue( final int index, final float value )
+	{
+		// ignore index, get tree position from RandomAccess/Cursor
+		data.set( position, value );
+	}
+
+	/**
+	 * Get a copy of the values as an {@link Ntree}.
+	 */
+	@Override
+	public Ntree< Float > getCurrentStorageNtree()
+	{
+		return data.toNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return NtreeImgFactory.Storage.POOLED;
+	}
+
+	@Override
+	public FloatPooledNtree createInstance( final long[] pos )
+	{
+		return new FloatPooledNtree( data, pos );
+	}
+
+	/**
+	 * Number of allocated nodes.
+	 */
+	int numNodes()
+	{
+		return data.numNodes();
+	}
+
+	private static final class Pool extends NtreeNodePool
+	{
+		private float[] values;
+
+		Pool( final long[] dimensions, final float value )
+		{
+			super( dimensions );
+			values = new float[] { value };
+		}
+
+		synchronized float get( final long[] position )
+		{
+			return values[ getNode( position ) ];
+		}
+
+		synchronized void set( final long[] position, final float value )
+		{
+			int node = 0;
+			for ( int l = numTreeLevels - 2; l >= 0; --l )
+			{
+				if ( firstChild[ node ] < 0 )
+				{
+					if ( Float.floatToIntBits( values[ node ] ) == Float.floatToIntBits( value ) )
+						return;
+					split( node );
+				}
+				node = firstChild[ node ] + childIndex( position, l );
+			}
+			if ( Float.floatToIntBits( values[ node ] ) == Float.floatToIntBits( value ) )
+				return;
+			values[ node ] = value;
+			mergeUpwards( node );
+			compactIfSparse();
+		}
+
+		synchronized Ntree< Float > toNtree()
+		{
+			final Ntree< Float > ntree = new Ntree<>( dimensions, values[ 0 ] );
+			copyRecursively( 0, ntree.getRootNode() );
+			return ntree;
+		}
+
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		private void copyRecursively( final int node, final NtreeNode< Float > copy )
+		{
+			final int first = firstChild[ node ];
+			if ( first >= 0 )
+			{
+				final NtreeNode< Float >[] children = new NtreeNode[ numChildren ];
+				for ( int i = 0; i < numChildren; ++i )
+				{
+					children[ i ] = new NtreeNode<>( copy, values[ first + i ] );
+					copyRecursively( first + i, children[ i ] );
+				}
+				copy.setChildren( children );
+			}
+		}
+
+		@Override
+		void copyValue( final int from, final int to )
+		{
+			values[ to ] = values[ from ];
+		}
+
+		@Override
+		boolean equalValues( final int a, final int b )
+		{
+			return Float.floatToIntBits( values[ a ] ) == Float.floatToIntBits( values[ b ] );
+		}
+
+		@Override
+		void resizeValues( final int numNodes )
+		{
+			values = Arrays.copyOf( values, numNodes );
+		}
+
+		@Override
+		void permuteValues( final int[] oldIndices, final int numNodes )
+		{
+			final float[] permuted = new float[ numNodes ];
+			for ( int i = 0; i < numNodes; ++i )
+				permuted[ i ] = values[ oldIndices[ i ] ];
+			values = permuted;
+		}
+	}
+}
@@ -46,7 +46,7 @@ public final class IntNtree implements IntAccess, NtreeAccess< Integer, IntNtree
 
 	private final long[] position;
 
-	private final Ntree< Integer > data;
+	private final NtreeStorage< Integer > data;
 
 	/**
 	 * Standard constructor called by factory
@@ -58,14 +58,25 @@ public final class IntNtree implements IntAccess, NtreeAccess< Integer, IntNtree
 	 */
 	public IntNtree( final long[] dimensions, final long[] position, final int value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
 
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public IntNtree( final long[] dimensions, final long[] position, final int value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
-
 	}
 
 	/* Copy constructor */
-	private IntNtree( final Ntree< Integer > data, final long[] position )
+	private IntNtree( final NtreeStorage< Integer > data, final long[] position )
 	{
 		this.data = data;
 		this.position = position;
@@ -75,20 +86,26 @@ public final class IntNtree implements IntAccess, NtreeAccess< Integer, IntNtree
 	public int getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	@Override
 	public void setValue( final int index, final int value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Integer > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
@@ -46,7 +46,7 @@ public final class LongNtree implements LongAccess, NtreeAccess< Long, LongNtree
 
 	private final long[] position;
 
-	private final Ntree< Long > data;
+	private final NtreeStorage< Long > data;
 
 	/**
 	 * Standard constructor called by factory
@@ -58,12 +58,29 @@ public final class LongNtree implements LongAccess, NtreeAccess< Long, LongNtree
 	 */
 	public LongNtree( final long[] dimensions, final long[] position, final long value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
 
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public LongNtree( final long[] dimensions, final long[] position, final long value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
 	}
 
 	public LongNtree( final Ntree< Long > data, final long[] position )
+	{
+		this( ( NtreeStorage< Long > ) data, position );
+	}
+
+	private LongNtree( final NtreeStorage< Long > data, final long[] position )
 	{
 		this.data = data;
 		this.position = position;
@@ -73,20 +90,26 @@ public final class LongNtree implements LongAccess, NtreeAccess< Long, LongNtree
 	public long getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	@Override
 	public void setValue( final int index, final long value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Long > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
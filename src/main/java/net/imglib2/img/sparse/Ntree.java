@@ -39,7 +39,7 @@ package net.imglib2.img.sparse;
  * 
  * @author Tobias Pietzsch
  */
-public final class Ntree< T extends Comparable< T >>
+public final class Ntree< T extends Comparable< T >> implements NtreeStorage< T >
 {
 
 	public static final class NtreeNode< T >
@@ -296,6 +296,24 @@ public final class Ntree< T extends Comparable< T >>
 		return mergeUpwards( parent );
 	}
 
+	@Override
+	public T getValue( final long[] position )
+	{
+		return getNode( position ).getValue();
+	}
+
+	@Override
+	public void setValue( final long[] position, final T value )
+	{
+		createNodeWithValue( position, value );
+	}
+
+	@Override
+	public Ntree< T > asNtree()
+	{
+		return this;
+	}
+
 	/**
 	 * Returns the root node of the ntree
 	 * 
@@ -37,7 +37,19 @@ package net.imglib2.img.sparse;
 public interface NtreeAccess< L extends Comparable< L >, A extends NtreeAccess< L, A > >
 {
 
+	/**
+	 * Get the {@link Ntree} holding the pixel values. For a concurrent access
+	 * this is a copy of the current values.
+	 */
 	Ntree< L > getCurrentStorageNtree();
 
+	/**
+	 * How pixel values are stored.
+	 */
+	default NtreeImgFactory.Storage getStorage()
+	{
+		return NtreeImgFactory.Storage.NTREE;
+	}
+
 	A createInstance( long[] pos );
 }
@@ -103,7 +103,7 @@ public final class NtreeImg< T extends NativeType< T >, A extends NtreeAccess< ?
 	@Override
 	public ImgFactory< T > factory()
 	{
-		return new NtreeImgFactory<>( linkedType );
+		return new NtreeImgFactory<>( linkedType, data.getStorage() );
 	}
 
 	@Override
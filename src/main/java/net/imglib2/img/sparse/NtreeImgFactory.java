@@ -50,9 +50,55 @@ import net.imglib2.util.Util;
  */
 public class NtreeImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
 {
+	/**
+	 * How the pixels of an {@link NtreeImg} are stored.
+	 */
+	public enum Storage
+	{
+		/**
+		 * In an {@link Ntree}, with a node object per node.
+		 */
+		NTREE,
+
+		/**
+		 * In a {@link ConcurrentNtree}, which several threads can read and
+		 * write without locking.
+		 */
+		CONCURRENT,
+
+		/**
+		 * In primitive arrays (see {@link NtreeNodePool}), which takes much
+		 * less memory than {@link #NTREE}.
+		 */
+		POOLED
+	}
+
+	private final Storage storage;
+
 	public NtreeImgFactory( final T type )
+	{
+		this( type, Storage.NTREE );
+	}
+
+	public NtreeImgFactory( final T type, final Storage storage )
 	{
 		super( type );
+		this.storage = storage;
+	}
+
+	/**
+	 * If {@code concurrent}, created images store pixels in a
+	 * {@link ConcurrentNtree}, which several threads can read and write
+	 * without locking.
+	 */
+	public NtreeImgFactory( final T type, final boolean concurrent )
+	{
+		this( type, concurrent ? Storage.CONCURRENT : Storage.NTREE );
+	}
+
+	public Storage getStorage()
+	{
+		return storage;
 	}
 
 	@Override
@@ -83,7 +129,7 @@ public class NtreeImgFactory< T extends NativeType< T > > extends NativeImgFacto
 
 		final long[] pos = new long[ dimensions.length ];
 		final NtreeImg< T, ? extends A > img = new NtreeImg<>(
-				createNtreeAccess( typeFactory, dimensions ).createInstance( pos ),
+				createNtreeAccess( typeFactory, dimensions, storage ).createInstance( pos ),
 				// calling createInstance(pos) is necessary here, because
 				// otherwise javac will not infer the NtreeAccess type
 				dimensions,
@@ -92,27 +138,59 @@ public class NtreeImgFactory< T extends NativeType< T > > extends NativeImgFacto
 		return img;
 	}
 
-	@SuppressWarnings( "unchecked" )
 	public static < A extends NtreeAccess< ?, A > > A createNtreeAccess(
 			final NativeTypeFactory< ?, ? super A > typeFactory,
 			final long[] dimensions )
 	{
+		return NtreeImgFactory.< A >createNtreeAccess( typeFactory, dimensions, Storage.NTREE );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static < A extends NtreeAccess< ?, A > > A createNtreeAccess(
+			final NativeTypeFactory< ?, ? super A > typeFactory,
+			final long[] dimensions,
+			final Storage storage )
+	{
+		if ( storage == Storage.POOLED )
+		{
+			switch ( typeFactory.getPrimitiveType() )
+			{
+			case BYTE:
+				return ( A ) new BytePooledNtree( dimensions, null, ( byte ) 0 );
+			case CHAR:
+				return ( A ) new CharPooledNtree( dimensions, null, ( char ) 0 );
+			case DOUBLE:
+				return ( A ) new DoublePooledNtree( dimensions, null, 0 );
+			case FLOAT:
+				return ( A ) new FloatPooledNtree( dimensions, null, 0 );
+			case INT:
+				return ( A ) new IntPooledNtree( dimensions, null, 0 );
+			case LONG:
+				return ( A ) new LongPooledNtree( dimensions, null, 0 );
+			case SHORT:
+				return ( A ) new ShortPooledNtree( dimensions, null, ( short ) 0 );
+			default:
+				throw new IllegalArgumentException();
+			}
+		}
+
+		final boolean concurrent = storage == Storage.CONCURRENT;
 		switch ( typeFactory.getPrimitiveType() )
 		{
 		case BYTE:
-			return ( A ) new ByteNtree( dimensions, null, ( byte ) 0 );
+			return ( A ) new ByteNtree( dimensions, null, ( byte ) 0, concurrent );
 		case CHAR:
-			return ( A ) new CharNtree( dimensions, null, ( char ) 0 );
+			return ( A ) new CharNtree( dimensions, null, ( char ) 0, concurrent );
 		case DOUBLE:
-			return ( A ) new DoubleNtree( dimensions, null, 0 );
+			return ( A ) new DoubleNtree( dimensions, null, 0, concurrent );
 		case FLOAT:
-			return ( A ) new FloatNtree( dimensions, null, 0 );
+			return ( A ) new FloatNtree( dimensions, null, 0, concurrent );
 		case INT:
-			return ( A ) new IntNtree( dimensions, null, 0 );
+			return ( A ) new IntNtree( dimensions, null, 0, concurrent );
 		case LONG:
-			return ( A ) new LongNtree( dimensions, null, 0 );
+			return ( A ) new LongNtree( dimensions, null, 0, concurrent );
 		case SHORT:
-			return ( A ) new ShortNtree( dimensions, null, ( short ) 0 );
+			return ( A ) new ShortNtree( dimensions, null, ( short ) 0, concurrent );
 		default:
 			throw new IllegalArgumentException();
 		}
@@ -123,7 +201,7 @@ public class NtreeImgFactory< T extends NativeType< T > > extends NativeImgFacto
 	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
 	{
 		if ( NativeType.class.isInstance( type ) )
-			return new NtreeImgFactory( ( NativeType ) type );
+			return new NtreeImgFactory( ( NativeType ) type, storage );
 		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
 	}
 
@@ -143,6 +221,7 @@ public class NtreeImgFactory< T extends NativeType< T > > extends NativeImgFacto
 	public NtreeImgFactory()
 	{
 		super();
+		storage = Storage.NTREE;
 	}
 
 	@Deprecated
@@ -0,0 +1,288 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.sparse;
+
+import java.util.Arrays;
+
+/**
+ * Structure of an N-dimensional equivalent of a quad/oct-tree (see
+ * {@link Ntree}), with nodes stored in flat arrays instead of objects.
+ * <p>
+ * Nodes are identified by their index. The root is node {@code 0}. The
+ * {@code 2^n} children of a node are allocated together, as a block of
+ * consecutive indices, and {@link #firstChild} refers to the first of them.
+ * Node values are stored in a primitive array by the subclasses, which
+ * implement getting and setting values.
+ * </p>
+ * <p>
+ * Like {@link Ntree}, children are removed as soon as they all have the same
+ * value. Blocks of removed children are reused for new children. When more
+ * than half of the blocks are unused, the arrays are rebuilt in depth-first
+ * order, which shrinks them and keeps nodes that are close in the image close
+ * in memory.
+ * </p>
+ */
+abstract class NtreeNodePool
+{
+	/**
+	 * Pools with fewer blocks are never compacted.
+	 */
+	private static final int MIN_COMPACT_BLOCKS = 64;
+
+	/**
+	 * number of dimensions.
+	 */
+	final int n;
+
+	/**
+	 * maximum depth of the tree.
+	 */
+	final int numTreeLevels;
+
+	/**
+	 * how many children (if any) each node has.
+	 */
+	final int numChildren;
+
+	/**
+	 * dimensions of tree
+	 */
+	final long[] dimensions;
+
+	/**
+	 * index of the first child of each node, or {@code -1} for leaves.
+	 */
+	int[] firstChild;
+
+	/**
+	 * index of the parent node of each block of children.
+	 */
+	private int[] parent;
+
+	/**
+	 * number of allocated blocks, including unused ones.
+	 */
+	private int numBlocks;
+
+	/**
+	 * stack of unused blocks.
+	 */
+	private int[] freeBlocks;
+
+	private int numFreeBlocks;
+
+	NtreeNodePool( final long[] dimensions )
+	{
+		this.n = dimensions.length;
+		this.dimensions = dimensions.clone();
+
+		// set the maximum number of levels in the ntree.
+		// This is how many times to split the maximum dimension
+		// in half to arrive at a single pixel
+		long maxdim = 0;
+		for ( int d = 0; d < n; ++d )
+			maxdim = Math.max( maxdim, dimensions[ d ] );
+		this.numTreeLevels = ( int ) Math.ceil( Math.log( maxdim ) / Math.log( 2 ) ) + 1;
+
+		this.numChildren = 1 << n;
+
+		firstChild = new int[] { -1 };
+		parent = new int[ 0 ];
+		freeBlocks = new int[ 0 ];
+	}
+
+	/**
+	 * Copy the value of node {@code from} to node {@code to}.
+	 */
+	abstract void copyValue( int from, int to );
+
+	/**
+	 * Whether nodes {@code a} and {@code b} have the same value.
+	 */
+	abstract boolean equalValues( int a, int b );
+
+	/**
+	 * Grow the value array to hold (at least) {@code numNodes} nodes.
+	 */
+	abstract void resizeValues( int numNodes );
+
+	/**
+	 * Replace the value array by one holding {@code numNodes} nodes, where
+	 * node {@code i} has the value of node {@code oldIndices[i]}.
+	 */
+	abstract void permuteValues( int[] oldIndices, int numNodes );
+
+	/**
+	 * Get the lowest-level node containing position.
+	 */
+	final int getNode( final long[] position )
+	{
+		int node = 0;
+		for ( int l = numTreeLevels - 2; l >= 0; --l )
+		{
+			final int first = firstChild[ node ];
+			if ( first < 0 )
+				break;
+			node = first + childIndex( position, l );
+		}
+		return node;
+	}
+
+	final int childIndex( final long[] position, final int l )
+	{
+		final long bitmask = 1L << l;
+		int childindex = 0;
+		for ( int d = 0; d < n; ++d )
+			if ( ( position[ d ] & bitmask ) != 0 )
+				childindex |= 1 << d;
+		return childindex;
+	}
+
+	/**
+	 * Create children of the leaf {@code node}, with the value of
+	 * {@code node}.
+	 */
+	final void split( final int node )
+	{
+		final int block = allocateBlock();
+		parent[ block ] = node;
+		final int first = 1 + block * numChildren;
+		for ( int i = first; i < first + numChildren; ++i )
+		{
+			firstChild[ i ] = -1;
+			copyValue( node, i );
+		}
+		firstChild[ node ] = first;
+	}
+
+	/**
+	 * If all the children of the parent of {@code node} have the same value
+	 * remove them all. Repeat for the parent.
+	 */
+	final void mergeUpwards( int node )
+	{
+		while ( node != 0 )
+		{
+			final int block = ( node - 1 ) / numChildren;
+			final int first = 1 + block * numChildren;
+			for ( int i = first; i < first + numChildren; ++i )
+				if ( firstChild[ i ] >= 0 || !equalValues( first, i ) )
+					return;
+			node = parent[ block ];
+			copyValue( first, node );
+			firstChild[ node ] = -1;
+			freeBlocks[ numFreeBlocks++ ] = block;
+		}
+	}
+
+	/**
+	 * Compact the pool, if more than half of the blocks are unused.
+	 */
+	final void compactIfSparse()
+	{
+		if ( numBlocks >= MIN_COMPACT_BLOCKS && 2 * numFreeBlocks > numBlocks )
+			compact();
+	}
+
+	/**
+	 * Rebuild the arrays without unused blocks, with blocks in depth-first
+	 * order.
+	 */
+	final void compact()
+	{
+		final int numUsed = numBlocks - numFreeBlocks;
+		final int numNodes = 1 + numUsed * numChildren;
+		final int[] oldIndices = new int[ numNodes ];
+		final int[] newFirstChild = new int[ numNodes ];
+		final int[] newParent = new int[ numUsed ];
+
+		// depth-first traversal with explicit stack of (new) inner nodes
+		final int[] stack = new int[ numTreeLevels * numChildren + 1 ];
+		int stackSize = 0;
+		oldIndices[ 0 ] = 0;
+		newFirstChild[ 0 ] = -1;
+		stack[ stackSize++ ] = 0;
+		int block = 0;
+		while ( stackSize > 0 )
+		{
+			final int node = stack[ --stackSize ];
+			final int oldFirst = firstChild[ oldIndices[ node ] ];
+			if ( oldFirst < 0 )
+				continue;
+			final int first = 1 + block * numChildren;
+			newParent[ block++ ] = node;
+			newFirstChild[ node ] = first;
+			for ( int i = numChildren - 1; i >= 0; --i )
+			{
+				oldIndices[ first + i ] = oldFirst + i;
+				newFirstChild[ first + i ] = -1;
+				stack[ stackSize++ ] = first + i;
+			}
+		}
+
+		permuteValues( oldIndices, numNodes );
+		firstChild = newFirstChild;
+		parent = newParent;
+		numBlocks = numUsed;
+		freeBlocks = new int[ numUsed ];
+		numFreeBlocks = 0;
+	}
+
+	/**
+	 * Number of nodes, including nodes of unused blocks.
+	 */
+	final int numNodes()
+	{
+		return 1 + numBlocks * numChildren;
+	}
+
+	private int allocateBlock()
+	{
+		if ( numFreeBlocks > 0 )
+			return freeBlocks[ --numFreeBlocks ];
+
+		if ( numBlocks == parent.length )
+		{
+			final int capacity = Math.max( 4, numBlocks + ( numBlocks >> 1 ) );
+			if ( 1 + ( long ) capacity * numChildren > Integer.MAX_VALUE - 8 )
+				throw new IllegalStateException( "too many nodes" );
+			parent = Arrays.copyOf( parent, capacity );
+			freeBlocks = Arrays.copyOf( freeBlocks, capacity );
+			final int numNodes = 1 + capacity * numChildren;
+			firstChild = Arrays.copyOf( firstChild, numNodes );
+			resizeValues( numNodes );
+		}
+		return numBlocks++;
+	}
+}
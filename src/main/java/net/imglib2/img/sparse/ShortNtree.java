@@ -45,15 +45,33 @@ public final class ShortNtree implements ShortAccess, NtreeAccess< Short, ShortN
 
 	private final long[] position;
 
-	private final Ntree< Short > data;
+	private final NtreeStorage< Short > data;
 
 	public ShortNtree( final long[] dimensions, final long[] position, final short value )
 	{
-		this.data = new Ntree<>( dimensions, value );
+		this( dimensions, position, value, false );
+	}
+
+	/**
+	 * Create a tree of uniform value. If {@code concurrent}, the tree is a
+	 * {@link ConcurrentNtree} that can be read and written from several
+	 * threads without locking, otherwise it is a {@link Ntree}.
+	 */
+	public ShortNtree( final long[] dimensions, final long[] position, final short value, final boolean concurrent )
+	{
+		if ( concurrent )
+			this.data = new ConcurrentNtree<>( dimensions, value );
+		else
+			this.data = new Ntree<>( dimensions, value );
 		this.position = position;
 	}
 
 	public ShortNtree( final Ntree< Short > data, final long[] position )
+	{
+		this( ( NtreeStorage< Short > ) data, position );
+	}
+
+	private ShortNtree( final NtreeStorage< Short > data, final long[] position )
 	{
 		this.data = data;
 		this.position = position;
@@ -63,20 +81,26 @@ public final class ShortNtree implements ShortAccess, NtreeAccess< Short, ShortN
 	public short getValue( final int index )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		return data.getNode( position ).getValue();
+		return data.getValue( position );
 	}
 
 	@Override
 	public void setValue( final int index, final short value )
 	{
 		// ignore index, get tree position from RandomAccess/Cursor
-		data.createNodeWithValue( position, value );
+		data.setValue( position, value );
 	}
 
 	@Override
 	public Ntree< Short > getCurrentStorageNtree()
 	{
-		return data;
+		return data.asNtree();
+	}
+
+	@Override
+	public NtreeImgFactory.Storage getStorage()
+	{
+		return data instanceof ConcurrentNtree ? NtreeImgFactory.Storage.CONCURRENT : NtreeImgFactory.Storage.NTREE;
 	}
 
 	@Override
@@ -58,6 +58,28 @@ public class IntervalChunks
 		return generateGrid( interval, chunkDimensions );
 	}
 
+	/**
+	 * Returns a list of disjoint intervals, that covers the given interval.
+	 * The intervals are aligned to a grid of blocks with the given
+	 * dimensions, that starts at the min of the given interval. No interval
+	 * crosses a block boundary.
+	 * <p>
+	 * If there are fewer blocks than the requested number of chunks, each
+	 * block is further divided, such that at least the given number of
+	 * intervals is returned.
+	 */
+	public static List< Interval > chunkIntervalAligned( Interval interval, long[] blockDimensions, int numberOfChunks )
+	{
+		List< Interval > blocks = generateGrid( interval, blockDimensions );
+		if ( blocks.size() >= numberOfChunks )
+			return blocks;
+		int chunksPerBlock = ( int ) divideAndRoundUp( numberOfChunks, blocks.size() );
+		List< Interval > result = new ArrayList<>();
+		for ( Interval block : blocks )
+			result.addAll( chunkInterval( block, chunksPerBlock ) );
+		return result;
+	}
+
 	/**
 	 * Suggest a chunk size that can be used, to divide an interval of the
 	 * given dimensions, into the given number of chunks.
@@ -37,11 +37,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 import net.imglib2.Cursor;
 import net.imglib2.Dimensions;
@@ -52,8 +55,12 @@ import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.array.AbstractArrayCursor;
+import net.imglib2.img.cell.AbstractCellImg;
 import net.imglib2.img.cell.CellCursor;
+import net.imglib2.img.cell.CellGrid;
 import net.imglib2.img.planar.PlanarCursor;
+import net.imglib2.parallel.CancellationToken;
+import net.imglib2.parallel.ProgressListener;
 import net.imglib2.parallel.TaskExecutor;
 import net.imglib2.parallel.Parallelization;
 import net.imglib2.parallel.TaskExecutors;
@@ -99,6 +106,20 @@ public class LoopBuilder< T >
 
 	private boolean useFlatIterationOrder = false;
 
+	private boolean cellAligned = false;
+
+	private long[] blockShape = null;
+
+	private CancellationToken cancellationToken = null;
+
+	private ProgressListener progressListener = null;
+
+	/**
+	 * If cancellation or progress reporting is requested, chunks are processed
+	 * in steps of roughly this number of pixels.
+	 */
+	private static final long MONITORING_STEP = 1 << 16;
+
 	// public methods
 
 	/**
@@ -192,6 +213,10 @@ public class LoopBuilder< T >
 		Objects.requireNonNull( action );
 		if ( Intervals.numElements( dimensions ) == 0 )
 			return Collections.emptyList();
+		if ( cancellationToken != null )
+			cancellationToken.throwIfCancelled();
+		if ( progressListener != null )
+			progressListener.started( Intervals.numElements( dimensions ) );
 		List< IterableInterval< ? > > iterableIntervals = imagesAsIterableIntervals();
 		if ( allCursorsAreFast( iterableIntervals ) )
 			return runUsingCursors( iterableIntervals, action );
@@ -199,6 +224,63 @@ public class LoopBuilder< T >
 			return runUsingRandomAccesses( action );
 	}
 
+	/**
+	 * Performs a mutable reduction over all pixels. Each thread gets its own
+	 * accumulator, which is created by the given {@code supplier}. The
+	 * accumulators are updated without any locking, and merged by the
+	 * {@code combiner} at the end.
+	 * <p>
+	 * The {@code accumulator} function takes an accumulator, and returns
+	 * the pixel action that adds pixels to it. The following example
+	 * calculates the sum of the pixel values of an image:
+	 *
+	 * <pre>
+	 * {@code
+	 *
+	 * RealSum sum = LoopBuilder.setImages( image ).multiThreaded().collect(
+	 *     RealSum::new,
+	 *     s -> pixel -> s.add( pixel.getRealDouble() ),
+	 *     ( s, other ) -> s.add( other.getSum() )
+	 * );
+	 * }
+	 * </pre>
+	 *
+	 * Minimum and maximum can be calculated in the same way, using a
+	 * {@code double[] { min, max }} as accumulator, or a
+	 * {@link net.imglib2.histogram.Histogram1d} can be filled, with one
+	 * histogram per thread.
+	 *
+	 * @param supplier
+	 *            creates a new, empty accumulator
+	 * @param accumulator
+	 *            returns a pixel action that adds pixels to the given
+	 *            accumulator
+	 * @param combiner
+	 *            adds the second accumulator to the first
+	 * @return the combined accumulator, or a new empty accumulator if the
+	 *         images are empty
+	 */
+	public < R > R collect( final Supplier< R > supplier, final Function< R, T > accumulator, final BiConsumer< R, R > combiner )
+	{
+		Objects.requireNonNull( supplier );
+		Objects.requireNonNull( accumulator );
+		Objects.requireNonNull( combiner );
+		final Queue< R > accumulators = new ConcurrentLinkedQueue<>();
+		final ThreadLocal< R > threadAccumulator = ThreadLocal.withInitial( () -> {
+			final R r = supplier.get();
+			accumulators.add( r );
+			return r;
+		} );
+		forEachChunk( chunk -> {
+			chunk.forEachPixel( accumulator.apply( threadAccumulator.get() ) );
+			return null;
+		} );
+		final R result = accumulators.isEmpty() ? supplier.get() : accumulators.poll();
+		for ( final R r : accumulators )
+			combiner.accept( result, r );
+		return result;
+	}
+
 	private boolean allCursorsAreFast( List< IterableInterval< ? > > iterableIntervals )
 	{
 		return ListUtils.allMatch( this::cursorIsFast, iterableIntervals );
@@ -301,6 +383,76 @@ public class LoopBuilder< T >
 		return this;
 	}
 
+	/**
+	 * Calling this method causes {@link LoopBuilder} to split the loop into
+	 * chunks that are aligned to the {@link CellGrid} of the first image that
+	 * is an {@link AbstractCellImg}. Each chunk lies within a single cell.
+	 * With multi-threading, each thread then works on whole cells, instead
+	 * of moving back and forth between cells, which is faster for images that
+	 * are not iterated cell by cell anyway. For example, when a
+	 * {@link net.imglib2.img.cell.CellImg} is combined with an
+	 * {@link net.imglib2.img.array.ArrayImg}.
+	 * <p>
+	 * If none of the images is an {@link AbstractCellImg}, this has no effect.
+	 * Images with equal iteration order, like several {@link AbstractCellImg}s
+	 * with the same {@link CellGrid}, are already iterated cell by cell.
+	 *
+	 * @see #blockShape(long...)
+	 */
+	public LoopBuilder< T > cellAligned()
+	{
+		this.cellAligned = true;
+		return this;
+	}
+
+	/**
+	 * Calling this method causes {@link LoopBuilder} to split the loop into
+	 * chunks that are aligned to a grid of blocks with the given shape,
+	 * starting at the min of the images. Each chunk lies within a single
+	 * block. This overrides {@link #cellAligned()}.
+	 * <p>
+	 * WARNING: Blocks are not iterated in flat iteration order. This has no
+	 * effect, if {@link #flatIterationOrder()} is used.
+	 */
+	public LoopBuilder< T > blockShape( long... blockShape )
+	{
+		if ( blockShape.length != dimensions.numDimensions() )
+			throw new IllegalArgumentException( "LoopBuilder, block shape " + Arrays.toString( blockShape ) + " does not match the number of dimensions " + dimensions.numDimensions() + "." );
+		for ( final long size : blockShape )
+			if ( size <= 0 )
+				throw new IllegalArgumentException( "LoopBuilder, block shape " + Arrays.toString( blockShape ) + " must only contain positive entries." );
+		this.blockShape = blockShape.clone();
+		return this;
+	}
+
+	/**
+	 * Calling this method allows to cancel the loop. Once
+	 * {@link CancellationToken#cancel()} is called, the loop stops, and
+	 * {@link #forEachPixel} or {@link #forEachChunk} throw a
+	 * {@link java.util.concurrent.CancellationException}. Pixels might be
+	 * partially processed at that point.
+	 * <p>
+	 * The token is checked regularly, every few thousand pixels.
+	 */
+	public LoopBuilder< T > cancellationToken( CancellationToken cancellationToken )
+	{
+		this.cancellationToken = cancellationToken;
+		return this;
+	}
+
+	/**
+	 * Calling this method causes {@link LoopBuilder} to report the progress of
+	 * the loop to the given {@link ProgressListener}. The units of work are
+	 * pixels. Progress is reported regularly, every few thousand pixels.
+	 *
+	 * @see net.imglib2.parallel.ProgressStatistics
+	 */
+	public LoopBuilder< T > progressListener( ProgressListener progressListener )
+	{
+		this.progressListener = progressListener;
+		return this;
+	}
+
 	public interface TriConsumer< A, B, C >
 	{
 		void accept( A a, B b, C c );
@@ -352,11 +504,37 @@ public class LoopBuilder< T >
 	{
 		final int nTasks = taskExecutor.suggestNumberOfTasks();
 		final Interval interval = new FinalInterval( dimensions );
-		final List< Interval > chunks = IntervalChunks.chunkInterval( interval, nTasks );
-		return taskExecutor.forEachApply( chunks, chunk -> runOnChunkUsingRandomAccesses( images, chunkAction, chunk ) );
+		final long[] blocks = getBlockShape();
+		final List< Interval > chunks = blocks == null ?
+				IntervalChunks.chunkInterval( interval, nTasks ) :
+				IntervalChunks.chunkIntervalAligned( interval, blocks, nTasks );
+		return taskExecutor.forEachApply( chunks, chunk -> runOnChunkUsingRandomAccesses( images, chunkAction, chunk, cancellationToken, progressListener ) );
+	}
+
+	private long[] getBlockShape()
+	{
+		if ( useFlatIterationOrder )
+			return null;
+		if ( blockShape != null )
+			return blockShape;
+		if ( cellAligned )
+			for ( RandomAccessibleInterval< ? > image : images )
+				if ( image instanceof AbstractCellImg )
+				{
+					final CellGrid grid = ( ( AbstractCellImg< ?, ?, ?, ? > ) image ).getCellGrid();
+					final long[] cellDimensions = new long[ grid.numDimensions() ];
+					Arrays.setAll( cellDimensions, grid::cellDimension );
+					return cellDimensions;
+				}
+		return null;
 	}
 
 	static < T, R > R runOnChunkUsingRandomAccesses( RandomAccessibleInterval[] images, Function< Chunk< T >, R > chunkAction, Interval subInterval )
+	{
+		return runOnChunkUsingRandomAccesses( images, chunkAction, subInterval, null, null );
+	}
+
+	static < T, R > R runOnChunkUsingRandomAccesses( RandomAccessibleInterval< ? >[] images, Function< Chunk< T >, R > chunkAction, Interval subInterval, CancellationToken cancellationToken, ProgressListener progressListener )
 	{
 		final List< RandomAccess< ? > > samplers = ListUtils.map( LoopBuilder::initRandomAccess, images );
 		final Positionable synced = SyncedPositionables.create( samplers );
@@ -364,7 +542,27 @@ public class LoopBuilder< T >
 			synced.move( Intervals.minAsLongArray( subInterval ) );
 		return chunkAction.apply( pixelAction -> {
 			final Runnable runnable = BindActionToSamplers.bindActionToSamplers( pixelAction, samplers );
-			LoopUtils.createIntervalLoop( synced, subInterval, runnable ).run();
+			if ( cancellationToken == null && progressListener == null )
+			{
+				LoopUtils.createIntervalLoop( synced, subInterval, runnable ).run();
+				return;
+			}
+			final long numSteps = IntervalChunks.divideAndRoundUp( Intervals.numElements( subInterval ), MONITORING_STEP );
+			final long[] position = Intervals.minAsLongArray( subInterval );
+			for ( Interval step : IntervalChunks.chunkInterval( subInterval, ( int ) Math.min( numSteps, Integer.MAX_VALUE ) ) )
+			{
+				if ( cancellationToken != null )
+					cancellationToken.throwIfCancelled();
+				final long start = System.nanoTime();
+				for ( int d = 0; d < position.length; d++ )
+				{
+					synced.move( step.min( d ) - position[ d ], d );
+					position[ d ] = step.min( d );
+				}
+				LoopUtils.createIntervalLoop( synced, step, runnable ).run();
+				if ( progressListener != null )
+					progressListener.completed( Intervals.numElements( step ), System.nanoTime() - start );
+			}
 		} );
 	}
 
@@ -388,17 +586,37 @@ public class LoopBuilder< T >
 		final FinalInterval indices = new FinalInterval( Intervals.numElements( images[ 0 ] ) );
 		List< Interval > chunks = IntervalChunks.chunkInterval( indices, nTasks );
 		return taskExecutor.forEachApply( chunks, chunk ->
-				LoopBuilder.runOnChunkUsingCursors( iterableIntervals, chunkAction, chunk.min( 0 ), chunk.dimension( 0 ) ) );
+				LoopBuilder.runOnChunkUsingCursors( iterableIntervals, chunkAction, chunk.min( 0 ), chunk.dimension( 0 ), cancellationToken, progressListener ) );
 	}
 
 	static < T, R > R runOnChunkUsingCursors( List< IterableInterval< ? > > iterableIntervals, Function< Chunk< T >, R > chunkAction, long offset, long numElements )
+	{
+		return runOnChunkUsingCursors( iterableIntervals, chunkAction, offset, numElements, null, null );
+	}
+
+	static < T, R > R runOnChunkUsingCursors( List< IterableInterval< ? > > iterableIntervals, Function< Chunk< T >, R > chunkAction, long offset, long numElements, CancellationToken cancellationToken, ProgressListener progressListener )
 	{
 		final List< Cursor< ? > > cursors = ListUtils.map( IterableInterval::cursor, iterableIntervals );
 		if ( offset != 0 )
 			jumpFwd( cursors, offset );
 		return chunkAction.apply( pixelAction -> {
 			LongConsumer cursorLoop = FastCursorLoops.createLoop( pixelAction, cursors );
-			cursorLoop.accept( numElements );
+			if ( cancellationToken == null && progressListener == null )
+			{
+				cursorLoop.accept( numElements );
+				return;
+			}
+			for ( long remaining = numElements; remaining > 0; )
+			{
+				if ( cancellationToken != null )
+					cancellationToken.throwIfCancelled();
+				final long start = System.nanoTime();
+				final long step = Math.min( remaining, MONITORING_STEP );
+				cursorLoop.accept( step );
+				remaining -= step;
+				if ( progressListener != null )
+					progressListener.completed( step, System.nanoTime() - start );
+			}
 		} );
 	}
 
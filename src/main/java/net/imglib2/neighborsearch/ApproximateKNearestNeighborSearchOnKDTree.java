@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import net.imglib2.KDTree;
+import net.imglib2.KDTreeNode;
+import net.imglib2.RealLocalizable;
+
+/**
+ * Approximate {@link KNearestNeighborSearch} on kd-trees.
+ * <p>
+ * With error bound {@code epsilon}, the {@code i}-th neighbor found is at most
+ * a factor {@code (1 + epsilon)} farther away than the true {@code i}-th
+ * nearest neighbor. Subtrees that cannot contain a point closer than
+ * {@code d / (1 + epsilon)}, where {@code d} is the distance of the current
+ * {@code k}-th candidate, are skipped.
+ * </p>
+ * <p>
+ * Additionally, the number of visited nodes can be limited. Once
+ * {@code maxVisits} nodes have been visited, no further away branches are
+ * searched, i.e., only the descents already in progress are completed. In this
+ * case the error bound does not hold.
+ * </p>
+ * <p>
+ * {@code epsilon = 0} and {@code maxVisits = Integer.MAX_VALUE} give the same
+ * results as {@link KNearestNeighborSearchOnKDTree}.
+ * </p>
+ */
+public class ApproximateKNearestNeighborSearchOnKDTree< T > extends KNearestNeighborSearchOnKDTree< T >
+{
+	protected final double epsilon;
+
+	protected final int maxVisits;
+
+	/**
+	 * {@code 1 / (1 + epsilon)^2}, the factor applied to squared distances
+	 * for pruning.
+	 */
+	private final double pruneFactor;
+
+	private int visits;
+
+	public ApproximateKNearestNeighborSearchOnKDTree( final KDTree< T > tree, final int k, final double epsilon )
+	{
+		this( tree, k, epsilon, Integer.MAX_VALUE );
+	}
+
+	public ApproximateKNearestNeighborSearchOnKDTree( final KDTree< T > tree, final int k, final double epsilon, final int maxVisits )
+	{
+		super( tree, k );
+		if ( epsilon < 0 )
+			throw new IllegalArgumentException( "epsilon must not be negative" );
+		if ( maxVisits < 1 )
+			throw new IllegalArgumentException( "maxVisits must be positive" );
+		this.epsilon = epsilon;
+		this.maxVisits = maxVisits;
+		this.pruneFactor = 1.0 / ( ( 1 + epsilon ) * ( 1 + epsilon ) );
+	}
+
+	public double getEpsilon()
+	{
+		return epsilon;
+	}
+
+	public int getMaxVisits()
+	{
+		return maxVisits;
+	}
+
+	/**
+	 * Get the number of nodes visited by the last search.
+	 */
+	public int getVisits()
+	{
+		return visits;
+	}
+
+	@Override
+	public void search( final RealLocalizable reference )
+	{
+		visits = 0;
+		super.search( reference );
+	}
+
+	@Override
+	protected void searchNode( final KDTreeNode< T > current )
+	{
+		++visits;
+
+		// consider the current node
+		final double squDistance = current.squDistanceTo( pos );
+		if ( squDistance < bestSquDistances[ k - 1 ] )
+		{
+			int i = k - 1;
+			for ( int j = i - 1; i > 0 && squDistance < bestSquDistances[ j ]; --i, --j )
+			{
+				bestSquDistances[ i ] = bestSquDistances[ j ];
+				bestPoints[ i ] = bestPoints[ j ];
+			}
+			bestSquDistances[ i ] = squDistance;
+			bestPoints[ i ] = current;
+		}
+
+		final double axisDiff = pos[ current.getSplitDimension() ] - current.getSplitCoordinate();
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+
+		// search the near branch
+		final KDTreeNode< T > nearChild = leftIsNearBranch ? current.left : current.right;
+		final KDTreeNode< T > awayChild = leftIsNearBranch ? current.right : current.left;
+		if ( nearChild != null )
+			searchNode( nearChild );
+
+		// search the away branch - maybe
+		if ( ( axisSquDistance <= bestSquDistances[ k - 1 ] * pruneFactor ) && ( awayChild != null ) && ( visits < maxVisits ) )
+			searchNode( awayChild );
+	}
+
+	@Override
+	public ApproximateKNearestNeighborSearchOnKDTree< T > copy()
+	{
+		final ApproximateKNearestNeighborSearchOnKDTree< T > copy = new ApproximateKNearestNeighborSearchOnKDTree< T >( tree, k, epsilon, maxVisits );
+		System.arraycopy( pos, 0, copy.pos, 0, pos.length );
+		for ( int i = 0; i < k; ++i )
+		{
+			copy.bestPoints[ i ] = bestPoints[ i ];
+			copy.bestSquDistances[ i ] = bestSquDistances[ i ];
+		}
+		copy.visits = visits;
+		return copy;
+	}
+}
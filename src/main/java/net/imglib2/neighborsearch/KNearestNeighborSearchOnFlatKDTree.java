@@ -0,0 +1,266 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import java.util.Arrays;
+
+import net.imglib2.FlatKDTree;
+import net.imglib2.IterableRealInterval;
+import net.imglib2.RealCursor;
+import net.imglib2.RealLocalizable;
+import net.imglib2.Sampler;
+
+/**
+ * Implementation of {@link KNearestNeighborSearch} search for
+ * {@link FlatKDTree}s.
+ */
+public class KNearestNeighborSearchOnFlatKDTree< T > implements KNearestNeighborSearch< T >
+{
+	protected final FlatKDTree< T > tree;
+
+	protected final int n;
+
+	protected final double[] pos;
+
+	protected final int k;
+
+	protected final int[] bestIndices;
+
+	protected final double[] bestSquDistances;
+
+	public KNearestNeighborSearchOnFlatKDTree( final FlatKDTree< T > tree, final int k )
+	{
+		this.tree = tree;
+		this.n = tree.numDimensions();
+		this.pos = new double[ n ];
+		this.k = k;
+		this.bestIndices = new int[ k ];
+		this.bestSquDistances = new double[ k ];
+		Arrays.fill( bestIndices, -1 );
+		Arrays.fill( bestSquDistances, Double.MAX_VALUE );
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public int getK()
+	{
+		return k;
+	}
+
+	@Override
+	public void search( final RealLocalizable reference )
+	{
+		reference.localize( pos );
+		search();
+	}
+
+	/**
+	 * Find the {@code k} nearest neighbors of a batch of query points.
+	 * <p>
+	 * The queries are split into chunks which are processed using the
+	 * {@link net.imglib2.parallel.TaskExecutor TaskExecutor} provided by
+	 * {@link net.imglib2.parallel.Parallelization Parallelization}. The state
+	 * of this search is not modified.
+	 * </p>
+	 *
+	 * @param queries
+	 *            query coordinates, coordinate {@code d} of query {@code j} is
+	 *            at {@code queries[ j * n + d ]}
+	 * @param indices
+	 *            receives the index of the {@code i}-th nearest node (see
+	 *            {@link #getIndex(int)}) of query {@code j} at
+	 *            {@code indices[ j * k + i ]}
+	 * @param squDistances
+	 *            receives the corresponding squared distances, may be
+	 *            {@code null}
+	 */
+	public void search( final double[] queries, final int[] indices, final double[] squDistances )
+	{
+		final int numQueries = QueryChunks.numQueries( queries, n );
+		QueryChunks.forEachChunk( numQueries, ( from, to ) -> {
+			final KNearestNeighborSearchOnFlatKDTree< T > search = new KNearestNeighborSearchOnFlatKDTree<>( tree, k );
+			for ( int j = from; j < to; ++j )
+			{
+				System.arraycopy( queries, j * n, search.pos, 0, n );
+				search.search();
+				search.store( j, indices, squDistances );
+			}
+		} );
+	}
+
+	/**
+	 * Find the {@code k} nearest neighbors of all points of {@code queries},
+	 * in iteration order. See {@link #search(double[], int[], double[])}.
+	 */
+	public void search( final IterableRealInterval< ? > queries, final int[] indices, final double[] squDistances )
+	{
+		QueryChunks.forEachChunk( ( int ) queries.size(), ( from, to ) -> {
+			final KNearestNeighborSearchOnFlatKDTree< T > search = new KNearestNeighborSearchOnFlatKDTree<>( tree, k );
+			final RealCursor< ? > cursor = queries.localizingCursor();
+			if ( from > 0 )
+				cursor.jumpFwd( from );
+			for ( int j = from; j < to; ++j )
+			{
+				cursor.fwd();
+				cursor.localize( search.pos );
+				search.search();
+				search.store( j, indices, squDistances );
+			}
+		} );
+	}
+
+	private void search()
+	{
+		Arrays.fill( bestIndices, -1 );
+		Arrays.fill( bestSquDistances, Double.MAX_VALUE );
+		if ( tree.intSize() > 0 )
+			searchNode( 0, tree.intSize(), 0 );
+	}
+
+	private void store( final int j, final int[] indices, final double[] squDistances )
+	{
+		System.arraycopy( bestIndices, 0, indices, j * k, k );
+		if ( squDistances != null )
+			System.arraycopy( bestSquDistances, 0, squDistances, j * k, k );
+	}
+
+	protected void searchNode( final int lo, final int hi, final int d )
+	{
+		final int current = FlatKDTree.mid( lo, hi );
+
+		// consider the current node
+		final double squDistance = tree.squDistance( current, pos );
+		if ( squDistance < bestSquDistances[ k - 1 ] )
+		{
+			int i = k - 1;
+			for ( int j = i - 1; i > 0 && squDistance < bestSquDistances[ j ]; --i, --j )
+			{
+				bestSquDistances[ i ] = bestSquDistances[ j ];
+				bestIndices[ i ] = bestIndices[ j ];
+			}
+			bestSquDistances[ i ] = squDistance;
+			bestIndices[ i ] = current;
+		}
+
+		final double axisDiff = pos[ d ] - tree.getDoublePosition( current, d );
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+
+		// search the near branch
+		final int nearLo = leftIsNearBranch ? lo : current + 1;
+		final int nearHi = leftIsNearBranch ? current : hi;
+		final int awayLo = leftIsNearBranch ? current + 1 : lo;
+		final int awayHi = leftIsNearBranch ? hi : current;
+		if ( nearLo < nearHi )
+			searchNode( nearLo, nearHi, dChild );
+
+		// search the away branch - maybe
+		if ( ( axisSquDistance <= bestSquDistances[ k - 1 ] ) && ( awayLo < awayHi ) )
+			searchNode( awayLo, awayHi, dChild );
+	}
+
+	/**
+	 * Get the index of the {@code i}-th nearest node in the tree.
+	 */
+	public int getIndex( final int i )
+	{
+		return bestIndices[ i ];
+	}
+
+	@Override
+	public Sampler< T > getSampler( final int i )
+	{
+		return tree.getNode( bestIndices[ i ] );
+	}
+
+	@Override
+	public RealLocalizable getPosition( final int i )
+	{
+		return tree.getNode( bestIndices[ i ] );
+	}
+
+	@Override
+	public double getSquareDistance( final int i )
+	{
+		return bestSquDistances[ i ];
+	}
+
+	@Override
+	public double getDistance( final int i )
+	{
+		return Math.sqrt( bestSquDistances[ i ] );
+	}
+
+	/* NearestNeighborSearch */
+
+	@Override
+	public RealLocalizable getPosition()
+	{
+		return getPosition( 0 );
+	}
+
+	@Override
+	public Sampler< T > getSampler()
+	{
+		return getSampler( 0 );
+	}
+
+	@Override
+	public double getSquareDistance()
+	{
+		return getSquareDistance( 0 );
+	}
+
+	@Override
+	public double getDistance()
+	{
+		return getDistance( 0 );
+	}
+
+	@Override
+	public KNearestNeighborSearchOnFlatKDTree< T > copy()
+	{
+		final KNearestNeighborSearchOnFlatKDTree< T > copy = new KNearestNeighborSearchOnFlatKDTree<>( tree, k );
+		System.arraycopy( pos, 0, copy.pos, 0, pos.length );
+		System.arraycopy( bestIndices, 0, copy.bestIndices, 0, k );
+		System.arraycopy( bestSquDistances, 0, copy.bestSquDistances, 0, k );
+		return copy;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import net.imglib2.DynamicKDTree;
+import net.imglib2.FlatKDTree;
+import net.imglib2.RealLocalizable;
+import net.imglib2.Sampler;
+
+/**
+ * Implementation of {@link NearestNeighborSearch} search for
+ * {@link DynamicKDTree}s.
+ */
+public class NearestNeighborSearchOnDynamicKDTree< T > implements NearestNeighborSearch< T >
+{
+	protected final DynamicKDTree< T > tree;
+
+	protected final int n;
+
+	protected final double[] pos;
+
+	protected int bestId;
+
+	protected double bestSquDistance;
+
+	public NearestNeighborSearchOnDynamicKDTree( final DynamicKDTree< T > tree )
+	{
+		this.tree = tree;
+		this.n = tree.numDimensions();
+		this.pos = new double[ n ];
+		this.bestId = -1;
+		this.bestSquDistance = Double.MAX_VALUE;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public void search( final RealLocalizable p )
+	{
+		p.localize( pos );
+		bestId = -1;
+		bestSquDistance = Double.MAX_VALUE;
+
+		for ( int i = 0; i < tree.getBufferSize(); ++i )
+			consider( tree.getBufferId( i ) );
+
+		for ( final DynamicKDTree.Level level : tree.getLevels() )
+			if ( level != null )
+				searchNode( level, 0, level.getTree().intSize(), 0 );
+	}
+
+	private void consider( final int id )
+	{
+		final double distance = tree.squDistance( id, pos );
+		if ( distance < bestSquDistance && tree.isAlive( id ) )
+		{
+			bestSquDistance = distance;
+			bestId = id;
+		}
+	}
+
+	protected void searchNode( final DynamicKDTree.Level level, final int lo, final int hi, final int d )
+	{
+		final FlatKDTree< ? > levelTree = level.getTree();
+		final int current = FlatKDTree.mid( lo, hi );
+
+		// consider the current node
+		consider( level.getId( current ) );
+
+		final double axisDiff = pos[ d ] - levelTree.getDoublePosition( current, d );
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+
+		// search the near branch
+		final int nearLo = leftIsNearBranch ? lo : current + 1;
+		final int nearHi = leftIsNearBranch ? current : hi;
+		final int awayLo = leftIsNearBranch ? current + 1 : lo;
+		final int awayHi = leftIsNearBranch ? hi : current;
+		if ( nearLo < nearHi )
+			searchNode( level, nearLo, nearHi, dChild );
+
+		// search the away branch - maybe
+		if ( ( axisSquDistance <= bestSquDistance ) && ( awayLo < awayHi ) )
+			searchNode( level, awayLo, awayHi, dChild );
+	}
+
+	/**
+	 * Get the id of the nearest point, or {@code -1} if the tree is empty.
+	 */
+	public int getId()
+	{
+		return bestId;
+	}
+
+	@Override
+	public Sampler< T > getSampler()
+	{
+		return tree.getEntry( bestId );
+	}
+
+	@Override
+	public RealLocalizable getPosition()
+	{
+		return tree.getEntry( bestId );
+	}
+
+	@Override
+	public double getSquareDistance()
+	{
+		return bestSquDistance;
+	}
+
+	@Override
+	public double getDistance()
+	{
+		return Math.sqrt( bestSquDistance );
+	}
+
+	@Override
+	public NearestNeighborSearchOnDynamicKDTree< T > copy()
+	{
+		final NearestNeighborSearchOnDynamicKDTree< T > copy = new NearestNeighborSearchOnDynamicKDTree<>( tree );
+		System.arraycopy( pos, 0, copy.pos, 0, pos.length );
+		copy.bestId = bestId;
+		copy.bestSquDistance = bestSquDistance;
+		return copy;
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import net.imglib2.FlatKDTree;
+import net.imglib2.IterableRealInterval;
+import net.imglib2.RealCursor;
+import net.imglib2.RealLocalizable;
+import net.imglib2.Sampler;
+
+/**
+ * Implementation of {@link NearestNeighborSearch} search for
+ * {@link FlatKDTree}s.
+ */
+public class NearestNeighborSearchOnFlatKDTree< T > implements NearestNeighborSearch< T >
+{
+	protected final FlatKDTree< T > tree;
+
+	protected final int n;
+
+	protected final double[] pos;
+
+	protected int bestIndex;
+
+	protected double bestSquDistance;
+
+	public NearestNeighborSearchOnFlatKDTree( final FlatKDTree< T > tree )
+	{
+		this.tree = tree;
+		this.n = tree.numDimensions();
+		this.pos = new double[ n ];
+		this.bestIndex = -1;
+		this.bestSquDistance = Double.MAX_VALUE;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	@Override
+	public void search( final RealLocalizable p )
+	{
+		p.localize( pos );
+		search();
+	}
+
+	/**
+	 * Find the nearest neighbors of a batch of query points.
+	 * <p>
+	 * The queries are split into chunks which are processed using the
+	 * {@link net.imglib2.parallel.TaskExecutor TaskExecutor} provided by
+	 * {@link net.imglib2.parallel.Parallelization Parallelization}. The state
+	 * of this search is not modified.
+	 * </p>
+	 *
+	 * @param queries
+	 *            query coordinates, coordinate {@code d} of query {@code j} is
+	 *            at {@code queries[ j * n + d ]}
+	 * @param indices
+	 *            receives the index of the nearest node (see
+	 *            {@link #getIndex()}) for each query
+	 * @param squDistances
+	 *            receives the squared distance to the nearest node for each
+	 *            query, may be {@code null}
+	 */
+	public void search( final double[] queries, final int[] indices, final double[] squDistances )
+	{
+		final int numQueries = QueryChunks.numQueries( queries, n );
+		QueryChunks.forEachChunk( numQueries, ( from, to ) -> {
+			final NearestNeighborSearchOnFlatKDTree< T > search = new NearestNeighborSearchOnFlatKDTree<>( tree );
+			for ( int j = from; j < to; ++j )
+			{
+				System.arraycopy( queries, j * n, search.pos, 0, n );
+				search.search();
+				search.store( j, indices, squDistances );
+			}
+		} );
+	}
+
+	/**
+	 * Find the nearest neighbors of all points of {@code queries}, in
+	 * iteration order. See {@link #search(double[], int[], double[])}.
+	 */
+	public void search( final IterableRealInterval< ? > queries, final int[] indices, final double[] squDistances )
+	{
+		QueryChunks.forEachChunk( ( int ) queries.size(), ( from, to ) -> {
+			final NearestNeighborSearchOnFlatKDTree< T > search = new NearestNeighborSearchOnFlatKDTree<>( tree );
+			final RealCursor< ? > cursor = queries.localizingCursor();
+			if ( from > 0 )
+				cursor.jumpFwd( from );
+			for ( int j = from; j < to; ++j )
+			{
+				cursor.fwd();
+				cursor.localize( search.pos );
+				search.search();
+				search.store( j, indices, squDistances );
+			}
+		} );
+	}
+
+	private void search()
+	{
+		bestIndex = -1;
+		bestSquDistance = Double.MAX_VALUE;
+		if ( tree.intSize() > 0 )
+			searchNode( 0, tree.intSize(), 0 );
+	}
+
+	private void store( final int j, final int[] indices, final double[] squDistances )
+	{
+		indices[ j ] = bestIndex;
+		if ( squDistances != null )
+			squDistances[ j ] = bestSquDistance;
+	}
+
+	protected void searchNode( final int lo, final int hi, final int d )
+	{
+		final int current = FlatKDTree.mid( lo, hi );
+
+		// consider the current node
+		final double distance = tree.squDistance( current, pos );
+		if ( distance < bestSquDistance )
+		{
+			bestSquDistance = distance;
+			bestIndex = current;
+		}
+
+		final double axisDiff = pos[ d ] - tree.getDoublePosition( current, d );
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+
+		// search the near branch
+		final int nearLo = leftIsNearBranch ? lo : current + 1;
+		final int nearHi = leftIsNearBranch ? current : hi;
+		final int awayLo = leftIsNearBranch ? current + 1 : lo;
+		final int awayHi = leftIsNearBranch ? hi : current;
+		if ( nearLo < nearHi )
+			searchNode( nearLo, nearHi, dChild );
+
+		// search the away branch - maybe
+		if ( ( axisSquDistance <= bestSquDistance ) && ( awayLo < awayHi ) )
+			searchNode( awayLo, awayHi, dChild );
+	}
+
+	/**
+	 * Get the index of the nearest node in the tree.
+	 */
+	public int getIndex()
+	{
+		return bestIndex;
+	}
+
+	@Override
+	public Sampler< T > getSampler()
+	{
+		return tree.getNode( bestIndex );
+	}
+
+	@Override
+	public RealLocalizable getPosition()
+	{
+		return tree.getNode( bestIndex );
+	}
+
+	@Override
+	public double getSquareDistance()
+	{
+		return bestSquDistance;
+	}
+
+	@Override
+	public double getDistance()
+	{
+		return Math.sqrt( bestSquDistance );
+	}
+
+	@Override
+	public NearestNeighborSearchOnFlatKDTree< T > copy()
+	{
+		final NearestNeighborSearchOnFlatKDTree< T > copy = new NearestNeighborSearchOnFlatKDTree<>( tree );
+		System.arraycopy( pos, 0, copy.pos, 0, pos.length );
+		copy.bestIndex = bestIndex;
+		copy.bestSquDistance = bestSquDistance;
+		return copy;
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of search results, keyed by squared distance. Subclasses
+ * store the actual neighbors in a parallel array and implement
+ * {@link #swap(int, int)} and {@link #resize(int)} accordingly.
+ * <p>
+ * The buffer either collects all neighbors in arbitrary order, or, if
+ * bounded, keeps only the {@code maxSize} nearest neighbors in a max-heap.
+ * Neighbors with equal distance are ordered by the sequence in which they
+ * were added, so that sorted results are the same as with a stable sort.
+ * </p>
+ */
+abstract class NeighborBuffer
+{
+	protected double[] squDistances;
+
+	/**
+	 * The order in which entries were added, to break ties in distance.
+	 */
+	private int[] sequence;
+
+	private int count;
+
+	protected int size;
+
+	protected int maxSize;
+
+	NeighborBuffer( final int initialCapacity )
+	{
+		squDistances = new double[ initialCapacity ];
+		sequence = new int[ initialCapacity ];
+		maxSize = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Swap entries {@code i} and {@code j} of the neighbor array.
+	 */
+	protected abstract void swap( int i, int j );
+
+	/**
+	 * Grow the neighbor array to the given capacity.
+	 */
+	protected abstract void resize( int capacity );
+
+	/**
+	 * Remove all entries. If {@code maxSize < Integer.MAX_VALUE}, at most the
+	 * {@code maxSize} nearest entries are kept by subsequent {@link #add}s.
+	 */
+	void reset( final int maxSize )
+	{
+		assert maxSize > 0;
+		this.size = 0;
+		this.count = 0;
+		this.maxSize = maxSize;
+	}
+
+	boolean isBounded()
+	{
+		return maxSize != Integer.MAX_VALUE;
+	}
+
+	/**
+	 * The squared distance below which new entries are accepted.
+	 */
+	double squBound( final double squRadius )
+	{
+		return size == maxSize ? Math.min( squRadius, squDistances[ 0 ] ) : squRadius;
+	}
+
+	/**
+	 * Reserve a slot for a neighbor with the given squared distance. Returns
+	 * the slot, into which the caller must store the neighbor before calling
+	 * {@link #added(int)}, or {@code -1} if the neighbor is rejected.
+	 */
+	int add( final double squDistance )
+	{
+		if ( size < maxSize )
+		{
+			if ( size == squDistances.length )
+			{
+				final int capacity = ( int ) Math.min( ( long ) size << 1, Integer.MAX_VALUE - 8 );
+				squDistances = Arrays.copyOf( squDistances, capacity );
+				sequence = Arrays.copyOf( sequence, capacity );
+				resize( capacity );
+			}
+			squDistances[ size ] = squDistance;
+			sequence[ size ] = count++;
+			return size++;
+		}
+		else if ( squDistance < squDistances[ 0 ] )
+		{
+			// a later entry with equal distance would lose the tie
+			squDistances[ 0 ] = squDistance;
+			sequence[ 0 ] = count++;
+			return 0;
+		}
+		return -1;
+	}
+
+	/**
+	 * Restore the heap property after the neighbor has been stored into slot
+	 * {@code i} returned by {@link #add(double)}.
+	 */
+	void added( final int i )
+	{
+		if ( !isBounded() )
+			return;
+		if ( i == 0 )
+			siftDown( 0, size );
+		else
+			siftUp( i );
+	}
+
+	/**
+	 * Sort entries by increasing squared distance, and entries with equal
+	 * distance in the order they were added.
+	 */
+	void sort()
+	{
+		if ( isBounded() )
+		{
+			for ( int end = size - 1; end > 0; --end )
+			{
+				swap0( 0, end );
+				siftDown( 0, end );
+			}
+		}
+		else
+			quickSort( 0, size - 1 );
+	}
+
+	private void siftUp( int i )
+	{
+		while ( i > 0 )
+		{
+			final int parent = ( i - 1 ) >> 1;
+			if ( !less( parent, i ) )
+				break;
+			swap0( parent, i );
+			i = parent;
+		}
+	}
+
+	private void siftDown( int i, final int end )
+	{
+		while ( true )
+		{
+			int child = 2 * i + 1;
+			if ( child >= end )
+				break;
+			if ( child + 1 < end && less( child, child + 1 ) )
+				++child;
+			if ( !less( i, child ) )
+				break;
+			swap0( i, child );
+			i = child;
+		}
+	}
+
+	private void quickSort( int l, int r )
+	{
+		while ( r - l > 16 )
+		{
+			final int m = ( l + r ) >>> 1;
+			final double pivot = squDistances[ m ];
+			final int pivotSequence = sequence[ m ];
+			int i = l;
+			int j = r;
+			while ( i <= j )
+			{
+				while ( less( i, pivot, pivotSequence ) )
+					++i;
+				while ( less( pivot, pivotSequence, j ) )
+					--j;
+				if ( i <= j )
+					swap0( i++, j-- );
+			}
+			// recurse into the smaller partition
+			if ( j - l < r - i )
+			{
+				quickSort( l, j );
+				l = i;
+			}
+			else
+			{
+				quickSort( i, r );
+				r = j;
+			}
+		}
+		for ( int i = l + 1; i <= r; ++i )
+			for ( int j = i; j > l && less( j, j - 1 ); --j )
+				swap0( j, j - 1 );
+	}
+
+	/**
+	 * Whether entry {@code i} comes before entry {@code j}. No two entries
+	 * are equal, so any correct sort produces the same order.
+	 */
+	private boolean less( final int i, final int j )
+	{
+		return less( i, squDistances[ j ], sequence[ j ] );
+	}
+
+	private boolean less( final int i, final double squDistance, final int seq )
+	{
+		return squDistances[ i ] < squDistance || ( squDistances[ i ] == squDistance && sequence[ i ] < seq );
+	}
+
+	private boolean less( final double squDistance, final int seq, final int j )
+	{
+		return squDistance < squDistances[ j ] || ( squDistance == squDistances[ j ] && seq < sequence[ j ] );
+	}
+
+	private void swap0( final int i, final int j )
+	{
+		final double tmp = squDistances[ i ];
+		squDistances[ i ] = squDistances[ j ];
+		squDistances[ j ] = tmp;
+		final int tmpSequence = sequence[ i ];
+		sequence[ i ] = sequence[ j ];
+		sequence[ j ] = tmpSequence;
+		swap( i, j );
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+
+/**
+ * Splits a batch of queries into contiguous chunks which are processed using
+ * the {@link TaskExecutor} provided by {@link Parallelization}.
+ */
+final class QueryChunks
+{
+	/**
+	 * Batches smaller than this are not split.
+	 */
+	static final int MIN_CHUNK_SIZE = 1024;
+
+	interface Chunk
+	{
+		/**
+		 * Process queries {@code from} (inclusive) to {@code to} (exclusive).
+		 */
+		void run( int from, int to );
+	}
+
+	static void forEachChunk( final int numQueries, final Chunk chunk )
+	{
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final int numChunks = Math.max( 1, Math.min( taskExecutor.suggestNumberOfTasks(), numQueries / MIN_CHUNK_SIZE ) );
+		if ( numChunks == 1 )
+		{
+			chunk.run( 0, numQueries );
+			return;
+		}
+		final List< int[] > ranges = new ArrayList<>( numChunks );
+		for ( int i = 0; i < numChunks; ++i )
+			ranges.add( new int[] { ( int ) ( ( long ) numQueries * i / numChunks ), ( int ) ( ( long ) numQueries * ( i + 1 ) / numChunks ) } );
+		taskExecutor.forEach( ranges, range -> chunk.run( range[ 0 ], range[ 1 ] ) );
+	}
+
+	static int numQueries( final double[] queries, final int n )
+	{
+		if ( queries.length % n != 0 )
+			throw new IllegalArgumentException( "Length of query array (" + queries.length + ") is not a multiple of the number of dimensions (" + n + ")." );
+		return queries.length / n;
+	}
+
+	private QueryChunks()
+	{}
+}
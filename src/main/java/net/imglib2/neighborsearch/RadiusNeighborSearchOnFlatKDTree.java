@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.neighborsearch;
+
+import java.util.Arrays;
+
+import net.imglib2.FlatKDTree;
+import net.imglib2.RealLocalizable;
+import net.imglib2.Sampler;
+
+/**
+ * Implementation of {@link RadiusNeighborSearch} search for
+ * {@link FlatKDTree}s.
+ * <p>
+ * Results are kept in primitive arrays of node indices and squared distances
+ * which are reused between searches.
+ */
+public class RadiusNeighborSearchOnFlatKDTree< T > implements RadiusNeighborSearch< T >
+{
+	protected final FlatKDTree< T > tree;
+
+	protected final int n;
+
+	protected final double[] pos;
+
+	private final IndexBuffer results;
+
+	public RadiusNeighborSearchOnFlatKDTree( final FlatKDTree< T > tree )
+	{
+		this.tree = tree;
+		this.n = tree.numDimensions();
+		this.pos = new double[ n ];
+		this.results = new IndexBuffer();
+	}
+
+	@Override
+	public void search( final RealLocalizable reference, final double radius, final boolean sortResults )
+	{
+		search( reference, radius, Integer.MAX_VALUE, sortResults );
+	}
+
+	/**
+	 * Perform neighbor search within a radius about a reference coordinate,
+	 * keeping at most the {@code maxHits} nearest neighbors. If
+	 * {@code sortResults} is true, only these neighbors are sorted.
+	 *
+	 * @param reference
+	 *            the reference position
+	 * @param radius
+	 *            the radius around the reference position
+	 * @param maxHits
+	 *            maximum number of neighbors to find
+	 * @param sortResults
+	 *            whether the results should be ordered by ascending distance
+	 */
+	public void search( final RealLocalizable reference, final double radius, final int maxHits, final boolean sortResults )
+	{
+		assert radius >= 0;
+		reference.localize( pos );
+		results.reset( maxHits );
+		if ( tree.intSize() > 0 )
+			searchNode( 0, tree.intSize(), 0, radius * radius );
+		if ( sortResults )
+			results.sort();
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return n;
+	}
+
+	protected void searchNode( final int lo, final int hi, final int d, final double squRadius )
+	{
+		final int current = FlatKDTree.mid( lo, hi );
+
+		// consider the current node
+		final double squDistance = tree.squDistance( current, pos );
+		if ( squDistance <= results.squBound( squRadius ) )
+		{
+			final int i = results.add( squDistance );
+			if ( i >= 0 )
+			{
+				results.indices[ i ] = current;
+				results.added( i );
+			}
+		}
+
+		final double axisDiff = pos[ d ] - tree.getDoublePosition( current, d );
+		final double axisSquDistance = axisDiff * axisDiff;
+		final boolean leftIsNearBranch = axisDiff < 0;
+		final int dChild = ( d + 1 == n ) ? 0 : d + 1;
+
+		// search the near branch
+		final int nearLo = leftIsNearBranch ? lo : current + 1;
+		final int nearHi = leftIsNearBranch ? current : hi;
+		final int awayLo = leftIsNearBranch ? current + 1 : lo;
+		final int awayHi = leftIsNearBranch ? hi : current;
+		if ( nearLo < nearHi )
+			searchNode( nearLo, nearHi, dChild, squRadius );
+
+		// search the away branch - maybe
+		if ( ( axisSquDistance <= results.squBound( squRadius ) ) && ( awayLo < awayHi ) )
+			searchNode( awayLo, awayHi, dChild, squRadius );
+	}
+
+	@Override
+	public int numNeighbors()
+	{
+		return results.size;
+	}
+
+	/**
+	 * Get the index of the {@code i}-th neighbor in the tree.
+	 */
+	public int getIndex( final int i )
+	{
+		return results.indices[ i ];
+	}
+
+	@Override
+	public Sampler< T > getSampler( final int i )
+	{
+		return tree.getNode( results.indices[ i ] );
+	}
+
+	@Override
+	public RealLocalizable getPosition( final int i )
+	{
+		return tree.getNode( results.indices[ i ] );
+	}
+
+	@Override
+	public double getSquareDistance( final int i )
+	{
+		return results.squDistances[ i ];
+	}
+
+	@Override
+	public double getDistance( final int i )
+	{
+		return Math.sqrt( results.squDistances[ i ] );
+	}
+
+	private static final class IndexBuffer extends NeighborBuffer
+	{
+		private int[] indices;
+
+		IndexBuffer()
+		{
+			super( 16 );
+			indices = new int[ 16 ];
+		}
+
+		@Override
+		protected void swap( final int i, final int j )
+		{
+			final int tmp = indices[ i ];
+			indices[ i ] = indices[ j ];
+			indices[ j ] = tmp;
+		}
+
+		@Override
+		protected void resize( final int capacity )
+		{
+			indices = Arrays.copyOf( indices, capacity );
+		}
+	}
+}
@@ -34,18 +34,19 @@
 
 package net.imglib2.neighborsearch;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 
 import net.imglib2.KDTree;
 import net.imglib2.KDTreeNode;
 import net.imglib2.RealLocalizable;
 import net.imglib2.Sampler;
-import net.imglib2.util.ValuePair;
 
 /**
  * Implementation of {@link RadiusNeighborSearch} search for kd-trees.
+ * <p>
+ * Found nodes and their squared distances are kept in arrays which are reused
+ * between searches, so repeated searches do not allocate.
+ * </p>
  * 
  * @author Tobias Pietzsch
  */
@@ -57,34 +58,44 @@ public class RadiusNeighborSearchOnKDTree< T > implements RadiusNeighborSearch<
 
 	protected final double[] pos;
 
-	protected ArrayList< ValuePair< KDTreeNode< T >, Double > > resultPoints;
+	private final NodeBuffer results;
 
 	public RadiusNeighborSearchOnKDTree( final KDTree< T > tree )
 	{
 		this.tree = tree;
 		this.n = tree.numDimensions();
 		this.pos = new double[ n ];
-		this.resultPoints = new ArrayList< ValuePair< KDTreeNode< T >, Double > >();
+		this.results = new NodeBuffer();
 	}
 
 	@Override
 	public void search( final RealLocalizable reference, final double radius, final boolean sortResults )
+	{
+		search( reference, radius, Integer.MAX_VALUE, sortResults );
+	}
+
+	/**
+	 * Perform neighbor search within a radius about a reference coordinate,
+	 * keeping at most the {@code maxHits} nearest neighbors. If
+	 * {@code sortResults} is true, only these neighbors are sorted.
+	 *
+	 * @param reference
+	 *            the reference position
+	 * @param radius
+	 *            the radius around the reference position
+	 * @param maxHits
+	 *            maximum number of neighbors to find
+	 * @param sortResults
+	 *            whether the results should be ordered by ascending distance
+	 */
+	public void search( final RealLocalizable reference, final double radius, final int maxHits, final boolean sortResults )
 	{
 		assert radius >= 0;
 		reference.localize( pos );
-		resultPoints.clear();
+		results.reset( maxHits );
 		searchNode( tree.getRoot(), radius * radius );
 		if ( sortResults )
-		{
-			Collections.sort( resultPoints, new Comparator< ValuePair< KDTreeNode< T >, Double > >()
-			{
-				@Override
-				public int compare( final ValuePair< KDTreeNode< T >, Double > o1, final ValuePair< KDTreeNode< T >, Double > o2 )
-				{
-					return Double.compare( o1.b, o2.b );
-				}
-			} );
-		}
+			results.sort();
 	}
 
 	@Override
@@ -97,9 +108,14 @@ public class RadiusNeighborSearchOnKDTree< T > implements RadiusNeighborSearch<
 	{
 		// consider the current node
 		final double squDistance = current.squDistanceTo( pos );
-		if ( squDistance <= squRadius )
+		if ( squDistance <= results.squBound( squRadius ) )
 		{
-			resultPoints.add( new ValuePair< KDTreeNode< T >, Double >( current, squDistance ) );
+			final int i = results.add( squDistance );
+			if ( i >= 0 )
+			{
+				results.nodes[ i ] = current;
+				results.added( i );
+			}
 		}
 
 		final double axisDiff = pos[ current.getSplitDimension() ] - current.getSplitCoordinate();
@@ -113,37 +129,63 @@ public class RadiusNeighborSearchOnKDTree< T > implements RadiusNeighborSearch<
 			searchNode( nearChild, squRadius );
 
 		// search the away branch - maybe
-		if ( ( axisSquDistance <= squRadius ) && ( awayChild != null ) )
+		if ( ( axisSquDistance <= results.squBound( squRadius ) ) && ( awayChild != null ) )
 			searchNode( awayChild, squRadius );
 	}
 
 	@Override
 	public int numNeighbors()
 	{
-		return resultPoints.size();
+		return results.size;
 	}
 
 	@Override
 	public Sampler< T > getSampler( final int i )
 	{
-		return resultPoints.get( i ).a;
+		return results.nodes[ i ];
 	}
 
 	@Override
 	public RealLocalizable getPosition( final int i )
 	{
-		return resultPoints.get( i ).a;
+		return results.nodes[ i ];
 	}
 
 	@Override
 	public double getSquareDistance( final int i )
 	{
-		return resultPoints.get( i ).b;
+		return results.squDistances[ i ];
 	}
 
 	@Override
 	public double getDistance( final int i )
 	{
-		return Math.sqrt( resultPoints.get( i ).b );
+		return Math.sqrt( results.squDistances[ i ] );
+	}
+
+	private final class NodeBuffer extends NeighborBuffer
+	{
+		private KDTreeNode< T >[] nodes;
+
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		NodeBuffer()
+		{
+			super( 16 );
+			nodes = new KDTreeNode[ 16 ];
+		}
+
+		@Override
+		protected void swap( final int i, final int j )
+		{
+			final KDTreeNode< T > tmp = nodes[ i ];
+			nodes[ i ] = nodes[ j ];
+			nodes[ j ] = tmp;
+		}
+
+		@Override
+		protected void resize( final int capacity )
+		{
+			nodes = Arrays.copyOf( nodes, capacity );
+		}
 	}
 }
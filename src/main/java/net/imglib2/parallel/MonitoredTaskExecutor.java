@@ -0,0 +1,273 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TaskExecutor} that wraps around another {@link TaskExecutor}, for
+ * example a {@link DefaultTaskExecutor} with a {@link ForkJoinExecutorService},
+ * and adds cancellation and progress reporting.
+ * <p>
+ * Before a task is started, the {@link CancellationToken} is checked. Once it
+ * is cancelled, the remaining tasks are skipped, and a
+ * {@link CancellationException} is thrown. After each task, the
+ * {@link ProgressListener} is notified with one unit of work. The same holds
+ * for tasks submitted to {@link #getExecutorService()}, except that the
+ * listener is not told the number of tasks in advance.
+ *
+ * @see TaskExecutors#monitored(TaskExecutor, CancellationToken, ProgressListener)
+ */
+public class MonitoredTaskExecutor implements TaskExecutor
+{
+
+	private final TaskExecutor taskExecutor;
+
+	private final CancellationToken cancellationToken;
+
+	private final ProgressListener progressListener;
+
+	private final ExecutorService executorService;
+
+	/**
+	 * @param taskExecutor
+	 *            executes the tasks
+	 * @param cancellationToken
+	 *            checked before each task, may be null
+	 * @param progressListener
+	 *            notified about each task, may be null
+	 */
+	public MonitoredTaskExecutor( final TaskExecutor taskExecutor, final CancellationToken cancellationToken, final ProgressListener progressListener )
+	{
+		this.taskExecutor = taskExecutor;
+		this.cancellationToken = cancellationToken;
+		this.progressListener = progressListener;
+		this.executorService = new MonitoredExecutorService( taskExecutor.getExecutorService() );
+	}
+
+	public CancellationToken getCancellationToken()
+	{
+		return cancellationToken;
+	}
+
+	public ProgressListener getProgressListener()
+	{
+		return progressListener;
+	}
+
+	@Override
+	public int getParallelism()
+	{
+		return taskExecutor.getParallelism();
+	}
+
+	@Override
+	public int suggestNumberOfTasks()
+	{
+		return taskExecutor.suggestNumberOfTasks();
+	}
+
+	@Override
+	public void runAll( final List< Runnable > tasks )
+	{
+		started( tasks.size() );
+		final List< Runnable > monitored = new ArrayList<>( tasks.size() );
+		for ( Runnable task : tasks )
+			monitored.add( () -> monitor( () -> {
+				task.run();
+				return null;
+			} ) );
+		taskExecutor.runAll( monitored );
+	}
+
+	@Override
+	public < T > void forEach( final List< ? extends T > parameters, final Consumer< ? super T > task )
+	{
+		started( parameters.size() );
+		taskExecutor.forEach( parameters, parameter -> monitor( () -> {
+			task.accept( parameter );
+			return null;
+		} ) );
+	}
+
+	@Override
+	public < T, R > List< R > forEachApply( final List< ? extends T > parameters, final Function< ? super T, ? extends R > task )
+	{
+		started( parameters.size() );
+		return taskExecutor.forEachApply( parameters, parameter -> monitor( () -> task.apply( parameter ) ) );
+	}
+
+	/**
+	 * Returns an {@link ExecutorService} that runs tasks on the
+	 * {@link ExecutorService} of the wrapped {@link TaskExecutor}, with
+	 * cancellation and progress reporting. Futures of tasks that are skipped
+	 * because of cancellation complete with a {@link CancellationException}
+	 * as their cause.
+	 */
+	@Override
+	public ExecutorService getExecutorService()
+	{
+		return executorService;
+	}
+
+	@Override
+	public void close()
+	{
+		taskExecutor.close();
+	}
+
+	private void started( final long numTasks )
+	{
+		if ( cancellationToken != null )
+			cancellationToken.throwIfCancelled();
+		if ( progressListener != null )
+			progressListener.started( numTasks );
+	}
+
+	private < R > R monitor( final Supplier< R > task )
+	{
+		if ( cancellationToken != null )
+			cancellationToken.throwIfCancelled();
+		final long start = System.nanoTime();
+		final R result = task.get();
+		if ( progressListener != null )
+			progressListener.completed( 1, System.nanoTime() - start );
+		return result;
+	}
+
+	private class MonitoredExecutorService extends AbstractExecutorService
+	{
+
+		private final ExecutorService executorService;
+
+		MonitoredExecutorService( final ExecutorService executorService )
+		{
+			this.executorService = executorService;
+		}
+
+		@Override
+		protected < R > FutureTask< R > newTaskFor( final Runnable runnable, final R value )
+		{
+			return new MonitoredFuture<>( () -> {
+				runnable.run();
+				return value;
+			} );
+		}
+
+		@Override
+		protected < R > FutureTask< R > newTaskFor( final Callable< R > callable )
+		{
+			return new MonitoredFuture<>( callable );
+		}
+
+		@Override
+		public void execute( final Runnable command )
+		{
+			if ( command instanceof MonitoredFuture )
+				executorService.execute( command );
+			else
+				executorService.execute( () -> monitor( () -> {
+					command.run();
+					return null;
+				} ) );
+		}
+
+		@Override
+		public void shutdown()
+		{
+			executorService.shutdown();
+		}
+
+		@Override
+		public List< Runnable > shutdownNow()
+		{
+			return executorService.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown()
+		{
+			return executorService.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated()
+		{
+			return executorService.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination( final long timeout, final TimeUnit unit ) throws InterruptedException
+		{
+			return executorService.awaitTermination( timeout, unit );
+		}
+	}
+
+	private class MonitoredFuture< R > extends FutureTask< R >
+	{
+
+		MonitoredFuture( final Callable< R > callable )
+		{
+			// report progress before the future completes
+			super( () -> {
+				final long start = System.nanoTime();
+				final R result = callable.call();
+				if ( progressListener != null )
+					progressListener.completed( 1, System.nanoTime() - start );
+				return result;
+			} );
+		}
+
+		@Override
+		public void run()
+		{
+			if ( cancellationToken != null && cancellationToken.isCancelled() )
+			{
+				setException( new CancellationException() );
+				return;
+			}
+			super.run();
+		}
+	}
+}
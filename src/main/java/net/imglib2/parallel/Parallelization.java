@@ -146,6 +146,32 @@ public final class Parallelization
 		return runWithExecutor( TaskExecutors.multiThreaded(), action );
 	}
 
+	/**
+	 * To run an algorithm multi-threaded, with work-stealing load balancing,
+	 * use:
+	 * <p>
+	 * {@code Parallelization.runWorkStealing( () -> myAlgorithm( input ) );}
+	 *
+	 * @see TaskExecutors#workStealing()
+	 */
+	public static void runWorkStealing( Runnable action )
+	{
+		runWithExecutor( TaskExecutors.workStealing(), action );
+	}
+
+	/**
+	 * To run an algorithm multi-threaded, with work-stealing load balancing,
+	 * use:
+	 * <p>
+	 * {@code output = Parallelization.runWorkStealing( () -> myAlgorithm( input ) );}
+	 *
+	 * @see TaskExecutors#workStealing()
+	 */
+	public static < T > T runWorkStealing( Callable< T > action )
+	{
+		return runWithExecutor( TaskExecutors.workStealing(), action );
+	}
+
 	/**
 	 * To run an algorithm a given number of threads use:
 	 * <p>
@@ -172,6 +198,38 @@ public final class Parallelization
 		}
 	}
 
+	/**
+	 * To run an I/O-bound algorithm on virtual threads, with at most the
+	 * given number of concurrent tasks use:
+	 * <p>
+	 * {@code Parallelization.runWithVirtualThreads( maxConcurrentTasks, () -> myAlgorithm( input ) );}
+	 *
+	 * @see VirtualThreadTaskExecutor
+	 */
+	public static void runWithVirtualThreads( int maxConcurrentTasks, Runnable action )
+	{
+		try (TaskExecutor taskExecutor = TaskExecutors.virtualThreads( maxConcurrentTasks ))
+		{
+			runWithExecutor( taskExecutor, action );
+		}
+	}
+
+	/**
+	 * To run an I/O-bound algorithm on virtual threads, with at most the
+	 * given number of concurrent tasks use:
+	 * <p>
+	 * {@code output = Parallelization.runWithVirtualThreads( maxConcurrentTasks, () -> myAlgorithm( input ) );}
+	 *
+	 * @see VirtualThreadTaskExecutor
+	 */
+	public static < R > R runWithVirtualThreads( int maxConcurrentTasks, Callable< R > action )
+	{
+		try (TaskExecutor taskExecutor = TaskExecutors.virtualThreads( maxConcurrentTasks ))
+		{
+			return runWithExecutor( taskExecutor, action );
+		}
+	}
+
 	/**
 	 * Executes the given {@link Runnable} with the given {@link ExecutorService},
 	 * and waits for the execution to finish.
@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ProgressListener} that collects statistics: the amount of work
+ * done, the throughput, and the time each thread spent working.
+ * <p>
+ * All methods can be called while the computation is running.
+ */
+public class ProgressStatistics implements ProgressListener
+{
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAdder completed = new LongAdder();
+
+	private final LongAdder chunks = new LongAdder();
+
+	private final ConcurrentHashMap< String, LongAdder > threadNanos = new ConcurrentHashMap<>();
+
+	private final AtomicLong startNanos = new AtomicLong( Long.MIN_VALUE );
+
+	@Override
+	public void started( final long units )
+	{
+		startNanos.compareAndSet( Long.MIN_VALUE, System.nanoTime() );
+		total.add( units );
+	}
+
+	@Override
+	public void completed( final long units, final long nanos )
+	{
+		completed.add( units );
+		chunks.increment();
+		threadNanos.computeIfAbsent( Thread.currentThread().getName(), k -> new LongAdder() ).add( nanos );
+	}
+
+	/**
+	 * Get the number of units of work announced by
+	 * {@link #started(long)}.
+	 */
+	public long getTotal()
+	{
+		return total.sum();
+	}
+
+	/**
+	 * Get the number of units of work completed.
+	 */
+	public long getCompleted()
+	{
+		return completed.sum();
+	}
+
+	/**
+	 * Get the number of completed chunks.
+	 */
+	public long getCompletedChunks()
+	{
+		return chunks.sum();
+	}
+
+	/**
+	 * Get the fraction of work that is completed, between 0 and 1.
+	 */
+	public double getProgress()
+	{
+		final long t = getTotal();
+		return t == 0 ? 0 : Math.min( 1, ( double ) getCompleted() / t );
+	}
+
+	/**
+	 * Get the number of units of work completed per second, since the
+	 * computation was started.
+	 */
+	public double getThroughput()
+	{
+		final long start = startNanos.get();
+		if ( start == Long.MIN_VALUE )
+			return 0;
+		final long elapsed = System.nanoTime() - start;
+		return elapsed <= 0 ? 0 : getCompleted() * 1e9 / elapsed;
+	}
+
+	/**
+	 * Get the time in nanoseconds that each thread spent on completed chunks,
+	 * by thread name.
+	 */
+	public Map< String, Long > getThreadNanos()
+	{
+		final Map< String, Long > result = new HashMap<>();
+		threadNanos.forEach( ( thread, nanos ) -> result.put( thread, nanos.sum() ) );
+		return result;
+	}
+}
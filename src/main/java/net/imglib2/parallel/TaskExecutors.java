@@ -70,6 +70,36 @@ public final class TaskExecutors
 	private static final TaskExecutor FORK_JOIN_TASK_EXECUTOR =
 			new DefaultTaskExecutor( new ForkJoinExecutorService() );
 
+	/**
+	 * {@link TaskExecutor} for multi-threaded execution, that balances the
+	 * load by work-stealing. This performs better than
+	 * {@link #multiThreaded()} if the tasks have very different run times.
+	 * The {@link ForkJoinPool} of the calling thread, or the common
+	 * {@link ForkJoinPool} is used.
+	 *
+	 * @see WorkStealingTaskExecutor
+	 */
+	public static TaskExecutor workStealing()
+	{
+		return WORK_STEALING_TASK_EXECUTOR;
+	}
+
+	private static final TaskExecutor WORK_STEALING_TASK_EXECUTOR =
+			new WorkStealingTaskExecutor();
+
+	/**
+	 * {@link TaskExecutor} that balances the load by work-stealing, and uses
+	 * the given number or threads. The {@link TaskExecutor} needs to be closed
+	 * by calling {@link TaskExecutor#close()}.
+	 *
+	 * @see WorkStealingTaskExecutor
+	 */
+	public static TaskExecutor workStealing( int numThreads )
+	{
+		numThreads = Math.max( 1, numThreads );
+		return new WorkStealingTaskExecutor( new ForkJoinPool( numThreads ) );
+	}
+
 	/**
 	 * {@link TaskExecutor} that uses the given number or threads.
 	 * The {@link TaskExecutor} needs to be closed by calling {@link TaskExecutor#close()}.
@@ -120,6 +150,19 @@ public final class TaskExecutors
 		};
 	}
 
+	/**
+	 * Returns a {@link TaskExecutor} that executes tasks with the given
+	 * {@link TaskExecutor}, but checks the {@link CancellationToken} before
+	 * each task and reports each completed task to the
+	 * {@link ProgressListener}. Both may be null.
+	 *
+	 * @see MonitoredTaskExecutor
+	 */
+	public static TaskExecutor monitored( TaskExecutor taskExecutor, CancellationToken cancellationToken, ProgressListener progressListener )
+	{
+		return new MonitoredTaskExecutor( taskExecutor, cancellationToken, progressListener );
+	}
+
 	/**
 	 * Returns a {@link TaskExecutor} that uses a fixed thread pool with the
 	 * given number of threads.
@@ -130,6 +173,21 @@ public final class TaskExecutors
 		return forExecutorService( Executors.newFixedThreadPool( numThreads, threadFactory ) );
 	}
 
+	/**
+	 * Returns a {@link TaskExecutor} for I/O-bound tasks, that runs each task
+	 * on its own virtual thread (or platform thread before Java 21), with at
+	 * most {@code maxConcurrentTasks} tasks using the CPU at the same time.
+	 * Tasks that block on I/O in a {@link VirtualThreadTaskExecutor#blocking()}
+	 * section don't count towards the limit.
+	 * The {@link TaskExecutor} needs to be closed by calling {@link TaskExecutor#close()}.
+	 *
+	 * @see VirtualThreadTaskExecutor
+	 */
+	public static TaskExecutor virtualThreads( int maxConcurrentTasks )
+	{
+		return new VirtualThreadTaskExecutor( maxConcurrentTasks );
+	}
+
 	/**
 	 * Returns a {@link TaskExecutor} that uses a fixed thread pool with the
 	 * given number of threads. But that's not the end of the story.
@@ -0,0 +1,251 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TaskExecutor} for I/O-bound tasks, for example loops over a
+ * {@link net.imglib2.img.cell.LazyCellImg} whose cells are loaded from disk.
+ * Every task runs on its own thread, so tasks that block on I/O don't keep
+ * other tasks from running.
+ * <p>
+ * A {@link Semaphore} limits the number of tasks that use the CPU at the same
+ * time. A task holds one of {@code maxConcurrentTasks} permits while it runs,
+ * except within a {@link #blocking()} section, which hands the permit to
+ * another task until the blocking I/O is done. Loaders like
+ * {@link net.imglib2.img.cell.cache.DiskCellCache} read in such sections.
+ * Work is split into {@link #suggestNumberOfTasks() many more tasks} than
+ * permits, so that there are tasks to run while others wait for I/O. Without
+ * {@link #blocking()} sections, {@code maxConcurrentTasks} simply caps the
+ * number of running tasks, like a fixed thread pool.
+ * <p>
+ * On Java 21 and later, virtual threads are used, which makes it cheap to
+ * run thousands of tasks concurrently. On older Java versions, platform
+ * threads from a cached thread pool are used instead. The library itself
+ * targets Java 8, so virtual threads are created by reflection.
+ * <p>
+ * Within the tasks, {@link Parallelization#getTaskExecutor()} returns a
+ * single-threaded {@link TaskExecutor}, such that nested algorithms don't
+ * multiply the number of threads.
+ */
+public class VirtualThreadTaskExecutor extends DefaultTaskExecutor
+{
+
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+	/**
+	 * Number of tasks suggested per permit.
+	 */
+	private static final int TASKS_PER_PERMIT = 16;
+
+	/**
+	 * The permits held by the task running on the current thread.
+	 */
+	private static final ThreadLocal< Semaphore > HELD = new ThreadLocal<>();
+
+	private final Semaphore permits;
+
+	private final int maxConcurrentTasks;
+
+	/**
+	 * Create a {@link TaskExecutor} that runs at most
+	 * {@code maxConcurrentTasks} tasks at the same time. The
+	 * {@link TaskExecutor} needs to be closed by calling {@link #close()}.
+	 */
+	public VirtualThreadTaskExecutor( final int maxConcurrentTasks )
+	{
+		super( newExecutorService() );
+		this.maxConcurrentTasks = Math.max( 1, maxConcurrentTasks );
+		this.permits = new Semaphore( this.maxConcurrentTasks );
+	}
+
+	/**
+	 * Returns true if virtual threads are available, i.e. if running on Java
+	 * 21 or later.
+	 */
+	public static boolean isVirtual()
+	{
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	@Override
+	public int getParallelism()
+	{
+		return maxConcurrentTasks;
+	}
+
+	@Override
+	public int suggestNumberOfTasks()
+	{
+		return ( int ) Math.min( ( long ) maxConcurrentTasks * TASKS_PER_PERMIT, ( long ) Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Release the permit of the task running on the current thread until the
+	 * returned {@link Blocking} is closed, such that another task can use the
+	 * CPU while this one blocks on I/O. Does nothing if the current thread is
+	 * not running a task of a {@link VirtualThreadTaskExecutor}.
+	 *
+	 * <pre>
+	 * {@code
+	 * try ( VirtualThreadTaskExecutor.Blocking blocking = VirtualThreadTaskExecutor.blocking() )
+	 * {
+	 *     readBlock( ... );
+	 * }
+	 * }
+	 * </pre>
+	 */
+	public static Blocking blocking()
+	{
+		final Semaphore permits = HELD.get();
+		if ( permits == null )
+			return Blocking.NONE;
+		HELD.remove();
+		permits.release();
+		return new Blocking( permits );
+	}
+
+	/**
+	 * A section of a task that blocks on I/O, see {@link #blocking()}.
+	 */
+	public static final class Blocking implements AutoCloseable
+	{
+		private static final Blocking NONE = new Blocking( null );
+
+		private Semaphore permits;
+
+		private Blocking( final Semaphore permits )
+		{
+			this.permits = permits;
+		}
+
+		/**
+		 * Wait for a permit to continue the task.
+		 */
+		@Override
+		public void close()
+		{
+			if ( permits == null )
+				return;
+			permits.acquireUninterruptibly();
+			HELD.set( permits );
+			permits = null;
+		}
+	}
+
+	@Override
+	public void runAll( final List< Runnable > tasks )
+	{
+		final List< Runnable > limited = new ArrayList<>( tasks.size() );
+		for ( Runnable task : tasks )
+			limited.add( () -> withPermit( () -> {
+				task.run();
+				return null;
+			} ) );
+		super.runAll( limited );
+	}
+
+	@Override
+	public < T > void forEach( final List< ? extends T > parameters, final Consumer< ? super T > task )
+	{
+		super.forEach( parameters, parameter -> withPermit( () -> {
+			task.accept( parameter );
+			return null;
+		} ) );
+	}
+
+	@Override
+	public < T, R > List< R > forEachApply( final List< ? extends T > parameters, final Function< ? super T, ? extends R > task )
+	{
+		return super.forEachApply( parameters, parameter -> withPermit( () -> task.apply( parameter ) ) );
+	}
+
+	private < R > R withPermit( final Supplier< R > task )
+	{
+		final Semaphore outer = HELD.get();
+		permits.acquireUninterruptibly();
+		HELD.set( permits );
+		try
+		{
+			return task.get();
+		}
+		finally
+		{
+			HELD.set( outer );
+			permits.release();
+		}
+	}
+
+	private static ExecutorService newExecutorService()
+	{
+		final ThreadFactory threadFactory = VIRTUAL_THREAD_FACTORY != null ? VIRTUAL_THREAD_FACTORY : Executors.defaultThreadFactory();
+		final ThreadFactory singleThreaded = TaskExecutors.applyTaskExecutorToThreadFactory( TaskExecutors::singleThreaded, threadFactory );
+		if ( VIRTUAL_THREAD_FACTORY != null )
+		{
+			try
+			{
+				return ( ExecutorService ) Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class ).invoke( null, singleThreaded );
+			}
+			catch ( final ReflectiveOperationException e )
+			{
+				// fall through to cached thread pool
+			}
+		}
+		return Executors.newCachedThreadPool( singleThreaded );
+	}
+
+	private static ThreadFactory virtualThreadFactory()
+	{
+		try
+		{
+			final Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+			return ( ThreadFactory ) Class.forName( "java.lang.Thread$Builder" ).getMethod( "factory" ).invoke( builder );
+		}
+		catch ( final ReflectiveOperationException | RuntimeException e )
+		{
+			// virtual threads are not available (before Java 21, or preview
+			// features are not enabled)
+			return null;
+		}
+	}
+}
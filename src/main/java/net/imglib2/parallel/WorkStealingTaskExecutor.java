@@ -0,0 +1,226 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * A {@link TaskExecutor} that distributes tasks by work-stealing in a
+ * {@link ForkJoinPool}.
+ * <p>
+ * {@link DefaultTaskExecutor} hands a fixed list of tasks to the
+ * {@link ExecutorService}. If some tasks take much longer than others, e.g.
+ * because they need to load a cell from disk, the remaining threads run out of
+ * work while the slow tasks finish. This {@link TaskExecutor} instead
+ * {@link #suggestNumberOfTasks() suggests} many small tasks, and splits the
+ * list of tasks recursively, only as long as there are idle threads that
+ * could steal the split off part. Idle threads steal from the threads that
+ * are still busy, which keeps all threads working until the end.
+ * <p>
+ * The {@link ForkJoinPool} is either given, or it is the pool of the
+ * calling thread, or the {@link ForkJoinPool#commonPool() common pool}.
+ */
+public class WorkStealingTaskExecutor implements TaskExecutor
+{
+
+	/**
+	 * Factor by which {@link #suggestNumberOfTasks()} exceeds the
+	 * parallelism.
+	 */
+	private static final int OVER_DECOMPOSITION = 16;
+
+	/**
+	 * A range of tasks is split as long as no more than this number of
+	 * forked tasks are waiting to be stolen.
+	 */
+	private static final int SURPLUS_THRESHOLD = 2;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create a {@link TaskExecutor} that uses the {@link ForkJoinPool} of the
+	 * calling thread, or the {@link ForkJoinPool#commonPool() common pool}.
+	 */
+	public WorkStealingTaskExecutor()
+	{
+		this( null );
+	}
+
+	/**
+	 * Create a {@link TaskExecutor} that uses the given {@link ForkJoinPool}.
+	 * {@link #close()} shuts the pool down.
+	 */
+	public WorkStealingTaskExecutor( final ForkJoinPool pool )
+	{
+		this.pool = pool;
+	}
+
+	@Override
+	public ExecutorService getExecutorService()
+	{
+		return pool != null ? pool : new ForkJoinExecutorService();
+	}
+
+	@Override
+	public int getParallelism()
+	{
+		return getPool().getParallelism();
+	}
+
+	@Override
+	public int suggestNumberOfTasks()
+	{
+		int parallelism = getParallelism();
+		return ( parallelism == 1 ) ? 1 : ( int ) Math.min( ( long ) parallelism * OVER_DECOMPOSITION, ( long ) Integer.MAX_VALUE );
+	}
+
+	@Override
+	public void runAll( final List< Runnable > tasks )
+	{
+		run( tasks.size(), i -> tasks.get( i ).run() );
+	}
+
+	@Override
+	public < T > void forEach( final List< ? extends T > parameters, final Consumer< ? super T > task )
+	{
+		run( parameters.size(), i -> task.accept( parameters.get( i ) ) );
+	}
+
+	@Override
+	public < T, R > List< R > forEachApply( final List< ? extends T > parameters, final Function< ? super T, ? extends R > task )
+	{
+		final Object[] results = new Object[ parameters.size() ];
+		run( parameters.size(), i -> results[ i ] = task.apply( parameters.get( i ) ) );
+		@SuppressWarnings( "unchecked" )
+		final List< R > list = ( List< R > ) Arrays.asList( results );
+		return new ArrayList<>( list );
+	}
+
+	@Override
+	public void close()
+	{
+		if ( pool != null )
+			pool.shutdown();
+	}
+
+	private ForkJoinPool getPool()
+	{
+		if ( pool != null )
+			return pool;
+		final ForkJoinPool current = ForkJoinTask.getPool();
+		return current != null ? current : ForkJoinPool.commonPool();
+	}
+
+	private void run( final int numTasks, final IntConsumer body )
+	{
+		if ( numTasks == 0 )
+			return;
+		if ( numTasks == 1 )
+		{
+			body.accept( 0 );
+			return;
+		}
+		final RangeAction root = new RangeAction( body, 0, numTasks, null );
+		final ForkJoinPool target = getPool();
+		if ( ForkJoinTask.getPool() == target )
+			root.invoke();
+		else
+			target.invoke( root );
+	}
+
+	/**
+	 * Executes the tasks {@code lo} to {@code hi - 1}, one after the other.
+	 * Before each task, the upper half of the remaining range is forked, as
+	 * long as there are few forked tasks waiting to be stolen. Finally the
+	 * forked halves are executed directly, if they have not been stolen, or
+	 * joined.
+	 */
+	private static final class RangeAction extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final IntConsumer body;
+
+		private final int lo;
+
+		private final int hi;
+
+		private final RangeAction next;
+
+		RangeAction( final IntConsumer body, final int lo, final int hi, final RangeAction next )
+		{
+			this.body = body;
+			this.lo = lo;
+			this.hi = hi;
+			this.next = next;
+		}
+
+		@Override
+		protected void compute()
+		{
+			int l = lo;
+			int h = hi;
+			RangeAction forked = null;
+			while ( l < h )
+			{
+				// check before each task, as threads may have become idle
+				while ( h - l > 1 && getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD )
+				{
+					final int mid = ( l + h ) >>> 1;
+					forked = new RangeAction( body, mid, h, forked );
+					forked.fork();
+					h = mid;
+				}
+				body.accept( l++ );
+			}
+			while ( forked != null )
+			{
+				if ( forked.tryUnfork() )
+					forked.compute();
+				else
+					forked.join();
+				forked = forked.next;
+			}
+		}
+	}
+}
@@ -36,6 +36,7 @@
 package net.imglib2.type;
 
 import net.imglib2.img.NativeImg;
+import net.imglib2.img.basictypeaccess.AtomicLongAccess;
 import net.imglib2.img.basictypeaccess.LongAccess;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 
@@ -138,6 +139,22 @@ public abstract class AbstractBit64Type< T extends AbstractBit64Type< T > > exte
 		final int i1 = (int)(k >>> 6); // k / 64;
 		final long shift = k & 63; // Same as k % 64;
 		final long safeValue = value & mask;
+		if ( dataAccess instanceof AtomicLongAccess ) {
+			final AtomicLongAccess atomicAccess = ( AtomicLongAccess ) dataAccess;
+			if (0 == shift) {
+				atomicAccess.updateValue(i1, invMask, safeValue);
+			} else {
+				final long antiShift = 64 - shift;
+				if (antiShift < nBits) {
+					// Number split between two adjacent longs, update each of them
+					atomicAccess.updateValue(i1, 0xffffffffffffffffL >>> antiShift, (safeValue & (mask >>> (nBits - antiShift))) << shift);
+					atomicAccess.updateValue(i1 + 1, 0xffffffffffffffffL << (nBits - antiShift), safeValue >>> antiShift);
+				} else {
+					atomicAccess.updateValue(i1, ~(mask << shift), safeValue << shift);
+				}
+			}
+			return;
+		}
 		synchronized ( dataAccess ) {
 			if (0 == shift) {
 				// Number contained in a single long, ending exactly at the first bit
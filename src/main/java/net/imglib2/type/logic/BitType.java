@@ -37,6 +37,7 @@ package net.imglib2.type.logic;
 import java.math.BigInteger;
 
 import net.imglib2.img.NativeImg;
+import net.imglib2.img.basictypeaccess.AtomicLongAccess;
 import net.imglib2.img.basictypeaccess.LongAccess;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.type.BooleanType;
@@ -127,6 +128,11 @@ public class BitType extends AbstractIntegerType< BitType > implements BooleanTy
 		// Same as above, minus one multiplication, plus one shift to multiply the reminder by 2
 		final int i1 = i >>> 6; // Same as i / 64
 		final long bit = 1l << (i & 63);
+		if ( dataAccess instanceof AtomicLongAccess )
+		{
+			( ( AtomicLongAccess ) dataAccess ).updateValue( i1, ~bit, value ? bit : 0 );
+			return;
+		}
 		synchronized ( dataAccess )
 		{
 			// Clear or set the bit
@@ -35,6 +35,7 @@
 package net.imglib2.type.numeric.integer;
 
 import net.imglib2.img.NativeImg;
+import net.imglib2.img.basictypeaccess.AtomicLongAccess;
 import net.imglib2.img.basictypeaccess.LongAccess;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.type.NativeTypeFactory;
@@ -128,6 +129,20 @@ public class Unsigned12BitType extends AbstractIntegerBitType< Unsigned12BitType
 
 		final long antiShift = 64 - shift;
 
+		if ( dataAccess instanceof AtomicLongAccess )
+		{
+			final AtomicLongAccess atomicAccess = ( AtomicLongAccess ) dataAccess;
+			if ( antiShift < 12 )
+			{
+				// Number split between two adjacent longs, update each of them
+				atomicAccess.updateValue( i1, 0xffffffffffffffffL >>> antiShift, ( safeValue & ( mask >>> ( 12 - antiShift ) ) ) << shift );
+				atomicAccess.updateValue( i1 + 1, 0xffffffffffffffffL << ( 12 - antiShift ), safeValue >>> antiShift );
+			}
+			else
+				atomicAccess.updateValue( i1, ~( mask << shift ), safeValue << shift );
+			return;
+		}
+
 		synchronized ( dataAccess )
 		{
 			final long v = dataAccess.getValue( i1 );
@@ -35,6 +35,7 @@
 package net.imglib2.type.numeric.integer;
 
 import net.imglib2.img.NativeImg;
+import net.imglib2.img.basictypeaccess.AtomicLongAccess;
 import net.imglib2.img.basictypeaccess.LongAccess;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.type.NativeTypeFactory;
@@ -123,6 +124,11 @@ public class Unsigned2BitType extends AbstractIntegerBitType< Unsigned2BitType >
 
 		final long bitsToRetain = ~( mask << shift );
 		final long bitsToSet = ( value & mask ) << shift;
+		if ( dataAccess instanceof AtomicLongAccess )
+		{
+			( ( AtomicLongAccess ) dataAccess ).updateValue( i1, bitsToRetain, bitsToSet );
+			return;
+		}
 		synchronized ( dataAccess )
 		{
 			dataAccess.setValue( i1, ( dataAccess.getValue( i1 ) & bitsToRetain ) | bitsToSet );
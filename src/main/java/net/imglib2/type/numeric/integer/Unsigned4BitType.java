@@ -35,6 +35,7 @@
 package net.imglib2.type.numeric.integer;
 
 import net.imglib2.img.NativeImg;
+import net.imglib2.img.basictypeaccess.AtomicLongAccess;
 import net.imglib2.img.basictypeaccess.LongAccess;
 import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.type.NativeTypeFactory;
@@ -115,6 +116,11 @@ public class Unsigned4BitType extends AbstractIntegerBitType< Unsigned4BitType >
 
 		final long bitsToRetain = ~( mask << shift );
 		final long bitsToSet = ( value & mask ) << shift;
+		if ( dataAccess instanceof AtomicLongAccess )
+		{
+			( ( AtomicLongAccess ) dataAccess ).updateValue( i1, bitsToRetain, bitsToSet );
+			return;
+		}
 		synchronized ( dataAccess )
 		{
 			dataAccess.setValue( i1, ( dataAccess.getValue( i1 ) & bitsToRetain ) | bitsToSet );
@@ -36,6 +36,7 @@ package net.imglib2.util;
 
 import static net.imglib2.util.Partition.partitionSubList;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.ListIterator;
@@ -870,4 +871,1132 @@ public class KthElement
 				return;
 		}
 	}
+
+	/**
+	 * Partition a subarray of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}, and elements between two such positions are larger or equal
+	 * than the lower and smaller or equal than the upper k-th element. This
+	 * selects all order statistics in a single recursive partitioning pass,
+	 * which is cheaper than calling {@link #kthElement(int, int, int, byte[])}
+	 * for each {@code k}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int i, final int j, final int[] ks, final byte[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElements( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Partition an array of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}. See {@link #kthElements(int, int, int[], byte[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int[] ks, final byte[] values )
+	{
+		kthElements( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int, int, int[], byte[])}, but large
+	 * subarrays are partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, byte, boolean, byte[])}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int i, final int j, final int[] ks, final byte[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElementsParallel( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int[], byte[])}, but large arrays are
+	 * partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, byte, boolean, byte[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int[] ks, final byte[] values )
+	{
+		kthElementsParallel( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Select {@code ks[kFrom], ..., ks[kTo-1]} (sorted, within
+	 * {@code [i,j]}).
+	 */
+	private static void kthElements( int i, int j, final int[] ks, int kFrom, int kTo, final byte[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			medianOfThreeToEnd( i, j, values );
+			final int p = partitionSubList( i, j, values );
+			final int e = p == i ? partitionSubList( p + 1, j, values[ p ], true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			// recurse into the side with fewer indices to bound the depth
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElements( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElements( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	private static void kthElementsParallel( int i, int j, final int[] ks, int kFrom, int kTo, final byte[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			if ( j - i < 2 * PartitionChunks.MIN_CHUNK_SIZE )
+			{
+				kthElements( i, j, ks, kFrom, kTo, values );
+				return;
+			}
+
+			medianOfThreeToEnd( i, j, values );
+			final byte pivot = values[ j ];
+			final int p = Partition.partitionSubListParallel( i, j - 1, pivot, false, values );
+			values[ j ] = values[ p ];
+			values[ p ] = pivot;
+			final int e = p == i ? Partition.partitionSubListParallel( p + 1, j, pivot, true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElementsParallel( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElementsParallel( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	/**
+	 * Move the median of the first, middle, and last element of {@code [i,j]}
+	 * to position {@code j}, where it is used as the pivot.
+	 */
+	private static void medianOfThreeToEnd( final int i, final int j, final byte[] values )
+	{
+		final int m = ( i + j ) >>> 1;
+		final byte a = values[ i ], b = values[ m ], c = values[ j ];
+		final int median = ( a < b )
+				? ( b < c ? m : ( a < c ? j : i ) )
+				: ( a < c ? i : ( b < c ? j : m ) );
+		values[ j ] = values[ median ];
+		values[ median ] = c;
+	}
+
+	/**
+	 * Partition a subarray of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}, and elements between two such positions are larger or equal
+	 * than the lower and smaller or equal than the upper k-th element. This
+	 * selects all order statistics in a single recursive partitioning pass,
+	 * which is cheaper than calling {@link #kthElement(int, int, int, short[])}
+	 * for each {@code k}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int i, final int j, final int[] ks, final short[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElements( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Partition an array of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}. See {@link #kthElements(int, int, int[], short[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int[] ks, final short[] values )
+	{
+		kthElements( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int, int, int[], short[])}, but large
+	 * subarrays are partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, short, boolean, short[])}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int i, final int j, final int[] ks, final short[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElementsParallel( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int[], short[])}, but large arrays are
+	 * partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, short, boolean, short[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int[] ks, final short[] values )
+	{
+		kthElementsParallel( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Select {@code ks[kFrom], ..., ks[kTo-1]} (sorted, within
+	 * {@code [i,j]}).
+	 */
+	private static void kthElements( int i, int j, final int[] ks, int kFrom, int kTo, final short[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			medianOfThreeToEnd( i, j, values );
+			final int p = partitionSubList( i, j, values );
+			final int e = p == i ? partitionSubList( p + 1, j, values[ p ], true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			// recurse into the side with fewer indices to bound the depth
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElements( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElements( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	private static void kthElementsParallel( int i, int j, final int[] ks, int kFrom, int kTo, final short[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			if ( j - i < 2 * PartitionChunks.MIN_CHUNK_SIZE )
+			{
+				kthElements( i, j, ks, kFrom, kTo, values );
+				return;
+			}
+
+			medianOfThreeToEnd( i, j, values );
+			final short pivot = values[ j ];
+			final int p = Partition.partitionSubListParallel( i, j - 1, pivot, false, values );
+			values[ j ] = values[ p ];
+			values[ p ] = pivot;
+			final int e = p == i ? Partition.partitionSubListParallel( p + 1, j, pivot, true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElementsParallel( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElementsParallel( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	/**
+	 * Move the median of the first, middle, and last element of {@code [i,j]}
+	 * to position {@code j}, where it is used as the pivot.
+	 */
+	private static void medianOfThreeToEnd( final int i, final int j, final short[] values )
+	{
+		final int m = ( i + j ) >>> 1;
+		final short a = values[ i ], b = values[ m ], c = values[ j ];
+		final int median = ( a < b )
+				? ( b < c ? m : ( a < c ? j : i ) )
+				: ( a < c ? i : ( b < c ? j : m ) );
+		values[ j ] = values[ median ];
+		values[ median ] = c;
+	}
+
+	/**
+	 * Partition a subarray of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}, and elements between two such positions are larger or equal
+	 * than the lower and smaller or equal than the upper k-th element. This
+	 * selects all order statistics in a single recursive partitioning pass,
+	 * which is cheaper than calling {@link #kthElement(int, int, int, int[])}
+	 * for each {@code k}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int i, final int j, final int[] ks, final int[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElements( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Partition an array of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}. See {@link #kthElements(int, int, int[], int[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int[] ks, final int[] values )
+	{
+		kthElements( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int, int, int[], int[])}, but large
+	 * subarrays are partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, int, boolean, int[])}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int i, final int j, final int[] ks, final int[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElementsParallel( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int[], int[])}, but large arrays are
+	 * partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, int, boolean, int[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int[] ks, final int[] values )
+	{
+		kthElementsParallel( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Select {@code ks[kFrom], ..., ks[kTo-1]} (sorted, within
+	 * {@code [i,j]}).
+	 */
+	private static void kthElements( int i, int j, final int[] ks, int kFrom, int kTo, final int[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			medianOfThreeToEnd( i, j, values );
+			final int p = partitionSubList( i, j, values );
+			final int e = p == i ? partitionSubList( p + 1, j, values[ p ], true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			// recurse into the side with fewer indices to bound the depth
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElements( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElements( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	private static void kthElementsParallel( int i, int j, final int[] ks, int kFrom, int kTo, final int[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			if ( j - i < 2 * PartitionChunks.MIN_CHUNK_SIZE )
+			{
+				kthElements( i, j, ks, kFrom, kTo, values );
+				return;
+			}
+
+			medianOfThreeToEnd( i, j, values );
+			final int pivot = values[ j ];
+			final int p = Partition.partitionSubListParallel( i, j - 1, pivot, false, values );
+			values[ j ] = values[ p ];
+			values[ p ] = pivot;
+			final int e = p == i ? Partition.partitionSubListParallel( p + 1, j, pivot, true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElementsParallel( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElementsParallel( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	/**
+	 * Move the median of the first, middle, and last element of {@code [i,j]}
+	 * to position {@code j}, where it is used as the pivot.
+	 */
+	private static void medianOfThreeToEnd( final int i, final int j, final int[] values )
+	{
+		final int m = ( i + j ) >>> 1;
+		final int a = values[ i ], b = values[ m ], c = values[ j ];
+		final int median = ( a < b )
+				? ( b < c ? m : ( a < c ? j : i ) )
+				: ( a < c ? i : ( b < c ? j : m ) );
+		values[ j ] = values[ median ];
+		values[ median ] = c;
+	}
+
+	/**
+	 * Partition a subarray of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}, and elements between two such positions are larger or equal
+	 * than the lower and smaller or equal than the upper k-th element. This
+	 * selects all order statistics in a single recursive partitioning pass,
+	 * which is cheaper than calling {@link #kthElement(int, int, int, long[])}
+	 * for each {@code k}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int i, final int j, final int[] ks, final long[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElements( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Partition an array of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}. See {@link #kthElements(int, int, int[], long[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int[] ks, final long[] values )
+	{
+		kthElements( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int, int, int[], long[])}, but large
+	 * subarrays are partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, long, boolean, long[])}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int i, final int j, final int[] ks, final long[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElementsParallel( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int[], long[])}, but large arrays are
+	 * partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, long, boolean, long[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int[] ks, final long[] values )
+	{
+		kthElementsParallel( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Select {@code ks[kFrom], ..., ks[kTo-1]} (sorted, within
+	 * {@code [i,j]}).
+	 */
+	private static void kthElements( int i, int j, final int[] ks, int kFrom, int kTo, final long[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			medianOfThreeToEnd( i, j, values );
+			final int p = partitionSubList( i, j, values );
+			final int e = p == i ? partitionSubList( p + 1, j, values[ p ], true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			// recurse into the side with fewer indices to bound the depth
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElements( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElements( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	private static void kthElementsParallel( int i, int j, final int[] ks, int kFrom, int kTo, final long[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			if ( j - i < 2 * PartitionChunks.MIN_CHUNK_SIZE )
+			{
+				kthElements( i, j, ks, kFrom, kTo, values );
+				return;
+			}
+
+			medianOfThreeToEnd( i, j, values );
+			final long pivot = values[ j ];
+			final int p = Partition.partitionSubListParallel( i, j - 1, pivot, false, values );
+			values[ j ] = values[ p ];
+			values[ p ] = pivot;
+			final int e = p == i ? Partition.partitionSubListParallel( p + 1, j, pivot, true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElementsParallel( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElementsParallel( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	/**
+	 * Move the median of the first, middle, and last element of {@code [i,j]}
+	 * to position {@code j}, where it is used as the pivot.
+	 */
+	private static void medianOfThreeToEnd( final int i, final int j, final long[] values )
+	{
+		final int m = ( i + j ) >>> 1;
+		final long a = values[ i ], b = values[ m ], c = values[ j ];
+		final int median = ( a < b )
+				? ( b < c ? m : ( a < c ? j : i ) )
+				: ( a < c ? i : ( b < c ? j : m ) );
+		values[ j ] = values[ median ];
+		values[ median ] = c;
+	}
+
+	/**
+	 * Partition a subarray of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}, and elements between two such positions are larger or equal
+	 * than the lower and smaller or equal than the upper k-th element. This
+	 * selects all order statistics in a single recursive partitioning pass,
+	 * which is cheaper than calling {@link #kthElement(int, int, int, float[])}
+	 * for each {@code k}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int i, final int j, final int[] ks, final float[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElements( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Partition an array of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}. See {@link #kthElements(int, int, int[], float[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int[] ks, final float[] values )
+	{
+		kthElements( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int, int, int[], float[])}, but large
+	 * subarrays are partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, float, boolean, float[])}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int i, final int j, final int[] ks, final float[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElementsParallel( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int[], float[])}, but large arrays are
+	 * partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, float, boolean, float[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int[] ks, final float[] values )
+	{
+		kthElementsParallel( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Select {@code ks[kFrom], ..., ks[kTo-1]} (sorted, within
+	 * {@code [i,j]}).
+	 */
+	private static void kthElements( int i, int j, final int[] ks, int kFrom, int kTo, final float[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			medianOfThreeToEnd( i, j, values );
+			final int p = partitionSubList( i, j, values );
+			final int e = p == i ? partitionSubList( p + 1, j, values[ p ], true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			// recurse into the side with fewer indices to bound the depth
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElements( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElements( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	private static void kthElementsParallel( int i, int j, final int[] ks, int kFrom, int kTo, final float[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			if ( j - i < 2 * PartitionChunks.MIN_CHUNK_SIZE )
+			{
+				kthElements( i, j, ks, kFrom, kTo, values );
+				return;
+			}
+
+			medianOfThreeToEnd( i, j, values );
+			final float pivot = values[ j ];
+			final int p = Partition.partitionSubListParallel( i, j - 1, pivot, false, values );
+			values[ j ] = values[ p ];
+			values[ p ] = pivot;
+			final int e = p == i ? Partition.partitionSubListParallel( p + 1, j, pivot, true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElementsParallel( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElementsParallel( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	/**
+	 * Move the median of the first, middle, and last element of {@code [i,j]}
+	 * to position {@code j}, where it is used as the pivot.
+	 */
+	private static void medianOfThreeToEnd( final int i, final int j, final float[] values )
+	{
+		final int m = ( i + j ) >>> 1;
+		final float a = values[ i ], b = values[ m ], c = values[ j ];
+		final int median = ( a < b )
+				? ( b < c ? m : ( a < c ? j : i ) )
+				: ( a < c ? i : ( b < c ? j : m ) );
+		values[ j ] = values[ median ];
+		values[ median ] = c;
+	}
+
+	/**
+	 * Partition a subarray of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}, and elements between two such positions are larger or equal
+	 * than the lower and smaller or equal than the upper k-th element. This
+	 * selects all order statistics in a single recursive partitioning pass,
+	 * which is cheaper than calling {@link #kthElement(int, int, int, double[])}
+	 * for each {@code k}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int i, final int j, final int[] ks, final double[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElements( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Partition an array of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}. See {@link #kthElements(int, int, int[], double[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int[] ks, final double[] values )
+	{
+		kthElements( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int, int, int[], double[])}, but large
+	 * subarrays are partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, double, boolean, double[])}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int i, final int j, final int[] ks, final double[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElementsParallel( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int[], double[])}, but large arrays are
+	 * partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, double, boolean, double[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int[] ks, final double[] values )
+	{
+		kthElementsParallel( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Select {@code ks[kFrom], ..., ks[kTo-1]} (sorted, within
+	 * {@code [i,j]}).
+	 */
+	private static void kthElements( int i, int j, final int[] ks, int kFrom, int kTo, final double[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			medianOfThreeToEnd( i, j, values );
+			final int p = partitionSubList( i, j, values );
+			final int e = p == i ? partitionSubList( p + 1, j, values[ p ], true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			// recurse into the side with fewer indices to bound the depth
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElements( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElements( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	private static void kthElementsParallel( int i, int j, final int[] ks, int kFrom, int kTo, final double[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			if ( j - i < 2 * PartitionChunks.MIN_CHUNK_SIZE )
+			{
+				kthElements( i, j, ks, kFrom, kTo, values );
+				return;
+			}
+
+			medianOfThreeToEnd( i, j, values );
+			final double pivot = values[ j ];
+			final int p = Partition.partitionSubListParallel( i, j - 1, pivot, false, values );
+			values[ j ] = values[ p ];
+			values[ p ] = pivot;
+			final int e = p == i ? Partition.partitionSubListParallel( p + 1, j, pivot, true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElementsParallel( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElementsParallel( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	/**
+	 * Move the median of the first, middle, and last element of {@code [i,j]}
+	 * to position {@code j}, where it is used as the pivot.
+	 */
+	private static void medianOfThreeToEnd( final int i, final int j, final double[] values )
+	{
+		final int m = ( i + j ) >>> 1;
+		final double a = values[ i ], b = values[ m ], c = values[ j ];
+		final int median = ( a < b )
+				? ( b < c ? m : ( a < c ? j : i ) )
+				: ( a < c ? i : ( b < c ? j : m ) );
+		values[ j ] = values[ median ];
+		values[ median ] = c;
+	}
+
+	/**
+	 * Partition a subarray of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}, and elements between two such positions are larger or equal
+	 * than the lower and smaller or equal than the upper k-th element. This
+	 * selects all order statistics in a single recursive partitioning pass,
+	 * which is cheaper than calling {@link #kthElement(int, int, int, char[])}
+	 * for each {@code k}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int i, final int j, final int[] ks, final char[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElements( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Partition an array of {@code values} such that, for every index
+	 * {@code k} in {@code ks}, the k-th smallest value is at position
+	 * {@code k}. See {@link #kthElements(int, int, int[], char[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElements( final int[] ks, final char[] values )
+	{
+		kthElements( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int, int, int[], char[])}, but large
+	 * subarrays are partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, char, boolean, char[])}.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code i <= k <= j}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int i, final int j, final int[] ks, final char[] values )
+	{
+		final int[] sorted = sortedIndices( i, j, ks );
+		kthElementsParallel( i, j, sorted, 0, sorted.length, values );
+	}
+
+	/**
+	 * Same as {@link #kthElements(int[], char[])}, but large arrays are
+	 * partitioned in parallel using
+	 * {@link Partition#partitionSubListParallel(int, int, char, boolean, char[])}.
+	 *
+	 * @param ks
+	 *            indices for k-th smallest values, in any order.
+	 *            {@code 0 <= k < values.length}.
+	 * @param values
+	 *            array
+	 */
+	public static void kthElementsParallel( final int[] ks, final char[] values )
+	{
+		kthElementsParallel( 0, values.length - 1, ks, values );
+	}
+
+	/**
+	 * Select {@code ks[kFrom], ..., ks[kTo-1]} (sorted, within
+	 * {@code [i,j]}).
+	 */
+	private static void kthElements( int i, int j, final int[] ks, int kFrom, int kTo, final char[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			medianOfThreeToEnd( i, j, values );
+			final int p = partitionSubList( i, j, values );
+			final int e = p == i ? partitionSubList( p + 1, j, values[ p ], true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			// recurse into the side with fewer indices to bound the depth
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElements( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElements( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	private static void kthElementsParallel( int i, int j, final int[] ks, int kFrom, int kTo, final char[] values )
+	{
+		while ( kFrom < kTo )
+		{
+			if ( j - i < 2 * PartitionChunks.MIN_CHUNK_SIZE )
+			{
+				kthElements( i, j, ks, kFrom, kTo, values );
+				return;
+			}
+
+			medianOfThreeToEnd( i, j, values );
+			final char pivot = values[ j ];
+			final int p = Partition.partitionSubListParallel( i, j - 1, pivot, false, values );
+			values[ j ] = values[ p ];
+			values[ p ] = pivot;
+			final int e = p == i ? Partition.partitionSubListParallel( p + 1, j, pivot, true, values ) : p + 1;
+
+			final int lo = lowerBound( ks, kFrom, kTo, p );
+			final int hi = lowerBound( ks, lo, kTo, e );
+			if ( lo - kFrom < kTo - hi )
+			{
+				kthElementsParallel( i, p - 1, ks, kFrom, lo, values );
+				i = e;
+				kFrom = hi;
+			}
+			else
+			{
+				kthElementsParallel( e, j, ks, hi, kTo, values );
+				j = p - 1;
+				kTo = lo;
+			}
+		}
+	}
+
+	/**
+	 * Move the median of the first, middle, and last element of {@code [i,j]}
+	 * to position {@code j}, where it is used as the pivot.
+	 */
+	private static void medianOfThreeToEnd( final int i, final int j, final char[] values )
+	{
+		final int m = ( i + j ) >>> 1;
+		final char a = values[ i ], b = values[ m ], c = values[ j ];
+		final int median = ( a < b )
+				? ( b < c ? m : ( a < c ? j : i ) )
+				: ( a < c ? i : ( b < c ? j : m ) );
+		values[ j ] = values[ median ];
+		values[ median ] = c;
+	}
+
+	/**
+	 * Sorted copy of {@code ks}, checking that all are within {@code [i,j]}.
+	 */
+	private static int[] sortedIndices( final int i, final int j, final int[] ks )
+	{
+		final int[] sorted = ks.clone();
+		Arrays.sort( sorted );
+		if ( sorted.length > 0 && ( sorted[ 0 ] < i || sorted[ sorted.length - 1 ] > j ) )
+			throw new IndexOutOfBoundsException( "k must be within [" + i + ", " + j + "]" );
+		return sorted;
+	}
+
+	/**
+	 * Index of the first element {@code >= key} in sorted
+	 * {@code ks[from, to)}, or {@code to} if there is none.
+	 */
+	private static int lowerBound( final int[] ks, int from, int to, final int key )
+	{
+		while ( from < to )
+		{
+			final int mid = ( from + to ) >>> 1;
+			if ( ks[ mid ] < key )
+				from = mid + 1;
+			else
+				to = mid;
+		}
+		return from;
+	}
 }
@@ -38,6 +38,9 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.ListIterator;
 
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+
 /**
  * TODO
  *
@@ -1175,4 +1178,550 @@ public class Partition
 		}
 		return;
 	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value.
+	 *
+	 * The elements {@code [i,j]} are reordered, such that all elements smaller
+	 * than the pivot (or smaller or equal, if {@code inclusive}) come before
+	 * all other elements. The index of the first of the other elements is
+	 * returned, which is {@code j + 1} if there are none.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubList( int i, int j, final byte pivot, final boolean inclusive, final byte[] values )
+	{
+		while ( true )
+		{
+			while ( i <= j && ( values[ i ] < pivot || inclusive && values[ i ] == pivot ) )
+				++i;
+			while ( i <= j && !( values[ j ] < pivot || inclusive && values[ j ] == pivot ) )
+				--j;
+			if ( i > j )
+				return i;
+			final byte tmp = values[ i ];
+			values[ i++ ] = values[ j ];
+			values[ j-- ] = tmp;
+		}
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value, in parallel using the {@link TaskExecutor} provided by
+	 * {@link Parallelization}. The result is equivalent to
+	 * {@link #partitionSubList(int, int, byte, boolean, byte[])}, except for
+	 * the order of elements within the parts.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubListParallel( final int i, final int j, final byte pivot, final boolean inclusive, final byte[] values )
+	{
+		final PartitionChunks chunks = PartitionChunks.create( i, j );
+		if ( chunks == null )
+			return partitionSubList( i, j, pivot, inclusive, values );
+
+		chunks.taskExecutor.forEach( chunks.chunks(), c -> chunks.setSplit( c, partitionSubList( chunks.first( c ), chunks.last( c ), pivot, inclusive, values ) ) );
+		chunks.taskExecutor.forEach( chunks.swaps(), swaps -> {
+			for ( int s = swaps.size(); s > 0; --s )
+			{
+				final int l = swaps.nextLeft();
+				final int r = swaps.nextRight();
+				final byte tmp = values[ l ];
+				values[ l ] = values[ r ];
+				values[ r ] = tmp;
+			}
+		} );
+		return chunks.split();
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value.
+	 *
+	 * The elements {@code [i,j]} are reordered, such that all elements smaller
+	 * than the pivot (or smaller or equal, if {@code inclusive}) come before
+	 * all other elements. The index of the first of the other elements is
+	 * returned, which is {@code j + 1} if there are none.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubList( int i, int j, final short pivot, final boolean inclusive, final short[] values )
+	{
+		while ( true )
+		{
+			while ( i <= j && ( values[ i ] < pivot || inclusive && values[ i ] == pivot ) )
+				++i;
+			while ( i <= j && !( values[ j ] < pivot || inclusive && values[ j ] == pivot ) )
+				--j;
+			if ( i > j )
+				return i;
+			final short tmp = values[ i ];
+			values[ i++ ] = values[ j ];
+			values[ j-- ] = tmp;
+		}
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value, in parallel using the {@link TaskExecutor} provided by
+	 * {@link Parallelization}. The result is equivalent to
+	 * {@link #partitionSubList(int, int, short, boolean, short[])}, except for
+	 * the order of elements within the parts.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubListParallel( final int i, final int j, final short pivot, final boolean inclusive, final short[] values )
+	{
+		final PartitionChunks chunks = PartitionChunks.create( i, j );
+		if ( chunks == null )
+			return partitionSubList( i, j, pivot, inclusive, values );
+
+		chunks.taskExecutor.forEach( chunks.chunks(), c -> chunks.setSplit( c, partitionSubList( chunks.first( c ), chunks.last( c ), pivot, inclusive, values ) ) );
+		chunks.taskExecutor.forEach( chunks.swaps(), swaps -> {
+			for ( int s = swaps.size(); s > 0; --s )
+			{
+				final int l = swaps.nextLeft();
+				final int r = swaps.nextRight();
+				final short tmp = values[ l ];
+				values[ l ] = values[ r ];
+				values[ r ] = tmp;
+			}
+		} );
+		return chunks.split();
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value.
+	 *
+	 * The elements {@code [i,j]} are reordered, such that all elements smaller
+	 * than the pivot (or smaller or equal, if {@code inclusive}) come before
+	 * all other elements. The index of the first of the other elements is
+	 * returned, which is {@code j + 1} if there are none.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubList( int i, int j, final int pivot, final boolean inclusive, final int[] values )
+	{
+		while ( true )
+		{
+			while ( i <= j && ( values[ i ] < pivot || inclusive && values[ i ] == pivot ) )
+				++i;
+			while ( i <= j && !( values[ j ] < pivot || inclusive && values[ j ] == pivot ) )
+				--j;
+			if ( i > j )
+				return i;
+			final int tmp = values[ i ];
+			values[ i++ ] = values[ j ];
+			values[ j-- ] = tmp;
+		}
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value, in parallel using the {@link TaskExecutor} provided by
+	 * {@link Parallelization}. The result is equivalent to
+	 * {@link #partitionSubList(int, int, int, boolean, int[])}, except for
+	 * the order of elements within the parts.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubListParallel( final int i, final int j, final int pivot, final boolean inclusive, final int[] values )
+	{
+		final PartitionChunks chunks = PartitionChunks.create( i, j );
+		if ( chunks == null )
+			return partitionSubList( i, j, pivot, inclusive, values );
+
+		chunks.taskExecutor.forEach( chunks.chunks(), c -> chunks.setSplit( c, partitionSubList( chunks.first( c ), chunks.last( c ), pivot, inclusive, values ) ) );
+		chunks.taskExecutor.forEach( chunks.swaps(), swaps -> {
+			for ( int s = swaps.size(); s > 0; --s )
+			{
+				final int l = swaps.nextLeft();
+				final int r = swaps.nextRight();
+				final int tmp = values[ l ];
+				values[ l ] = values[ r ];
+				values[ r ] = tmp;
+			}
+		} );
+		return chunks.split();
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value.
+	 *
+	 * The elements {@code [i,j]} are reordered, such that all elements smaller
+	 * than the pivot (or smaller or equal, if {@code inclusive}) come before
+	 * all other elements. The index of the first of the other elements is
+	 * returned, which is {@code j + 1} if there are none.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubList( int i, int j, final long pivot, final boolean inclusive, final long[] values )
+	{
+		while ( true )
+		{
+			while ( i <= j && ( values[ i ] < pivot || inclusive && values[ i ] == pivot ) )
+				++i;
+			while ( i <= j && !( values[ j ] < pivot || inclusive && values[ j ] == pivot ) )
+				--j;
+			if ( i > j )
+				return i;
+			final long tmp = values[ i ];
+			values[ i++ ] = values[ j ];
+			values[ j-- ] = tmp;
+		}
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value, in parallel using the {@link TaskExecutor} provided by
+	 * {@link Parallelization}. The result is equivalent to
+	 * {@link #partitionSubList(int, int, long, boolean, long[])}, except for
+	 * the order of elements within the parts.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubListParallel( final int i, final int j, final long pivot, final boolean inclusive, final long[] values )
+	{
+		final PartitionChunks chunks = PartitionChunks.create( i, j );
+		if ( chunks == null )
+			return partitionSubList( i, j, pivot, inclusive, values );
+
+		chunks.taskExecutor.forEach( chunks.chunks(), c -> chunks.setSplit( c, partitionSubList( chunks.first( c ), chunks.last( c ), pivot, inclusive, values ) ) );
+		chunks.taskExecutor.forEach( chunks.swaps(), swaps -> {
+			for ( int s = swaps.size(); s > 0; --s )
+			{
+				final int l = swaps.nextLeft();
+				final int r = swaps.nextRight();
+				final long tmp = values[ l ];
+				values[ l ] = values[ r ];
+				values[ r ] = tmp;
+			}
+		} );
+		return chunks.split();
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value.
+	 *
+	 * The elements {@code [i,j]} are reordered, such that all elements smaller
+	 * than the pivot (or smaller or equal, if {@code inclusive}) come before
+	 * all other elements. The index of the first of the other elements is
+	 * returned, which is {@code j + 1} if there are none.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubList( int i, int j, final float pivot, final boolean inclusive, final float[] values )
+	{
+		while ( true )
+		{
+			while ( i <= j && ( values[ i ] < pivot || inclusive && values[ i ] == pivot ) )
+				++i;
+			while ( i <= j && !( values[ j ] < pivot || inclusive && values[ j ] == pivot ) )
+				--j;
+			if ( i > j )
+				return i;
+			final float tmp = values[ i ];
+			values[ i++ ] = values[ j ];
+			values[ j-- ] = tmp;
+		}
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value, in parallel using the {@link TaskExecutor} provided by
+	 * {@link Parallelization}. The result is equivalent to
+	 * {@link #partitionSubList(int, int, float, boolean, float[])}, except for
+	 * the order of elements within the parts.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubListParallel( final int i, final int j, final float pivot, final boolean inclusive, final float[] values )
+	{
+		final PartitionChunks chunks = PartitionChunks.create( i, j );
+		if ( chunks == null )
+			return partitionSubList( i, j, pivot, inclusive, values );
+
+		chunks.taskExecutor.forEach( chunks.chunks(), c -> chunks.setSplit( c, partitionSubList( chunks.first( c ), chunks.last( c ), pivot, inclusive, values ) ) );
+		chunks.taskExecutor.forEach( chunks.swaps(), swaps -> {
+			for ( int s = swaps.size(); s > 0; --s )
+			{
+				final int l = swaps.nextLeft();
+				final int r = swaps.nextRight();
+				final float tmp = values[ l ];
+				values[ l ] = values[ r ];
+				values[ r ] = tmp;
+			}
+		} );
+		return chunks.split();
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value.
+	 *
+	 * The elements {@code [i,j]} are reordered, such that all elements smaller
+	 * than the pivot (or smaller or equal, if {@code inclusive}) come before
+	 * all other elements. The index of the first of the other elements is
+	 * returned, which is {@code j + 1} if there are none.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubList( int i, int j, final double pivot, final boolean inclusive, final double[] values )
+	{
+		while ( true )
+		{
+			while ( i <= j && ( values[ i ] < pivot || inclusive && values[ i ] == pivot ) )
+				++i;
+			while ( i <= j && !( values[ j ] < pivot || inclusive && values[ j ] == pivot ) )
+				--j;
+			if ( i > j )
+				return i;
+			final double tmp = values[ i ];
+			values[ i++ ] = values[ j ];
+			values[ j-- ] = tmp;
+		}
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value, in parallel using the {@link TaskExecutor} provided by
+	 * {@link Parallelization}. The result is equivalent to
+	 * {@link #partitionSubList(int, int, double, boolean, double[])}, except for
+	 * the order of elements within the parts.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubListParallel( final int i, final int j, final double pivot, final boolean inclusive, final double[] values )
+	{
+		final PartitionChunks chunks = PartitionChunks.create( i, j );
+		if ( chunks == null )
+			return partitionSubList( i, j, pivot, inclusive, values );
+
+		chunks.taskExecutor.forEach( chunks.chunks(), c -> chunks.setSplit( c, partitionSubList( chunks.first( c ), chunks.last( c ), pivot, inclusive, values ) ) );
+		chunks.taskExecutor.forEach( chunks.swaps(), swaps -> {
+			for ( int s = swaps.size(); s > 0; --s )
+			{
+				final int l = swaps.nextLeft();
+				final int r = swaps.nextRight();
+				final double tmp = values[ l ];
+				values[ l ] = values[ r ];
+				values[ r ] = tmp;
+			}
+		} );
+		return chunks.split();
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value.
+	 *
+	 * The elements {@code [i,j]} are reordered, such that all elements smaller
+	 * than the pivot (or smaller or equal, if {@code inclusive}) come before
+	 * all other elements. The index of the first of the other elements is
+	 * returned, which is {@code j + 1} if there are none.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubList( int i, int j, final char pivot, final boolean inclusive, final char[] values )
+	{
+		while ( true )
+		{
+			while ( i <= j && ( values[ i ] < pivot || inclusive && values[ i ] == pivot ) )
+				++i;
+			while ( i <= j && !( values[ j ] < pivot || inclusive && values[ j ] == pivot ) )
+				--j;
+			if ( i > j )
+				return i;
+			final char tmp = values[ i ];
+			values[ i++ ] = values[ j ];
+			values[ j-- ] = tmp;
+		}
+	}
+
+	/**
+	 * Partition a subarray of {@code values} around a given {@code pivot}
+	 * value, in parallel using the {@link TaskExecutor} provided by
+	 * {@link Parallelization}. The result is equivalent to
+	 * {@link #partitionSubList(int, int, char, boolean, char[])}, except for
+	 * the order of elements within the parts.
+	 *
+	 * @param i
+	 *            index of first element of subarray
+	 * @param j
+	 *            index of last element of subarray
+	 * @param pivot
+	 *            pivot value
+	 * @param inclusive
+	 *            whether elements equal to {@code pivot} belong to the lower
+	 *            part
+	 * @param values
+	 *            array
+	 * @return index of first element of the upper part
+	 */
+	public static int partitionSubListParallel( final int i, final int j, final char pivot, final boolean inclusive, final char[] values )
+	{
+		final PartitionChunks chunks = PartitionChunks.create( i, j );
+		if ( chunks == null )
+			return partitionSubList( i, j, pivot, inclusive, values );
+
+		chunks.taskExecutor.forEach( chunks.chunks(), c -> chunks.setSplit( c, partitionSubList( chunks.first( c ), chunks.last( c ), pivot, inclusive, values ) ) );
+		chunks.taskExecutor.forEach( chunks.swaps(), swaps -> {
+			for ( int s = swaps.size(); s > 0; --s )
+			{
+				final int l = swaps.nextLeft();
+				final int r = swaps.nextRight();
+				final char tmp = values[ l ];
+				values[ l ] = values[ r ];
+				values[ r ] = tmp;
+			}
+		} );
+		return chunks.split();
+	}
 }
@@ -0,0 +1,265 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.parallel.TaskExecutor;
+
+/**
+ * Bookkeeping for partitioning a large subarray in parallel.
+ * <p>
+ * The subarray is split into contiguous chunks that are partitioned
+ * independently. Afterwards, all elements of the upper parts that lie left of
+ * the final split position are swapped with all elements of the lower parts
+ * that lie right of it. These swaps are independent of each other, and are
+ * again distributed over several tasks.
+ */
+final class PartitionChunks
+{
+	/**
+	 * Subarrays smaller than two chunks of this size are partitioned serially.
+	 */
+	static final int MIN_CHUNK_SIZE = 1 << 16;
+
+	final TaskExecutor taskExecutor;
+
+	/**
+	 * chunk {@code c} is {@code [starts[c], starts[c+1])}.
+	 */
+	private final int[] starts;
+
+	/**
+	 * index of the first upper element in chunk {@code c}.
+	 */
+	private final int[] splits;
+
+	private PartitionChunks( final TaskExecutor taskExecutor, final int i, final int j, final int numChunks )
+	{
+		this.taskExecutor = taskExecutor;
+		final long n = ( long ) j - i + 1;
+		starts = new int[ numChunks + 1 ];
+		for ( int c = 0; c <= numChunks; ++c )
+			starts[ c ] = ( int ) ( i + n * c / numChunks );
+		splits = new int[ numChunks ];
+	}
+
+	/**
+	 * Split the subarray {@code [i,j]} into chunks, or return {@code null} if
+	 * it should be partitioned serially.
+	 */
+	static PartitionChunks create( final int i, final int j )
+	{
+		final TaskExecutor taskExecutor = Parallelization.getTaskExecutor();
+		final int numChunks = Math.min( taskExecutor.suggestNumberOfTasks(), ( j - i + 1 ) / MIN_CHUNK_SIZE );
+		return numChunks < 2 ? null : new PartitionChunks( taskExecutor, i, j, numChunks );
+	}
+
+	List< Integer > chunks()
+	{
+		final List< Integer > chunks = new ArrayList<>( splits.length );
+		for ( int c = 0; c < splits.length; ++c )
+			chunks.add( c );
+		return chunks;
+	}
+
+	/**
+	 * index of first element of chunk {@code c}.
+	 */
+	int first( final int c )
+	{
+		return starts[ c ];
+	}
+
+	/**
+	 * index of last element of chunk {@code c}.
+	 */
+	int last( final int c )
+	{
+		return starts[ c + 1 ] - 1;
+	}
+
+	void setSplit( final int c, final int split )
+	{
+		splits[ c ] = split;
+	}
+
+	/**
+	 * Index of the first upper element in the partitioned subarray. Valid
+	 * after all splits have been set.
+	 */
+	int split()
+	{
+		int split = starts[ 0 ];
+		for ( int c = 0; c < splits.length; ++c )
+			split += splits[ c ] - starts[ c ];
+		return split;
+	}
+
+	/**
+	 * Collect the misplaced elements after all chunks have been partitioned,
+	 * and distribute the necessary swaps over tasks. Each {@link Swaps}
+	 * enumerates pairs of indices whose elements must be exchanged.
+	 */
+	List< Swaps > swaps()
+	{
+		final int split = split();
+		final Ranges upper = new Ranges( splits.length );
+		final Ranges lower = new Ranges( splits.length );
+		for ( int c = 0; c < splits.length; ++c )
+		{
+			// upper elements left of split
+			upper.add( splits[ c ], Math.min( starts[ c + 1 ], split ) );
+			// lower elements right of split
+			lower.add( Math.max( starts[ c ], split ), splits[ c ] );
+		}
+
+		final long numSwaps = upper.size();
+		final int numTasks = ( int ) Math.min( taskExecutor.suggestNumberOfTasks(), ( numSwaps + MIN_CHUNK_SIZE - 1 ) / MIN_CHUNK_SIZE );
+		final List< Swaps > swaps = new ArrayList<>( numTasks );
+		for ( int t = 0; t < numTasks; ++t )
+		{
+			final long from = numSwaps * t / numTasks;
+			final long to = numSwaps * ( t + 1 ) / numTasks;
+			swaps.add( new Swaps( upper.cursor( from ), lower.cursor( from ), ( int ) ( to - from ) ) );
+		}
+		return swaps;
+	}
+
+	/**
+	 * A sequence of {@code size} pairs of indices to swap.
+	 */
+	static final class Swaps
+	{
+		private final Ranges.Cursor left;
+
+		private final Ranges.Cursor right;
+
+		private final int size;
+
+		private Swaps( final Ranges.Cursor left, final Ranges.Cursor right, final int size )
+		{
+			this.left = left;
+			this.right = right;
+			this.size = size;
+		}
+
+		int size()
+		{
+			return size;
+		}
+
+		int nextLeft()
+		{
+			return left.next();
+		}
+
+		int nextRight()
+		{
+			return right.next();
+		}
+	}
+
+	/**
+	 * Ascending list of non-overlapping index ranges.
+	 */
+	private static final class Ranges
+	{
+		private final int[] from;
+
+		private final int[] to;
+
+		private int n;
+
+		Ranges( final int capacity )
+		{
+			from = new int[ capacity ];
+			to = new int[ capacity ];
+		}
+
+		void add( final int from, final int to )
+		{
+			if ( from < to )
+			{
+				this.from[ n ] = from;
+				this.to[ n ] = to;
+				++n;
+			}
+		}
+
+		long size()
+		{
+			long size = 0;
+			for ( int r = 0; r < n; ++r )
+				size += to[ r ] - from[ r ];
+			return size;
+		}
+
+		/**
+		 * Cursor that starts at the {@code offset}-th index in these ranges.
+		 */
+		Cursor cursor( long offset )
+		{
+			int r = 0;
+			while ( r < n && offset >= to[ r ] - from[ r ] )
+			{
+				offset -= to[ r ] - from[ r ];
+				++r;
+			}
+			return new Cursor( r, r < n ? from[ r ] + ( int ) offset : 0 );
+		}
+
+		final class Cursor
+		{
+			private int range;
+
+			private int index;
+
+			private Cursor( final int range, final int index )
+			{
+				this.range = range;
+				this.index = index;
+			}
+
+			int next()
+			{
+				if ( index == to[ range ] )
+					index = from[ ++range ];
+				return index++;
+			}
+		}
+	}
+}
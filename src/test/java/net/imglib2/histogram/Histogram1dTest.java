@@ -34,12 +34,34 @@
 
 package net.imglib2.histogram;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
+import net.imglib2.Point;
+import net.imglib2.PointSampleList;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.img.rle.RleImgFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.LongType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.view.Views;
 
 import org.junit.Test;
 
@@ -104,6 +126,152 @@ public class Histogram1dTest
 		assertEquals( 0, hist.upperTailCount() );
 	}
 
+	@Test
+	public void testParallelCounting()
+	{
+		final Random random = new Random( 42 );
+		final Img< UnsignedByteType > img = new CellImgFactory<>( new UnsignedByteType(), 32, 16 ).create( 300, 500 );
+		final PointSampleList< UnsignedByteType > list = new PointSampleList<>( 1 );
+		long i = 0;
+		for ( final UnsignedByteType t : img )
+		{
+			t.set( random.nextInt( 256 ) );
+			list.add( new Point( i++ ), t.copy() );
+		}
+
+		final BinMapper1d< UnsignedByteType > binMapper = new Integer1dBinMapper<>( 10, 200, true );
+		final Histogram1d< UnsignedByteType > expected = new Histogram1d<>( img, binMapper );
+
+		final Histogram1d< UnsignedByteType > cellAligned = new Histogram1d<>( binMapper );
+		final Histogram1d< UnsignedByteType > chunked = new Histogram1d<>( binMapper );
+		Parallelization.runWithNumThreads( 4, () -> {
+			cellAligned.countDataParallel( img );
+			chunked.countDataParallel( list );
+		} );
+		assertArrayEquals( expected.toLongArray(), cellAligned.toLongArray() );
+		assertArrayEquals( expected.toLongArray(), chunked.toLongArray() );
+		assertEquals( expected.totalCount(), cellAligned.totalCount() );
+		assertEquals( expected.totalCount(), chunked.totalCount() );
+		assertEquals( expected.lowerTailCount(), chunked.lowerTailCount() );
+	}
+
+	@Test
+	public void testAdd()
+	{
+		final List< UnsignedByteType > data = getData1();
+		final BinMapper1d< UnsignedByteType > binMapper = new Integer1dBinMapper<>( 4, 8, true );
+		final Histogram1d< UnsignedByteType > expected = new Histogram1d<>( data, binMapper );
+
+		final Histogram1d< UnsignedByteType > first = new Histogram1d<>( data.subList( 0, 5 ), binMapper );
+		final Histogram1d< UnsignedByteType > second = new Histogram1d<>( data.subList( 5, data.size() ), binMapper );
+		first.add( second );
+
+		assertArrayEquals( expected.toLongArray(), first.toLongArray() );
+		assertEquals( expected.distributionCount(), first.distributionCount() );
+		assertEquals( expected.upperTailCount(), first.upperTailCount() );
+	}
+
+	@Test
+	public void testAddRejectsDifferentMapping()
+	{
+		final List< UnsignedByteType > data = getData1();
+		final Histogram1d< UnsignedByteType > hist = new Histogram1d<>( data, new Integer1dBinMapper<>( 4, 8, true ) );
+		hist.add( new Histogram1d<>( data, new Integer1dBinMapper<>( 4, 8, true ) ) );
+		assertAddFails( hist, new Histogram1d<>( data, new Integer1dBinMapper<>( 5, 8, true ) ) );
+		assertAddFails( hist, new Histogram1d<>( data, new Integer1dBinMapper<>( 4, 8, false ) ) );
+
+		final Histogram1d< UnsignedByteType > real = new Histogram1d<>( data, new Real1dBinMapper<>( 0, 10, 8, false ) );
+		real.add( new Histogram1d<>( data, new Real1dBinMapper<>( 0, 10, 8, false ) ) );
+		assertAddFails( real, new Histogram1d<>( data, new Real1dBinMapper<>( 0, 20, 8, false ) ) );
+		assertAddFails( real, new Histogram1d<>( data, new Real1dBinMapper<>( 0, 10, 8, true ) ) );
+	}
+
+	private static < T > void assertAddFails( final Histogram1d< T > hist, final Histogram1d< T > other )
+	{
+		try
+		{
+			hist.add( other );
+			fail( "histograms with different bin mappings must not be added" );
+		}
+		catch ( final IllegalArgumentException e )
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testPrimitiveCounting()
+	{
+		final long[] dims = { 70, 50, 3 };
+		final List< ImgFactory< UnsignedShortType > > factories = Arrays.asList(
+				new ArrayImgFactory<>( new UnsignedShortType() ),
+				// buffer backed, not counted as primitive arrays
+				new ArrayImgFactory<>( new UnsignedShortType(), AccessFlags.setOf( AccessFlags.DIRECT ) ),
+				new PlanarImgFactory<>( new UnsignedShortType() ),
+				new CellImgFactory<>( new UnsignedShortType(), 16, 16, 2 ) );
+		for ( final ImgFactory< UnsignedShortType > factory : factories )
+		{
+			final Img< UnsignedShortType > img = factory.create( dims );
+			final Random random = new Random( 42 );
+			for ( final UnsignedShortType t : img )
+				t.set( random.nextInt( 1 << 16 ) );
+			assertPrimitiveCounting( img, new Integer1dBinMapper<>( 1000, 60000, true ) );
+			assertPrimitiveCounting( img, new Integer1dBinMapper<>( 30000, 100, false ) );
+		}
+
+		final Img< ByteType > bytes = ArrayImgs.bytes( 10000 );
+		final Random random = new Random( 42 );
+		for ( final ByteType t : bytes )
+			t.set( ( byte ) random.nextInt() );
+		assertPrimitiveCounting( bytes, new Integer1dBinMapper<>( -100, 150, true ) );
+
+		final Img< UnsignedIntType > uints = ArrayImgs.unsignedInts( 10000 );
+		for ( final UnsignedIntType t : uints )
+			t.set( random.nextLong() & 0xffffffffL );
+		assertPrimitiveCounting( uints, new Integer1dBinMapper<>( 1L << 31, 1 << 10, false ) );
+
+		final Img< LongType > longs = ArrayImgs.longs( 10000 );
+		for ( final LongType t : longs )
+			t.set( random.nextInt( 2000 ) - 1000 );
+		assertPrimitiveCounting( longs, new Integer1dBinMapper<>( -500, 1000, true ) );
+	}
+
+	@Test
+	public void testRunCounting()
+	{
+		final Img< UnsignedShortType > img = new RleImgFactory<>( new UnsignedShortType() ).create( 300, 40, 5 );
+		final Random random = new Random( 42 );
+		int label = 0;
+		for ( final UnsignedShortType t : img )
+		{
+			if ( random.nextInt( 50 ) == 0 )
+				label = random.nextInt( 1200 );
+			t.set( label );
+		}
+		assertPrimitiveCounting( img, new Integer1dBinMapper<>( 0, 1000, true ) );
+		assertPrimitiveCounting( img, new Integer1dBinMapper<>( 100, 500, false ) );
+
+		final Histogram1d< UnsignedShortType > hist = new Histogram1d<>( img, new Integer1dBinMapper<>( 0, 1000, true ) );
+		hist.subtractData( img );
+		assertEquals( 0, hist.totalCount() );
+		assertEquals( 0, Arrays.stream( hist.toLongArray() ).filter( c -> c != 0 ).count() );
+	}
+
+	private static < T extends IntegerType< T > & NativeType< T > > void assertPrimitiveCounting( final Img< T > img, final Integer1dBinMapper< T > binMapper )
+	{
+		// a view is counted sample by sample
+		final Histogram1d< T > expected = new Histogram1d<>( Views.flatIterable( Views.interval( Views.extendBorder( img ), img ) ), binMapper );
+		final Histogram1d< T > hist = new Histogram1d<>( img, binMapper );
+		assertArrayEquals( expected.toLongArray(), hist.toLongArray() );
+		assertEquals( expected.totalCount(), hist.totalCount() );
+		assertEquals( expected.distributionCount(), hist.distributionCount() );
+
+		final Histogram1d< T > parallel = new Histogram1d<>( binMapper );
+		Parallelization.runWithNumThreads( 4, () -> parallel.countDataParallel( img ) );
+		assertArrayEquals( expected.toLongArray(), parallel.toLongArray() );
+		assertEquals( expected.totalCount(), parallel.totalCount() );
+	}
+
 	private List< UnsignedByteType > getData1()
 	{
 		final List< UnsignedByteType > data = new ArrayList< UnsignedByteType >();
@@ -38,14 +38,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import net.imglib2.Cursor;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
 
 import org.junit.Test;
@@ -292,6 +296,48 @@ public class HistogramNdTest
 		assertEquals( 20000, hist.distributionCount() );
 	}
 
+	@Test
+	public void testParallelCounting()
+	{
+		final Random random = new Random( 42 );
+		final ArrayImgFactory< UnsignedByteType > factory = new ArrayImgFactory<>( new UnsignedByteType() );
+		final Img< UnsignedByteType > red = factory.create( 300, 400 );
+		final Img< UnsignedByteType > green = factory.create( 300, 400 );
+		for ( final UnsignedByteType t : red )
+			t.set( random.nextInt( 256 ) );
+		for ( final UnsignedByteType t : green )
+			t.set( random.nextInt( 256 ) );
+		final List< BinMapper1d< UnsignedByteType >> mappers = new ArrayList< BinMapper1d< UnsignedByteType >>();
+		mappers.add( new Integer1dBinMapper< UnsignedByteType >( 0, 16, false ) );
+		mappers.add( new Integer1dBinMapper< UnsignedByteType >( 0, 32, true ) );
+		final List< Iterable< UnsignedByteType >> data = new ArrayList< Iterable< UnsignedByteType >>();
+		data.add( red );
+		data.add( green );
+		final HistogramNd< UnsignedByteType > expected = new HistogramNd< UnsignedByteType >( data, mappers );
+
+		final HistogramNd< UnsignedByteType > hist = new HistogramNd< UnsignedByteType >( mappers );
+		Parallelization.runWithNumThreads( 4, () -> hist.countDataParallel( Arrays.asList( red, green ) ) );
+
+		assertEquals( expected.distributionCount(), hist.distributionCount() );
+		assertEquals( expected.ignoredCount(), hist.ignoredCount() );
+		final Cursor< LongType > e = expected.cursor();
+		final Cursor< LongType > h = hist.cursor();
+		while ( e.hasNext() )
+			assertEquals( e.next().get(), h.next().get() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testAddRejectsDifferentMapping()
+	{
+		final List< BinMapper1d< UnsignedByteType >> mappers = new ArrayList< BinMapper1d< UnsignedByteType >>();
+		mappers.add( new Integer1dBinMapper< UnsignedByteType >( 0, 16, false ) );
+		mappers.add( new Integer1dBinMapper< UnsignedByteType >( 0, 32, true ) );
+		final List< BinMapper1d< UnsignedByteType >> otherMappers = new ArrayList< BinMapper1d< UnsignedByteType >>();
+		otherMappers.add( new Integer1dBinMapper< UnsignedByteType >( 0, 16, false ) );
+		otherMappers.add( new Integer1dBinMapper< UnsignedByteType >( 1, 32, true ) );
+		new HistogramNd< UnsignedByteType >( mappers ).add( new HistogramNd< UnsignedByteType >( otherMappers ) );
+	}
+
 	private List< UnsignedByteType > getData1()
 	{
 		final List< UnsignedByteType > data = new ArrayList< UnsignedByteType >();
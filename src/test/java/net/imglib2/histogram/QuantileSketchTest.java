@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link QuantileSketch}.
+ */
+public class QuantileSketchTest
+{
+	private static final double[] QUANTILES = { 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999 };
+
+	/**
+	 * Asserts that the ranks of the estimated quantiles in the sorted data
+	 * are within {@code tolerance} of the requested quantiles.
+	 */
+	private static void assertQuantiles( final double[] sorted, final QuantileSketch sketch, final double tolerance )
+	{
+		assertEquals( sorted.length, sketch.count() );
+		assertEquals( sorted[ 0 ], sketch.getMin(), 0 );
+		assertEquals( sorted[ sorted.length - 1 ], sketch.getMax(), 0 );
+		for ( final double q : QUANTILES )
+		{
+			final double estimate = sketch.quantile( q );
+			final int lo = lowerBound( sorted, estimate );
+			final int hi = upperBound( sorted, estimate );
+			final double rankError = Math.max( 0, Math.max( ( double ) lo / sorted.length - q, q - ( double ) hi / sorted.length ) );
+			assertTrue( "quantile " + q + " rank error " + rankError, rankError <= tolerance );
+		}
+	}
+
+	private static int lowerBound( final double[] sorted, final double value )
+	{
+		int i = Arrays.binarySearch( sorted, value );
+		while ( i > 0 && sorted[ i - 1 ] == value )
+			--i;
+		return i;
+	}
+
+	private static int upperBound( final double[] sorted, final double value )
+	{
+		int i = Arrays.binarySearch( sorted, value );
+		while ( i < sorted.length - 1 && sorted[ i + 1 ] == value )
+			++i;
+		return i + 1;
+	}
+
+	@Test
+	public void testStreaming()
+	{
+		final Random random = new Random( 1 );
+		final double[] data = new double[ 1000000 ];
+		final QuantileSketch sketch = new QuantileSketch( 200, 1 );
+		for ( int i = 0; i < data.length; ++i )
+		{
+			data[ i ] = Math.exp( random.nextGaussian() );
+			sketch.add( data[ i ] );
+		}
+		sketch.add( Double.NaN );
+		Arrays.sort( data );
+		assertQuantiles( data, sketch, 0.02 );
+		assertTrue( sketch.getNumRetained() < 1000 );
+		assertEquals( 0.5, sketch.rank( sketch.quantile( 0.5 ) ), 0.02 );
+	}
+
+	@Test
+	public void testMerge()
+	{
+		final Random random = new Random( 2 );
+		final double[] data = new double[ 300000 ];
+		final QuantileSketch[] parts = new QuantileSketch[ 3 ];
+		for ( int j = 0; j < parts.length; ++j )
+			parts[ j ] = new QuantileSketch( 200, j );
+		for ( int i = 0; i < data.length; ++i )
+		{
+			data[ i ] = random.nextInt( 1000 ) + ( i % 3 ) * 500;
+			parts[ i % 3 ].add( data[ i ] );
+		}
+		final QuantileSketch merged = parts[ 0 ].copy();
+		merged.add( parts[ 1 ] );
+		merged.add( parts[ 2 ] );
+		Arrays.sort( data );
+		assertQuantiles( data, merged, 0.02 );
+	}
+
+	@Test
+	public void testParallel()
+	{
+		final Img< FloatType > img = new CellImgFactory<>( new FloatType(), 64, 64 ).create( 500, 300 );
+		final Random random = new Random( 3 );
+		final double[] data = new double[ ( int ) img.size() ];
+		int i = 0;
+		for ( final FloatType t : img )
+		{
+			t.set( random.nextFloat() );
+			data[ i++ ] = t.get();
+		}
+		Arrays.sort( data );
+
+		final QuantileSketch cellAligned = new QuantileSketch();
+		final QuantileSketch chunked = new QuantileSketch();
+		Parallelization.runWithNumThreads( 4, () -> {
+			cellAligned.addParallel( img );
+			chunked.addParallel( Views.flatIterable( Views.interval( Views.extendBorder( img ), img ) ) );
+		} );
+		assertQuantiles( data, cellAligned, 0.02 );
+		assertQuantiles( data, chunked, 0.02 );
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		final QuantileSketch sketch = new QuantileSketch();
+		assertEquals( 0, sketch.count() );
+		assertTrue( Double.isNaN( sketch.quantile( 0.5 ) ) );
+		sketch.add( 5 );
+		assertEquals( 5, sketch.quantile( 0 ), 0 );
+		assertEquals( 5, sketch.quantile( 0.5 ), 0 );
+		assertEquals( 5, sketch.quantile( 1 ), 0 );
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.histogram;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.outofbounds.OutOfBoundsBorderFactory;
+import net.imglib2.outofbounds.OutOfBoundsConstantValueFactory;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.KthElement;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RankFilter}.
+ */
+public class RankFilterTest
+{
+	@Test
+	public void testMedian2d()
+	{
+		final Img< UnsignedByteType > source = ArrayImgs.unsignedBytes( 37, 23 );
+		final Random random = new Random( 42 );
+		source.forEach( t -> t.set( random.nextInt( 256 ) ) );
+		final Img< FloatType > target = ArrayImgs.floats( 37, 23 );
+
+		RankFilter.median( source, new OutOfBoundsBorderFactory<>(), target, 2, 1 );
+		assertRank( Views.extendBorder( source ), target, 0.5, 2, 1 );
+	}
+
+	@Test
+	public void testRank3dParallel()
+	{
+		final Img< ShortType > source = ArrayImgs.shorts( 20, 11, 7 );
+		final Random random = new Random( 42 );
+		source.forEach( t -> t.set( ( short ) ( random.nextInt( 2000 ) - 1000 ) ) );
+		final Img< FloatType > target = ArrayImgs.floats( 20, 11, 7 );
+
+		// constant value outside of the range of the source
+		final ShortType outside = new ShortType( ( short ) 5000 );
+		for ( final double quantile : new double[] { 0, 0.1, 0.5, 0.9, 1 } )
+		{
+			Parallelization.runWithNumThreads( 4, () -> RankFilter.rank( source, new OutOfBoundsConstantValueFactory<>( outside ), target, quantile, 1, 2, 1 ) );
+			assertRank( Views.extendValue( source, outside ), target, quantile, 1, 2, 1 );
+		}
+	}
+
+	@Test
+	public void testRadiusZero()
+	{
+		final Img< UnsignedByteType > source = ArrayImgs.unsignedBytes( new byte[] { 3, 1, 2, 7, 5, 4 }, 3, 2 );
+		final Img< UnsignedByteType > target = ArrayImgs.unsignedBytes( 3, 2 );
+		RankFilter.rank( source, target, 0.5, 0, 0 );
+		final Cursor< UnsignedByteType > s = source.cursor();
+		for ( final UnsignedByteType t : target )
+			assertEquals( s.next().get(), t.get() );
+	}
+
+	/**
+	 * Compares {@code target} with the rank computed for each pixel from all
+	 * values in its neighborhood.
+	 */
+	private static < T extends IntegerType< T > > void assertRank( final RandomAccessible< T > source, final Img< FloatType > target, final double quantile, final long... radius )
+	{
+		final int n = target.numDimensions();
+		int size = 1;
+		for ( int d = 0; d < n; ++d )
+			size *= 2 * radius[ d ] + 1;
+		final long[] values = new long[ size ];
+		final int rank = ( int ) Math.round( quantile * ( size - 1 ) );
+
+		final RandomAccess< T > in = source.randomAccess();
+		final Cursor< FloatType > c = target.localizingCursor();
+		final long[] offset = new long[ n ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			for ( int i = 0; i < size; ++i )
+			{
+				int index = i;
+				for ( int d = 0; d < n; ++d )
+				{
+					final int w = ( int ) ( 2 * radius[ d ] + 1 );
+					offset[ d ] = c.getLongPosition( d ) + index % w - radius[ d ];
+					index /= w;
+				}
+				in.setPosition( offset );
+				values[ i ] = in.get().getIntegerLong();
+			}
+			KthElement.kthElement( rank, values );
+			assertEquals( values[ rank ], c.get().get(), 0 );
+		}
+	}
+}
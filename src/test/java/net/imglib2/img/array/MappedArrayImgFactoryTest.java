@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.array;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+public class MappedArrayImgFactoryTest
+{
+	private Path file;
+
+	@Before
+	public void createFile() throws IOException
+	{
+		file = Files.createTempFile( "imglib2-mapped", ".raw" );
+	}
+
+	@After
+	public void deleteFile() throws IOException
+	{
+		Files.deleteIfExists( file );
+	}
+
+	@Test
+	public void testReadExistingFile() throws IOException
+	{
+		final int header = 16;
+		final ByteBuffer bytes = ByteBuffer.allocate( header + 2 * 4 * 3 ).order( ByteOrder.BIG_ENDIAN );
+		for ( int i = 0; i < 12; ++i )
+			bytes.putShort( header + 2 * i, ( short ) ( 1000 * i ) );
+		Files.write( file, bytes.array() );
+
+		final ArrayImg< UnsignedShortType, ? > img = new MappedArrayImgFactory<>( new UnsignedShortType(), file, MapMode.READ_ONLY, header, ByteOrder.BIG_ENDIAN ).create( 4, 3 );
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 3, 2 } );
+		assertEquals( 11000, ra.get().get() );
+		ra.setPosition( new long[] { 1, 1 } );
+		assertEquals( 5000, ra.get().get() );
+	}
+
+	@Test
+	public void testWriteThrough() throws IOException
+	{
+		final ArrayImg< UnsignedShortType, ? > img = new MappedArrayImgFactory<>( new UnsignedShortType(), file, MapMode.READ_WRITE ).create( 5, 2 );
+		int i = 0;
+		for ( final UnsignedShortType t : img )
+			t.set( i++ );
+		assertEquals( 20, Files.size( file ) );
+
+		final ArrayImg< UnsignedShortType, ? > reopened = new MappedArrayImgFactory<>( new UnsignedShortType(), file, MapMode.READ_ONLY ).create( 5, 2 );
+		i = 0;
+		for ( final UnsignedShortType t : reopened )
+			assertEquals( i++, t.get() );
+	}
+
+	@Test( expected = UncheckedIOException.class )
+	public void testFileTooSmall()
+	{
+		new MappedArrayImgFactory<>( new UnsignedShortType(), file, MapMode.READ_ONLY ).create( 5, 2 );
+	}
+}
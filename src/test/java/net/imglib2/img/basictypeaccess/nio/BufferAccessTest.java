@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class BufferAccessTest
+{
+	@Test
+	public void testFactoryCreatesDirectAccesses()
+	{
+		for ( final PrimitiveType primitiveType : PrimitiveType.values() )
+		{
+			if ( primitiveType == PrimitiveType.UNDEFINED )
+				continue;
+			final BufferAccess< ? > access = ( BufferAccess< ? > ) ArrayDataAccessFactory.get( primitiveType, AccessFlags.setOf( AccessFlags.DIRECT ) ).createArray( 10 );
+			assertTrue( access.isDirect() );
+			assertEquals( 10, access.getArrayLength() );
+			assertEquals( AccessFlags.setOf( AccessFlags.DIRECT ), AccessFlags.ofAccess( access ) );
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testFactoryRejectsDirtyDirect()
+	{
+		ArrayDataAccessFactory.get( PrimitiveType.FLOAT, AccessFlags.setOf( AccessFlags.DIRECT, AccessFlags.DIRTY ) );
+	}
+
+	@Test
+	public void testWrapRespectsByteOrder()
+	{
+		final ByteBuffer bytes = ByteBuffer.allocate( 8 ).order( ByteOrder.BIG_ENDIAN );
+		bytes.putShort( 2, ( short ) 0x0102 );
+		final ShortBufferAccess access = new ShortBufferAccess( bytes );
+		assertEquals( 4, access.getArrayLength() );
+		assertEquals( 0x0102, access.getValue( 1 ) );
+		access.setValue( 3, ( short ) 0x0304 );
+		assertEquals( 0x03, bytes.get( 6 ) );
+	}
+
+	@Test
+	public void testImgFactories()
+	{
+		final long[] dims = { 17, 13, 5 };
+		final ArrayImg< FloatType, ? > arrayImg = new ArrayImgFactory<>( new FloatType(), AccessFlags.setOf( AccessFlags.DIRECT ) ).create( dims );
+		assertTrue( arrayImg.update( null ) instanceof FloatBufferAccess );
+		fillAndCheck( arrayImg );
+		fillAndCheck( new PlanarImgFactory<>( new FloatType(), AccessFlags.setOf( AccessFlags.DIRECT ) ).create( dims ) );
+		fillAndCheck( new CellImgFactory<>( new FloatType(), AccessFlags.setOf( AccessFlags.DIRECT ), 4 ).create( dims ) );
+	}
+
+	@Test
+	public void testArrayImgs()
+	{
+		final ShortBufferAccess access = new ShortBufferAccess( 6 );
+		final ArrayImg< UnsignedShortType, ShortBufferAccess > img = ArrayImgs.unsignedShorts( access, 3, 2 );
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 2, 1 } );
+		ra.get().set( 65535 );
+		assertEquals( ( short ) 65535, access.getValue( 5 ) );
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException
+	{
+		final DoubleBufferAccess access = new DoubleBufferAccess( 100 );
+		for ( int i = 0; i < 100; ++i )
+			access.setValue( i, i * 0.5 );
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream( bos ))
+		{
+			out.writeObject( access );
+		}
+		final DoubleBufferAccess copy;
+		try (final ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bos.toByteArray() ) ))
+		{
+			copy = ( DoubleBufferAccess ) in.readObject();
+		}
+		assertTrue( copy.isDirect() );
+		assertEquals( 100, copy.getArrayLength() );
+		for ( int i = 0; i < 100; ++i )
+			assertEquals( i * 0.5, copy.getValue( i ), 0 );
+	}
+
+	private static void fillAndCheck( final Img< FloatType > img )
+	{
+		final Random random = new Random( 42 );
+		for ( final FloatType t : img )
+			t.set( random.nextFloat() );
+
+		final Random expected = new Random( 42 );
+		final Cursor< FloatType > c = img.localizingCursor();
+		final RandomAccess< FloatType > ra = img.randomAccess();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			ra.setPosition( c );
+			final float value = expected.nextFloat();
+			assertEquals( value, c.get().get(), 0 );
+			assertEquals( value, ra.get().get(), 0 );
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+
+public class MappedCellImgFactoryTest
+{
+	private Path file;
+
+	@Before
+	public void createFile() throws IOException
+	{
+		file = Files.createTempFile( "imglib2-mapped", ".raw" );
+	}
+
+	@After
+	public void deleteFile() throws IOException
+	{
+		Files.deleteIfExists( file );
+	}
+
+	@Test
+	public void testFlatRawFileAsSlabs() throws IOException
+	{
+		final long[] dims = { 7, 5, 9 };
+		final int n = 7 * 5 * 9;
+		final ByteBuffer bytes = ByteBuffer.allocate( 4 * n ).order( ByteOrder.LITTLE_ENDIAN );
+		for ( int i = 0; i < n; ++i )
+			bytes.putFloat( i );
+		Files.write( file, bytes.array() );
+
+		final CellImg< FloatType, ? > img = new MappedCellImgFactory<>( new FloatType(), file, MapMode.READ_ONLY, 0, ByteOrder.LITTLE_ENDIAN, 7, 5, 2 ).create( dims );
+		final Cursor< FloatType > c = img.localizingCursor();
+		final long[] pos = new long[ 3 ];
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			assertEquals( IntervalIndexer.positionToIndex( pos, dims ), c.get().get(), 0 );
+		}
+	}
+
+	@Test
+	public void testWriteThroughBlocked() throws IOException
+	{
+		final long[] dims = { 10, 10 };
+		final CellImg< FloatType, ? > img = new MappedCellImgFactory<>( new FloatType(), file, MapMode.READ_WRITE, 4 ).create( dims );
+		final ArrayImg< FloatType, FloatArray > reference = ArrayImgs.floats( dims );
+		final RandomAccess< FloatType > ra = img.randomAccess();
+		final Cursor< FloatType > c = reference.localizingCursor();
+		int i = 0;
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.get().set( i++ );
+			ra.setPosition( c );
+			ra.get().set( c.get() );
+		}
+		assertEquals( 4 * 100, Files.size( file ) );
+
+		final CellImg< FloatType, ? > reopened = new MappedCellImgFactory<>( new FloatType(), file, MapMode.READ_ONLY, 4 ).create( dims );
+		final RandomAccess< FloatType > rb = reopened.randomAccess();
+		c.reset();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			rb.setPosition( c );
+			assertEquals( c.get().get(), rb.get().get(), 0 );
+		}
+	}
+
+	@Test
+	public void testPrivateMappingLeavesFileUnchanged() throws IOException
+	{
+		final long[] dims = { 6, 4 };
+		final ByteBuffer bytes = ByteBuffer.allocate( 4 * 24 ).order( ByteOrder.LITTLE_ENDIAN );
+		for ( int i = 0; i < 24; ++i )
+			bytes.putFloat( i );
+		Files.write( file, bytes.array() );
+
+		final CellImg< FloatType, ? > img = new MappedCellImgFactory<>( new FloatType(), file, MapMode.PRIVATE, 0, ByteOrder.LITTLE_ENDIAN, 3, 2 ).create( dims );
+		for ( final FloatType t : img )
+			t.mul( -1 );
+		final RandomAccess< FloatType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 5, 3 } );
+		assertEquals( -23, ra.get().get(), 0 );
+
+		assertArrayEquals( bytes.array(), Files.readAllBytes( file ) );
+	}
+}
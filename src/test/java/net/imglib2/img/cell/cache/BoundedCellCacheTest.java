@@ -0,0 +1,235 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.img.cell.LazyCellImg.Get;
+import net.imglib2.img.cell.cache.BoundedCellCache.Fallback;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class BoundedCellCacheTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 100, 100 }, new int[] { 10, 10 } );
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private Cell< FloatArray > load( final long index )
+	{
+		loads.incrementAndGet();
+		final long[] cellMin = new long[ 2 ];
+		final int[] cellDims = new int[ 2 ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final FloatArray data = new FloatArray( cellDims[ 0 ] * cellDims[ 1 ] );
+		for ( int i = 0; i < data.getArrayLength(); ++i )
+			data.setValue( i, index );
+		return new Cell<>( cellDims, cellMin, data );
+	}
+
+	@Test
+	public void testSizeInBytes()
+	{
+		assertEquals( 400, BoundedCellCache.sizeInBytes( load( 0 ) ) );
+	}
+
+	@Test
+	public void testEviction()
+	{
+		// room for three cells
+		final BoundedCellCache< FloatArray > cache = new BoundedCellCache<>( this::load, 1200, BoundedCellCache::sizeInBytes, Fallback.NONE );
+		cache.get( 0 );
+		cache.get( 1 );
+		cache.get( 2 );
+		cache.get( 0 );
+		cache.get( 3 );
+		assertEquals( 4, cache.getMissCount() );
+		assertEquals( 1, cache.getHitCount() );
+		assertEquals( 1, cache.getEvictionCount() );
+		assertEquals( 1200, cache.getWeight() );
+		assertNull( "least recently used cell should be evicted", cache.getIfPresent( 1 ) );
+		assertNotNull( cache.getIfPresent( 0 ) );
+		cache.get( 1 );
+		assertEquals( 5, loads.get() );
+	}
+
+	@Test
+	public void testSoftFallback()
+	{
+		final BoundedCellCache< FloatArray > cache = new BoundedCellCache<>( this::load, 400 );
+		final Cell< FloatArray > first = cache.get( 0 );
+		cache.get( 1 );
+		assertEquals( 1, cache.getEvictionCount() );
+		// first is strongly reachable here, so it must be recovered
+		assertSame( first, cache.get( 0 ) );
+		assertEquals( 2, loads.get() );
+	}
+
+	@Test
+	public void testConcurrentLoadsOnce() throws Exception
+	{
+		final Get< Cell< FloatArray > > slowLoader = index -> {
+			try
+			{
+				Thread.sleep( 10 );
+			}
+			catch ( final InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+			return load( index );
+		};
+		final BoundedCellCache< FloatArray > cache = new BoundedCellCache<>( slowLoader, Long.MAX_VALUE );
+		final ExecutorService es = Executors.newFixedThreadPool( 8 );
+		final List< Future< Cell< FloatArray > > > futures = new ArrayList<>();
+		for ( int i = 0; i < 64; ++i )
+		{
+			final long index = i % 4;
+			futures.add( es.submit( () -> cache.get( index ) ) );
+		}
+		for ( int i = 0; i < futures.size(); ++i )
+			assertSame( futures.get( i % 4 ).get(), futures.get( i ).get() );
+		es.shutdown();
+		assertEquals( 4, loads.get() );
+		assertEquals( 4, cache.getMissCount() );
+		assertEquals( 60, cache.getHitCount() );
+	}
+
+	@Test
+	public void testConcurrentRecoveryLoadsOnce() throws Exception
+	{
+		// room for one cell, all others are evicted and recovered over and over
+		final BoundedCellCache< FloatArray > cache = new BoundedCellCache<>( this::load, 400 );
+		final Cell< ? >[] cells = new Cell< ? >[ 8 ];
+		final ExecutorService es = Executors.newFixedThreadPool( 8 );
+		final List< Future< ? > > futures = new ArrayList<>();
+		for ( int t = 0; t < 8; ++t )
+		{
+			final Random random = new Random( t );
+			futures.add( es.submit( () -> {
+				for ( int i = 0; i < 20000; ++i )
+				{
+					final int index = random.nextInt( cells.length );
+					final Cell< FloatArray > cell = cache.get( index );
+					// keep the cells reachable, so that none are cleared
+					synchronized ( cells )
+					{
+						if ( cells[ index ] == null )
+							cells[ index ] = cell;
+						assertSame( cells[ index ], cell );
+					}
+				}
+			} ) );
+		}
+		for ( final Future< ? > future : futures )
+			future.get();
+		es.shutdown();
+		assertEquals( cells.length, loads.get() );
+	}
+
+	@Test
+	public void testEvictedWithoutLock() throws Exception
+	{
+		final CountDownLatch evicting = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final BoundedCellCache< FloatArray > cache = new BoundedCellCache< FloatArray >( this::load, 400, BoundedCellCache::sizeInBytes, Fallback.NONE )
+		{
+			@Override
+			protected void evicted( final long index, final Cell< FloatArray > cell )
+			{
+				if ( index != 0 )
+					return;
+				evicting.countDown();
+				try
+				{
+					release.await();
+				}
+				catch ( final InterruptedException e )
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		final Cell< FloatArray > first = cache.get( 0 );
+		final ExecutorService es = Executors.newSingleThreadExecutor();
+		try
+		{
+			final Future< Cell< FloatArray > > second = es.submit( () -> cache.get( 1 ) );
+			evicting.await();
+			// the cache is not locked while cell 0 is evicted
+			assertNotNull( cache.getIfPresent( 1 ) );
+			// and cell 0 is recovered instead of being loaded again
+			assertSame( first, cache.get( 0 ) );
+			release.countDown();
+			assertNotNull( second.get() );
+		}
+		finally
+		{
+			release.countDown();
+			es.shutdown();
+		}
+		assertEquals( 2, loads.get() );
+	}
+
+	@Test
+	public void testLazyCellImg()
+	{
+		final BoundedCellCache< FloatArray > cache = new BoundedCellCache<>( this::load, 4000 );
+		final LazyCellImg< FloatType, FloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		double sum = 0;
+		for ( final FloatType t : img )
+			sum += t.get();
+		assertEquals( 100 * ( 99 * 100 / 2 ), sum, 0 );
+		assertTrue( cache.getWeight() <= 4000 );
+		assertEquals( 100, cache.getMissCount() );
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CellCodecTest
+{
+	private final CellCodec[] codecs = {
+			new Lz4CellCodec(),
+			new DeflateCellCodec(),
+			new ShuffleCellCodec( new Lz4CellCodec() ),
+			new ShuffleCellCodec( new DeflateCellCodec( 1 ) )
+	};
+
+	private static void assertRoundTrip( final CellCodec codec, final byte[] data, final int bytesPerElement )
+	{
+		final byte[] compressed = codec.compress( data, bytesPerElement );
+		final byte[] decompressed = new byte[ data.length ];
+		codec.decompress( compressed, decompressed, bytesPerElement );
+		assertArrayEquals( codec.getClass().getSimpleName() + " " + data.length, data, decompressed );
+	}
+
+	@Test
+	public void testRoundTripRandom()
+	{
+		final Random random = new Random( 1 );
+		for ( final int length : new int[] { 0, 1, 5, 12, 13, 17, 255, 1000, 70000 } )
+		{
+			final byte[] data = new byte[ length ];
+			random.nextBytes( data );
+			for ( final CellCodec codec : codecs )
+			{
+				assertRoundTrip( codec, data, 1 );
+				assertRoundTrip( codec, data, 4 );
+			}
+		}
+	}
+
+	@Test
+	public void testRoundTripRepetitive()
+	{
+		final Random random = new Random( 2 );
+		final byte[] data = new byte[ 200000 ];
+		for ( int i = 0; i < data.length; )
+		{
+			// runs of random lengths, with occasional repeated patterns
+			final int run = random.nextInt( 1000 );
+			final byte value = ( byte ) random.nextInt( 4 );
+			for ( int k = 0; k < run && i < data.length; ++k, ++i )
+				data[ i ] = ( k % 7 == 0 ) ? ( byte ) k : value;
+		}
+		for ( final CellCodec codec : codecs )
+		{
+			assertRoundTrip( codec, data, 2 );
+			assertTrue( codec.compress( data, 2 ).length < data.length / 4 );
+		}
+	}
+
+	@Test
+	public void testShuffle()
+	{
+		final byte[] data = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+		final byte[] shuffled = new byte[ data.length ];
+		ShuffleCellCodec.shuffle( data, shuffled, 4 );
+		assertArrayEquals( new byte[] { 1, 5, 2, 6, 3, 7, 4, 8, 9, 10, 11 }, shuffled );
+		final byte[] unshuffled = new byte[ data.length ];
+		ShuffleCellCodec.unshuffle( shuffled, unshuffled, 4 );
+		assertArrayEquals( data, unshuffled );
+	}
+
+	@Test
+	public void testShuffleImprovesCompression()
+	{
+		// slowly varying 16 bit values, stored little endian
+		final byte[] data = new byte[ 2 * 50000 ];
+		for ( int i = 0; i < data.length / 2; ++i )
+		{
+			final int v = 1000 + ( int ) ( 300 * Math.sin( i * 0.001 ) );
+			data[ 2 * i ] = ( byte ) v;
+			data[ 2 * i + 1 ] = ( byte ) ( v >> 8 );
+		}
+		final int plain = new Lz4CellCodec().compress( data, 2 ).length;
+		final int shuffled = new ShuffleCellCodec( new Lz4CellCodec() ).compress( data, 2 ).length;
+		assertTrue( shuffled < plain );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testLz4Truncated()
+	{
+		final byte[] data = new byte[ 1000 ];
+		final byte[] compressed = new Lz4CellCodec().compress( data, 1 );
+		final byte[] truncated = new byte[ compressed.length - 3 ];
+		System.arraycopy( compressed, 0, truncated, 0, truncated.length );
+		new Lz4CellCodec().decompress( truncated, data, 1 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testLz4WrongLength()
+	{
+		final byte[] compressed = new Lz4CellCodec().compress( new byte[ 1000 ], 1 );
+		new Lz4CellCodec().decompress( compressed, new byte[ 999 ], 1 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testDeflateWrongLength()
+	{
+		final byte[] compressed = new DeflateCellCodec().compress( new byte[ 1000 ], 1 );
+		new DeflateCellCodec().decompress( compressed, new byte[ 1001 ], 1 );
+	}
+}
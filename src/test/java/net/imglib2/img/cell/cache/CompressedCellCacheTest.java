@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.DirtyFloatArray;
+import net.imglib2.img.basictypeaccess.array.DirtyShortArray;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class CompressedCellCacheTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 100, 100 }, new int[] { 10, 10 } );
+
+	@Test
+	public void testReadModifyWrite()
+	{
+		// room for two cells, so most cells are compressed on eviction
+		final CompressedCellCache< DirtyFloatArray > cache = new CompressedCellCache<>( grid, new FloatType(), new Lz4CellCodec(), 800 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		final Cursor< FloatType > c = img.localizingCursor();
+		while ( c.hasNext() )
+			c.next().set( c.getIntPosition( 0 ) + 100 * c.getIntPosition( 1 ) );
+		for ( final FloatType t : img )
+			t.mul( 3 );
+
+		final RandomAccess< FloatType > ra = img.randomAccess();
+		for ( int y = 0; y < 100; y += 7 )
+			for ( int x = 0; x < 100; x += 3 )
+			{
+				ra.setPosition( new int[] { x, y } );
+				assertEquals( 3 * ( x + 100 * y ), ra.get().get(), 0 );
+			}
+		assertTrue( cache.getNumCompressedCells() >= 98 );
+	}
+
+	@Test
+	public void testWriteToEvictedCell()
+	{
+		// room for one cell only
+		final CompressedCellCache< DirtyFloatArray > cache = new CompressedCellCache<>( grid, new FloatType(), new Lz4CellCodec(), 400 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		final RandomAccess< FloatType > a = img.randomAccess();
+		final RandomAccess< FloatType > b = img.randomAccess();
+		a.get().set( 1 );
+		b.setPosition( new long[] { 10, 0 } );
+		b.get().set( 2 );
+		// cell 0 has been evicted and compressed by now, but a still writes to it
+		assertEquals( 1, cache.getCompressionCount() );
+		a.get().set( 5 );
+		assertEquals( 5, img.randomAccess().get().get(), 0 );
+
+		// cell 0 is compressed again on its next eviction
+		b.setPosition( new long[] { 20, 0 } );
+		b.get().set( 3 );
+		assertEquals( 3, cache.getCompressionCount() );
+
+		// and on flush, while it is evicted
+		a.get().set( 7 );
+		cache.flush();
+		assertEquals( 5, cache.getCompressionCount() );
+		assertEquals( 7, img.randomAccess().get().get(), 0 );
+	}
+
+	@Test
+	public void testCleanCellsAreNotCompressed()
+	{
+		final CompressedCellCache< DirtyFloatArray > cache = new CompressedCellCache<>( grid, new FloatType(), new Lz4CellCodec(), 800 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		double sum = 0;
+		for ( final FloatType t : img )
+			sum += t.get();
+		assertEquals( 0, sum, 0 );
+		cache.flush();
+		assertEquals( 0, cache.getCompressionCount() );
+		assertEquals( 0, cache.getNumCompressedCells() );
+	}
+
+	@Test
+	public void testZeroCellsAreDropped()
+	{
+		final CompressedCellCache< DirtyFloatArray > cache = new CompressedCellCache<>( grid, new FloatType(), new Lz4CellCodec(), Long.MAX_VALUE );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		final RandomAccess< FloatType > ra = img.randomAccess();
+		ra.get().set( 5 );
+		cache.flush();
+		assertEquals( 1, cache.getNumCompressedCells() );
+		assertFalse( cache.getIfPresent( 0 ).getData().isDirty() );
+
+		ra.get().set( 0 );
+		cache.invalidateAll();
+		assertEquals( 0, cache.getNumCompressedCells() );
+		assertEquals( 0, cache.getCompressedBytes() );
+		assertEquals( 0, img.randomAccess().get().get(), 0 );
+	}
+
+	@Test
+	public void testCompressionRatio()
+	{
+		final CellGrid large = new CellGrid( new long[] { 256, 256, 64 }, new int[] { 32, 32, 32 } );
+		final CompressedCellCache< DirtyShortArray > cache = new CompressedCellCache<>(
+				large, new UnsignedShortType(), new ShuffleCellCodec( new Lz4CellCodec() ), 1 << 20 );
+		final LazyCellImg< UnsignedShortType, DirtyShortArray > img = new LazyCellImg<>( large, new UnsignedShortType(), cache );
+
+		// a label image of boxes on a background
+		final Cursor< UnsignedShortType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			final int x = c.getIntPosition( 0 ) / 40;
+			final int y = c.getIntPosition( 1 ) / 40;
+			final int z = c.getIntPosition( 2 ) / 20;
+			c.get().set( ( x + y + z ) % 3 == 0 ? 0 : 1 + x + 7 * y + 49 * z );
+		}
+		cache.invalidateAll();
+
+		final long rawBytes = 2L * 256 * 256 * 64;
+		assertTrue( cache.getCompressedBytes() * 10 < rawBytes );
+
+		final Cursor< UnsignedShortType > d = img.localizingCursor();
+		while ( d.hasNext() )
+		{
+			d.fwd();
+			final int x = d.getIntPosition( 0 ) / 40;
+			final int y = d.getIntPosition( 1 ) / 40;
+			final int z = d.getIntPosition( 2 ) / 20;
+			assertEquals( ( x + y + z ) % 3 == 0 ? 0 : 1 + x + 7 * y + 49 * z, d.get().get() );
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.DirtyFloatArray;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class DiskCellCacheTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 100, 100 }, new int[] { 10, 10 } );
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory( "imglib2-disk-cells" );
+	}
+
+	@After
+	public void deleteDirectory() throws IOException
+	{
+		try (final Stream< Path > files = Files.walk( directory ))
+		{
+			files.sorted( Comparator.reverseOrder() ).forEach( p -> p.toFile().delete() );
+		}
+	}
+
+	@Test
+	public void testReadModifyWrite()
+	{
+		// room for two cells, so most cells are written back on eviction
+		final DiskCellCache< DirtyFloatArray > cache = new DiskCellCache<>( grid, new FloatType(), directory, 800 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		for ( final FloatType t : img )
+			t.set( 1 );
+		for ( final FloatType t : img )
+			t.mul( 3 );
+		cache.close();
+		assertEquals( 0, cache.getPendingWriteCount() );
+		assertTrue( Files.exists( cache.getFile( 99 ) ) );
+
+		final DiskCellCache< DirtyFloatArray > reopened = new DiskCellCache<>( grid, new FloatType(), directory, 800 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img2 = new LazyCellImg<>( grid, new FloatType(), reopened );
+		double sum = 0;
+		for ( final FloatType t : img2 )
+			sum += t.get();
+		assertEquals( 3 * 100 * 100, sum, 0 );
+		reopened.close();
+		assertEquals( "clean cells must not be written", 0, reopened.getWriteCount() );
+	}
+
+	@Test
+	public void testCleanCellsAreNotWritten()
+	{
+		final DiskCellCache< DirtyFloatArray > cache = new DiskCellCache<>( grid, new FloatType(), directory, 800 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		double sum = 0;
+		for ( final FloatType t : img )
+			sum += t.get();
+		assertEquals( 0, sum, 0 );
+		cache.flush();
+		assertEquals( 0, cache.getWriteCount() );
+		assertFalse( Files.exists( cache.getFile( 0 ) ) );
+		cache.close();
+	}
+
+	@Test
+	public void testFlushKeepsCells()
+	{
+		final DiskCellCache< DirtyFloatArray > cache = new DiskCellCache<>( grid, new FloatType(), directory, Long.MAX_VALUE );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		img.randomAccess().get().set( 5 );
+		cache.flush();
+		assertEquals( 1, cache.getWriteCount() );
+		assertFalse( cache.getIfPresent( 0 ).getData().isDirty() );
+		assertEquals( 5, img.randomAccess().get().get(), 0 );
+		cache.close();
+	}
+
+	@Test
+	public void testWriteToEvictedCell()
+	{
+		// room for one cell only
+		final DiskCellCache< DirtyFloatArray > cache = new DiskCellCache<>( grid, new FloatType(), directory, 400 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		final RandomAccess< FloatType > a = img.randomAccess();
+		final RandomAccess< FloatType > b = img.randomAccess();
+		a.get().set( 1 );
+		b.setPosition( new long[] { 10, 0 } );
+		b.get().set( 2 );
+		// cell 0 has been evicted and written by now, but a still writes to it
+		cache.flush();
+		a.get().set( 5 );
+		assertEquals( 5, img.randomAccess().get().get(), 0 );
+		b.setPosition( new long[] { 20, 0 } );
+		b.get().set( 3 );
+		cache.close();
+
+		final DiskCellCache< DirtyFloatArray > reopened = new DiskCellCache<>( grid, new FloatType(), directory, 400 );
+		final RandomAccess< FloatType > c = new LazyCellImg<>( grid, new FloatType(), reopened ).randomAccess();
+		assertEquals( 5, c.get().get(), 0 );
+		c.setPosition( new long[] { 10, 0 } );
+		assertEquals( 2, c.get().get(), 0 );
+		c.setPosition( new long[] { 20, 0 } );
+		assertEquals( 3, c.get().get(), 0 );
+		reopened.close();
+	}
+
+	@Test
+	public void testWriteToCollectedCell()
+	{
+		// room for one cell only
+		final DiskCellCache< DirtyFloatArray > cache = new DiskCellCache<>( grid, new FloatType(), directory, 400 );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		final WeakReference< DirtyFloatArray > data = writeToEvictedCell( cache, img );
+		for ( int i = 0; i < 100 && data.get() != null; ++i )
+			System.gc();
+		assumeTrue( data.get() == null );
+
+		// the write is only visible in the collected storage array
+		final long writes = cache.getWriteCount();
+		cache.flush();
+		assertEquals( writes + 1, cache.getWriteCount() );
+		cache.invalidateAll();
+		assertEquals( 5, img.randomAccess().get().get(), 0 );
+		cache.close();
+		assertEquals( "unmodified cells must not be written", writes + 1, cache.getWriteCount() );
+	}
+
+	private static WeakReference< DirtyFloatArray > writeToEvictedCell( final DiskCellCache< DirtyFloatArray > cache, final LazyCellImg< FloatType, DirtyFloatArray > img )
+	{
+		final RandomAccess< FloatType > a = img.randomAccess();
+		a.get().set( 1 );
+		final WeakReference< DirtyFloatArray > data = new WeakReference<>( cache.getIfPresent( 0 ).getData() );
+		final RandomAccess< FloatType > b = img.randomAccess();
+		b.setPosition( new long[] { 10, 0 } );
+		b.get().set( 2 );
+		cache.flush();
+		a.get().set( 5 );
+		return data;
+	}
+
+	@Test
+	public void testWriteAfterInvalidateAll()
+	{
+		final DiskCellCache< DirtyFloatArray > cache = new DiskCellCache<>( grid, new FloatType(), directory, Long.MAX_VALUE );
+		final LazyCellImg< FloatType, DirtyFloatArray > img = new LazyCellImg<>( grid, new FloatType(), cache );
+		final RandomAccess< FloatType > a = img.randomAccess();
+		a.get().set( 1 );
+		cache.invalidateAll();
+		a.get().set( 5 );
+		assertEquals( 5, img.randomAccess().get().get(), 0 );
+		cache.close();
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.imglib2.img.basictypeaccess.volatiles.array.VolatileFloatArray;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.volatiles.VolatileFloatType;
+import net.imglib2.util.Fraction;
+
+public class VolatileCellLoaderTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 100, 100 }, new int[] { 10, 10 } );
+
+	private Cell< VolatileFloatArray > load( final long index )
+	{
+		final long[] cellMin = new long[ 2 ];
+		final int[] cellDims = new int[ 2 ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final VolatileFloatArray data = new VolatileFloatArray( cellDims[ 0 ] * cellDims[ 1 ], true );
+		for ( int i = 0; i < data.getArrayLength(); ++i )
+			data.setValue( i, index );
+		return new Cell<>( cellDims, cellMin, data );
+	}
+
+	@Test
+	public void testPlaceholderThenValid() throws InterruptedException
+	{
+		final CountDownLatch latch = new CountDownLatch( 100 );
+		final VolatileCellLoader< VolatileFloatArray > loader = new VolatileCellLoader< VolatileFloatArray >(
+				grid, new Fraction(), this::load, Long.MAX_VALUE, new VolatileFloatArray( 1, false ), 4 )
+		{
+			@Override
+			protected void loaded( final long index, final Cell< VolatileFloatArray > cell )
+			{
+				latch.countDown();
+			}
+		};
+		final LazyCellImg< VolatileFloatType, VolatileFloatArray > img = new LazyCellImg<>( grid, new VolatileFloatType(), loader );
+
+		boolean allValid = true;
+		for ( final VolatileFloatType t : img )
+			allValid &= t.isValid();
+		assertFalse( allValid );
+
+		assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+		double sum = 0;
+		for ( final VolatileFloatType t : img )
+		{
+			assertTrue( t.isValid() );
+			sum += t.get().get();
+		}
+		assertEquals( 100 * ( 99 * 100 / 2 ), sum, 0 );
+		loader.shutdown();
+	}
+
+	@Test
+	public void testNearestFirst() throws InterruptedException
+	{
+		final CountDownLatch block = new CountDownLatch( 1 );
+		final List< Long > order = Collections.synchronizedList( new ArrayList<>() );
+		final CountDownLatch done = new CountDownLatch( 4 );
+		final VolatileCellLoader< VolatileFloatArray > loader = new VolatileCellLoader< VolatileFloatArray >(
+				grid, new Fraction(), index -> {
+					try
+					{
+						block.await();
+					}
+					catch ( final InterruptedException e )
+					{
+						Thread.currentThread().interrupt();
+					}
+					return load( index );
+				}, Long.MAX_VALUE, new VolatileFloatArray( 1, false ), 1 )
+		{
+			@Override
+			protected void loaded( final long index, final Cell< VolatileFloatArray > cell )
+			{
+				order.add( index );
+				done.countDown();
+			}
+		};
+
+		// occupy the single worker, then queue cells far from and close to the focus
+		loader.get( 50 );
+		while ( loader.getQueueSize() > 0 )
+			Thread.sleep( 1 );
+		loader.setFocus( 95, 95 );
+		loader.get( 0 );
+		loader.get( 1 );
+		loader.get( 99 );
+		assertEquals( 3, loader.getQueueSize() );
+		block.countDown();
+
+		assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+		assertEquals( 50L, ( long ) order.get( 0 ) );
+		assertEquals( 99L, ( long ) order.get( 1 ) );
+		assertEquals( 1L, ( long ) order.get( 2 ) );
+		assertEquals( 0L, ( long ) order.get( 3 ) );
+		loader.shutdown();
+	}
+}
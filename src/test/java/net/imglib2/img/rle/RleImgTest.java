@@ -0,0 +1,301 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.rle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class RleImgTest
+{
+	private final long[] dims = { 37, 11, 4 };
+
+	private RleImg< UnsignedShortType, ? > create()
+	{
+		return new RleImgFactory<>( new UnsignedShortType() ).create( dims );
+	}
+
+	private static void assertValidRuns( final RleLines lines )
+	{
+		for ( int line = 0; line < lines.numLines(); ++line )
+		{
+			final int n = lines.numRuns( line );
+			assertEquals( 0, lines.runStart( line, 0 ) );
+			assertEquals( lines.width(), lines.runEnd( line, n - 1 ) );
+			for ( int r = 1; r < n; ++r )
+			{
+				assertEquals( lines.runEnd( line, r - 1 ), lines.runStart( line, r ) );
+				assertTrue( lines.runStart( line, r ) < lines.runEnd( line, r ) );
+				assertNotEquals( lines.runValue( line, r - 1 ), lines.runValue( line, r ) );
+			}
+		}
+	}
+
+	private static void assertSameValues( final ArrayImg< UnsignedShortType, ShortArray > expected, final RleImg< UnsignedShortType, ? > img )
+	{
+		final Cursor< UnsignedShortType > e = expected.cursor();
+		final Cursor< UnsignedShortType > c = img.cursor();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		while ( e.hasNext() )
+		{
+			final int value = e.next().get();
+			assertEquals( value, c.next().get() );
+			ra.setPosition( e );
+			assertEquals( value, ra.get().get() );
+		}
+	}
+
+	@Test
+	public void testRandomWrites()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > expected = ArrayImgs.unsignedShorts( dims );
+		final RleImg< UnsignedShortType, ? > img = create();
+		final RandomAccess< UnsignedShortType > e = expected.randomAccess();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		final Random random = new Random( 1 );
+		final long[] pos = new long[ dims.length ];
+		for ( int i = 0; i < 20000; ++i )
+		{
+			for ( int d = 0; d < dims.length; ++d )
+				pos[ d ] = random.nextInt( ( int ) dims[ d ] );
+			// few distinct values, so that runs are merged often
+			final int value = random.nextInt( 4 );
+			e.setPosition( pos );
+			e.get().set( value );
+			ra.setPosition( pos );
+			ra.get().set( value );
+			assertEquals( value, ra.get().get() );
+		}
+		assertValidRuns( img.getLines() );
+		assertSameValues( expected, img );
+	}
+
+	@Test
+	public void testConcurrentLineWrites() throws InterruptedException
+	{
+		// each thread writes and reads the lines of one plane
+		final ArrayImg< UnsignedShortType, ShortArray > expected = ArrayImgs.unsignedShorts( dims );
+		final RleImg< UnsignedShortType, ? > img = create();
+		final Thread[] threads = new Thread[ ( int ) dims[ 2 ] ];
+		final AtomicInteger mismatches = new AtomicInteger();
+		for ( int z = 0; z < threads.length; ++z )
+		{
+			final int plane = z;
+			threads[ z ] = new Thread( () -> {
+				final RandomAccess< UnsignedShortType > e = expected.randomAccess();
+				final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+				final RandomAccess< UnsignedShortType > reader = img.randomAccess();
+				final Random random = new Random( plane );
+				final long[] pos = { 0, 0, plane };
+				for ( int i = 0; i < 20000; ++i )
+				{
+					pos[ 0 ] = random.nextInt( ( int ) dims[ 0 ] );
+					pos[ 1 ] = random.nextInt( ( int ) dims[ 1 ] );
+					final int value = random.nextInt( 4 );
+					e.setPosition( pos );
+					e.get().set( value );
+					ra.setPosition( pos );
+					ra.get().set( value );
+					reader.setPosition( pos );
+					if ( reader.get().get() != value )
+						mismatches.incrementAndGet();
+				}
+			} );
+			threads[ z ].start();
+		}
+		for ( final Thread thread : threads )
+			thread.join();
+		assertEquals( 0, mismatches.get() );
+		assertValidRuns( img.getLines() );
+		assertSameValues( expected, img );
+	}
+
+	@Test
+	public void testCursorWrites()
+	{
+		final ArrayImg< UnsignedShortType, ShortArray > expected = ArrayImgs.unsignedShorts( dims );
+		final RleImg< UnsignedShortType, ? > img = create();
+		final Random random = new Random( 2 );
+		final Cursor< UnsignedShortType > e = expected.cursor();
+		final Cursor< UnsignedShortType > c = img.cursor();
+		int value = 0;
+		while ( e.hasNext() )
+		{
+			if ( random.nextInt( 8 ) == 0 )
+				value = random.nextInt( 1000 );
+			e.next().set( value );
+			c.next().set( value );
+		}
+		assertValidRuns( img.getLines() );
+		assertSameValues( expected, img );
+		assertTrue( img.numRuns() < img.size() / 4 );
+	}
+
+	@Test
+	public void testRunCursor()
+	{
+		final RleImg< UnsignedShortType, ? > img = create();
+		final Random random = new Random( 3 );
+		for ( final UnsignedShortType t : img )
+			if ( random.nextInt( 10 ) == 0 )
+				t.set( random.nextInt( 3 ) );
+
+		final RleRunCursor< UnsignedShortType > runs = img.runCursor();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		long numPixels = 0;
+		long numRuns = 0;
+		while ( runs.hasNext() )
+		{
+			runs.fwd();
+			ra.setPosition( runs );
+			for ( int i = 0; i < runs.getRunLength(); ++i )
+			{
+				assertEquals( runs.get().get(), ra.get().get() );
+				ra.fwd( 0 );
+			}
+			numPixels += runs.getRunLength();
+			++numRuns;
+		}
+		assertEquals( img.size(), numPixels );
+		assertEquals( img.numRuns(), numRuns );
+
+		runs.reset();
+		runs.fwd();
+		assertEquals( 0, runs.getLongPosition( 0 ) );
+		assertEquals( runs.getRunLength(), runs.copyCursor().getRunLength() );
+	}
+
+	@Test
+	public void testCursorRunLength()
+	{
+		final RleImg< UnsignedShortType, ? > img = create();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 10, 2, 1 } );
+		ra.get().set( 7 );
+		ra.fwd( 0 );
+		ra.get().set( 7 );
+
+		final RleCursor< UnsignedShortType > c = img.cursor();
+		c.fwd();
+		assertEquals( 37, c.getRunLength() );
+		c.jumpFwd( 37 * 2 + 37 * 11 + 8 );
+		assertEquals( 8, c.getLongPosition( 0 ) );
+		assertEquals( 2, c.getRunLength() );
+		c.jumpFwd( 2 );
+		assertEquals( 7, c.get().get() );
+		assertEquals( 2, c.getRunLength() );
+	}
+
+	@Test
+	public void testEmptyLinesAreReleased()
+	{
+		final RleImg< UnsignedShortType, ? > img = create();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 5, 3, 2 } );
+		ra.get().set( 9 );
+		assertEquals( 11 * 4 + 2, img.numRuns() );
+		ra.get().set( 0 );
+		assertEquals( 11 * 4, img.numRuns() );
+	}
+
+	@Test
+	public void testCopy()
+	{
+		final RleImg< UnsignedShortType, ? > img = create();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 1, 2, 3 } );
+		ra.get().set( 42 );
+		final RleImg< UnsignedShortType, ? > copy = img.copy();
+		final RandomAccess< UnsignedShortType > ca = copy.randomAccess();
+		ca.setPosition( ra );
+		assertEquals( 42, ca.get().get() );
+		ca.get().set( 3 );
+		assertEquals( 42, ra.get().get() );
+		assertEquals( img.numRuns(), copy.numRuns() );
+	}
+
+	@Test
+	public void testSetLine()
+	{
+		final RleLines lines = new RleLines( new long[] { 10, 2 } );
+		lines.setLine( 1, new int[] { 3, 5, 10 }, new long[] { 1, 1, 2 }, 3 );
+		assertEquals( 2, lines.numRuns( 1 ) );
+		assertEquals( 1, lines.get( 1, 4 ) );
+		assertEquals( 2, lines.get( 1, 5 ) );
+		assertEquals( 1, lines.numRuns( 0 ) );
+	}
+
+	@Test
+	public void testTypes()
+	{
+		final RleImg< FloatType, ? > floats = new RleImgFactory<>( new FloatType() ).create( 5, 5 );
+		floats.randomAccess().get().set( -0.5f );
+		assertEquals( -0.5f, floats.firstElement().get(), 0 );
+
+		final RleImg< DoubleType, ? > doubles = new RleImgFactory<>( new DoubleType() ).create( 5, 5 );
+		doubles.randomAccess().get().set( Math.PI );
+		assertEquals( Math.PI, doubles.firstElement().get(), 0 );
+
+		final RleImg< LongType, ? > longs = new RleImgFactory<>( new LongType() ).create( 5, 5 );
+		longs.randomAccess().get().set( Long.MIN_VALUE );
+		assertEquals( Long.MIN_VALUE, longs.firstElement().get() );
+
+		final RleImg< ByteType, ? > bytes = new RleImgFactory<>( new ByteType() ).create( 5, 5 );
+		bytes.randomAccess().get().set( ( byte ) -3 );
+		assertEquals( -3, bytes.firstElement().get() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testPackedTypesAreRejected()
+	{
+		new RleImgFactory<>( new BitType() ).create( 5, 5 );
+	}
+}
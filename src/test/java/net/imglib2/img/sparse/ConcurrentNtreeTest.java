@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.sparse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.parallel.Parallelization;
+import net.imglib2.type.numeric.integer.IntType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ConcurrentNtree}.
+ */
+public class ConcurrentNtreeTest
+{
+	@Test
+	public void testSetValueAndMerge()
+	{
+		final ConcurrentNtree< Integer > t = new ConcurrentNtree<>( new long[] { 256, 257, 100 }, 10 );
+		final long[] pos = new long[] { 27, 38, 99 };
+		final ConcurrentNtree.Node< Integer > before = t.getRootNode();
+
+		t.setValue( pos, 11 );
+		assertEquals( 11, ( int ) t.getValue( pos ) );
+		assertEquals( 10, ( int ) t.getValue( new long[] { 28, 38, 99 } ) );
+		assertTrue( t.getRootNode().hasChildren() );
+
+		// earlier versions are not affected
+		assertFalse( before.hasChildren() );
+		assertEquals( 10, ( int ) before.getValue() );
+
+		t.setValue( pos, 10 );
+		assertFalse( t.getRootNode().hasChildren() );
+		assertEquals( 10, ( int ) t.getValue( pos ) );
+	}
+
+	@Test
+	public void testSameAsNtree()
+	{
+		final long[] dims = { 30, 20, 10 };
+		final Ntree< Integer > expected = new Ntree<>( dims, 0 );
+		final ConcurrentNtree< Integer > t = new ConcurrentNtree<>( dims, 0 );
+		final Random random = new Random( 42 );
+		final long[] pos = new long[ 3 ];
+		for ( int i = 0; i < 10000; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				pos[ d ] = random.nextInt( ( int ) dims[ d ] );
+			final int value = random.nextInt( 3 );
+			expected.setValue( pos, value );
+			t.setValue( pos, value );
+		}
+
+		final Ntree< Integer > copy = t.asNtree();
+		final ConcurrentNtree< Integer > converted = new ConcurrentNtree<>( expected );
+		for ( pos[ 2 ] = 0; pos[ 2 ] < dims[ 2 ]; ++pos[ 2 ] )
+			for ( pos[ 1 ] = 0; pos[ 1 ] < dims[ 1 ]; ++pos[ 1 ] )
+				for ( pos[ 0 ] = 0; pos[ 0 ] < dims[ 0 ]; ++pos[ 0 ] )
+				{
+					assertEquals( expected.getValue( pos ), t.getValue( pos ) );
+					assertEquals( expected.getValue( pos ), copy.getValue( pos ) );
+					assertEquals( expected.getValue( pos ), converted.getValue( pos ) );
+				}
+	}
+
+	@Test
+	public void testConcurrentWrites()
+	{
+		final long[] dims = { 64, 64, 16 };
+		final NtreeImg< IntType, ? > img = new NtreeImgFactory<>( new IntType(), true ).create( dims );
+
+		// each task writes one z-slice, values are read back by all tasks
+		final List< Integer > slices = new ArrayList<>();
+		for ( int z = 0; z < dims[ 2 ]; ++z )
+			slices.add( z );
+		Parallelization.runWithNumThreads( 4, () -> Parallelization.getTaskExecutor().forEach( slices, z -> {
+			final RandomAccess< IntType > ra = img.randomAccess();
+			ra.setPosition( z, 2 );
+			for ( int y = 0; y < dims[ 1 ]; ++y )
+				for ( int x = 0; x < dims[ 0 ]; ++x )
+					if ( ( x + y + z ) % 7 == 0 )
+					{
+						ra.setPosition( x, 0 );
+						ra.setPosition( y, 1 );
+						ra.get().set( z + 1 );
+					}
+		} ) );
+
+		final Cursor< IntType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			final int v = c.next().get();
+			final int x = c.getIntPosition( 0 ), y = c.getIntPosition( 1 ), z = c.getIntPosition( 2 );
+			assertEquals( ( x + y + z ) % 7 == 0 ? z + 1 : 0, v );
+		}
+
+		final NtreeImg< IntType, ? > copy = img.copy();
+		assertEquals( NtreeImgFactory.Storage.CONCURRENT, ( ( NtreeImgFactory< IntType > ) copy.factory() ).getStorage() );
+		final int[] sum = new int[ 1 ];
+		LoopBuilder.setImages( img, copy ).forEachPixel( ( a, b ) -> sum[ 0 ] += a.get() == b.get() ? 0 : 1 );
+		assertEquals( 0, sum[ 0 ] );
+	}
+}
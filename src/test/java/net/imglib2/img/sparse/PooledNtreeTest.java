@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.sparse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link NtreeNodePool} based accesses ({@link IntPooledNtree}, ...).
+ */
+public class PooledNtreeTest
+{
+	@Test
+	public void testSameAsNtree()
+	{
+		final long[] dims = { 30, 20, 10 };
+		final Ntree< Integer > expected = new Ntree<>( dims, 0 );
+		final long[] pos = new long[ 3 ];
+		final IntPooledNtree pooled = new IntPooledNtree( dims, pos, 0 );
+		final Random random = new Random( 42 );
+		for ( int i = 0; i < 10000; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				pos[ d ] = random.nextInt( ( int ) dims[ d ] );
+			final int value = random.nextInt( 3 );
+			expected.setValue( pos, value );
+			pooled.setValue( 0, value );
+		}
+
+		final Ntree< Integer > copy = pooled.getCurrentStorageNtree();
+		for ( pos[ 2 ] = 0; pos[ 2 ] < dims[ 2 ]; ++pos[ 2 ] )
+			for ( pos[ 1 ] = 0; pos[ 1 ] < dims[ 1 ]; ++pos[ 1 ] )
+				for ( pos[ 0 ] = 0; pos[ 0 ] < dims[ 0 ]; ++pos[ 0 ] )
+				{
+					assertEquals( ( int ) expected.getValue( pos ), pooled.getValue( 0 ) );
+					assertEquals( expected.getValue( pos ), copy.getValue( pos ) );
+				}
+	}
+
+	@Test
+	public void testMergeAndCompact()
+	{
+		final long[] dims = { 64, 64, 64 };
+		final long[] pos = new long[ 3 ];
+		final DoublePooledNtree pooled = new DoublePooledNtree( dims, pos, Double.NaN );
+		assertEquals( 1, pooled.numNodes() );
+
+		// checkerboard, then reset everything
+		for ( int pass = 0; pass < 2; ++pass )
+			for ( pos[ 2 ] = 0; pos[ 2 ] < 64; ++pos[ 2 ] )
+				for ( pos[ 1 ] = 0; pos[ 1 ] < 64; ++pos[ 1 ] )
+					for ( pos[ 0 ] = 0; pos[ 0 ] < 64; ++pos[ 0 ] )
+						if ( pass == 1 || ( pos[ 0 ] + pos[ 1 ] + pos[ 2 ] ) % 2 == 0 )
+							pooled.setValue( 0, pass == 0 ? 1.0 : Double.NaN );
+		assertTrue( pooled.numNodes() < 1000 );
+
+		pos[ 0 ] = 3;
+		pos[ 1 ] = 0;
+		pos[ 2 ] = 0;
+		assertTrue( Double.isNaN( pooled.getValue( 0 ) ) );
+		assertTrue( pooled.getCurrentStorageNtree().getRootNode().getChildren() == null );
+	}
+
+	@Test
+	public void testPooledImg()
+	{
+		final long[] dims = { 50, 40, 30 };
+		final Img< UnsignedShortType > expected = ArrayImgs.unsignedShorts( dims );
+		final Random random = new Random( 42 );
+		for ( final UnsignedShortType t : expected )
+			if ( random.nextInt( 10 ) == 0 )
+				t.set( random.nextInt( 3 ) );
+
+		final NtreeImg< UnsignedShortType, ? > img = new NtreeImgFactory<>( new UnsignedShortType(), NtreeImgFactory.Storage.POOLED ).create( dims );
+		Cursor< UnsignedShortType > c = img.cursor();
+		for ( final UnsignedShortType t : expected )
+			c.next().set( t );
+
+		final NtreeImg< UnsignedShortType, ? > copy = img.copy();
+		assertEquals( NtreeImgFactory.Storage.POOLED, ( ( NtreeImgFactory< UnsignedShortType > ) copy.factory() ).getStorage() );
+		c = copy.cursor();
+		for ( final UnsignedShortType t : expected )
+			assertEquals( t.get(), c.next().get() );
+
+		// other primitive types
+		final NtreeImg< DoubleType, ? > doubles = new NtreeImgFactory<>( new DoubleType(), NtreeImgFactory.Storage.POOLED ).create( dims );
+		final Cursor< DoubleType > d = doubles.cursor();
+		for ( final UnsignedShortType t : expected )
+			d.next().setReal( t.get() + 0.5 );
+		d.reset();
+		for ( final UnsignedShortType t : expected )
+			assertEquals( t.get() + 0.5, d.next().get(), 0 );
+	}
+}
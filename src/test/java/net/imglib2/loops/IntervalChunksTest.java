@@ -68,6 +68,20 @@ public class IntervalChunksTest
 		assertArrayEquals( array ( 5, 1 ), IntervalChunks.suggestChunkSize( array ( 10, 10 ), 17 ) );
 	}
 
+	@Test
+	public void testChunkIntervalAligned() {
+		Interval total = Intervals.createMinSize( 0, 0, 10, 10 );
+		List<Interval> blocks = IntervalChunks.chunkIntervalAligned( total, array( 4, 4 ), 2 );
+		assertEquals( 9, blocks.size() );
+		assertIntervalEquals( Intervals.createMinSize( 0, 0, 4, 4 ), blocks.get( 0 ) );
+		assertIntervalEquals( Intervals.createMinSize( 8, 8, 2, 2 ), blocks.get( 8 ) );
+		List<Interval> chunks = IntervalChunks.chunkIntervalAligned( total, array( 10, 5 ), 4 );
+		assertEquals( 6, chunks.size() );
+		assertIntervalEquals( Intervals.createMinSize( 0, 0, 10, 2 ), chunks.get( 0 ) );
+		assertIntervalEquals( Intervals.createMinSize( 0, 4, 10, 1 ), chunks.get( 2 ) );
+		assertIntervalEquals( Intervals.createMinSize( 0, 5, 10, 2 ), chunks.get( 3 ) );
+	}
+
 	@Test
 	public void testGenerateGrid() {
 		Interval total = Intervals.createMinSize( 2,3,10,10 );
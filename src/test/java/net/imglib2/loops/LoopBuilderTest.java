@@ -45,13 +45,19 @@ import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.test.ImgLib2Assert;
 import net.imglib2.test.RandomImgs;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.parallel.CancellationToken;
+import net.imglib2.parallel.ProgressStatistics;
+import net.imglib2.parallel.TaskExecutor;
+import net.imglib2.parallel.TaskExecutors;
 import net.imglib2.util.Intervals;
+import net.imglib2.util.RealSum;
 import net.imglib2.view.Views;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -59,6 +65,8 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests {@link LoopBuilder}.
@@ -221,6 +229,105 @@ public class LoopBuilderTest
 		ImgLib2Assert.assertImageEquals( expected, image );
 	}
 
+	@Test
+	public void testCellAligned()
+	{
+		Img< IntType > input = new CellImgFactory<>( new IntType(), 4, 3 ).create( 10, 10 );
+		RandomImgs.seed( 42 ).randomize( input );
+		Img< IntType > output = ArrayImgs.ints( 10, 10 );
+		List< Object > chunks = LoopBuilder.setImages( input, output ).cellAligned().forEachChunk( CHUNK_COPY_ACTION );
+		assertEquals( 3 * 4, chunks.size() );
+		ImgLib2Assert.assertImageEquals( input, output );
+	}
+
+	@Test
+	public void testBlockShapeMultiThreaded()
+	{
+		Img< IntType > image = new CellImgFactory<>( new IntType(), 3, 3 ).create( 10, 10 );
+		LoopBuilder.setImages( Views.translate( image, 5, 5 ) ).blockShape( 2, 5 ).multiThreaded().forEachPixel( IntType::inc );
+		image.forEach( pixel -> assertEquals( 1, pixel.get() ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNonPositiveBlockShape()
+	{
+		LoopBuilder.setImages( ArrayImgs.ints( 10, 10 ) ).blockShape( 2, 0 );
+	}
+
+	@Test
+	public void testCollectSum()
+	{
+		Img< IntType > image = ArrayImgs.ints( 100, 100 );
+		image.forEach( pixel -> pixel.set( 2 ) );
+		try (TaskExecutor taskExecutor = TaskExecutors.numThreads( 4 ))
+		{
+			RealSum sum = LoopBuilder.setImages( image ).multiThreaded( taskExecutor ).collect(
+					RealSum::new,
+					s -> pixel -> s.add( pixel.getRealDouble() ),
+					( s, other ) -> s.add( other.getSum() ) );
+			assertEquals( 2 * 100 * 100, sum.getSum(), 0 );
+		}
+	}
+
+	@Test
+	public void testCollectMinMax()
+	{
+		Img< IntType > a = ArrayImgs.ints( new int[] { 3, -1, 7, 4 }, 2, 2 );
+		Img< IntType > b = ArrayImgs.ints( new int[] { 1, 1, 0, 1 }, 2, 2 );
+		double[] minMax = LoopBuilder.setImages( a, b ).multiThreaded().collect(
+				() -> new double[] { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY },
+				mm -> ( pa, pb ) -> {
+					if ( pb.get() != 0 )
+					{
+						mm[ 0 ] = Math.min( mm[ 0 ], pa.get() );
+						mm[ 1 ] = Math.max( mm[ 1 ], pa.get() );
+					}
+				},
+				( mm, other ) -> {
+					mm[ 0 ] = Math.min( mm[ 0 ], other[ 0 ] );
+					mm[ 1 ] = Math.max( mm[ 1 ], other[ 1 ] );
+				} );
+		assertEquals( -1, minMax[ 0 ], 0 );
+		assertEquals( 4, minMax[ 1 ], 0 );
+	}
+
+	@Test
+	public void testProgressListener()
+	{
+		ProgressStatistics statistics = new ProgressStatistics();
+		Img< IntType > arrayImage = ArrayImgs.ints( 1000, 1000 );
+		LoopBuilder.setImages( arrayImage ).multiThreaded().progressListener( statistics ).forEachPixel( IntType::inc );
+		assertEquals( 1000 * 1000, statistics.getTotal() );
+		assertEquals( 1000 * 1000, statistics.getCompleted() );
+		assertTrue( statistics.getCompletedChunks() > 1 );
+		assertEquals( 1, statistics.getProgress(), 0 );
+		// random access path
+		LoopBuilder.setImages( Views.translate( arrayImage, 5, 5 ) ).progressListener( statistics ).forEachPixel( IntType::inc );
+		assertEquals( 2 * 1000 * 1000, statistics.getCompleted() );
+		arrayImage.forEach( pixel -> assertEquals( 2, pixel.get() ) );
+	}
+
+	@Test
+	public void testCancellation()
+	{
+		CancellationToken token = new CancellationToken();
+		AtomicInteger count = new AtomicInteger();
+		Img< IntType > image = ArrayImgs.ints( 1000, 1000 );
+		try
+		{
+			LoopBuilder.setImages( image ).cancellationToken( token ).forEachPixel( pixel -> {
+				if ( count.incrementAndGet() == 10 )
+					token.cancel();
+			} );
+			fail( "LoopBuilder failed to throw a CancellationException." );
+		}
+		catch ( CancellationException e )
+		{
+			// expected exception
+		}
+		assertTrue( count.get() < 1000 * 1000 );
+	}
+
 	@Test( expected = IllegalArgumentException.class )
 	public void testCheckDimensions() {
 		RandomAccessibleInterval<IntType> imageA = ArrayImgs.ints( 10, 10 );
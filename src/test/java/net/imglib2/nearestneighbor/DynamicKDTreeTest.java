@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.nearestneighbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.imglib2.DynamicKDTree;
+import net.imglib2.RealPoint;
+import net.imglib2.neighborsearch.NearestNeighborSearchOnDynamicKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnDynamicKDTree;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DynamicKDTree} against exhaustive search.
+ */
+public class DynamicKDTreeTest
+{
+	@Test
+	public void testInsertRemoveSearch()
+	{
+		final Random rnd = new Random( 12345 );
+		final DynamicKDTree< RealPoint > tree = new DynamicKDTree<>( 2 );
+		final Map< Integer, RealPoint > reference = new HashMap<>();
+		final NearestNeighborSearchOnDynamicKDTree< RealPoint > nn = new NearestNeighborSearchOnDynamicKDTree<>( tree );
+		final RadiusNeighborSearchOnDynamicKDTree< RealPoint > radius = new RadiusNeighborSearchOnDynamicKDTree<>( tree );
+		final RealPoint query = new RealPoint( 2 );
+
+		for ( int frame = 0; frame < 50; ++frame )
+		{
+			// add detections
+			for ( int i = 0; i < 200; ++i )
+			{
+				final RealPoint p = new RealPoint( rnd.nextDouble() * 100, rnd.nextDouble() * 100 );
+				final int id = tree.insert( p, p );
+				assertFalse( reference.containsKey( id ) );
+				reference.put( id, p );
+			}
+
+			// remove some detections
+			final List< Integer > ids = new ArrayList<>( reference.keySet() );
+			for ( int i = 0; i < 150; ++i )
+			{
+				final int id = ids.get( rnd.nextInt( ids.size() ) );
+				assertEquals( reference.remove( id ) != null, tree.remove( id ) );
+			}
+			assertEquals( reference.size(), tree.size() );
+
+			for ( int t = 0; t < 20; ++t )
+			{
+				query.setPosition( new double[] { rnd.nextDouble() * 100, rnd.nextDouble() * 100 } );
+
+				double best = Double.MAX_VALUE;
+				int count = 0;
+				for ( final RealPoint p : reference.values() )
+				{
+					final double d = squDistance( p, query );
+					best = Math.min( best, d );
+					if ( d <= 25 )
+						++count;
+				}
+
+				nn.search( query );
+				assertEquals( best, nn.getSquareDistance(), 0 );
+				assertEquals( best, squDistance( nn.getSampler().get(), query ), 0 );
+				assertTrue( reference.get( nn.getId() ) == nn.getSampler().get() );
+
+				radius.search( query, 5, true );
+				assertEquals( count, radius.numNeighbors() );
+				for ( int i = 0; i < count; ++i )
+				{
+					assertTrue( reference.get( radius.getId( i ) ) == radius.getSampler( i ).get() );
+					if ( i > 0 )
+						assertTrue( radius.getSquareDistance( i - 1 ) <= radius.getSquareDistance( i ) );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRemoveAll()
+	{
+		final DynamicKDTree< String > tree = new DynamicKDTree<>( 1 );
+		final List< Integer > ids = new ArrayList<>();
+		for ( int i = 0; i < 1000; ++i )
+			ids.add( tree.insert( "p" + i, new RealPoint( ( double ) i ) ) );
+		for ( final int id : ids )
+			assertTrue( tree.remove( id ) );
+		assertEquals( 0, tree.size() );
+		assertFalse( tree.remove( ids.get( 0 ) ) );
+
+		final int id = tree.insert( "q", new RealPoint( 3.5 ) );
+		final NearestNeighborSearchOnDynamicKDTree< String > nn = new NearestNeighborSearchOnDynamicKDTree<>( tree );
+		nn.search( new RealPoint( 100.0 ) );
+		assertEquals( id, nn.getId() );
+		assertEquals( "q", nn.getSampler().get() );
+	}
+
+	private static double squDistance( final RealPoint a, final RealPoint b )
+	{
+		double sum = 0;
+		for ( int d = 0; d < a.numDimensions(); ++d )
+		{
+			final double diff = a.getDoublePosition( d ) - b.getDoublePosition( d );
+			sum += diff * diff;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.nearestneighbor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.imglib2.FlatKDTree;
+import net.imglib2.KDTree;
+import net.imglib2.RealPoint;
+import net.imglib2.RealPointSampleList;
+import net.imglib2.neighborsearch.KNearestNeighborSearchOnFlatKDTree;
+import net.imglib2.neighborsearch.KNearestNeighborSearchOnKDTree;
+import net.imglib2.neighborsearch.NearestNeighborSearchOnFlatKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnFlatKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnKDTree;
+import net.imglib2.parallel.Parallelization;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link FlatKDTree} and its searches against {@link KDTree}.
+ */
+public class FlatKDTreeTest
+{
+	private static List< RealPoint > createPoints( final int numDimensions, final int numPoints, final Random rnd )
+	{
+		final List< RealPoint > points = new ArrayList<>();
+		final double[] p = new double[ numDimensions ];
+		for ( int i = 0; i < numPoints; ++i )
+		{
+			for ( int d = 0; d < numDimensions; ++d )
+				p[ d ] = rnd.nextInt( 100 ); // integer coordinates to provoke duplicates
+			points.add( new RealPoint( p ) );
+		}
+		return points;
+	}
+
+	private static < T > void assertValidTree( final FlatKDTree< T > tree, final int lo, final int hi, final int d )
+	{
+		if ( lo >= hi )
+			return;
+		final int k = FlatKDTree.mid( lo, hi );
+		final double split = tree.getDoublePosition( k, d );
+		for ( int i = lo; i < k; ++i )
+			assertTrue( tree.getDoublePosition( i, d ) <= split );
+		for ( int i = k + 1; i < hi; ++i )
+			assertTrue( tree.getDoublePosition( i, d ) >= split );
+		final int dChild = ( d + 1 ) % tree.numDimensions();
+		assertValidTree( tree, lo, k, dChild );
+		assertValidTree( tree, k + 1, hi, dChild );
+	}
+
+	@Test
+	public void testParallelConstruction()
+	{
+		final List< RealPoint > points = createPoints( 3, 100000, new Random( 1 ) );
+		final FlatKDTree< RealPoint > tree = Parallelization.runWithNumThreads( 4, () -> new FlatKDTree<>( points, points ) );
+		assertEquals( points.size(), tree.size() );
+		assertValidTree( tree, 0, tree.intSize(), 0 );
+		for ( int i = 0; i < tree.intSize(); ++i )
+			for ( int d = 0; d < 3; ++d )
+				assertEquals( tree.getValue( i ).getDoublePosition( d ), tree.getDoublePosition( i, d ), 0 );
+	}
+
+	@Test
+	public void testSearches()
+	{
+		final Random rnd = new Random( 435435435 );
+		final List< RealPoint > points = createPoints( 3, 10000, rnd );
+		final FlatKDTree< RealPoint > flatTree = new FlatKDTree<>( points, points );
+		final KDTree< RealPoint > kdTree = new KDTree<>( points, points );
+
+		final int k = 7;
+		final NearestNeighborSearchOnFlatKDTree< RealPoint > nn = new NearestNeighborSearchOnFlatKDTree<>( flatTree );
+		final KNearestNeighborSearchOnFlatKDTree< RealPoint > knn = new KNearestNeighborSearchOnFlatKDTree<>( flatTree, k );
+		final RadiusNeighborSearchOnFlatKDTree< RealPoint > radius = new RadiusNeighborSearchOnFlatKDTree<>( flatTree );
+		final KNearestNeighborSearchOnKDTree< RealPoint > knnRef = new KNearestNeighborSearchOnKDTree<>( kdTree, k );
+		final RadiusNeighborSearchOnKDTree< RealPoint > radiusRef = new RadiusNeighborSearchOnKDTree<>( kdTree );
+
+		final RealPoint query = new RealPoint( 3 );
+		for ( int t = 0; t < 1000; ++t )
+		{
+			for ( int d = 0; d < 3; ++d )
+				query.setPosition( rnd.nextDouble() * 120 - 10, d );
+
+			knnRef.search( query );
+			nn.search( query );
+			assertEquals( knnRef.getSquareDistance(), nn.getSquareDistance(), 0 );
+			assertEquals( nn.getSquareDistance(), squDistance( nn.getSampler().get(), query ), 0 );
+
+			knn.search( query );
+			for ( int i = 0; i < k; ++i )
+			{
+				assertEquals( knnRef.getSquareDistance( i ), knn.getSquareDistance( i ), 0 );
+				assertEquals( knn.getSquareDistance( i ), squDistance( knn.getSampler( i ).get(), query ), 0 );
+			}
+
+			radiusRef.search( query, 8, true );
+			radius.search( query, 8, true );
+			assertEquals( radiusRef.numNeighbors(), radius.numNeighbors() );
+			for ( int i = 0; i < radius.numNeighbors(); ++i )
+			{
+				assertEquals( radiusRef.getSquareDistance( i ), radius.getSquareDistance( i ), 0 );
+				assertEquals( radius.getSquareDistance( i ), squDistance( radius.getSampler( i ).get(), query ), 0 );
+			}
+		}
+	}
+
+	@Test
+	public void testPositionArrays()
+	{
+		final double[][] positions = { { 0, 1, 2, 3 }, { 3, 2, 1, 0 } };
+		final FlatKDTree< String > tree = new FlatKDTree<>( Arrays.asList( "a", "b", "c", "d" ), positions );
+		assertEquals( 2, tree.numDimensions() );
+		assertEquals( 0, tree.realMin( 0 ), 0 );
+		assertEquals( 3, tree.realMax( 1 ), 0 );
+
+		final NearestNeighborSearchOnFlatKDTree< String > nn = new NearestNeighborSearchOnFlatKDTree<>( tree );
+		nn.search( new RealPoint( 2.1, 0.8 ) );
+		assertEquals( "c", nn.getSampler().get() );
+		assertEquals( 2, nn.getPosition().getDoublePosition( 0 ), 0 );
+		assertEquals( 1, nn.getPosition().getDoublePosition( 1 ), 0 );
+	}
+
+	@Test
+	public void testBatchSearch()
+	{
+		final Random rnd = new Random( 42 );
+		final List< RealPoint > points = createPoints( 2, 5000, rnd );
+		final FlatKDTree< RealPoint > tree = new FlatKDTree<>( points, points );
+
+		final int numQueries = 10000;
+		final int k = 3;
+		final double[] queries = new double[ 2 * numQueries ];
+		final RealPointSampleList< Integer > queryList = new RealPointSampleList<>( 2 );
+		for ( int j = 0; j < numQueries; ++j )
+		{
+			queries[ 2 * j ] = rnd.nextDouble() * 100;
+			queries[ 2 * j + 1 ] = rnd.nextDouble() * 100;
+			queryList.add( new RealPoint( queries[ 2 * j ], queries[ 2 * j + 1 ] ), j );
+		}
+
+		final NearestNeighborSearchOnFlatKDTree< RealPoint > nn = new NearestNeighborSearchOnFlatKDTree<>( tree );
+		final KNearestNeighborSearchOnFlatKDTree< RealPoint > knn = new KNearestNeighborSearchOnFlatKDTree<>( tree, k );
+		final int[] nnIndices = new int[ numQueries ];
+		final double[] nnDistances = new double[ numQueries ];
+		final int[] nnListIndices = new int[ numQueries ];
+		final int[] knnIndices = new int[ k * numQueries ];
+		final double[] knnDistances = new double[ k * numQueries ];
+		Parallelization.runWithNumThreads( 4, () -> {
+			nn.search( queries, nnIndices, nnDistances );
+			nn.search( queryList, nnListIndices, null );
+			knn.search( queries, knnIndices, knnDistances );
+		} );
+
+		final RealPoint query = new RealPoint( 2 );
+		for ( int j = 0; j < numQueries; ++j )
+		{
+			query.setPosition( queries[ 2 * j ], 0 );
+			query.setPosition( queries[ 2 * j + 1 ], 1 );
+			nn.search( query );
+			assertEquals( nn.getIndex(), nnIndices[ j ] );
+			assertEquals( nn.getSquareDistance(), nnDistances[ j ], 0 );
+			assertEquals( nn.getIndex(), nnListIndices[ j ] );
+			knn.search( query );
+			for ( int i = 0; i < k; ++i )
+			{
+				assertEquals( knn.getSquareDistance( i ), knnDistances[ j * k + i ], 0 );
+				assertEquals( knn.getIndex( i ), knnIndices[ j * k + i ] );
+			}
+		}
+	}
+
+	private static double squDistance( final RealPoint a, final RealPoint b )
+	{
+		double sum = 0;
+		for ( int d = 0; d < a.numDimensions(); ++d )
+		{
+			final double diff = a.getDoublePosition( d ) - b.getDoublePosition( d );
+			sum += diff * diff;
+		}
+		return sum;
+	}
+}
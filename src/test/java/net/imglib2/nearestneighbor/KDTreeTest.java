@@ -34,6 +34,8 @@
 
 package net.imglib2.nearestneighbor;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -43,6 +45,8 @@ import java.util.Random;
 
 import net.imglib2.KDTree;
 import net.imglib2.RealPoint;
+import net.imglib2.Sampler;
+import net.imglib2.neighborsearch.ApproximateKNearestNeighborSearchOnKDTree;
 import net.imglib2.neighborsearch.KNearestNeighborSearchOnKDTree;
 import net.imglib2.neighborsearch.NearestNeighborSearchOnKDTree;
 import net.imglib2.neighborsearch.RadiusNeighborSearchOnKDTree;
@@ -436,6 +440,114 @@ public class KDTreeTest
 		assertTrue( testRadiusNeighbor( 3, 1000, 100, -5, 5 ) );
 	}
 
+	@Test
+	public void testKDTreeRadiusNeighborSearchMaxHits()
+	{
+		final ArrayList< RealPoint > points = new ArrayList< RealPoint >();
+		final Random rnd = new Random( 435435435 );
+		for ( int i = 0; i < 1000; ++i )
+			points.add( new RealPoint( rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble() ) );
+
+		final int maxHits = 10;
+		final KDTree< RealPoint > kdTree = new KDTree< RealPoint >( points, points );
+		final RadiusNeighborSearchOnKDTree< RealPoint > radius = new RadiusNeighborSearchOnKDTree< RealPoint >( kdTree );
+		final KNearestNeighborSearchOnKDTree< RealPoint > knn = new KNearestNeighborSearchOnKDTree< RealPoint >( kdTree, maxHits );
+
+		final RealPoint t = new RealPoint( 3 );
+		for ( int i = 0; i < 100; ++i )
+		{
+			t.setPosition( new double[] { rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble() } );
+			knn.search( t );
+
+			// all points are within the radius, so the maxHits nearest are found
+			radius.search( t, 2, maxHits, true );
+			assertEquals( maxHits, radius.numNeighbors() );
+			for ( int j = 0; j < maxHits; ++j )
+				assertEquals( knn.getSquareDistance( j ), radius.getSquareDistance( j ), 0 );
+
+			// the radius limits the number of hits
+			final double r = Math.nextUp( knn.getDistance( 4 ) );
+			radius.search( t, r, maxHits, false );
+			assertTrue( radius.numNeighbors() >= 5 );
+			assertTrue( radius.numNeighbors() <= maxHits );
+			for ( int j = 0; j < radius.numNeighbors(); ++j )
+				assertTrue( radius.getDistance( j ) <= r );
+		}
+	}
+
+	@Test
+	public void testKDTreeApproximateKNearestNeighborSearch()
+	{
+		final ArrayList< RealPoint > points = new ArrayList< RealPoint >();
+		final Random rnd = new Random( 435435435 );
+		for ( int i = 0; i < 10000; ++i )
+			points.add( new RealPoint( rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble() ) );
+
+		final int k = 5;
+		final double epsilon = 0.5;
+		final KDTree< RealPoint > kdTree = new KDTree< RealPoint >( points, points );
+		final KNearestNeighborSearchOnKDTree< RealPoint > exact = new KNearestNeighborSearchOnKDTree< RealPoint >( kdTree, k );
+		final ApproximateKNearestNeighborSearchOnKDTree< RealPoint > approximate = new ApproximateKNearestNeighborSearchOnKDTree< RealPoint >( kdTree, k, epsilon );
+		final ApproximateKNearestNeighborSearchOnKDTree< RealPoint > zero = new ApproximateKNearestNeighborSearchOnKDTree< RealPoint >( kdTree, k, 0 );
+		final ApproximateKNearestNeighborSearchOnKDTree< RealPoint > limited = new ApproximateKNearestNeighborSearchOnKDTree< RealPoint >( kdTree, k, 0, 50 );
+
+		final RealPoint t = new RealPoint( 3 );
+		for ( int i = 0; i < 100; ++i )
+		{
+			t.setPosition( new double[] { rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble() } );
+			exact.search( t );
+			approximate.search( t );
+			zero.search( t );
+			limited.search( t );
+			for ( int j = 0; j < k; ++j )
+			{
+				assertEquals( exact.getSquareDistance( j ), zero.getSquareDistance( j ), 0 );
+				assertTrue( approximate.getDistance( j ) >= exact.getDistance( j ) );
+				assertTrue( approximate.getDistance( j ) <= ( 1 + epsilon ) * exact.getDistance( j ) + 1e-12 );
+				assertTrue( limited.getDistance( j ) >= exact.getDistance( j ) );
+			}
+			assertTrue( approximate.getVisits() <= zero.getVisits() );
+			assertTrue( limited.getVisits() <= 50 + 20 );
+		}
+	}
+
+	@Test
+	public void testKDTreeRadiusNeighborSearchTies()
+	{
+		// integer points, so that many have equal distance to the reference
+		final ArrayList< RealPoint > points = new ArrayList< RealPoint >();
+		for ( int x = -5; x <= 5; ++x )
+			for ( int y = -5; y <= 5; ++y )
+				points.add( new RealPoint( ( double ) x, y ) );
+		final KDTree< RealPoint > kdTree = new KDTree< RealPoint >( points, points );
+		final RadiusNeighborSearchOnKDTree< RealPoint > radius = new RadiusNeighborSearchOnKDTree< RealPoint >( kdTree );
+		final RealPoint t = new RealPoint( 0.0, 0.0 );
+
+		// ties are sorted in the order they were found, like a stable sort
+		radius.search( t, 4, false );
+		final ArrayList< Sampler< RealPoint > > expected = new ArrayList< Sampler< RealPoint > >();
+		final ArrayList< Double > squDistances = new ArrayList< Double >();
+		for ( int i = 0; i < radius.numNeighbors(); ++i )
+		{
+			expected.add( radius.getSampler( i ) );
+			squDistances.add( radius.getSquareDistance( i ) );
+		}
+		final ArrayList< Integer > order = new ArrayList< Integer >();
+		for ( int i = 0; i < expected.size(); ++i )
+			order.add( i );
+		Collections.sort( order, ( a, b ) -> Double.compare( squDistances.get( a ), squDistances.get( b ) ) );
+
+		radius.search( t, 4, true );
+		assertEquals( order.size(), radius.numNeighbors() );
+		for ( int i = 0; i < order.size(); ++i )
+			assertSame( expected.get( order.get( i ) ), radius.getSampler( i ) );
+
+		radius.search( t, 4, 7, true );
+		assertEquals( 7, radius.numNeighbors() );
+		for ( int i = 0; i < 7; ++i )
+			assertSame( expected.get( order.get( i ) ), radius.getSampler( i ) );
+	}
+
 	public static void main( final String[] args )
 	{
 		for ( int i = 0; i < 5; ++i )
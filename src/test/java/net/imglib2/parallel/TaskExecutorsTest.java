@@ -35,11 +35,17 @@ package net.imglib2.parallel;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Tests {@link TaskExecutors}.
@@ -99,4 +105,52 @@ public class TaskExecutorsTest
 		assertEquals( 2, executor.getParallelism() );
 		assertEquals( 42, executor.suggestNumberOfTasks() );
 	}
+
+	@Test
+	public void testMonitored()
+	{
+		ProgressStatistics statistics = new ProgressStatistics();
+		CancellationToken token = new CancellationToken();
+		TaskExecutor executor = TaskExecutors.monitored( TaskExecutors.multiThreaded(), token, statistics );
+		AtomicInteger sum = new AtomicInteger();
+		executor.forEach( Arrays.asList( 1, 2, 3 ), sum::addAndGet );
+		assertEquals( 6, sum.get() );
+		assertEquals( 3, statistics.getTotal() );
+		assertEquals( 3, statistics.getCompleted() );
+		token.cancel();
+		try
+		{
+			executor.forEach( Arrays.asList( 1, 2, 3 ), sum::addAndGet );
+			fail( "MonitoredTaskExecutor failed to throw a CancellationException." );
+		}
+		catch ( CancellationException e )
+		{
+			// expected exception
+		}
+		assertEquals( 6, sum.get() );
+	}
+
+	@Test
+	public void testMonitoredExecutorService() throws InterruptedException
+	{
+		ProgressStatistics statistics = new ProgressStatistics();
+		CancellationToken token = new CancellationToken();
+		ExecutorService executorService = TaskExecutors.monitored( TaskExecutors.multiThreaded(), token, statistics ).getExecutorService();
+		AtomicInteger sum = new AtomicInteger();
+		executorService.invokeAll( Arrays.asList( () -> sum.addAndGet( 1 ), () -> sum.addAndGet( 2 ) ) );
+		assertEquals( 3, sum.get() );
+		assertEquals( 2, statistics.getCompleted() );
+		token.cancel();
+		Future< Integer > future = executorService.submit( () -> sum.addAndGet( 3 ) );
+		try
+		{
+			future.get();
+			fail( "Monitored ExecutorService failed to skip a task after cancellation." );
+		}
+		catch ( ExecutionException e )
+		{
+			assertTrue( e.getCause() instanceof CancellationException );
+		}
+		assertEquals( 3, sum.get() );
+	}
 }
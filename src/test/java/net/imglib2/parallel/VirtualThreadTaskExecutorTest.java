@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import org.junit.Test;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.type.numeric.integer.IntType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link VirtualThreadTaskExecutor}.
+ */
+public class VirtualThreadTaskExecutorTest
+{
+
+	@Test
+	public void testForEachApply()
+	{
+		try (TaskExecutor executor = TaskExecutors.virtualThreads( 8 ))
+		{
+			assertEquals( 8 * 16, executor.suggestNumberOfTasks() );
+			List< Integer > parameters = IntStream.range( 0, 100 ).boxed().collect( Collectors.toList() );
+			List< Integer > squared = executor.forEachApply( parameters, i -> i * i );
+			assertEquals( IntStream.range( 0, 100 ).map( i -> i * i ).boxed().collect( Collectors.toList() ), squared );
+		}
+	}
+
+	@Test
+	public void testConcurrencyLimit()
+	{
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		try (TaskExecutor executor = TaskExecutors.virtualThreads( 3 ))
+		{
+			executor.forEach( Collections.nCopies( 30, 1 ), i -> {
+				maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+				sleep( 5 );
+				running.decrementAndGet();
+			} );
+		}
+		assertTrue( maxRunning.get() <= 3 );
+	}
+
+	@Test
+	public void testBlockingTasksOverlap()
+	{
+		long start = System.nanoTime();
+		try (TaskExecutor executor = TaskExecutors.virtualThreads( 100 ))
+		{
+			executor.forEach( Collections.nCopies( 100, 1 ), i -> sleep( 50 ) );
+		}
+		long millis = ( System.nanoTime() - start ) / 1000000;
+		assertTrue( "blocking tasks should run concurrently, took " + millis + " ms", millis < 2500 );
+	}
+
+	@Test
+	public void testBlockingReleasesPermit()
+	{
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger blocked = new AtomicInteger();
+		AtomicInteger maxBlocked = new AtomicInteger();
+		try (TaskExecutor executor = TaskExecutors.virtualThreads( 1 ))
+		{
+			executor.forEach( Collections.nCopies( 20, 1 ), i -> {
+				maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+				running.decrementAndGet();
+				try (VirtualThreadTaskExecutor.Blocking blocking = VirtualThreadTaskExecutor.blocking())
+				{
+					maxBlocked.accumulateAndGet( blocked.incrementAndGet(), Math::max );
+					sleep( 50 );
+					blocked.decrementAndGet();
+				}
+				maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+				running.decrementAndGet();
+			} );
+		}
+		assertEquals( 1, maxRunning.get() );
+		assertTrue( "blocking sections should overlap", maxBlocked.get() > 1 );
+	}
+
+	@Test
+	public void testNestedIsSingleThreaded()
+	{
+		try (TaskExecutor executor = TaskExecutors.virtualThreads( 4 ))
+		{
+			List< TaskExecutor > nested = executor.forEachApply( Collections.nCopies( 4, 1 ), i -> Parallelization.getTaskExecutor() );
+			for ( TaskExecutor taskExecutor : nested )
+				assertSame( TaskExecutors.singleThreaded(), taskExecutor );
+		}
+	}
+
+	@Test
+	public void testLoopBuilder()
+	{
+		Img< IntType > image = ArrayImgs.ints( 100, 100 );
+		Parallelization.runWithVirtualThreads( 16, () -> LoopBuilder.setImages( image ).multiThreaded().forEachPixel( IntType::inc ) );
+		image.forEach( pixel -> assertEquals( 1, pixel.get() ) );
+	}
+
+	private static void sleep( long millis )
+	{
+		try
+		{
+			Thread.sleep( millis );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
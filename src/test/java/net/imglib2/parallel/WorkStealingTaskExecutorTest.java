@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2020 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.parallel;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.type.numeric.integer.IntType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link WorkStealingTaskExecutor}.
+ */
+public class WorkStealingTaskExecutorTest
+{
+
+	private final WorkStealingTaskExecutor twoThreads = new WorkStealingTaskExecutor( new ForkJoinPool( 2 ) );
+
+	@After
+	public void shutdown()
+	{
+		twoThreads.close();
+	}
+
+	@Test
+	public void testSuggestNumberOfTasks()
+	{
+		assertEquals( 2, twoThreads.getParallelism() );
+		assertEquals( 32, twoThreads.suggestNumberOfTasks() );
+		try (WorkStealingTaskExecutor oneThread = new WorkStealingTaskExecutor( new ForkJoinPool( 1 ) ))
+		{
+			assertEquals( 1, oneThread.suggestNumberOfTasks() );
+		}
+	}
+
+	@Test
+	public void testForEach()
+	{
+		AtomicInteger sum = new AtomicInteger();
+		List< Integer > parameters = IntStream.rangeClosed( 1, 100 ).boxed().collect( Collectors.toList() );
+		twoThreads.forEach( parameters, sum::addAndGet );
+		assertEquals( 5050, sum.get() );
+	}
+
+	@Test
+	public void testForEachApply()
+	{
+		List< Integer > parameters = IntStream.range( 0, 1000 ).boxed().collect( Collectors.toList() );
+		List< Integer > squared = twoThreads.forEachApply( parameters, i -> i * i );
+		assertEquals( IntStream.range( 0, 1000 ).map( i -> i * i ).boxed().collect( Collectors.toList() ), squared );
+	}
+
+	@Test
+	public void testRunAll()
+	{
+		AtomicInteger sum = new AtomicInteger();
+		List< Runnable > tasks = Arrays.asList( () -> sum.addAndGet( 1 ),
+				() -> sum.addAndGet( 2 ), () -> sum.addAndGet( 3 ) );
+		twoThreads.runAll( tasks );
+		assertEquals( 6, sum.get() );
+	}
+
+	@Test
+	public void testNested()
+	{
+		AtomicInteger count = new AtomicInteger();
+		List< Integer > outer = Collections.nCopies( 10, 10 );
+		twoThreads.forEach( outer, n -> twoThreads.forEach( Collections.nCopies( n, 1 ), count::addAndGet ) );
+		assertEquals( 100, count.get() );
+	}
+
+	@Test
+	public void testExceptionHandling()
+	{
+		try
+		{
+			twoThreads.forEach( Arrays.asList( 1, 2, 3, 4 ), i -> {
+				if ( i == 3 )
+					throw new IllegalStateException();
+			} );
+			fail( "WorkStealingTaskExecutor.forEach() failed to rethrow the exception." );
+		}
+		catch ( IllegalStateException e ) // expected exception
+		{
+		}
+	}
+
+	@Test
+	public void testLoopBuilder()
+	{
+		Img< IntType > image = ArrayImgs.ints( 100, 100 );
+		Parallelization.runWorkStealing( () -> LoopBuilder.setImages( image ).multiThreaded().forEachPixel( IntType::inc ) );
+		image.forEach( pixel -> assertEquals( 1, pixel.get() ) );
+	}
+}
@@ -42,9 +42,13 @@ import static org.junit.Assert.assertTrue;
 import java.math.BigInteger;
 import java.util.Random;
 
+import net.imglib2.Cursor;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ConcurrentLongArray;
 import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.parallel.Parallelization;
 import net.imglib2.type.logic.BitType;
 
 import org.junit.BeforeClass;
@@ -441,4 +445,24 @@ public class BitTypeTest {
 //		fail("Not yet implemented");
 //	}
 
+	/**
+	 * Tests that concurrent writes to {@link BitType}s backed by a
+	 * {@link ConcurrentLongArray} do not lose updates of neighboring bits.
+	 */
+	@Test
+	public void testConcurrentSet()
+	{
+		final long[] dims = { 1000, 1000 };
+		final ArrayImg< BitType, ConcurrentLongArray > bits = ArrayImgs.bits( new ConcurrentLongArray( ( 1000 * 1000 + 63 ) / 64 ), dims );
+		final ArrayImg< BitType, LongArray > expected = ArrayImgs.bits( dims );
+		final Random rnd = new Random( 42 );
+		for ( final BitType t : expected )
+			t.set( rnd.nextBoolean() );
+
+		Parallelization.runWithNumThreads( 4, () -> LoopBuilder.setImages( expected, bits ).multiThreaded().forEachPixel( ( e, b ) -> b.set( e.get() ) ) );
+
+		final Cursor< BitType > c = bits.cursor();
+		for ( final BitType e : expected )
+			assertEquals( e.get(), c.next().get() );
+	}
 }
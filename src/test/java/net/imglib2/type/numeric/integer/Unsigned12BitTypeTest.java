@@ -40,8 +40,14 @@ import static org.junit.Assert.assertTrue;
 import java.math.BigInteger;
 import java.util.Random;
 
+import net.imglib2.Cursor;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ConcurrentLongArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.parallel.Parallelization;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -145,4 +151,25 @@ public class Unsigned12BitTypeTest
 		assertEquals( 3526, b.hashCode() );
 	}
 
+	/**
+	 * Tests that concurrent writes to {@link Unsigned12BitType}s backed by a
+	 * {@link ConcurrentLongArray}, including values split across two longs,
+	 * do not lose updates of neighboring values.
+	 */
+	@Test
+	public void testConcurrentSet()
+	{
+		final long[] dims = { 1000, 100 };
+		final ArrayImg< Unsigned12BitType, ConcurrentLongArray > values = ArrayImgs.unsigned12Bits( new ConcurrentLongArray( 1000 * 100 * 12 / 64 + 1 ), dims );
+		final ArrayImg< Unsigned12BitType, LongArray > expected = ArrayImgs.unsigned12Bits( dims );
+		final Random rnd = new Random( 42 );
+		for ( final Unsigned12BitType t : expected )
+			t.set( rnd.nextInt( 4096 ) );
+
+		Parallelization.runWithNumThreads( 4, () -> LoopBuilder.setImages( expected, values ).multiThreaded().forEachPixel( ( e, v ) -> v.set( e ) ) );
+
+		final Cursor< Unsigned12BitType > c = values.cursor();
+		for ( final Unsigned12BitType e : expected )
+			assertEquals( e.get(), c.next().get() );
+	}
 }
@@ -43,6 +43,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.ListIterator;
+import java.util.Random;
+
+import net.imglib2.parallel.Parallelization;
 
 import org.junit.Test;
 
@@ -635,4 +638,99 @@ public class KthElementTest
 		for ( int p = 0; p < permutation.length; ++p )
 			assertTrue( values.get( p ).equals( origvalues.get( permutation[ p ] ) ) );
 	}
+
+	@Test
+	public void testKthElementsDouble()
+	{
+		final Random random = new Random( 42 );
+		final double[] values = new double[ 10000 ];
+		for ( int p = 0; p < values.length; ++p )
+			values[ p ] = random.nextDouble();
+		final double[] sortedValues = values.clone();
+		Arrays.sort( sortedValues );
+
+		final int[] ks = { 9900, 100, 5000, 0, 9999, 5000, 5001 };
+		KthElement.kthElements( ks, values );
+		assertKthElements( ks, sortedValues, values );
+	}
+
+	@Test
+	public void testKthElementsByteDuplicates()
+	{
+		final Random random = new Random( 42 );
+		final byte[] values = new byte[ 100000 ];
+		for ( int p = 0; p < values.length; ++p )
+			values[ p ] = ( byte ) random.nextInt( 3 );
+		final byte[] sortedValues = values.clone();
+		Arrays.sort( sortedValues );
+
+		final int[] ks = { 1000, 50000, 99000 };
+		KthElement.kthElements( ks, values );
+		for ( final int k : ks )
+			assertEquals( sortedValues[ k ], values[ k ] );
+		Arrays.sort( values );
+		assertArrayEquals( sortedValues, values );
+	}
+
+	@Test
+	public void testKthElementsSubarray()
+	{
+		final int[] values = new int[] { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 };
+		KthElement.kthElements( 2, 7, new int[] { 2, 4, 7 }, values );
+		assertArrayEquals( new int[] { 9, 8 }, Arrays.copyOfRange( values, 0, 2 ) );
+		assertArrayEquals( new int[] { 1, 0 }, Arrays.copyOfRange( values, 8, 10 ) );
+		assertEquals( 2, values[ 2 ] );
+		assertEquals( 4, values[ 4 ] );
+		assertEquals( 7, values[ 7 ] );
+	}
+
+	@Test
+	public void testKthElementsParallel()
+	{
+		final Random random = new Random( 42 );
+		final double[] values = new double[ 1 << 20 ];
+		for ( int p = 0; p < values.length; ++p )
+			values[ p ] = random.nextGaussian();
+		final double[] sortedValues = values.clone();
+		Arrays.sort( sortedValues );
+
+		final int[] ks = { values.length / 100, values.length / 2, values.length * 99 / 100 };
+		Parallelization.runWithNumThreads( 4, () -> KthElement.kthElementsParallel( ks, values ) );
+		assertKthElements( ks, sortedValues, values );
+
+		// already sorted input, with many duplicates
+		final int[] ints = new int[ 1 << 20 ];
+		for ( int p = 0; p < ints.length; ++p )
+			ints[ p ] = p / 1000;
+		final int[] sortedInts = ints.clone();
+		Parallelization.runWithNumThreads( 4, () -> KthElement.kthElementsParallel( ks, ints ) );
+		for ( final int k : ks )
+			assertEquals( sortedInts[ k ], ints[ k ] );
+		Arrays.sort( ints );
+		assertArrayEquals( sortedInts, ints );
+	}
+
+	private static void assertKthElements( final int[] ks, final double[] sortedValues, final double[] values )
+	{
+		final int[] sortedKs = ks.clone();
+		Arrays.sort( sortedKs );
+		for ( int m = 0; m < sortedKs.length; ++m )
+		{
+			final int k = sortedKs[ m ];
+			assertEquals( sortedValues[ k ], values[ k ], 0 );
+
+			// the elements between neighboring k-th positions should be
+			// within their values
+			final int from = m == 0 ? 0 : sortedKs[ m - 1 ] + 1;
+			for ( int p = from; p < k; ++p )
+				assertTrue( values[ p ] <= values[ k ] && ( m == 0 || values[ p ] >= values[ sortedKs[ m - 1 ] ] ) );
+		}
+		for ( int p = sortedKs[ sortedKs.length - 1 ] + 1; p < values.length; ++p )
+			assertTrue( values[ p ] >= values[ sortedKs[ sortedKs.length - 1 ] ] );
+
+		// all elements should be contained in array
+		final double[] copy = values.clone();
+		Arrays.sort( copy );
+		assertArrayEquals( sortedValues, copy, 0 );
+	}
 }
@@ -42,6 +42,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.ListIterator;
+import java.util.Random;
+
+import net.imglib2.parallel.Parallelization;
 
 import org.junit.Test;
 
@@ -473,4 +476,28 @@ public class PartitionTest
 			assertTrue( values.get( k ).equals( origvalues.get( permutation[ k ] ) ) );
 	}
 
+	@Test
+	public void testPartitionPivotValueParallel()
+	{
+		final Random random = new Random( 42 );
+		final float[] values = new float[ 1 << 20 ];
+		for ( int p = 0; p < values.length; ++p )
+			values[ p ] = random.nextInt( 100 );
+		final float[] sortedValues = values.clone();
+		Arrays.sort( sortedValues );
+
+		for ( final boolean inclusive : new boolean[] { false, true } )
+		{
+			final int i = 10;
+			final int j = values.length - 10;
+			final int split = Parallelization.runWithNumThreads( 4, () -> Partition.partitionSubListParallel( i, j, 50f, inclusive, values ) );
+			for ( int p = i; p < split; ++p )
+				assertTrue( inclusive ? values[ p ] <= 50 : values[ p ] < 50 );
+			for ( int p = split; p <= j; ++p )
+				assertTrue( inclusive ? values[ p ] > 50 : values[ p ] >= 50 );
+			final float[] copy = values.clone();
+			Arrays.sort( copy );
+			assertArrayEquals( sortedValues, copy, 0 );
+		}
+	}
 }